@@ -0,0 +1,21 @@
+package com.example.g4parentalmonitor;
+
+import android.app.Application;
+
+import com.example.g4parentalmonitor.core.Log;
+import com.example.g4parentalmonitor.logic.SignaturePacks;
+import com.example.g4parentalmonitor.platform.AndroidLogger;
+
+/**
+ * Wires :core to Android. Runs once per process (main and :vpn) before any
+ * component is created.
+ */
+public class G4Application extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Log.install(new AndroidLogger());
+        SignaturePacks.loadCached(this);
+    }
+}
@@ -3,10 +3,7 @@ package com.example.g4parentalmonitor.data;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
+import com.example.g4parentalmonitor.vpn.VpnStatusPage;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
@@ -14,9 +11,10 @@ import java.util.HashSet;
 public class PrefsManager {
     private static final String PREF_NAME = "G4Prefs";
     private SharedPreferences prefs;
-    private Gson gson = new Gson();
+    private final Context appContext;
 
     public PrefsManager(Context context) {
+        appContext = context.getApplicationContext();
         prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         initializeDefaults();
     }
@@ -53,13 +51,11 @@ public class PrefsManager {
 
     // --- RULE STORAGE ---
     public void saveAppRules(List<AppRule> rules) {
-        prefs.edit().putString("appRulesJson", gson.toJson(rules)).apply();
+        prefs.edit().putString("appRulesJson", RuleCodecs.APP_RULES.toJson(rules)).apply();
     }
 
     public List<AppRule> getAppRules() {
-        String json = prefs.getString("appRulesJson", "[]");
-        Type type = new TypeToken<ArrayList<AppRule>>(){}.getType();
-        return gson.fromJson(json, type);
+        return RuleCodecs.decode(RuleCodecs.APP_RULES, prefs.getString("appRulesJson", "[]"));
     }
 
     // --- LAST SENT LOCATION ---
@@ -97,21 +93,17 @@ public class PrefsManager {
 
     public void saveBlockedLists(List<String> apps, List<String> urls) {
         prefs.edit()
-                .putString("blockedApps", gson.toJson(apps))
-                .putString("blockedUrls", gson.toJson(urls))
+                .putString("blockedApps", RuleCodecs.STRING_LIST.toJson(apps))
+                .putString("blockedUrls", RuleCodecs.STRING_LIST.toJson(urls))
                 .apply();
     }
 
     public List<String> getBlockedApps() {
-        String json = prefs.getString("blockedApps", "[]");
-        Type type = new TypeToken<ArrayList<String>>(){}.getType();
-        return gson.fromJson(json, type);
+        return RuleCodecs.decode(RuleCodecs.STRING_LIST, prefs.getString("blockedApps", "[]"));
     }
 
     public List<String> getBlockedUrls() {
-        String json = prefs.getString("blockedUrls", "[]");
-        Type type = new TypeToken<ArrayList<String>>(){}.getType();
-        return gson.fromJson(json, type);
+        return RuleCodecs.decode(RuleCodecs.STRING_LIST, prefs.getString("blockedUrls", "[]"));
     }
 
     public boolean hasBlockedLists() {
@@ -131,9 +123,18 @@ public class PrefsManager {
     public boolean isUninstallProtectionEnabled() { return prefs.getBoolean("uninstallProtection", true); }
     public boolean isBlockShortsEnabled() { return prefs.getBoolean("blockShorts", true); }
 
+    /** Persistent command channel; off unless the server turns it on. */
+    public void saveLiveChannelEnabled(boolean enabled) { prefs.edit().putBoolean("liveChannel", enabled).apply(); }
+    public boolean isLiveChannelEnabled() { return prefs.getBoolean("liveChannel", false); }
+
     public void saveFcmToken(String token) { prefs.edit().putString("fcmToken", token).apply(); }
     public String getFcmToken() { return prefs.getString("fcmToken", null); }
 
+    // --- DETECTION SIGNATURES ---
+    /** ETag of the signature pack saved by SignaturePacks; null clears it. */
+    public void saveSignaturesEtag(String etag) { prefs.edit().putString("signaturesEtag", etag).apply(); }
+    public String getSignaturesEtag() { return prefs.getString("signaturesEtag", null); }
+
     // ======================================================================
     // --- VPN / DNS FILTER SETTINGS (NEW) ---
     // ======================================================================
@@ -143,8 +144,6 @@ public class PrefsManager {
     private static final String KEY_VPN_BLOCK_ADULT         = "vpnBlockAdult";
     private static final String KEY_VPN_KEEP_ALIVE          = "vpnKeepAlive";
     private static final String KEY_VPN_PREVENT_OVERRIDE    = "vpnPreventOverride";
-    private static final String KEY_VPN_HEARTBEAT_STATE     = "vpnHeartbeatState";
-    private static final String KEY_VPN_HEARTBEAT_TIME      = "vpnHeartbeatTime";
 
     /** Master switch — user wants the VPN DNS filter ON */
     public boolean isVpnFilterEnabled() {
@@ -152,6 +151,7 @@ public class PrefsManager {
     }
     public void setVpnFilterEnabled(boolean enabled) {
         prefs.edit().putBoolean(KEY_VPN_FILTER_ENABLED, enabled).apply();
+        publishVpnControl();
     }
 
     /** Redirect Google/YouTube/Bing to SafeSearch IPs */
@@ -184,19 +184,11 @@ public class PrefsManager {
     }
     public void setPreventVpnOverride(boolean enabled) {
         prefs.edit().putBoolean(KEY_VPN_PREVENT_OVERRIDE, enabled).apply();
+        publishVpnControl();
     }
 
-    /** Written by DnsVpnService every 7 min; read by VpnWatchdogJob */
-    public void setVpnHeartbeat(String state, long timestamp) {
-        prefs.edit()
-                .putString(KEY_VPN_HEARTBEAT_STATE, state)
-                .putLong(KEY_VPN_HEARTBEAT_TIME, timestamp)
-                .apply();
-    }
-    public String getVpnHeartbeatState() {
-        return prefs.getString(KEY_VPN_HEARTBEAT_STATE, "UNKNOWN");
-    }
-    public long getVpnHeartbeatTime() {
-        return prefs.getLong(KEY_VPN_HEARTBEAT_TIME, 0);
+    /** DnsVpnService runs in :vpn and can't see our prefs cache — mirror the switches it reads. */
+    private void publishVpnControl() {
+        VpnStatusPage.get(appContext).publishControl(isVpnFilterEnabled(), isPreventVpnOverride());
     }
 }
\ No newline at end of file
@@ -1,59 +1,61 @@
 package com.example.g4parentalmonitor.logic;
 
 import android.view.accessibility.AccessibilityNodeInfo;
-import java.util.Arrays;
-import java.util.List;
+
+import com.example.g4parentalmonitor.platform.AccessibilityNodes;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 public class ShortsDetector {
 
-    // List of View IDs that represent "Shorts" or "Reels" players
-    private static final List<String> BLOCKED_VIEW_IDS = Arrays.asList(
-            "com.instagram.android:id/root_clips_layout",       // Instagram Reels
-            "com.google.android.youtube:id/reel_recycler",      // YouTube Shorts
-            "app.revanced.android.youtube:id/reel_recycler",    // ReVanced Shorts
-            "com.instagram.android:id/reply_bar_container"      // Instagram Inbox Reels
-    );
-
-    // List of Packages that are purely for short-form content (TikTok)
-    private static final List<String> BLOCKED_PACKAGES = Arrays.asList(
-            "com.ss.android.ugc.trill",
-            "com.zhiliaoapp.musically",
-            "com.ss.android.ugc.aweme"
-    );
+    // Walk limits — Shorts/Reels players sit well within these on current app versions
+    private static final int MAX_DEPTH = 48;
+    private static final int MAX_NODES = 3000;
+
+    /** Blocked outright, whatever is on screen (e.g. TikTok) — no tree needed. */
+    public boolean isBlockedPackage(String currentPackage) {
+        return currentPackage != null && Signatures.current().isShortsPackage(currentPackage);
+    }
+
+    /** Whether {@link #shouldBlockView} has anything to look for in this package's windows. */
+    public boolean inspects(String currentPackage) {
+        if (currentPackage == null) return false;
+        Signatures signatures = Signatures.current();
+        return signatures.isShortsPackage(currentPackage) || signatures.shortsViewIds(currentPackage) != null;
+    }
+
+    public boolean shouldBlockView(AccessibilityNodeInfo rootNode, String currentPackage) {
+        return shouldBlockView(rootNode, currentPackage, () -> false);
+    }
 
     /**
      * Checks if the current screen contains a forbidden view (Shorts/Reels).
      * @param rootNode The root accessibility node of the current window.
      * @param currentPackage The package name of the app currently in foreground.
+     * @param cancelled Polled during the walk; true abandons it (window changed).
      * @return true if the view should be blocked (Back button pressed).
      */
-    public boolean shouldBlockView(AccessibilityNodeInfo rootNode, String currentPackage) {
+    public boolean shouldBlockView(AccessibilityNodeInfo rootNode, String currentPackage,
+                                   BooleanSupplier cancelled) {
         if (rootNode == null || currentPackage == null) return false;
 
+        // View IDs and packages come from the live signature pack (see Signatures)
+        Signatures signatures = Signatures.current();
+
         // 1. Check strict package blocking (e.g. TikTok)
-        if (BLOCKED_PACKAGES.contains(currentPackage)) {
+        if (signatures.isShortsPackage(currentPackage)) {
             return true;
         }
 
-        // 2. Check for specific UI elements (Reels/Shorts players)
-        for (String viewId : BLOCKED_VIEW_IDS) {
-            if (isViewVisible(rootNode, viewId)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    /**
-     * Helper to find if a specific View ID exists in the current hierarchy.
-     */
-    private boolean isViewVisible(AccessibilityNodeInfo root, String viewId) {
+        // 2. One walk looking for this package's Reels/Shorts players; other apps cost nothing
+        Set<String> viewIds = signatures.shortsViewIds(currentPackage);
+        if (viewIds == null) return false;
         try {
-            List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByViewId(viewId);
-            return nodes != null && !nodes.isEmpty();
+            return ViewTreeMatcher.findFirst(rootNode, viewIds, MAX_DEPTH, MAX_NODES,
+                    AccessibilityNodes.INSTANCE, cancelled) != null;
         } catch (Exception e) {
             return false;
         }
     }
-}
\ No newline at end of file
+}
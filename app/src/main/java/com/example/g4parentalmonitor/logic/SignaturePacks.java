@@ -0,0 +1,87 @@
+package com.example.g4parentalmonitor.logic;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.data.PrefsManager;
+import com.example.g4parentalmonitor.data.SignaturePack;
+import com.example.g4parentalmonitor.platform.HttpStack;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * SignaturePacks — keeps the served signature pack on disk and live in {@link Signatures}.
+ *
+ * SyncService fetches /api/signatures with If-None-Match and hands a 200 body to
+ * {@link #apply}; G4Application re-installs the saved pack on every process start.
+ * The saved file and the ETag always describe the same pack, so a 304 never leaves
+ * us on the built-in signatures.
+ */
+public final class SignaturePacks {
+
+    private static final String TAG = "SignaturePacks";
+    private static final String FILE = "signatures.json";
+
+    private SignaturePacks() {}
+
+    /** Installs the last pack fetched, if any. */
+    public static void loadCached(Context context) {
+        File file = new File(context.getFilesDir(), FILE);
+        if (!file.exists()) return;
+        try {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            Signatures signatures = Signatures.compile(HttpStack.gson().fromJson(json, SignaturePack.class));
+            Signatures.install(signatures);
+            Log.d(TAG, "🧩 Signature pack v" + signatures.version + " loaded");
+        } catch (Exception e) {
+            // Forget the ETag too, so the next sync downloads a fresh copy
+            Log.e(TAG, "❌ Saved signature pack unusable: " + e.getMessage());
+            file.delete();
+            new PrefsManager(context).saveSignaturesEtag(null);
+        }
+    }
+
+    /**
+     * Compiles {@code json}, swaps it in and saves it with its ETag.
+     * Returns false if the pack is malformed or older than the one already live.
+     */
+    public static boolean apply(Context context, String json, String etag) {
+        Signatures signatures;
+        try {
+            signatures = Signatures.compile(HttpStack.gson().fromJson(json, SignaturePack.class));
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Rejected signature pack: " + e.getMessage());
+            return false;
+        }
+        if (signatures.version < Signatures.current().version) {
+            Log.w(TAG, "⚠️ Ignoring signature pack v" + signatures.version
+                    + " (v" + Signatures.current().version + " is live)");
+            return false;
+        }
+
+        try {
+            save(context, json);
+        } catch (IOException e) {
+            Log.e(TAG, "❌ Signature pack not saved: " + e.getMessage());
+            return false;
+        }
+        new PrefsManager(context).saveSignaturesEtag(etag);
+        Signatures.install(signatures);
+        Log.d(TAG, "🧩 Signature pack v" + signatures.version + " installed");
+        return true;
+    }
+
+    private static void save(Context context, String json) throws IOException {
+        File file = new File(context.getFilesDir(), FILE);
+        File tmp = new File(context.getFilesDir(), FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("rename failed");
+    }
+}
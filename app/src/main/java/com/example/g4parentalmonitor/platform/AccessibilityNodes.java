@@ -0,0 +1,18 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import com.example.g4parentalmonitor.logic.ViewTreeMatcher;
+
+/** ViewTreeMatcher access to AccessibilityNodeInfo trees; released nodes are recycled. */
+public final class AccessibilityNodes implements ViewTreeMatcher.Nodes<AccessibilityNodeInfo> {
+
+    public static final AccessibilityNodes INSTANCE = new AccessibilityNodes();
+
+    private AccessibilityNodes() {}
+
+    @Override public String viewId(AccessibilityNodeInfo node)   { return node.getViewIdResourceName(); }
+    @Override public int childCount(AccessibilityNodeInfo node)  { return node.getChildCount(); }
+    @Override public AccessibilityNodeInfo child(AccessibilityNodeInfo node, int index) { return node.getChild(index); }
+    @Override public void release(AccessibilityNodeInfo node)    { node.recycle(); }
+}
@@ -0,0 +1,15 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.util.Log;
+
+import com.example.g4parentalmonitor.core.Logger;
+
+/** Routes :core logging to logcat. */
+public class AndroidLogger implements Logger {
+
+    @Override
+    public void log(int priority, String tag, String msg, Throwable tr) {
+        if (tr != null) msg = msg + '\n' + Log.getStackTraceString(tr);
+        Log.println(priority, tag, msg);
+    }
+}
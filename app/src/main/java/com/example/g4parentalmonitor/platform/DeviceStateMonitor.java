@@ -0,0 +1,96 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.LocationManager;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.state.DeviceStateTracker;
+import com.example.g4parentalmonitor.state.States;
+
+/**
+ * DeviceStateMonitor — pushes connectivity and location changes into States.DEVICE
+ * the moment the system reports them: a default-network callback for internet, and a
+ * PROVIDERS_CHANGED / MODE_CHANGED receiver for location. Nothing polls. The mapping
+ * from callbacks to state lives in DeviceStateTracker.
+ */
+public final class DeviceStateMonitor {
+
+    private static final String TAG = "DeviceStateMonitor";
+
+    private final Context context;
+    private final ConnectivityManager cm;
+    private final LocationManager lm;
+    private final DeviceStateTracker<Network> tracker =
+            new DeviceStateTracker<>(States.DEVICE, HttpStack::onNetworkChanged);
+    private boolean started;
+
+    // Runs on the connectivity thread, not the main looper
+    private final ConnectivityManager.NetworkCallback networkCallback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onCapabilitiesChanged(Network n, NetworkCapabilities caps) {
+            log(tracker.onCapabilitiesChanged(n, hasInternet(caps)));
+        }
+
+        @Override
+        public void onLost(Network n) {
+            log(tracker.onLost(n));
+        }
+    };
+
+    private final BroadcastReceiver locationReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context ctx, Intent intent) {
+            log(tracker.onLocationChanged(isLocationEnabled()));
+        }
+    };
+
+    public DeviceStateMonitor(Context context) {
+        this.context = context.getApplicationContext();
+        this.cm = (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.lm = (LocationManager) this.context.getSystemService(Context.LOCATION_SERVICE);
+    }
+
+    public void start() {
+        if (started) return;
+        started = true;
+
+        Network active = cm.getActiveNetwork();
+        boolean hasNet = active != null && hasInternet(cm.getNetworkCapabilities(active));
+        log(tracker.seed(active, hasNet, isLocationEnabled()));
+
+        cm.registerDefaultNetworkCallback(networkCallback);
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(LocationManager.PROVIDERS_CHANGED_ACTION);
+        filter.addAction(LocationManager.MODE_CHANGED_ACTION);
+        context.registerReceiver(locationReceiver, filter);
+    }
+
+    public void stop() {
+        if (!started) return;
+        started = false;
+        try { cm.unregisterNetworkCallback(networkCallback); } catch (Exception ignored) {}
+        try { context.unregisterReceiver(locationReceiver); } catch (Exception ignored) {}
+    }
+
+    private boolean isLocationEnabled() {
+        return lm.isProviderEnabled(LocationManager.GPS_PROVIDER);
+    }
+
+    private static boolean hasInternet(NetworkCapabilities caps) {
+        return caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+
+    private static void log(DeviceStateTracker.Transition transition) {
+        if (transition == DeviceStateTracker.Transition.LOCKED) {
+            Log.w(TAG, "🚨 Device Locked: " + States.DEVICE.get());
+        } else if (transition == DeviceStateTracker.Transition.UNLOCKED) {
+            Log.d(TAG, "✅ Device Unlocked");
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.core.Clock;
+import com.example.g4parentalmonitor.sync.DnsCache;
+import com.example.g4parentalmonitor.sync.HttpMetrics;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * HttpStack — the one OkHttpClient (and Gson) for the main process.
+ *
+ * Every component shares its connection pool, TLS sessions, dispatcher threads and
+ * disk cache, so a sync tick reuses the connection the previous tick opened instead
+ * of paying a new TCP + TLS handshake.
+ *
+ *   DNS         cached 10 min, stale answers served for 6 h if a refresh fails
+ *   cache       2 MB under cacheDir/http (conditional GETs for rules/settings)
+ *   protocols   HTTP/2, falling back to HTTP/1.1
+ *   chain       retry (idempotent calls) → gzip request bodies → network
+ *   metrics     calls, connections, TLS handshakes, bytes; see {@link #metrics()}
+ *
+ * Request bodies are compressed only when the caller marks the request with
+ * {@code Content-Encoding: gzip}; endpoints that can't inflate stay plain.
+ */
+public final class HttpStack {
+
+    private static final String TAG = "HttpStack";
+
+    private static final long CACHE_BYTES  = 2 * 1024 * 1024;
+    private static final long DNS_TTL_MS   = 10 * 60_000L;
+    private static final long DNS_STALE_MS = 6 * 60 * 60_000L;
+    private static final int  MAX_RETRIES  = 2;
+    private static final long RETRY_BASE_MS = 500;
+
+    private static final Gson GSON = new Gson();
+    private static final HttpMetrics METRICS = new HttpMetrics();
+    private static final DnsCache<InetAddress> DNS =
+            new DnsCache<>(Dns.SYSTEM::lookup, DNS_TTL_MS, DNS_STALE_MS, Clock.SYSTEM);
+
+    private static OkHttpClient client;
+
+    private HttpStack() {}
+
+    public static synchronized OkHttpClient client(Context context) {
+        if (client == null) {
+            Context app = context.getApplicationContext();
+            client = new OkHttpClient.Builder()
+                    .connectTimeout(15, TimeUnit.SECONDS)
+                    .writeTimeout(15, TimeUnit.SECONDS)
+                    .readTimeout(30, TimeUnit.SECONDS)
+                    .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .dns(DNS::lookup)
+                    .cache(new Cache(new File(app.getCacheDir(), "http"), CACHE_BYTES))
+                    .addInterceptor(new RetryInterceptor())
+                    .addInterceptor(new GzipRequestInterceptor())
+                    .eventListener(new MetricsListener())
+                    .build();
+        }
+        return client;
+    }
+
+    public static Gson gson() {
+        return GSON;
+    }
+
+    public static HttpMetrics metrics() {
+        return METRICS;
+    }
+
+    /** The default network changed: cached addresses and pooled connections belong to the old one. */
+    public static void onNetworkChanged() {
+        DNS.invalidate();
+        OkHttpClient c;
+        synchronized (HttpStack.class) { c = client; }
+        if (c != null) c.connectionPool().evictAll();
+    }
+
+    // ── Chain ─────────────────────────────────────────────────────────────────
+
+    /** Retries GET/HEAD after an I/O failure, with a short doubling pause. POSTs go through the outbox. */
+    private static final class RetryInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request req = chain.request();
+            boolean idempotent = "GET".equals(req.method()) || "HEAD".equals(req.method());
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return chain.proceed(req);
+                } catch (IOException e) {
+                    if (!idempotent || attempt >= MAX_RETRIES || chain.call().isCanceled()) throw e;
+                    METRICS.onRetry();
+                    Log.w(TAG, "🔁 Retry " + (attempt + 1) + " " + req.url().encodedPath() + ": " + e.getMessage());
+                    try {
+                        Thread.sleep(RETRY_BASE_MS << attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    /** Compresses the body of requests that declare {@code Content-Encoding: gzip}. */
+    private static final class GzipRequestInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request req = chain.request();
+            RequestBody body = req.body();
+            if (body == null || !"gzip".equalsIgnoreCase(req.header("Content-Encoding"))) {
+                return chain.proceed(req);
+            }
+            return chain.proceed(req.newBuilder().method(req.method(), new GzipBody(body)).build());
+        }
+    }
+
+    /**
+     * Gzips {@code body} into the connection as it is written. The length isn't known
+     * up front, so HTTP/1.1 sends it chunked; HTTP/2 frames don't need one.
+     */
+    private static final class GzipBody extends RequestBody {
+        private final RequestBody body;
+
+        GzipBody(RequestBody body) {
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return body.isOneShot();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink gz = Okio.buffer(new GzipSink(sink));
+            body.writeTo(gz);
+            gz.close();   // writes the gzip trailer
+        }
+    }
+
+    private static final class MetricsListener extends EventListener {
+        @Override public void callStart(Call call)                     { METRICS.onCall(); }
+        @Override public void callFailed(Call call, IOException ioe)   { METRICS.onFailure(); }
+        @Override public void connectStart(Call call, InetSocketAddress address, Proxy proxy) { METRICS.onConnect(); }
+        @Override public void secureConnectEnd(Call call, Handshake handshake) { METRICS.onTlsHandshake(); }
+        @Override public void requestBodyEnd(Call call, long byteCount)  { METRICS.onBytes(byteCount, 0); }
+        @Override public void responseBodyEnd(Call call, long byteCount) { METRICS.onBytes(0, byteCount); }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.content.SharedPreferences;
+
+import com.example.g4parentalmonitor.core.KeyValueStore;
+
+import java.util.Map;
+
+/** KeyValueStore over SharedPreferences. */
+public class SharedPreferencesStore implements KeyValueStore {
+
+    private final SharedPreferences prefs;
+
+    public SharedPreferencesStore(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    @Override public String  getString(String key, String defValue)   { return prefs.getString(key, defValue); }
+    @Override public long    getLong(String key, long defValue)       { return prefs.getLong(key, defValue); }
+    @Override public int     getInt(String key, int defValue)         { return prefs.getInt(key, defValue); }
+    @Override public boolean getBoolean(String key, boolean defValue) { return prefs.getBoolean(key, defValue); }
+    @Override public Map<String, ?> getAll()                          { return prefs.getAll(); }
+
+    @Override
+    public Editor edit() {
+        final SharedPreferences.Editor e = prefs.edit();
+        return new Editor() {
+            @Override public Editor putString(String key, String value)   { e.putString(key, value); return this; }
+            @Override public Editor putLong(String key, long value)       { e.putLong(key, value); return this; }
+            @Override public Editor putInt(String key, int value)         { e.putInt(key, value); return this; }
+            @Override public Editor putBoolean(String key, boolean value) { e.putBoolean(key, value); return this; }
+            @Override public Editor remove(String key)                    { e.remove(key); return this; }
+            @Override public void apply()                                 { e.apply(); }
+        };
+    }
+}
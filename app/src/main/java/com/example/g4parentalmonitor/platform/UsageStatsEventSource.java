@@ -0,0 +1,45 @@
+package com.example.g4parentalmonitor.platform;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+
+import com.example.g4parentalmonitor.core.UsageEventSource;
+
+/** UsageEventSource over UsageStatsManager.queryEvents(). */
+public class UsageStatsEventSource implements UsageEventSource {
+
+    private final UsageStatsManager usm;
+
+    public UsageStatsEventSource(Context context) {
+        usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+    }
+
+    @Override
+    public Cursor query(long begin, long end) {
+        final UsageEvents events = usm != null ? usm.queryEvents(begin, end) : null;
+        if (events == null) return out -> false;
+
+        final UsageEvents.Event ev = new UsageEvents.Event();
+        return out -> {
+            if (!events.hasNextEvent()) return false;
+            events.getNextEvent(ev);
+            out.timeStamp   = ev.getTimeStamp();
+            out.type        = mapType(ev.getEventType());
+            out.packageName = ev.getPackageName();
+            return true;
+        };
+    }
+
+    private static int mapType(int type) {
+        switch (type) {
+            case UsageEvents.Event.MOVE_TO_FOREGROUND:     return FOREGROUND;
+            case UsageEvents.Event.MOVE_TO_BACKGROUND:     return BACKGROUND;
+            case UsageEvents.Event.SCREEN_INTERACTIVE:
+            case UsageEvents.Event.KEYGUARD_HIDDEN:        return SCREEN_ON;
+            case UsageEvents.Event.SCREEN_NON_INTERACTIVE:
+            case UsageEvents.Event.KEYGUARD_SHOWN:         return SCREEN_OFF;
+            default:                                       return OTHER;
+        }
+    }
+}
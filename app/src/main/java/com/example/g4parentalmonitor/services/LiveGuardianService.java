@@ -8,7 +8,10 @@ import android.content.IntentFilter; // Added
 import android.graphics.Color;
 import android.graphics.PixelFormat;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import android.view.Gravity;
 import android.view.WindowManager;
 import android.view.accessibility.AccessibilityEvent;
@@ -18,10 +21,15 @@ import android.widget.TextView;
 
 import com.example.g4parentalmonitor.data.PrefsManager;
 import com.example.g4parentalmonitor.logic.BlockedAppsDetector;
+import com.example.g4parentalmonitor.logic.EventCoalescer;
 import com.example.g4parentalmonitor.logic.ShortsDetector;
+import com.example.g4parentalmonitor.state.StateBus;
+import com.example.g4parentalmonitor.state.States;
 import com.example.g4parentalmonitor.utils.ScreenTimeTracker; // Ensure this matches your package
 import com.example.g4parentalmonitor.vpn.WebUrlDetector;
 
+import java.util.function.BooleanSupplier;
+
 
 
 public class LiveGuardianService extends AccessibilityService {
@@ -30,6 +38,18 @@ public class LiveGuardianService extends AccessibilityService {
     private BlockedAppsDetector appBlocker;
     private ShortsDetector shortsBlocker;
     private WebUrlDetector webUrlDetector;
+    private EventCoalescer coalescer;
+
+    private static final String TAG = "LiveGuardian";
+
+    // ── Event coalescing ──────────────────────────────────────────────────────
+    /** At most one tree inspection per frame. */
+    private static final long FRAME_BUDGET_MS     = 16;
+    /** Content/text bursts within this window share one inspection. */
+    private static final long CONTENT_DEBOUNCE_MS = 150;
+    /** Typing in the URL bar: wait for the address to settle. */
+    private static final long BROWSER_DEBOUNCE_MS = 400;
+    private static final long REPORT_INTERVAL_MS  = 60_000;
 
     private WindowManager windowManager;
     private TextView overlayView;
@@ -39,7 +59,14 @@ public class LiveGuardianService extends AccessibilityService {
     private boolean isSystemLocked = false;
     private Handler handler = new Handler(Looper.getMainLooper());
 
-    public static boolean isRestrictedMode = false;
+    // Tree inspection runs here so slow cross-process searches never hold up the main looper
+    private HandlerThread inspectThread;
+    private Handler inspectHandler;
+    /** Bumped on the main thread for every window change; older inspections give up. */
+    private volatile long windowGeneration;
+
+    // Restricted-mode lock follows States.DEVICE as soon as it changes
+    private StateBus.Subscription deviceSubscription;
 
     // --- STEP 1: Define the BroadcastReceiver ---
     private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
@@ -62,11 +89,18 @@ public class LiveGuardianService extends AccessibilityService {
         prefs = new PrefsManager(this);
         windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
 
+        inspectThread = new HandlerThread("g4-a11y-inspect");
+        inspectThread.start();
+        inspectHandler = new Handler(inspectThread.getLooper());
+
         appBlocker = new BlockedAppsDetector(prefs);
         shortsBlocker = new ShortsDetector();
-        webUrlDetector = new WebUrlDetector();
+        webUrlDetector = new WebUrlDetector(this);
+        coalescer = new EventCoalescer(FRAME_BUDGET_MS, pkg ->
+                webUrlDetector.isBrowser(pkg) ? BROWSER_DEBOUNCE_MS : CONTENT_DEBOUNCE_MS);
 
-        startEnforcementLoop();
+        deviceSubscription = States.DEVICE.observe(state -> handler.post(this::applyRestrictedState));
+        States.PROTECTION.update(p -> p.withGuardian(true));
 
         // --- STEP 2: Register the Receiver ---
         IntentFilter filter = new IntentFilter();
@@ -82,42 +116,98 @@ public class LiveGuardianService extends AccessibilityService {
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
         // --- STEP 3: Track App Usage via Window Changes ---
-        if (event.getEventType() == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
+        int type = event.getEventType();
+        if (type == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) {
             CharSequence pkgName = event.getPackageName();
             if (pkgName != null) {
                 ScreenTimeTracker.getInstance(this).onAppForegrounded(pkgName.toString());
             }
         }
 
-        if (event.getPackageName() == null) return;
+        if (event.getPackageName() == null || coalescer == null) return;
         String packageName = event.getPackageName().toString();
+
+        // Window changes go straight through; content/text bursts collapse into one run
+        boolean urgent = type == AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED;
+        if (urgent) {
+            // Anything queued or mid-walk for the previous window is now moot
+            windowGeneration++;
+            inspectHandler.removeCallbacksAndMessages(null);
+        }
+        long token = coalescer.onEvent(packageName, urgent, SystemClock.uptimeMillis());
+        if (token != EventCoalescer.ABSORBED) runInspection(packageName, token);
+    }
+
+    private void runInspection(String packageName, long token) {
+        long now = SystemClock.uptimeMillis();
+        long wait = coalescer.admit(packageName, token, now);
+        if (wait == EventCoalescer.SKIP) return;
+        if (wait > 0) {
+            handler.postDelayed(() -> runInspection(packageName, token), wait);
+            return;
+        }
+
+        inspect(packageName);
+
+        String report = coalescer.report(now, REPORT_INTERVAL_MS);
+        if (report != null) Log.i(TAG, "📊 " + report);
+    }
+
+    /**
+     * Main-thread half: rule checks that need no tree, then a snapshot of what the
+     * window needs looked at, handed to the inspection thread.
+     */
+    private void inspect(String packageName) {
+        // App Blocker
+        if (appBlocker.shouldBlockApp(packageName)) {
+            performGlobalAction(GLOBAL_ACTION_BACK);
+            performGlobalAction(GLOBAL_ACTION_HOME);
+            showBlockedOverlay();
+            return;
+        } else {
+            removeOverlay();
+        }
+
+        boolean blockShorts = prefs != null && prefs.isBlockShortsEnabled();
+        if (blockShorts && shortsBlocker.isBlockedPackage(packageName)) {
+            performGlobalAction(GLOBAL_ACTION_BACK);
+            return;
+        }
+
+        boolean shorts = blockShorts && shortsBlocker.inspects(packageName);
+        boolean browser = webUrlDetector.isBrowser(packageName);
+        if (!shorts && !browser) return;   // nothing in this window worth fetching the tree for
+
+        long generation = windowGeneration;
+        inspectHandler.post(() -> inspectTree(packageName, generation, shorts, browser));
+    }
+
+    /**
+     * Inspection-thread half: fetches and walks the tree, abandoning the work as soon as
+     * the window changes. Only enforcement is posted back to the main thread.
+     */
+    private void inspectTree(String packageName, long generation, boolean shorts, boolean browser) {
+        BooleanSupplier cancelled = () -> windowGeneration != generation;
+        if (cancelled.getAsBoolean()) return;
+
         AccessibilityNodeInfo rootNode = getRootInActiveWindow();
+        if (rootNode == null) return;
 
         try {
-            // App Blocker
-            if (appBlocker.shouldBlockApp(packageName)) {
-                performGlobalAction(GLOBAL_ACTION_BACK);
-                performGlobalAction(GLOBAL_ACTION_HOME);
-                showBlockedOverlay();
-                return;
-            } else {
-                removeOverlay();
-            }
-
             // Shorts Blocker
-            if (prefs != null && prefs.isBlockShortsEnabled()) {
-                if (rootNode != null && shortsBlocker.shouldBlockView(rootNode, packageName)) {
-                    performGlobalAction(GLOBAL_ACTION_BACK);
-                    return;
-                }
+            if (shorts && shortsBlocker.shouldBlockView(rootNode, packageName, cancelled)) {
+                handler.post(() -> {
+                    if (windowGeneration == generation) performGlobalAction(GLOBAL_ACTION_BACK);
+                });
+                return;
             }
 
             // Web Tracker
-            if (rootNode != null && webUrlDetector.isBrowser(packageName)) {
-                webUrlDetector.processBrowserEvent(rootNode);
+            if (browser && !cancelled.getAsBoolean()) {
+                webUrlDetector.processBrowserEvent(rootNode, packageName);
             }
         } finally {
-            if (rootNode != null) rootNode.recycle();
+            rootNode.recycle();
         }
     }
 
@@ -130,21 +220,19 @@ public class LiveGuardianService extends AccessibilityService {
         } catch (Exception ignored) {}
 
         ScreenTimeTracker.getInstance(this).onScreenOff();
+        if (deviceSubscription != null) deviceSubscription.cancel();
+        hideLockScreen();
+        States.PROTECTION.update(p -> p.withGuardian(false));
         handler.removeCallbacksAndMessages(null);
+        if (inspectThread != null) {
+            windowGeneration++;
+            inspectThread.quitSafely();
+        }
     }
 
-    private void startEnforcementLoop() {
-        handler.postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                checkRestrictedState();
-                handler.postDelayed(this, 500);
-            }
-        }, 500);
-    }
-
-    private void checkRestrictedState() {
-        if (isRestrictedMode) {
+    /** Main thread; reads the latest state, so a burst of changes settles on the last one. */
+    private void applyRestrictedState() {
+        if (States.DEVICE.get().isRestricted()) {
             if (!isSystemLocked) showLockScreen();
         } else {
             if (isSystemLocked) hideLockScreen();
@@ -184,6 +272,7 @@ public class LiveGuardianService extends AccessibilityService {
 
             windowManager.addView(systemLockView, params);
             isSystemLocked = true;
+            States.PROTECTION.update(p -> p.withLocked(true));
         } catch (Exception e) { e.printStackTrace(); }
     }
 
@@ -192,6 +281,7 @@ public class LiveGuardianService extends AccessibilityService {
             try { windowManager.removeView(systemLockView); } catch (Exception e) {}
             systemLockView = null;
             isSystemLocked = false;
+            States.PROTECTION.update(p -> p.withLocked(false));
         }
     }
 
@@ -4,13 +4,19 @@ import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.Service;
+import android.content.BroadcastReceiver;
+import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.location.Location;
+import android.net.ConnectivityManager;
 import android.os.BatteryManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.app.NotificationCompat;
 import android.content.pm.PackageManager;
@@ -19,9 +25,32 @@ import com.google.firebase.messaging.FirebaseMessaging;
 
 import com.example.g4parentalmonitor.utils.Constants;
 import com.example.g4parentalmonitor.utils.LocationHelper;
+import com.example.g4parentalmonitor.data.DeviceSettings;
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
 import com.example.g4parentalmonitor.data.PrefsManager;
+import com.example.g4parentalmonitor.data.RuleCodecs;
+import com.example.g4parentalmonitor.logic.SignaturePacks;
+import com.example.g4parentalmonitor.logic.Signatures;
+import com.example.g4parentalmonitor.platform.DeviceStateMonitor;
+import com.example.g4parentalmonitor.platform.HttpStack;
+import com.example.g4parentalmonitor.platform.SharedPreferencesStore;
+import com.example.g4parentalmonitor.state.DeviceState;
+import com.example.g4parentalmonitor.state.StateBus;
+import com.example.g4parentalmonitor.state.States;
+import com.example.g4parentalmonitor.sync.Backoff;
+import com.example.g4parentalmonitor.sync.ChannelPolicy;
+import com.example.g4parentalmonitor.sync.CommandChannel;
+import com.example.g4parentalmonitor.sync.ContentFingerprints;
+import com.example.g4parentalmonitor.sync.EndpointExecutor;
+import com.example.g4parentalmonitor.sync.OutboxUploader;
+import com.example.g4parentalmonitor.sync.PushCommand;
+import com.example.g4parentalmonitor.sync.PushHealth;
+import com.example.g4parentalmonitor.sync.SyncOutbox;
+import com.example.g4parentalmonitor.sync.SyncScheduler;
+import com.example.g4parentalmonitor.usage.UsageDelta;
 import com.example.g4parentalmonitor.utils.UsageStatsHelper;
-import com.example.g4parentalmonitor.vpn.WebUrlDetector;
+import com.example.g4parentalmonitor.vpn.DnsPolicyFile;
+import com.example.g4parentalmonitor.vpn.DnsVpnService;
 
 import com.google.gson.Gson;
 import okhttp3.*;
@@ -37,21 +66,51 @@ public class SyncService extends Service {
     private static final String BASE_URL = Constants.BASE_URL + "/api";
     private static final double DISTANCE_THRESHOLD_METERS = 1.0;
 
-    private static final long APP_SYNC_INTERVAL_MS = 60000;      // 1 Minute
-    private static final long BLOCKED_SYNC_INTERVAL_MS = 60000;  // 1 Minute
-    private static final long BROWSER_SYNC_INTERVAL_MS = 30000;  // 30 Seconds
+    public static final String ACTION_PUSH_COMMAND = "ACTION_SYNC_PUSH_COMMAND";
+    public static final String EXTRA_COMMAND       = "command";
+
+    // Stream cadences (screen on / off / Doze) are in startSchedule()
+    private static final int  APP_FULL_SNAPSHOT_EVERY = 30;      // deltas between full snapshots
+    private static final double SCHEDULE_FLEX = 0.25;            // streams this close to due join a wake-up
+    private static final int  LOW_BATTERY_PERCENT = 15;          // below this (unplugged): Doze cadences
+    private static final long BULK_MAX_DEFER_MS = 6 * 60 * 60000; // 6 Hours holding history on metered networks
+    // While push commands are arriving, polls are only a safety net
+    private static final long PUSH_SAFETY_INTERVAL_MS = 30 * 60000;    // 30 Minutes
+    private static final long PUSH_HEALTHY_WINDOW_MS  = 6 * 60 * 60000; // 6 Hours (server PINGs hourly)
+    private static final long UPLOAD_INTERVAL_MS = 30000;        // 30 Seconds (backoff base)
+    private static final long UPLOAD_BACKOFF_MAX_MS = 30 * 60000; // 30 Minutes
+    // Live channel (opt-in): commands arrive over a WebSocket, uploads relax to 5 minutes
+    private static final long CHANNEL_UPLOAD_INTERVAL_MS = 5 * 60000;  // 5 Minutes
+    private static final long CHANNEL_PING_MS = 60000;                 // 1 Minute (keeps NAT mappings)
+    private static final long CHANNEL_STABLE_MS = 2 * 60000;           // shorter sessions count as flaps
+    private static final int  CHANNEL_MAX_FLAPS = 3;
+    private static final long CHANNEL_FALLBACK_MS = 30 * 60000;        // 30 Minutes of plain polling
 
     // --- HELPERS ---
     private LocationHelper locationHelper;
+    private DeviceStateMonitor deviceStateMonitor;   // network/location → restricted mode
 
     // --- NETWORK & TOOLS ---
-    private final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(15, TimeUnit.SECONDS)
-            .writeTimeout(15, TimeUnit.SECONDS)
-            .build();
-    private final Gson gson = new Gson();
+    private OkHttpClient client;                   // shared HttpStack client
+    private ContentFingerprints fingerprints;      // last applied rules/settings bodies
+    private PushHealth pushHealth;
+    private volatile CommandChannel channel;       // null while the live channel is off
+    private StateBus.Subscription deviceSubscription;
+    private boolean deviceIdle;
+    // One timer for every periodic stream; cadence follows screen, Doze, battery and network
+    private SyncScheduler scheduler;
+    private SyncScheduler.Stream settingsStream, rulesStream, uploadStream;
+    private volatile boolean bulkRequested;        // FLUSH_HISTORY: send history even on metered
+    // Polls revalidate every time: a cached body is only used after a 304
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+    private final Gson gson = HttpStack.gson();
+    // All network calls: 3 threads, one call in flight per endpoint, later ticks merged
+    private final EndpointExecutor io = new EndpointExecutor("g4-sync", 3, 16);
     private final Handler handler = new Handler(Looper.getMainLooper());
     private PrefsManager prefs;
+    private OutboxUploader uploader;
+    private UsageDelta usageDelta;
+    private final Backoff uploadBackoff = new Backoff(UPLOAD_INTERVAL_MS, UPLOAD_BACKOFF_MAX_MS);
 
     private NotificationManager notificationManager;
     private static final int NOTIFICATION_ID = 1;
@@ -102,54 +161,43 @@ public class SyncService extends Service {
         isForegroundStarted = true;
     }
 
-    // --- SECURITY CHECKS ---
-    private boolean isNetworkAvailable() {
-        android.net.ConnectivityManager cm = (android.net.ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
-        android.net.NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        return activeNetwork != null && activeNetwork.isConnected();
-    }
-
-    private boolean isLocationEnabled() {
-        android.location.LocationManager lm = (android.location.LocationManager) getSystemService(LOCATION_SERVICE);
-        return lm.isProviderEnabled(android.location.LocationManager.GPS_PROVIDER);
-    }
-
-    private void checkDeviceState() {
-        boolean hasNet = isNetworkAvailable();
-        boolean hasLoc = isLocationEnabled();
-
-        if (!hasNet || !hasLoc) {
-            if (!LiveGuardianService.isRestrictedMode) {
-                LiveGuardianService.isRestrictedMode = true;
-                Log.w("SyncService", "🚨 Device Locked: Net=" + hasNet + " Loc=" + hasLoc);
-            }
-        } else {
-            if (LiveGuardianService.isRestrictedMode) {
-                LiveGuardianService.isRestrictedMode = false;
-                Log.d("SyncService", "✅ Device Unlocked");
-            }
-        }
-    }
-
     @Override
     public void onCreate() {
         super.onCreate();
         prefs = new PrefsManager(this);
         locationHelper = new LocationHelper(this);
+        // Its disk cache stores ETag/Last-Modified so polls go out as conditional GETs
+        client = HttpStack.client(this);
+        fingerprints = new ContentFingerprints(new SharedPreferencesStore(
+                getSharedPreferences("sync_fingerprints", MODE_PRIVATE)));
+        pushHealth = new PushHealth(new SharedPreferencesStore(
+                getSharedPreferences("push_health", MODE_PRIVATE)), PUSH_HEALTHY_WINDOW_MS);
+        usageDelta = new UsageDelta(new SharedPreferencesStore(
+                getSharedPreferences("usage_delta", MODE_PRIVATE)), APP_FULL_SNAPSHOT_EVERY);
+        uploader = new OutboxUploader(this, client, gson, prefs, usageDelta, BASE_URL);
+        deviceStateMonitor = new DeviceStateMonitor(this);
+        deviceStateMonitor.start();
+        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+        deviceIdle = pm != null && pm.isDeviceIdleMode();
+        updateChannel();
+        deviceSubscription = States.DEVICE.observe(state -> handler.post(this::onDeviceStateChanged));
+        IntentFilter power = new IntentFilter(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
+        power.addAction(Intent.ACTION_SCREEN_ON);
+        power.addAction(Intent.ACTION_SCREEN_OFF);
+        power.addAction(Intent.ACTION_POWER_CONNECTED);
+        power.addAction(Intent.ACTION_POWER_DISCONNECTED);
+        power.addAction(Intent.ACTION_BATTERY_LOW);
+        power.addAction(Intent.ACTION_BATTERY_OKAY);
+        registerReceiver(powerReceiver, power);
         notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
 
         createNotificationChannel();
         startForegroundSafe();
 
-        // Start all monitoring loops
-        startConfigLoop();
-        startLocationLoop();
-        startAppUsageLoop();
-        startBrowserSyncLoop();
-        startBlockedAppsSyncLoop();
+        // Start all monitoring streams
+        startSchedule();
 
         registerFCMToken();
-        startNotificationMonitor();
         ServiceRestartJob.scheduleJob(this);
 
         // ✅ NEW: Start OverlayHeartbeatService.
@@ -166,33 +214,110 @@ public class SyncService extends Service {
         if (prefs == null) prefs = new PrefsManager(this);
         if (locationHelper == null) locationHelper = new LocationHelper(this);
         startForegroundSafe();
+        if (intent != null && ACTION_PUSH_COMMAND.equals(intent.getAction())) {
+            PushCommand command = PushCommand.parse(intent.getStringExtra(EXTRA_COMMAND));
+            if (command != null) handlePushCommand(command);
+        }
         return START_STICKY;
     }
 
     // =========================================================
-    // 🚫 1. BLOCKED APPS SYNC
+    // 📨 PUSH COMMANDS (from MyFirebaseMessagingService)
     // =========================================================
-    private final Runnable blockedAppsRunnable = new Runnable() {
-        @Override
-        public void run() {
-            syncBlockedApps();
-            handler.postDelayed(this, BLOCKED_SYNC_INTERVAL_MS);
+    /** Hands a push command to the service, starting it first if it was killed. */
+    public static void dispatch(Context context, PushCommand command) {
+        Intent i = new Intent(context, SyncService.class)
+                .setAction(ACTION_PUSH_COMMAND)
+                .putExtra(EXTRA_COMMAND, command.name());
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                context.startForegroundService(i);
+            } else {
+                context.startService(i);
+            }
+        } catch (Exception e) {
+            Log.e("SyncService", "❌ Push command " + command + " not delivered", e);
         }
-    };
+    }
+
+    private void handlePushCommand(PushCommand command) {
+        boolean wasHealthy = pushHealth.isHealthy(System.currentTimeMillis());
+        pushHealth.onPush(System.currentTimeMillis());
+        Log.d("SyncService", "📨 Push " + command + (wasHealthy ? "" : " (push healthy, polls → safety interval)"));
+        runCommand(command);
+    }
 
+    /** FCM and the live channel deliver the same commands; only FCM counts toward PushHealth. */
+    private void runCommand(PushCommand command) {
+        switch (command) {
+            case SYNC_SETTINGS:
+                syncSettings();
+                break;
+            case SYNC_RULES:
+                syncBlockedApps();
+                break;
+            case LOCATE_NOW:
+                // Own endpoint key: a scheduled tick's "location" task would replace a pending one
+                locationHelper.fetchCurrentLocation(location -> io.submit("location/now", () -> {
+                    queueLocation(location);
+                    uploadNow();
+                }));
+                break;
+            case FLUSH_HISTORY:
+                bulkRequested = true;   // asked for: don't hold it for Wi-Fi
+                uploadNow();
+                break;
+            case DIAGNOSTICS:
+                io.submit("diagnostics", () -> {
+                    SyncOutbox.append(this, SyncOutbox.DIAGNOSTICS, gson.toJson(diagnostics()));
+                    uploadNow();
+                });
+                break;
+            case PING:
+                break;
+        }
+    }
+
+    private Map<String, Object> diagnostics() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> d = new LinkedHashMap<>();
+        d.put("timestamp", now);
+        d.put("sdk", Build.VERSION.SDK_INT);
+        d.put("device", States.DEVICE.get().toString());
+        d.put("protection", States.PROTECTION.get().toString());   // accessibility up? lock showing?
+        d.put("pushHealthy", pushHealth.isHealthy(now));
+        d.put("channel", channel != null ? channel.report() : "off");
+        d.put("io", io.metrics());
+        d.put("outboxBytes", SyncOutbox.get(this).bytes());
+        d.put("outboxShed", SyncOutbox.get(this).shedCounts());
+        d.put("uploadFailures", uploadBackoff.failures());
+        d.put("schedule", scheduler.snapshot());
+        d.put("signaturesVersion", Signatures.current().version);
+        d.put("batteryLevel", getBatteryLevel());
+        return d;
+    }
+
+    // =========================================================
+    // 🚫 1. BLOCKED APPS SYNC
+    // =========================================================
     private void syncBlockedApps() {
-        new Thread(() -> {
+        io.submit("rules/blocked", () -> {
             try {
                 String deviceId = prefs.getDeviceId();
                 if (deviceId == null) return;
 
                 Request req = new Request.Builder()
                         .url(BASE_URL + "/rules/blocked/" + deviceId)
+                        .cacheControl(REVALIDATE)
                         .get().build();
 
                 try (Response res = client.newCall(req).execute()) {
                     if (res.isSuccessful() && res.body() != null) {
+                        // After a 304 this is the cached copy; either way skip it if already applied
                         String jsonStr = res.body().string();
+                        String fingerprint = ContentFingerprints.of(jsonStr);
+                        if (fingerprints.unchanged("rules/blocked", fingerprint)) return;
+
                         JSONObject json = new JSONObject(jsonStr);
                         JSONArray array = json.optJSONArray("blockedPackages");
 
@@ -204,178 +329,209 @@ public class SyncService extends Service {
                         }
                         prefs.saveBlockedPackages(blockedList);
                         Log.d("SyncService", "🚫 Blocked List Updated: " + blockedList.size() + " apps");
+
+                        // Optional time-scheduled DNS policies for the VPN filter; the rest of
+                        // this body changes more often, so only a new array reloads the VPN
+                        JSONArray schedules = json.optJSONArray("dnsSchedules");
+                        if (schedules != null) {
+                            String schedulesJson = schedules.toString();
+                            String schedulesFingerprint = ContentFingerprints.of(schedulesJson);
+                            if (!fingerprints.unchanged("rules/dnsSchedules", schedulesFingerprint)) {
+                                List<DnsSchedulePolicy> policies = RuleCodecs.decode(RuleCodecs.DNS_POLICIES, schedulesJson);
+                                DnsPolicyFile.save(getApplicationContext(), policies);
+                                DnsVpnService.reloadRules(getApplicationContext());
+                                fingerprints.remember("rules/dnsSchedules", schedulesFingerprint);
+                                Log.d("SyncService", "⏰ DNS Schedules Updated: " + policies.size() + " policies");
+                            }
+                        }
+                        fingerprints.remember("rules/blocked", fingerprint);
                     }
                 }
             } catch (Exception e) {
                 Log.e("SyncService", "❌ Block List Error: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
     // =========================================================
-    // 🌐 2. BROWSER HISTORY SYNC (UPDATED - DUAL MODE)
+    // 📤 2. UPLOAD (outbox + browser history, one request per wake-up)
     // =========================================================
-    private final Runnable browserSyncRunnable = new Runnable() {
-        @Override
-        public void run() {
-            syncBrowserHistory();
-            handler.postDelayed(this, BROWSER_SYNC_INTERVAL_MS);
+    // Location, app usage and the FCM token are appended to the outbox by their
+    // producers; browser history waits in its journals. Everything goes up together
+    // here, so the radio wakes once per interval instead of once per stream. History
+    // is the bulk of it and waits for an unmetered network (SyncScheduler.bulkAllowed).
+    private void submitUpload() {
+        io.submit("sync", this::uploadOutbox);   // merged if one is in flight
+    }
+
+    private void uploadOutbox() {
+        if (!States.DEVICE.get().networkAvailable) return;
+        long now = SystemClock.elapsedRealtime();
+        boolean bulk = bulkRequested || scheduler.bulkAllowed(now);
+        if (uploader.upload(bulk)) {
+            uploadBackoff.success();
+            if (bulk) {
+                bulkRequested = false;
+                scheduler.onBulkSent(now);
+            }
+            return;
         }
-    };
+        long delay = Math.max(uploadBackoff.failure(), scheduler.interval(uploadStream));
+        scheduler.delay(uploadStream, delay, SystemClock.elapsedRealtime());
+        handler.post(this::armWake);
+        Log.w("SyncService", "⏳ Upload retry #" + uploadBackoff.failures() + " in " + delay / 1000 + "s");
+    }
 
-    // ══════════════════════════════════════════════════════════════════════════════
-    // ✅ UPDATED: Drains URLs from BOTH accessibility AND VPN DNS capture
-    // ══════════════════════════════════════════════════════════════════════════════
-    private void syncBrowserHistory() {
-        new Thread(() -> {
-            if (!isNetworkAvailable()) return;
+    /** Runs the upload now instead of at its next turn (merged if one is in flight). */
+    private void uploadNow() {
+        scheduler.runNow(uploadStream);
+        wakeNow();
+    }
 
-            try {
-                // ✅ NEW: Drain from BOTH accessibility AND VPN DNS capture
-                List<String> urlsToSend = WebUrlDetector.drainAllUrls();
+    // =========================================================
+    // 📍 3. LOCATION SYNC
+    // =========================================================
+    private void fetchLocation() {
+        locationHelper.fetchCurrentLocation(this::sendLocationData);
+    }
 
-                if (urlsToSend.isEmpty()) return;
+    private void sendLocationData(Location loc) {
+        io.submit("location", () -> queueLocation(loc));
+    }
 
-                String deviceId = prefs.getDeviceId();
-                if (deviceId == null) return;
+    private void queueLocation(Location loc) {
+        try {
+            if (prefs.hasLastSentLocation()) {
+                double dist = calculateDistance(
+                        prefs.getLastSentLatitude(), prefs.getLastSentLongitude(),
+                        loc.getLatitude(), loc.getLongitude());
+                if (dist < DISTANCE_THRESHOLD_METERS) return;
+            }
 
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("deviceId", deviceId);
-                payload.put("history", urlsToSend);
+            Map<String, Object> data = new HashMap<>();
+            data.put("latitude", loc.getLatitude());
+            data.put("longitude", loc.getLongitude());
+            data.put("batteryLevel", getBatteryLevel());
+            data.put("timestamp", loc.getTime());
+
+            // Queued, not sent: fixes taken offline go up in order with the next upload
+            SyncOutbox.append(this, SyncOutbox.LOCATION, gson.toJson(data));
+            prefs.saveLastSentLocation(loc.getLatitude(), loc.getLongitude());
+            // Live copy for the parent's map; the queued one is what the server keeps
+            boolean streamed = channel != null && channel.send(CommandChannel.frame("loc",
+                    loc.getLatitude(), loc.getLongitude(), data.get("batteryLevel"), loc.getTime()));
+            Log.d("SyncService", streamed ? "📍 Location Queued + Streamed" : "📍 Location Queued");
+        } catch (Exception e) {
+            Log.e("SyncService", "Loc Queue Failed", e);
+        }
+    }
 
-                RequestBody body = RequestBody.create(gson.toJson(payload), MediaType.get("application/json"));
-                Request req = new Request.Builder().url(BASE_URL + "/browser-history").post(body).build();
+    // =========================================================
+    // 📱 4. APP USAGE SYNC
+    // =========================================================
+    private void syncApps() {
+        io.submit("apps", () -> {
+            try {
+                List<UsageDelta.App> currentApps = UsageStatsHelper.getTodayUsage(this);
+                if (currentApps.isEmpty()) return;
 
-                try (Response res = client.newCall(req).execute()) {
-                    if (res.isSuccessful()) {
-                        Log.d("SyncService", "✅ Browser History Synced (" + urlsToSend.size() + " entries from both sources)");
-                    }
-                }
+                // Only apps whose totals changed since the server's last acknowledged snapshot
+                Map<String, Object> message = usageDelta.next(UsageStatsHelper.todayKey(), currentApps);
+                if (message == null) return;
+
+                // Latest-only stream: a newer message replaces one that hasn't gone up yet
+                SyncOutbox.append(this, SyncOutbox.APPS, gson.toJson(message));
+                Log.d("SyncService", "📱 Apps Queued (" + ((List<?>) message.get("apps")).size() + "/"
+                        + currentApps.size() + (Boolean.TRUE.equals(message.get("full")) ? ", full)" : ", delta)"));
             } catch (Exception e) {
-                Log.e("SyncService", "❌ Browser Sync Error", e);
+                Log.e("SyncService", "❌ App Usage Failed", e);
             }
-        }).start();
+        });
     }
 
     // =========================================================
-    // 📍 3. LOCATION SYNC
+    // ⚙️ 5. SETTINGS / STATE MONITOR
     // =========================================================
-    private final Runnable locationRunnable = new Runnable() {
-        @Override
-        public void run() {
-            locationHelper.fetchCurrentLocation(location -> sendLocationData(location));
-            long interval = (getBatteryLevel() < 15) ? (30 * 60 * 1000) : 45000;
-            handler.postDelayed(this, interval);
-        }
-    };
-
-    private void sendLocationData(Location loc) {
-        new Thread(() -> {
-            if (!isNetworkAvailable()) return;
+    private void syncSettings() {
+        io.submit("settings", () -> {
             try {
                 String deviceId = prefs.getDeviceId();
                 if (deviceId == null) return;
-
-                if (prefs.hasLastSentLocation()) {
-                    double dist = calculateDistance(
-                            prefs.getLastSentLatitude(), prefs.getLastSentLongitude(),
-                            loc.getLatitude(), loc.getLongitude());
-                    if (dist < DISTANCE_THRESHOLD_METERS) return;
-                }
-
-                Map<String, Object> data = new HashMap<>();
-                data.put("deviceId", deviceId);
-                data.put("latitude", loc.getLatitude());
-                data.put("longitude", loc.getLongitude());
-                data.put("batteryLevel", getBatteryLevel());
-
-                RequestBody body = RequestBody.create(gson.toJson(data), MediaType.get("application/json"));
-                Request req = new Request.Builder().url(BASE_URL + "/location").post(body).build();
+                Request req = new Request.Builder().url(BASE_URL + "/settings/" + deviceId)
+                        .cacheControl(REVALIDATE)
+                        .get().build();
 
                 try (Response res = client.newCall(req).execute()) {
-                    if (res.isSuccessful()) {
-                        prefs.saveLastSentLocation(loc.getLatitude(), loc.getLongitude());
-                        Log.d("SyncService", "Location Sent ✅");
-                    }
+                    if (!res.isSuccessful() || res.body() == null) return;
+                    String body = res.body().string();
+                    String fingerprint = ContentFingerprints.of(body);
+                    if (fingerprints.unchanged("settings", fingerprint)) return;
+
+                    DeviceSettings settings = gson.fromJson(body, DeviceSettings.class);
+                    if (settings != null) applySettings(settings);
+                    fingerprints.remember("settings", fingerprint);
                 }
             } catch (Exception e) {
-                Log.e("SyncService", "Loc Send Failed", e);
+                Log.e("SyncService", "❌ Settings Sync Error: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
-    // =========================================================
-    // 📱 4. APP USAGE SYNC
-    // =========================================================
-    private final Runnable appUsageRunnable = new Runnable() {
-        @Override
-        public void run() {
-            syncApps();
-            handler.postDelayed(this, APP_SYNC_INTERVAL_MS);
+    /** Fields the server left out keep their current value. */
+    private void applySettings(DeviceSettings s) {
+        prefs.saveGlobalSettings(
+                s.liveTracking != null ? s.liveTracking : prefs.isLiveTrackingEnabled(),
+                s.uninstallProtection != null ? s.uninstallProtection : prefs.isUninstallProtectionEnabled(),
+                s.blockShorts != null ? s.blockShorts : prefs.isBlockShortsEnabled());
+        prefs.saveSettings(
+                s.locationInterval != null ? s.locationInterval : prefs.getLocationInterval(),
+                s.appSyncInterval != null ? s.appSyncInterval : prefs.getAppSyncInterval(),
+                s.lastModified != null ? s.lastModified : prefs.getLastModified());
+        if (s.liveChannel != null && s.liveChannel != prefs.isLiveChannelEnabled()) {
+            prefs.saveLiveChannelEnabled(s.liveChannel);
+            handler.post(this::updateChannel);
         }
-    };
+        Log.d("SyncService", "⚙️ Settings Updated (shorts=" + prefs.isBlockShortsEnabled()
+                + ", live=" + prefs.isLiveTrackingEnabled() + ")");
+    }
 
-    private void syncApps() {
-        new Thread(() -> {
-            if (!isNetworkAvailable()) return;
+    // =========================================================
+    // 🧩 6. DETECTION SIGNATURES (Shorts views, browser URL bars)
+    // =========================================================
+    private void syncSignatures() {
+        io.submit("signatures", () -> {
             try {
-                String deviceId = prefs.getDeviceId();
-                if (deviceId == null) return;
-
-                List<Map<String, Object>> currentApps = UsageStatsHelper.getTodayUsageMinutes(this);
-                if (currentApps == null || currentApps.isEmpty()) return;
+                Request.Builder rb = new Request.Builder().url(BASE_URL + "/signatures").get();
+                String etag = prefs.getSignaturesEtag();
+                if (etag != null) rb.header("If-None-Match", etag);
 
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("deviceId", deviceId);
-                payload.put("apps", currentApps);
-
-                RequestBody body = RequestBody.create(gson.toJson(payload), MediaType.get("application/json"));
-                Request req = new Request.Builder().url(BASE_URL + "/apps").post(body).build();
-
-                try (Response res = client.newCall(req).execute()) {
-                    if (res.isSuccessful()) {
-                        Log.d("SyncService", "✅ Apps Synced (" + currentApps.size() + ")");
-                    } else {
-                        Log.e("SyncService", "❌ App Sync failed: " + res.code());
+                try (Response res = client.newCall(rb.build()).execute()) {
+                    if (res.code() == 304) return;
+                    if (res.isSuccessful() && res.body() != null) {
+                        SignaturePacks.apply(getApplicationContext(), res.body().string(), res.header("ETag"));
                     }
                 }
             } catch (Exception e) {
-                Log.e("SyncService", "❌ App Sync Failed", e);
+                Log.e("SyncService", "❌ Signature Sync Error: " + e.getMessage());
             }
-        }).start();
+        });
     }
 
-    // =========================================================
-    // ⚙️ 5. SETTINGS / STATE MONITOR
-    // =========================================================
-    private final Runnable configRunnable = new Runnable() {
-        @Override
-        public void run() {
-            checkDeviceState();
-            syncSettings();
-            handler.postDelayed(this, 10000);
-        }
-    };
-
-    private void syncSettings() {
-        new Thread(() -> {
-            try {
-                String deviceId = prefs.getDeviceId();
-                if (deviceId == null) return;
-                Request req = new Request.Builder().url(BASE_URL + "/settings/" + deviceId).get().build();
-                client.newCall(req).execute().close();
-            } catch (Exception ignored) {}
-        }).start();
+    // --- STREAMS ---
+    // Cadence per SyncScheduler mode:           screen on    screen off   Doze / low battery
+    private void startSchedule() {
+        scheduler = new SyncScheduler(SCHEDULE_FLEX, BULK_MAX_DEFER_MS, SystemClock.elapsedRealtime());
+        settingsStream = scheduler.add("settings",   10_000,      60_000,      15 * 60000, this::syncSettings);
+        rulesStream    = scheduler.add("rules",      60_000,      5 * 60000,   15 * 60000, this::syncBlockedApps);
+        uploadStream   = scheduler.add("upload",     30_000,      2 * 60000,   15 * 60000, this::submitUpload);
+        scheduler.add("location",                    45_000,      2 * 60000,   30 * 60000, this::fetchLocation);
+        scheduler.add("apps",                        60_000,      5 * 60000,   30 * 60000, this::syncApps);
+        scheduler.add("signatures",                  15 * 60000,  15 * 60000,  60 * 60000, this::syncSignatures);
+        // Nobody can swipe the notification away while the screen is off
+        scheduler.add("notification",                5_000,       15 * 60000,  15 * 60000, this::checkNotification);
+        wakeNow();
     }
 
-    // --- LOOP STARTERS ---
-    private void startLocationLoop()        { handler.post(locationRunnable); }
-    private void startAppUsageLoop()        { handler.post(appUsageRunnable); }
-    private void startConfigLoop()          { handler.post(configRunnable); }
-    private void startBrowserSyncLoop()     { handler.post(browserSyncRunnable); }
-    private void startBlockedAppsSyncLoop() { handler.post(blockedAppsRunnable); }
-    private void startNotificationMonitor() { handler.post(notificationMonitor); }
-
     private int getBatteryLevel() {
         BatteryManager bm = (BatteryManager) getSystemService(BATTERY_SERVICE);
         return (bm != null) ? bm.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY) : 50;
@@ -434,56 +590,178 @@ public class SyncService extends Service {
     }
 
     private void sendTokenToServer(String token) {
-        new Thread(() -> {
-            if (!isNetworkAvailable()) return;
-            try {
-                String deviceId = prefs.getDeviceId();
-                if (deviceId == null) return;
-
-                Map<String, Object> payload = new HashMap<>();
-                payload.put("deviceId", deviceId);
-                payload.put("fcmToken", token);
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("fcmToken", token);
+        io.submit("devices/update-token", () -> {
+            SyncOutbox.append(this, SyncOutbox.TOKEN, gson.toJson(payload));
+            Log.d("SyncService", "🔔 FCM Token Queued");
+        });
+    }
 
-                RequestBody body = RequestBody.create(gson.toJson(payload), MediaType.get("application/json"));
-                Request req = new Request.Builder()
-                        .url(BASE_URL + "/devices/update-token").post(body).build();
+    // =========================================================
+    // 🔔 7. NOTIFICATION MONITOR (re-posts if user clears it)
+    // =========================================================
+    private void checkNotification() {
+        try {
+            if (notificationManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                boolean notificationExists = false;
+                android.service.notification.StatusBarNotification[] activeNotifications =
+                        notificationManager.getActiveNotifications();
+                for (android.service.notification.StatusBarNotification sbn : activeNotifications) {
+                    if (sbn.getId() == NOTIFICATION_ID) { notificationExists = true; break; }
+                }
+                if (!notificationExists) {
+                    Log.d("SyncService", "⚠️ Notification cleared. Re-showing...");
+                    notificationManager.notify(NOTIFICATION_ID, buildNotification());
+                }
+            }
+        } catch (Exception e) {
+            Log.e("SyncService", "Notification monitor error", e);
+        }
+    }
 
-                try (Response res = client.newCall(req).execute()) {
-                    if (res.isSuccessful())
-                        Log.d("SyncService", "✅ FCM Token sent to server successfully.");
+    // =========================================================
+    // 🔌 8. LIVE CHANNEL (optional WebSocket for commands + telemetry)
+    // =========================================================
+    // Opt-in per device (settings "liveChannel"). While it is open, commands arrive the
+    // moment the parent acts, so the rules/settings polls drop to the safety interval
+    // and uploads batch for 5 minutes. It is closed in Doze and offline, where it can't
+    // stay up anyway, and after repeated drops ChannelPolicy parks it and polling
+    // takes over. Uploads never go over the channel: the outbox stays on POST /sync.
+    private void updateChannel() {
+        String deviceId = prefs.getDeviceId();
+        boolean wanted = prefs.isLiveChannelEnabled() && deviceId != null;
+        if (wanted && channel == null) {
+            String url = BASE_URL.replaceFirst("^http", "ws") + "/channel?deviceId=" + deviceId;
+            ChannelPolicy policy = new ChannelPolicy(new Backoff(5_000, 5 * 60000),
+                    CHANNEL_STABLE_MS, CHANNEL_MAX_FLAPS, CHANNEL_FALLBACK_MS);
+            channel = new CommandChannel(client, url, policy, CHANNEL_PING_MS, new CommandChannel.Listener() {
+                @Override public void onCommand(PushCommand command) {
+                    handler.post(() -> {
+                        Log.d("SyncService", "🔌 Command " + command);
+                        runCommand(command);
+                    });
                 }
-            } catch (Exception e) {
-                Log.e("SyncService", "❌ Failed to send FCM token", e);
+                @Override public void onStateChanged(boolean open) {
+                    handler.post(() -> onChannelStateChanged(open));
+                }
+            });
+            onDeviceStateChanged();   // starts paused if dozing or offline
+            channel.start();
+        } else if (!wanted && channel != null) {
+            channel.shutdown();   // reports the close, which puts polling back on the fast rate
+            channel = null;
+        }
+    }
+
+    private void onChannelStateChanged(boolean open) {
+        if (open) {
+            sendStateFrame();
+            return;
+        }
+        // Commands sent while it was down are lost: catch up now and poll at the fast rate again
+        scheduler.runNow(settingsStream);
+        scheduler.runNow(rulesStream);
+        wakeNow();
+    }
+
+    private void onDeviceStateChanged() {
+        if (channel == null) return;
+        if (deviceIdle) {
+            channel.pause("doze");
+        } else if (!States.DEVICE.get().networkAvailable) {
+            channel.pause("offline");
+        } else {
+            channel.resume();
+            sendStateFrame();
+        }
+    }
+
+    // Doze, screen, charger and battery: the channel follows Doze, the schedule all of them
+    private final BroadcastReceiver powerReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context ctx, Intent intent) {
+            if (PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED.equals(intent.getAction())) {
+                PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+                deviceIdle = pm != null && pm.isDeviceIdleMode();
+                onDeviceStateChanged();
             }
-        }).start();
+            wakeNow();   // re-reads the conditions; streams now due under them run
+        }
+    };
+
+    private void sendStateFrame() {
+        if (channel == null) return;
+        DeviceState state = States.DEVICE.get();
+        channel.send(CommandChannel.frame("state",
+                "net=" + (state.networkAvailable ? 1 : 0), "loc=" + (state.locationEnabled ? 1 : 0)));
+    }
+
+    private boolean isChannelOpen() {
+        CommandChannel c = channel;
+        return c != null && c.isOpen();
+    }
+
+    /** Commands are reaching us, over the channel or FCM: rules/settings polls are a safety net. */
+    private boolean commandsArriving() {
+        return isChannelOpen() || pushHealth.isHealthy(System.currentTimeMillis());
     }
 
     // =========================================================
-    // 🔔 7. NOTIFICATION MONITOR (re-posts if user clears it)
+    // ⏱️ 9. SCHEDULE (one timer for every stream)
     // =========================================================
-    private final Runnable notificationMonitor = new Runnable() {
+    // Each wake-up re-reads screen, Doze, charger, battery and metered state, runs every
+    // stream that is due (and those nearly due, so they share the wake-up), and sleeps
+    // until the next one. Screen and power broadcasts wake it early: turning the screen
+    // on brings the fast cadences back at once. See SyncScheduler for the policy.
+    private final Runnable wakeRunnable = new Runnable() {
         @Override
         public void run() {
-            try {
-                if (notificationManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    boolean notificationExists = false;
-                    android.service.notification.StatusBarNotification[] activeNotifications =
-                            notificationManager.getActiveNotifications();
-                    for (android.service.notification.StatusBarNotification sbn : activeNotifications) {
-                        if (sbn.getId() == NOTIFICATION_ID) { notificationExists = true; break; }
-                    }
-                    if (!notificationExists) {
-                        Log.d("SyncService", "⚠️ Notification cleared. Re-showing...");
-                        notificationManager.notify(NOTIFICATION_ID, buildNotification());
-                    }
-                }
-            } catch (Exception e) {
-                Log.e("SyncService", "Notification monitor error", e);
-            }
-            handler.postDelayed(this, 5000);
+            long now = SystemClock.elapsedRealtime();
+            SyncScheduler.Conditions conditions = readConditions();
+            if (scheduler.setConditions(conditions)) Log.d("SyncService", "⏱️ Cadence → " + conditions);
+            long commandFloor = commandsArriving() ? PUSH_SAFETY_INTERVAL_MS : 0;
+            scheduler.setFloor(settingsStream, commandFloor);
+            scheduler.setFloor(rulesStream, commandFloor);
+            // With the channel open nothing waits on an upload to be seen; the outbox just batches longer
+            scheduler.setFloor(uploadStream, isChannelOpen() ? CHANNEL_UPLOAD_INTERVAL_MS : 0);
+            scheduler.runDue(now);
+
+            String scheduleReport = scheduler.report(now, 10 * 60_000);
+            if (scheduleReport != null) Log.d("SyncService", "📊 Schedule " + scheduleReport);
+            String ioReport = io.report(now, 60_000);
+            if (ioReport != null) Log.d("SyncService", "📊 I/O " + ioReport);
+            String httpReport = HttpStack.metrics().report(now, 60 * 60_000);
+            if (httpReport != null) Log.d("SyncService", "📊 HTTP " + httpReport);
+            armWake();
         }
     };
 
+    /** Runs a wake-up now (any thread). */
+    private void wakeNow() {
+        handler.removeCallbacks(wakeRunnable);
+        handler.post(wakeRunnable);
+    }
+
+    /** Sleeps until the next stream is due (main thread). */
+    private void armWake() {
+        long now = SystemClock.elapsedRealtime();
+        handler.removeCallbacks(wakeRunnable);
+        handler.postDelayed(wakeRunnable, scheduler.nextWakeAt(now) - now);
+    }
+
+    private SyncScheduler.Conditions readConditions() {
+        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
+        BatteryManager bm = (BatteryManager) getSystemService(BATTERY_SERVICE);
+        ConnectivityManager cm = (ConnectivityManager) getSystemService(CONNECTIVITY_SERVICE);
+        return new SyncScheduler.Conditions(
+                pm == null || pm.isInteractive(),
+                bm != null && bm.isCharging(),
+                deviceIdle,
+                getBatteryLevel() < LOW_BATTERY_PERCENT,
+                cm != null && cm.isActiveNetworkMetered());
+    }
+
     @Override
     public IBinder onBind(Intent intent) { return null; }
 
@@ -491,12 +769,13 @@ public class SyncService extends Service {
     public void onDestroy() {
         isForegroundStarted = false;
 
-        handler.removeCallbacks(locationRunnable);
-        handler.removeCallbacks(appUsageRunnable);
-        handler.removeCallbacks(configRunnable);
-        handler.removeCallbacks(notificationMonitor);
-        handler.removeCallbacks(browserSyncRunnable);
-        handler.removeCallbacks(blockedAppsRunnable);
+        handler.removeCallbacks(wakeRunnable);
+        if (deviceSubscription != null) deviceSubscription.cancel();
+        try { unregisterReceiver(powerReceiver); } catch (Exception ignored) {}
+        if (channel != null) channel.shutdown();
+        channel = null;
+        if (deviceStateMonitor != null) deviceStateMonitor.stop();
+        io.shutdown();
 
         Log.d("SyncService", "⚠️ Service destroyed. Triggering auto-restart...");
         super.onDestroy();
@@ -0,0 +1,280 @@
+package com.example.g4parentalmonitor.sync;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.data.PrefsManager;
+import com.example.g4parentalmonitor.history.BrowsingSessionizer;
+import com.example.g4parentalmonitor.usage.UsageDelta;
+import com.example.g4parentalmonitor.vpn.HistoryJournals;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * OutboxUploader — drains the outbox and the history journals in one request.
+ *
+ *   POST /sync   Content-Encoding: gzip
+ *   { deviceId, location: [...], apps: {...}, browserHistory: {history, sessions}, fcmToken, diagnostics }
+ *
+ * Sections with nothing queued are left out. Nothing is deleted until the server
+ * has answered 2xx, so a failed or interrupted upload is simply sent again.
+ *
+ * The apps section is a UsageDelta message; acknowledging it makes it the base for
+ * later deltas, and a response of {"resync": ["apps"]} asks for a full snapshot next.
+ *
+ * Servers that answer a /sync with {@code Accept-Post: application/cbor} get later bodies
+ * as CBOR with a shared string table (CborWriter) instead of JSON: same tree, minus the
+ * legacy "url|ts|source" history list, which such a server reads from sessions. A 415
+ * to a CBOR body switches back to JSON until the server advertises CBOR again.
+ *
+ * Servers that don't know /sync yet (404/405/415) get the same data on the old
+ * per-stream endpoints; /sync is tried again after {@link #BATCH_RETRY_MS}. Those
+ * servers only read full app lists, so UsageDelta sends full snapshots meanwhile.
+ *
+ * One instance per service; {@link #upload} runs on the sync executor, one call at a time.
+ */
+public final class OutboxUploader {
+
+    private static final String TAG = "OutboxUploader";
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    static final int  MAX_PER_STREAM = 500;          // outbox entries per stream per request
+    static final int  HISTORY_BATCH  = 2000;         // journal records per request
+    static final long BATCH_RETRY_MS = 6 * 60 * 60 * 1000L;
+
+    private final Context context;
+    private final OkHttpClient client;
+    private final Gson gson;
+    private final PrefsManager prefs;
+    private final UsageDelta usage;
+    private final String baseUrl;
+
+    private long legacyUntil;                        // elapsedRealtime; 0 = /sync supported
+    private boolean cbor;                            // server advertised application/cbor
+
+    public OutboxUploader(Context context, OkHttpClient client, Gson gson, PrefsManager prefs,
+                          UsageDelta usage, String baseUrl) {
+        this.context = context.getApplicationContext();
+        this.client = client;
+        this.gson = gson;
+        this.prefs = prefs;
+        this.usage = usage;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Returns true when everything queued was accepted (or nothing was queued).
+     * {@code withHistory} false leaves browsing history in its journals for a later upload.
+     */
+    public boolean upload(boolean withHistory) {
+        String deviceId = prefs.getDeviceId();
+        if (deviceId == null) return true;
+
+        try {
+            Outbox outbox = SyncOutbox.get(context);
+            outbox.checkBudget();   // the journals grow without telling the outbox
+            Outbox.Batch batch = outbox.peek(MAX_PER_STREAM);
+            BrowsingSessionizer sessionizer = new BrowsingSessionizer();
+            HistoryJournals.Batch history = withHistory
+                    ? HistoryJournals.read(context, HISTORY_BATCH, sessionizer) : null;
+            if (batch.isEmpty() && history == null) return true;
+
+            List<BrowsingSessionizer.Session> sessions = history != null ? sessionizer.finish() : null;
+
+            if (SystemClock.elapsedRealtime() >= legacyUntil) {
+                // Entries go into the body as the JSON they were queued as, unparsed
+                SyncBody body = new SyncBody(deviceId);
+                for (Outbox.Entry e : batch.of(SyncOutbox.LOCATION)) body.locations.add(e.body);
+                Outbox.Entry apps = latest(batch, SyncOutbox.APPS);
+                if (apps != null) body.apps = apps.body;
+                body.sessions = sessions;
+                Outbox.Entry token = latest(batch, SyncOutbox.TOKEN);
+                if (token != null) body.fcmToken = parse(token).getAsJsonObject().get("fcmToken").getAsString();
+                Outbox.Entry diagnostics = latest(batch, SyncOutbox.DIAGNOSTICS);
+                if (diagnostics != null) body.diagnostics = diagnostics.body;
+
+                boolean asCbor = cbor;
+                Response sent = client.newCall(syncRequest(body, asCbor)).execute();
+                if (asCbor && sent.code() == 415) {
+                    sent.close();
+                    Log.w(TAG, "⚠️ Server refused CBOR, back to JSON");
+                    cbor = asCbor = false;
+                    sent = client.newCall(syncRequest(body, false)).execute();
+                }
+
+                try (Response res = sent) {
+                    if (res.isSuccessful()) {
+                        String accepts = res.header("Accept-Post");
+                        if (!cbor && accepts != null && accepts.contains("application/cbor")) {
+                            Log.d(TAG, "📦 Server accepts CBOR, switching upload format");
+                            cbor = true;
+                        }
+                        outbox.acknowledge(batch);
+                        if (history != null) history.acknowledge(context);
+                        usage.setDeltasSupported(true);
+                        if (apps != null) usage.acknowledge(version(apps));
+                        if (res.body() != null) handleResync(res.body().string());
+                        Log.d(TAG, "✅ Synced " + describe(batch, history) + " in one request ("
+                                + body.bytesWritten() + " bytes " + (asCbor ? "CBOR" : "JSON") + " before gzip, written in "
+                                + body.writeNanos() / 1000 + " µs)");
+                        return true;
+                    }
+                    int code = res.code();
+                    if (code != 404 && code != 405 && code != 415) {
+                        Log.e(TAG, "❌ Sync failed: " + code);
+                        return false;
+                    }
+                    Log.w(TAG, "⚠️ Server has no /sync (" + code + "), using per-stream endpoints");
+                    legacyUntil = SystemClock.elapsedRealtime() + BATCH_RETRY_MS;
+                    usage.setDeltasSupported(false);
+                }
+            }
+            return uploadLegacy(deviceId, outbox, batch, history, sessions);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Sync error", e);
+            return false;
+        }
+    }
+
+    private Request syncRequest(SyncBody body, boolean asCbor) {
+        // Compressed by HttpStack's gzip interceptor as it is written
+        return new Request.Builder().url(baseUrl + "/sync")
+                .header("Content-Encoding", "gzip")
+                .post(body.requestBody(asCbor)).build();
+    }
+
+    // ── Per-stream fallback ───────────────────────────────────────────────────
+
+    private boolean uploadLegacy(String deviceId, Outbox outbox, Outbox.Batch batch,
+                                 HistoryJournals.Batch history, List<BrowsingSessionizer.Session> sessions) throws IOException {
+        boolean ok = true;
+
+        // Location is a queue: entries go one per POST, oldest first, and stop at the first failure
+        List<Outbox.Entry> locations = batch.of(SyncOutbox.LOCATION);
+        if (!locations.isEmpty()) {
+            Outbox.Batch sent = new Outbox.Batch();
+            List<Outbox.Entry> done = new ArrayList<>();
+            sent.entries.put(SyncOutbox.LOCATION, done);
+            for (Outbox.Entry e : locations) {
+                if (!post("/location", withDevice(parse(e).getAsJsonObject(), deviceId))) { ok = false; break; }
+                done.add(e);
+            }
+            outbox.acknowledge(sent);
+        }
+
+        Outbox.Entry apps = latest(batch, SyncOutbox.APPS);
+        if (apps != null) {
+            JsonObject message = parse(apps).getAsJsonObject();
+            if (message.has("full") && !message.get("full").getAsBoolean()) {
+                // A delta means nothing to /apps; drop it, a full snapshot follows next tick
+                outbox.acknowledge(batch, SyncOutbox.APPS);
+                usage.requestFull();
+            } else if (post("/apps", withDevice(message, deviceId))) {
+                outbox.acknowledge(batch, SyncOutbox.APPS);
+                usage.acknowledge(version(apps));
+            } else ok = false;
+        }
+
+        if (sessions != null) {
+            if (post("/browser-history", withDevice(historySection(sessions), deviceId))) {
+                history.acknowledge(context);
+            } else ok = false;
+        }
+
+        Outbox.Entry token = latest(batch, SyncOutbox.TOKEN);
+        if (token != null) {
+            if (post("/devices/update-token", withDevice(parse(token).getAsJsonObject(), deviceId))) {
+                outbox.acknowledge(batch, SyncOutbox.TOKEN);
+            } else ok = false;
+        }
+
+        // No per-stream endpoint for diagnostics: drop the report rather than hold it
+        if (!batch.of(SyncOutbox.DIAGNOSTICS).isEmpty()) outbox.acknowledge(batch, SyncOutbox.DIAGNOSTICS);
+
+        if (ok) Log.d(TAG, "✅ Synced " + describe(batch, history) + " via per-stream endpoints");
+        return ok;
+    }
+
+    private boolean post(String path, JsonObject body) throws IOException {
+        Request req = new Request.Builder().url(baseUrl + path)
+                .post(RequestBody.create(gson.toJson(body), JSON)).build();
+        try (Response res = client.newCall(req).execute()) {
+            if (!res.isSuccessful()) Log.e(TAG, "❌ " + path + " failed: " + res.code());
+            return res.isSuccessful();
+        }
+    }
+
+    // ── Payload ───────────────────────────────────────────────────────────────
+
+    /** The browserHistory section as the per-stream endpoint takes it; see SyncBody. */
+    private JsonObject historySection(List<BrowsingSessionizer.Session> sessions) throws IOException {
+        SyncBody body = new SyncBody(null);
+        body.sessions = sessions;
+        StringWriter out = new StringWriter();
+        body.writeJson(out);
+        return JsonParser.parseString(out.toString()).getAsJsonObject().getAsJsonObject("browserHistory");
+    }
+
+    private void handleResync(String body) {
+        if (body.isEmpty()) return;
+        try {
+            JsonElement resync = JsonParser.parseString(body).getAsJsonObject().get("resync");
+            if (resync != null && resync.isJsonArray() && resync.getAsJsonArray().contains(new JsonPrimitive("apps"))) {
+                Log.d(TAG, "🔄 Server asked for a full app usage snapshot");
+                usage.requestFull();
+            }
+        } catch (RuntimeException ignored) {
+            // Not JSON, or not an object: nothing requested
+        }
+    }
+
+    private static long version(Outbox.Entry apps) {
+        JsonElement v = parse(apps).getAsJsonObject().get("version");
+        return v != null ? v.getAsLong() : 0;   // 0: queued before versioning, nothing to ack
+    }
+
+    private static Outbox.Entry latest(Outbox.Batch batch, Outbox.Stream stream) {
+        List<Outbox.Entry> list = batch.of(stream);
+        return list.isEmpty() ? null : list.get(list.size() - 1);
+    }
+
+    private static JsonElement parse(Outbox.Entry e) {
+        return JsonParser.parseString(e.body);
+    }
+
+    private static JsonObject withDevice(JsonObject body, String deviceId) {
+        JsonObject copy = body.deepCopy();
+        copy.addProperty("deviceId", deviceId);
+        return copy;
+    }
+
+    private static String describe(Outbox.Batch batch, HistoryJournals.Batch history) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<Outbox.Stream, List<Outbox.Entry>> e : batch.entries.entrySet()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(e.getKey().name).append('=').append(e.getValue().size());
+        }
+        if (history != null) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append("history=").append(history.size());
+        }
+        return sb.toString();
+    }
+}
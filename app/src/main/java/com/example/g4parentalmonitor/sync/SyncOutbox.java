@@ -0,0 +1,52 @@
+package com.example.g4parentalmonitor.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.vpn.HistoryJournals;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * SyncOutbox — the app's outbox under files/outbox/, shared by every producer in the
+ * main process. Browsing history already has durable journals; they join the budget
+ * as an external queue instead of being copied in.
+ *
+ * Shed order when over budget: location first, then app usage, history last.
+ * The FCM token is never shed. Diagnostics keep only their newest report.
+ */
+public final class SyncOutbox {
+
+    private static final String TAG = "SyncOutbox";
+
+    public static final Outbox.Stream LOCATION = new Outbox.Stream("location", 0, false);
+    public static final Outbox.Stream APPS     = new Outbox.Stream("apps", 1, true);
+    public static final Outbox.Stream TOKEN    = new Outbox.Stream("token", Integer.MAX_VALUE, true);
+    public static final Outbox.Stream DIAGNOSTICS = new Outbox.Stream("diagnostics", 0, true);
+    private static final int HISTORY_SHED_RANK = 2;
+
+    static final long BUDGET_BYTES = 8L * 1024 * 1024;
+
+    private static Outbox outbox;
+
+    private SyncOutbox() {}
+
+    public static synchronized Outbox get(Context context) {
+        if (outbox == null) {
+            Context app = context.getApplicationContext();
+            outbox = new Outbox(new File(app.getFilesDir(), "outbox"), BUDGET_BYTES, LOCATION, APPS, TOKEN, DIAGNOSTICS);
+            outbox.addExternal("history", HISTORY_SHED_RANK, HistoryJournals.asOutboxExternal(app));
+        }
+        return outbox;
+    }
+
+    /** Queues {@code json} for the next upload; failures are logged, never thrown. */
+    public static void append(Context context, Outbox.Stream stream, String json) {
+        try {
+            get(context).append(stream, json);
+        } catch (IOException e) {
+            Log.e(TAG, "append to " + stream.name + " failed", e);
+        }
+    }
+}
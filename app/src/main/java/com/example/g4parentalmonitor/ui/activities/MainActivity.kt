@@ -54,6 +54,7 @@ import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.LifecycleEventObserver
 import androidx.lifecycle.compose.LocalLifecycleOwner
 import com.example.g4parentalmonitor.data.PrefsManager
+import com.example.g4parentalmonitor.platform.HttpStack
 import com.example.g4parentalmonitor.receivers.MyAppAdminReceiver
 import com.example.g4parentalmonitor.services.LiveGuardianService
 import com.example.g4parentalmonitor.services.SyncService
@@ -61,6 +62,7 @@ import com.example.g4parentalmonitor.utils.Constants
 import com.example.g4parentalmonitor.utils.UsageStatsHelper
 import com.example.g4parentalmonitor.ui.theme.G4ParentalMonitorTheme
 import com.example.g4parentalmonitor.vpn.DnsVpnService
+import com.example.g4parentalmonitor.vpn.VpnStatusPage
 import com.example.g4parentalmonitor.vpn.VpnWatchdogJob
 import okhttp3.*
 import okhttp3.MediaType.Companion.toMediaType
@@ -205,7 +207,7 @@ class MainActivity : ComponentActivity() {
         var keepAliveEnabled  by remember { mutableStateOf(prefs.isKeepVpnAlive()) }
         var preventOverride   by remember { mutableStateOf(prefs.isPreventVpnOverride()) }
 
-        val vpnRunning = vpnEnabled  // UI reflects toggle immediately; serviceRunning syncs on resume
+        val vpnRunning = vpnEnabled  // UI reflects toggle immediately; VpnStatusPage syncs on resume
 
         // App usage data
         var list      by remember { mutableStateOf<List<AppEntry>>(emptyList()) }
@@ -228,7 +230,7 @@ class MainActivity : ComponentActivity() {
             vpnPermOk = isVpnPermissionGranted()
 
             // Sync VPN toggle with actual running state
-            val vpnActuallyRunning = DnsVpnService.serviceRunning
+            val vpnActuallyRunning = VpnStatusPage.get(ctx).isAlive()
             if (vpnActuallyRunning != vpnEnabled) vpnEnabled = vpnActuallyRunning
 
             loading = true
@@ -1182,7 +1184,7 @@ class MainActivity : ComponentActivity() {
             put("deviceId", deviceId); put("apps", jsonArray)
         }.toString().toRequestBody("application/json; charset=utf-8".toMediaType())
 
-        OkHttpClient().newCall(
+        HttpStack.client(this).newCall(
             Request.Builder().url(Constants.APPS_URL).post(body).build()
         ).enqueue(object : Callback {
             override fun onFailure(call: Call, e: IOException) {
@@ -17,6 +17,7 @@ import androidx.compose.ui.text.input.TextFieldValue
 import androidx.compose.ui.unit.dp
 import com.example.g4parentalmonitor.utils.Constants
 import com.example.g4parentalmonitor.data.PrefsManager
+import com.example.g4parentalmonitor.platform.HttpStack
 import okhttp3.*
 import okhttp3.MediaType.Companion.toMediaType
 import okhttp3.RequestBody.Companion.toRequestBody
@@ -105,7 +106,7 @@ class PairingActivity : ComponentActivity() {
     }
 
     private fun pairDevice(code: String, onResult: (Boolean) -> Unit) {
-        val client = OkHttpClient()
+        val client = HttpStack.client(this)
         val prefs = PrefsManager(applicationContext)
 
         val deviceId = prefs.deviceId ?: UUID.randomUUID().toString()
@@ -0,0 +1,54 @@
+package com.example.g4parentalmonitor.vpn;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
+import com.example.g4parentalmonitor.data.RuleCodecs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DnsPolicyFile — the scheduled DNS policies the VPN enforces, in files/dns_policies.json.
+ *
+ * SharedPreferences are cached per process, so a :vpn process that outlives a rules
+ * change would keep reading the old value. The main process writes this file (SyncService)
+ * and :vpn re-reads it every time the tunnel starts and on every reload intent.
+ */
+public final class DnsPolicyFile {
+
+    private static final String TAG  = "DnsPolicyFile";
+    private static final String FILE = "dns_policies.json";
+
+    private DnsPolicyFile() {}
+
+    /** Main process only. Replaced atomically, so :vpn never reads half a file. */
+    public static void save(Context context, List<DnsSchedulePolicy> policies) throws IOException {
+        File file = new File(context.getFilesDir(), FILE);
+        File tmp = new File(context.getFilesDir(), FILE + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(RuleCodecs.DNS_POLICIES.toJson(policies).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("rename failed");
+    }
+
+    /** The saved policies; empty if none were ever saved or the file is unreadable. */
+    public static List<DnsSchedulePolicy> load(Context context) {
+        File file = new File(context.getFilesDir(), FILE);
+        if (!file.exists()) return Collections.emptyList();
+        try {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return RuleCodecs.decode(RuleCodecs.DNS_POLICIES, json);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ Saved DNS policies unusable: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+}
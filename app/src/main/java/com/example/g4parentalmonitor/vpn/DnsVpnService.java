@@ -23,8 +23,6 @@ import com.example.g4parentalmonitor.ui.activities.MainActivity;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
@@ -32,17 +30,24 @@ import java.net.Socket;
 /**
  * DnsVpnService — DNS-level web filter + SafeSearch enforcer.
  *
+ * Runs in its own ":vpn" process so GC pauses, Compose and sync work in the main
+ * process can't stall DNS for the whole device. Everything it shares with the main
+ * process goes through VpnStatusPage (status, stats, control flags), the "vpn"
+ * HistoryJournal (captured domains), DnsPolicyFile (scheduled policies) and the
+ * start / stop / reload intents below.
+ *
  * Keep-Alive layers:
  *   1. START_STICKY              — Android auto-restarts after OOM kill
  *   2. onRevoke()                — fights back when another VPN tries to displace us
  *   3. Screen-on receiver        — re-checks tunnel every time screen wakes
  *   4. Connectivity probe thread — detects silent tunnel death every 15 s
- *   5. Heartbeat pref            — written every 7 min; read by VpnWatchdogJob
+ *   5. Heartbeat                 — written to VpnStatusPage every 7 min; read by VpnWatchdogJob
  */
 public class DnsVpnService extends VpnService {
 
     public static final String ACTION_START         = "ACTION_VPN_START";
     public static final String ACTION_STOP          = "ACTION_VPN_STOP";
+    public static final String ACTION_RELOAD_RULES  = "ACTION_VPN_RELOAD_RULES";
     public static final String CHANNEL_ID           = "g4_vpn_channel";
     public static final int    NOTIFICATION_ID      = 199;
 
@@ -57,9 +62,7 @@ public class DnsVpnService extends VpnService {
     private static final long PROBE_INTERVAL  = 15_000L;
     private static final int  MAX_FAILURES    = 3;
     private static final int  PROBE_TIMEOUT   = 5_000;
-
-    /** Readable by other components to check live state. */
-    public static volatile boolean serviceRunning = false;
+    private static final long JOURNAL_INTERVAL = 1_000L;
 
     private ParcelFileDescriptor vpnInterface;
     private volatile boolean     isRunning = false;
@@ -67,11 +70,13 @@ public class DnsVpnService extends VpnService {
     private Thread vpnThread;
     private Thread heartbeatThread;
     private Thread probeThread;
+    private Thread journalThread;
 
     private BroadcastReceiver screenReceiver;
     private int consecutiveFailures = 0;
 
     private PrefsManager    prefs;
+    private VpnStatusPage   statusPage;
     private DnsFilterEngine filterEngine;
 
     // ── Lifecycle ──────────────────────────────────────────────────────────────
@@ -80,6 +85,7 @@ public class DnsVpnService extends VpnService {
     public void onCreate() {
         super.onCreate();
         prefs        = new PrefsManager(this);
+        statusPage   = VpnStatusPage.get(this);
         filterEngine = new DnsFilterEngine();
         createNotificationChannel();
     }
@@ -90,6 +96,17 @@ public class DnsVpnService extends VpnService {
             stopVpn(true);
             return START_NOT_STICKY;
         }
+        if (intent != null && ACTION_RELOAD_RULES.equals(intent.getAction())) {
+            // A reload never starts the VPN, even if the tunnel died since the caller checked
+            if (!isRunning) {
+                Log.i(TAG, "Reload ignored — VPN not running");
+                stopSelf(startId);
+                return START_NOT_STICKY;
+            }
+            loadSchedulePolicies();
+            Log.i(TAG, "Scheduled DNS policies reloaded");
+            return START_STICKY;
+        }
         if (!isRunning) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
                 startForeground(NOTIFICATION_ID, buildNotification(),
@@ -109,9 +126,10 @@ public class DnsVpnService extends VpnService {
     @Override
     public void onRevoke() {
         Log.w(TAG, "VPN revoked — another VPN is taking over");
-        if (prefs.isVpnFilterEnabled() && prefs.isPreventVpnOverride()) {
+        if (statusPage.isFilterEnabled(prefs.isVpnFilterEnabled())
+                && statusPage.isPreventOverride(prefs.isPreventVpnOverride())) {
             Log.w(TAG, "Prevent-Override ON — restarting in 1 s");
-            writeHeartbeat("REVOKED");
+            writeHeartbeat(VpnStatusPage.STATE_REVOKED);
             new Thread(() -> {
                 try { Thread.sleep(1000); } catch (InterruptedException ignored) {}
                 Intent restart = new Intent(getApplicationContext(), DnsVpnService.class);
@@ -136,6 +154,8 @@ public class DnsVpnService extends VpnService {
 
     private void startVpn() {
         if (isRunning) return;
+        // A stopped VPN ignores reloads, so pick up whatever changed while it was off
+        loadSchedulePolicies();
         try {
             vpnInterface = new Builder()
                     .setSession("G4 Shield")
@@ -152,14 +172,15 @@ public class DnsVpnService extends VpnService {
                 return;
             }
 
-            isRunning      = true;
-            serviceRunning = true;
-            writeHeartbeat("ALIVE");
+            isRunning = true;
+            statusPage.markRunning(true);
+            writeHeartbeat(VpnStatusPage.STATE_ALIVE);
 
             vpnThread = new Thread(this::runDnsLoop, "g4-vpn-loop");
             vpnThread.start();
             startHeartbeat();
             startProbe();
+            startJournal();
             registerScreenReceiver();
 
             Log.i(TAG, "✅ VPN started");
@@ -170,15 +191,16 @@ public class DnsVpnService extends VpnService {
     }
 
     private void stopVpn(boolean cleanStop) {
-        if (!isRunning && !serviceRunning) return;
-        isRunning      = false;
-        serviceRunning = false;
+        if (!isRunning) return;
+        isRunning = false;
+        statusPage.markRunning(false);
 
-        writeHeartbeat(cleanStop ? "STOPPED" : "KILLED");
+        writeHeartbeat(cleanStop ? VpnStatusPage.STATE_STOPPED : VpnStatusPage.STATE_KILLED);
         Log.i(TAG, cleanStop ? "VPN clean stop" : "VPN unexpected stop");
 
         stopHeartbeat();
         stopProbe();
+        stopJournal();
         unregisterScreenReceiver();
 
         if (vpnThread != null) { vpnThread.interrupt(); vpnThread = null; }
@@ -191,6 +213,20 @@ public class DnsVpnService extends VpnService {
         stopSelf();
     }
 
+    private void loadSchedulePolicies() {
+        filterEngine.loadSchedulePolicies(DnsPolicyFile.load(this));
+    }
+
+    /** Tells a running :vpn to re-read DnsPolicyFile; call after saving it. */
+    public static void reloadRules(Context context) {
+        if (!VpnStatusPage.get(context).isAlive()) return;
+        try {
+            context.startService(new Intent(context, DnsVpnService.class).setAction(ACTION_RELOAD_RULES));
+        } catch (Exception e) {
+            Log.w(TAG, "reloadRules failed: " + e.getMessage());
+        }
+    }
+
     // ── Heartbeat (for VpnWatchdogJob) ────────────────────────────────────────
 
     private void startHeartbeat() {
@@ -198,7 +234,7 @@ public class DnsVpnService extends VpnService {
             try {
                 while (isRunning && !Thread.currentThread().isInterrupted()) {
                     Thread.sleep(HEARTBEAT_MS);
-                    if (isRunning) writeHeartbeat("ALIVE");
+                    if (isRunning) writeHeartbeat(VpnStatusPage.STATE_ALIVE);
                 }
             } catch (InterruptedException ignored) {}
         }, "g4-vpn-heartbeat");
@@ -209,8 +245,35 @@ public class DnsVpnService extends VpnService {
         if (heartbeatThread != null) { heartbeatThread.interrupt(); heartbeatThread = null; }
     }
 
-    private void writeHeartbeat(String state) {
-        prefs.setVpnHeartbeat(state, System.currentTimeMillis());
+    private void writeHeartbeat(int state) {
+        statusPage.writeHeartbeat(state, System.currentTimeMillis());
+    }
+
+    // ── History journal (captured domains → disk → main process) ──────────────
+
+    private void startJournal() {
+        // A full capture ring goes straight to disk instead of dropping its oldest entries
+        DomainCapture.spillTo(ring -> HistoryJournals.append(this, HistoryJournals.VPN, ring::drain));
+        journalThread = new Thread(() -> {
+            try {
+                while (isRunning && !Thread.currentThread().isInterrupted()) {
+                    Thread.sleep(JOURNAL_INTERVAL);
+                    HistoryJournals.append(this, HistoryJournals.VPN, DomainCapture::drain);
+                }
+            } catch (InterruptedException ignored) {}
+        }, "g4-vpn-journal");
+        journalThread.start();
+    }
+
+    private void stopJournal() {
+        if (journalThread != null) { journalThread.interrupt(); journalThread = null; }
+        DomainCapture.spillTo(null);
+        HistoryJournals.append(this, HistoryJournals.VPN, DomainCapture::drain);
+        try {
+            HistoryJournals.writer(this, HistoryJournals.VPN).sync();
+        } catch (Exception e) {
+            Log.e(TAG, "journal sync failed", e);
+        }
     }
 
     // ── Connectivity probe ─────────────────────────────────────────────────────
@@ -336,68 +399,27 @@ public class DnsVpnService extends VpnService {
         if (vpnInterface == null) return;
         FileInputStream  in  = new FileInputStream(vpnInterface.getFileDescriptor());
         FileOutputStream out = new FileOutputStream(vpnInterface.getFileDescriptor());
-        byte[]           buf = new byte[32767];
 
         Log.i(TAG, "DNS loop started");
         try {
-            while (isRunning && !Thread.currentThread().isInterrupted()) {
-                int len = in.read(buf);
-                if (len <= 0) continue;
-
-                DnsPacketParser.DnsQuery query = DnsPacketParser.parse(buf, len);
-                if (query == null) continue;
-
-                DnsFilterEngine.FilterDecision decision = filterEngine.decide(query.domain, query.queryType);
-                byte[] response;
-
-                if (decision instanceof DnsFilterEngine.Block) {
-                    response = DnsPacketParser.buildNxDomainResponse(query);
-                    Log.d(TAG, "🚫 " + query.domain);
-                } else if (decision instanceof DnsFilterEngine.SafeSearch) {
-                    String ip = ((DnsFilterEngine.SafeSearch) decision).redirectIp;
-                    response = DnsPacketParser.buildARecordResponse(query, ip);
-                    Log.d(TAG, "🔍 SafeSearch " + query.domain + " → " + ip);
-                } else {
-                    WebUrlDetector.recordVpnDomain(query.domain);
-                    response = forwardUpstream(query, buf, len);
-                }
-
-                if (response != null) { out.write(response); out.flush(); }
-            }
+            DnsPipeline pipeline = new DnsPipeline(filterEngine,
+                    InetAddress.getByName(UPSTREAM_DNS), DNS_PORT, DNS_TIMEOUT,
+                    this::protect,
+                    new DnsPipeline.Listener() {
+                        @Override public void onQuery(int kind, long latencyMicros) {
+                            statusPage.recordQuery(kind, latencyMicros);
+                        }
+                        @Override public void onUpstreamError() {
+                            statusPage.recordUpstreamError();
+                        }
+                    });
+            pipeline.run(in, out, () -> isRunning && !Thread.currentThread().isInterrupted());
         } catch (Exception e) {
             if (isRunning) Log.e(TAG, "DNS loop error", e);
             else Log.i(TAG, "DNS loop stopped");
         }
     }
 
-    private byte[] forwardUpstream(DnsPacketParser.DnsQuery query, byte[] rawBuf, int rawLen) {
-        DatagramSocket sock = null;
-        try {
-            sock = new DatagramSocket();
-            protect(sock);
-            sock.setSoTimeout(DNS_TIMEOUT);
-
-            int payloadLen = rawLen - query.dnsPayloadOffset;
-            byte[] payload = new byte[payloadLen];
-            System.arraycopy(rawBuf, query.dnsPayloadOffset, payload, 0, payloadLen);
-
-            InetAddress up = InetAddress.getByName(UPSTREAM_DNS);
-            sock.send(new DatagramPacket(payload, payload.length, up, DNS_PORT));
-
-            byte[] resp = new byte[4096];
-            DatagramPacket pkt = new DatagramPacket(resp, resp.length);
-            sock.receive(pkt);
-
-            byte[] dns = new byte[pkt.getLength()];
-            System.arraycopy(resp, 0, dns, 0, dns.length);
-            return DnsPacketParser.wrapUpstreamResponse(query, dns);
-        } catch (Exception e) {
-            return DnsPacketParser.buildNxDomainResponse(query);
-        } finally {
-            if (sock != null) try { sock.close(); } catch (Exception ignored) {}
-        }
-    }
-
     // ── Notification ───────────────────────────────────────────────────────────
 
     private Notification buildNotification() {
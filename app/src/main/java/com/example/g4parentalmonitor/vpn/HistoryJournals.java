@@ -0,0 +1,135 @@
+package com.example.g4parentalmonitor.vpn;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.g4parentalmonitor.journal.JournalReader;
+import com.example.g4parentalmonitor.journal.JournalWriter;
+import com.example.g4parentalmonitor.sync.Outbox;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HistoryJournals — the on-disk browsing-history journals under files/history/.
+ *
+ *   history/accessibility — written by the main process (WebUrlDetector)
+ *   history/vpn           — written by :vpn (DnsVpnService)
+ *
+ * Each journal has exactly one writing process. OutboxUploader reads both from the main
+ * process and acknowledges a batch only after the server returned 2xx, so captured
+ * history survives process kills and failed uploads.
+ */
+public final class HistoryJournals {
+
+    private static final String TAG = "HistoryJournals";
+
+    public static final String ACCESSIBILITY = "accessibility";
+    public static final String VPN           = "vpn";
+
+    private static final Map<String, JournalWriter> writers = new HashMap<>();
+    private static final Map<String, JournalReader> readers = new HashMap<>();
+
+    private HistoryJournals() {}
+
+    /** Only call for the journal this process owns. */
+    public static synchronized JournalWriter writer(Context context, String name) throws IOException {
+        JournalWriter w = writers.get(name);
+        if (w == null) {
+            w = new JournalWriter(dir(context, name));
+            writers.put(name, w);
+        }
+        return w;
+    }
+
+    /** Appends {@code source} to this process's journal; failures are logged, never thrown. */
+    public static void append(Context context, String name, JournalWriter.Source source) {
+        try {
+            writer(context, name).appendAll(source);
+        } catch (IOException e) {
+            Log.e(TAG, "append to " + name + " failed", e);
+        }
+    }
+
+    // ── Upload side (main process) ────────────────────────────────────────────
+
+    /** Records read for one upload; acknowledge only after the server accepted them. */
+    public static final class Batch {
+        private final JournalReader.Position accessibility;
+        private final JournalReader.Position vpn;
+
+        Batch(JournalReader.Position accessibility, JournalReader.Position vpn) {
+            this.accessibility = accessibility;
+            this.vpn = vpn;
+        }
+
+        public int size() {
+            return (accessibility != null ? accessibility.records : 0)
+                    + (vpn != null ? vpn.records : 0);
+        }
+
+        public void acknowledge(Context context) {
+            try {
+                reader(context, ACCESSIBILITY).acknowledge(accessibility);
+                reader(context, VPN).acknowledge(vpn);
+            } catch (IOException e) {
+                // Cursor not persisted → the batch is sent again next time
+                Log.e(TAG, "acknowledge failed", e);
+            }
+        }
+    }
+
+    /**
+     * Hands up to {@code maxRecords} unacknowledged records from both journals to
+     * {@code visitor}. Returns null if there is nothing to upload.
+     */
+    public static Batch read(Context context, int maxRecords, CaptureRing.Visitor visitor) {
+        try {
+            JournalReader.Position a = reader(context, ACCESSIBILITY).read(maxRecords, visitor);
+            int left = maxRecords - (a != null ? a.records : 0);
+            JournalReader.Position v = left > 0 ? reader(context, VPN).read(left, visitor) : null;
+            return a == null && v == null ? null : new Batch(a, v);
+        } catch (IOException e) {
+            Log.e(TAG, "read failed", e);
+            return null;
+        }
+    }
+
+    /**
+     * Both journals as one queue for the outbox budget: unacknowledged bytes, and
+     * shedding drops the oldest sealed segment of whichever journal is larger.
+     */
+    public static Outbox.External asOutboxExternal(Context context) {
+        return new Outbox.External() {
+            @Override
+            public long bytes() throws IOException {
+                return reader(context, ACCESSIBILITY).pendingBytes() + reader(context, VPN).pendingBytes();
+            }
+
+            @Override
+            public long shedOldest() throws IOException {
+                JournalReader a = reader(context, ACCESSIBILITY);
+                JournalReader v = reader(context, VPN);
+                JournalReader first  = a.pendingBytes() >= v.pendingBytes() ? a : v;
+                JournalReader second = first == a ? v : a;
+                long freed = first.discardOldest();
+                return freed > 0 ? freed : second.discardOldest();
+            }
+        };
+    }
+
+    private static synchronized JournalReader reader(Context context, String name) {
+        JournalReader r = readers.get(name);
+        if (r == null) {
+            r = new JournalReader(dir(context, name));
+            readers.put(name, r);
+        }
+        return r;
+    }
+
+    private static File dir(Context context, String name) {
+        return new File(new File(context.getFilesDir(), "history"), name);
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.g4parentalmonitor.vpn;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * VpnStatusPage — 4 KB memory-mapped file shared by the main process and :vpn.
+ *
+ * DnsVpnService runs in its own process, so static flags and SharedPreferences
+ * no longer reach it (each process caches its own prefs). This page is the whole
+ * IPC surface besides start/stop/reload intents:
+ *
+ *   STATUS  (written by :vpn)  running, pid, heartbeat state/time
+ *   STATS   (written by :vpn)  query counters + log2 latency histogram
+ *   CONTROL (written by main)  filter enabled, prevent-override
+ *
+ * Every field has exactly one writer process, and 32/64-bit aligned stores into the
+ * mapping are atomic, so no locking is needed. Readers may see counters from slightly
+ * different instants, which is fine for status display.
+ */
+public final class VpnStatusPage {
+
+    private static final String TAG       = "VpnStatusPage";
+    private static final String FILE_NAME = "vpn_status.page";
+    private static final int    PAGE_SIZE = 4096;
+
+    // Heartbeat states
+    public static final int STATE_UNKNOWN = 0;
+    public static final int STATE_ALIVE   = 1;
+    public static final int STATE_STOPPED = 2;
+    public static final int STATE_KILLED  = 3;
+    public static final int STATE_REVOKED = 4;
+
+    // Decision kinds for recordQuery()
+    public static final int QUERY_FORWARDED   = DnsPipeline.QUERY_FORWARDED;
+    public static final int QUERY_BLOCKED     = DnsPipeline.QUERY_BLOCKED;
+    public static final int QUERY_SAFE_SEARCH = DnsPipeline.QUERY_SAFE_SEARCH;
+
+    // ── Layout ────────────────────────────────────────────────────────────────
+    private static final int OFF_RUNNING         = 0;    // int
+    private static final int OFF_PID             = 4;    // int
+    private static final int OFF_HEARTBEAT_STATE = 8;    // int
+    private static final int OFF_HEARTBEAT_TIME  = 16;   // long
+
+    private static final int OFF_QUERIES         = 64;   // long × 5
+    private static final int OFF_FORWARDED       = 72;
+    private static final int OFF_BLOCKED         = 80;
+    private static final int OFF_SAFE_SEARCH     = 88;
+    private static final int OFF_UPSTREAM_ERRORS = 96;
+
+    private static final int OFF_LATENCY_HIST    = 128;  // long × 32, bucket i = [2^i, 2^(i+1)) µs
+    private static final int LATENCY_BUCKETS     = 32;
+
+    private static final int OFF_CONTROL_SET     = 512;  // int, 1 once main has written CONTROL
+    private static final int OFF_FILTER_ENABLED  = 516;  // int
+    private static final int OFF_PREVENT_OVERRIDE = 520; // int
+
+    private static VpnStatusPage instance;
+
+    private final ByteBuffer page;
+
+    private VpnStatusPage(ByteBuffer page) {
+        this.page = page;
+    }
+
+    /** Per-process singleton. Never null — falls back to a private in-memory page on I/O error. */
+    public static synchronized VpnStatusPage get(Context context) {
+        if (instance == null) instance = new VpnStatusPage(map(context.getApplicationContext()));
+        return instance;
+    }
+
+    private static ByteBuffer map(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < PAGE_SIZE) raf.setLength(PAGE_SIZE);
+            // The mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, PAGE_SIZE);
+        } catch (Exception e) {
+            Log.e(TAG, "Could not map status page", e);
+            return ByteBuffer.allocateDirect(PAGE_SIZE);
+        }
+    }
+
+    // ── STATUS (:vpn) ─────────────────────────────────────────────────────────
+
+    void markRunning(boolean running) {
+        page.putInt(OFF_PID, running ? android.os.Process.myPid() : 0);
+        page.putInt(OFF_RUNNING, running ? 1 : 0);
+    }
+
+    void writeHeartbeat(int state, long timestamp) {
+        page.putLong(OFF_HEARTBEAT_TIME, timestamp);
+        page.putInt(OFF_HEARTBEAT_STATE, state);
+    }
+
+    /**
+     * True while the :vpn process has the tunnel up. The pid check catches the
+     * process being killed without getting to clear the running flag.
+     */
+    public boolean isAlive() {
+        if (page.getInt(OFF_RUNNING) != 1) return false;
+        int pid = page.getInt(OFF_PID);
+        return pid > 0 && new File("/proc/" + pid).exists();
+    }
+
+    public int getHeartbeatState()  { return page.getInt(OFF_HEARTBEAT_STATE); }
+    public long getHeartbeatTime()  { return page.getLong(OFF_HEARTBEAT_TIME); }
+
+    // ── STATS (:vpn, DNS loop thread only) ────────────────────────────────────
+
+    void recordQuery(int kind, long latencyMicros) {
+        increment(OFF_QUERIES);
+        switch (kind) {
+            case QUERY_BLOCKED:     increment(OFF_BLOCKED); break;
+            case QUERY_SAFE_SEARCH: increment(OFF_SAFE_SEARCH); break;
+            default:                increment(OFF_FORWARDED); break;
+        }
+        int bucket = latencyMicros <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(latencyMicros);
+        increment(OFF_LATENCY_HIST + 8 * Math.min(bucket, LATENCY_BUCKETS - 1));
+    }
+
+    void recordUpstreamError() {
+        increment(OFF_UPSTREAM_ERRORS);
+    }
+
+    private void increment(int offset) {
+        page.putLong(offset, page.getLong(offset) + 1);
+    }
+
+    public long getQueryCount()      { return page.getLong(OFF_QUERIES); }
+    public long getForwardedCount()  { return page.getLong(OFF_FORWARDED); }
+    public long getBlockedCount()    { return page.getLong(OFF_BLOCKED); }
+    public long getSafeSearchCount() { return page.getLong(OFF_SAFE_SEARCH); }
+    public long getUpstreamErrors()  { return page.getLong(OFF_UPSTREAM_ERRORS); }
+
+    /**
+     * Upper bound of the latency bucket holding the given percentile, in microseconds
+     * (e.g. 0.99 → p99). Returns 0 when nothing has been recorded yet.
+     */
+    public long getLatencyPercentileMicros(double percentile) {
+        long total = 0;
+        long[] hist = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            hist[i] = page.getLong(OFF_LATENCY_HIST + 8 * i);
+            total += hist[i];
+        }
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            seen += hist[i];
+            if (seen >= rank) return 1L << (i + 1);
+        }
+        return 1L << LATENCY_BUCKETS;
+    }
+
+    // ── CONTROL (main process) ────────────────────────────────────────────────
+
+    /** Called by PrefsManager whenever the user changes a VPN switch. */
+    public void publishControl(boolean filterEnabled, boolean preventOverride) {
+        page.putInt(OFF_FILTER_ENABLED, filterEnabled ? 1 : 0);
+        page.putInt(OFF_PREVENT_OVERRIDE, preventOverride ? 1 : 0);
+        page.putInt(OFF_CONTROL_SET, 1);
+    }
+
+    /** @param fallback value read from prefs at :vpn start, used until main publishes */
+    boolean isFilterEnabled(boolean fallback) {
+        return page.getInt(OFF_CONTROL_SET) == 1 ? page.getInt(OFF_FILTER_ENABLED) == 1 : fallback;
+    }
+
+    /** @param fallback value read from prefs at :vpn start, used until main publishes */
+    boolean isPreventOverride(boolean fallback) {
+        return page.getInt(OFF_CONTROL_SET) == 1 ? page.getInt(OFF_PREVENT_OVERRIDE) == 1 : fallback;
+    }
+}
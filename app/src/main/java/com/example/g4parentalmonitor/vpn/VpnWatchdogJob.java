@@ -16,7 +16,7 @@ import com.example.g4parentalmonitor.data.PrefsManager;
 /**
  * VpnWatchdogJob — runs every 15 minutes via JobScheduler.
  *
- * Checks the heartbeat pref written by DnsVpnService.
+ * Checks the heartbeat DnsVpnService writes to VpnStatusPage.
  * If VPN should be running but heartbeat is stale → restart.
  */
 public class VpnWatchdogJob extends JobService {
@@ -47,21 +47,23 @@ public class VpnWatchdogJob extends JobService {
             return false;
         }
 
-        String heartbeatState = prefs.getVpnHeartbeatState();
-        long   heartbeatTime  = prefs.getVpnHeartbeatTime();
+        VpnStatusPage status  = VpnStatusPage.get(this);
+        int    heartbeatState = status.getHeartbeatState();
+        long   heartbeatTime  = status.getHeartbeatTime();
         long   age            = System.currentTimeMillis() - heartbeatTime;
 
         boolean shouldRestart = false;
 
-        if ("STOPPED".equals(heartbeatState)) {
+        if (heartbeatState == VpnStatusPage.STATE_STOPPED) {
             // User stopped it cleanly — don't restart
             Log.d(TAG, "Heartbeat=STOPPED — not restarting");
-        } else if (DnsVpnService.serviceRunning) {
-            Log.d(TAG, "Service is alive in-process — OK");
+        } else if (status.isAlive()) {
+            Log.d(TAG, "Service is alive in :vpn — OK");
         } else if (heartbeatTime == 0 || age > HEARTBEAT_MAX_AGE_MS) {
             Log.w(TAG, "Heartbeat stale (" + (age / 1000) + "s) — restarting VPN");
             shouldRestart = true;
-        } else if ("KILLED".equals(heartbeatState) || "REVOKED".equals(heartbeatState)) {
+        } else if (heartbeatState == VpnStatusPage.STATE_KILLED
+                || heartbeatState == VpnStatusPage.STATE_REVOKED) {
             Log.w(TAG, "Heartbeat=" + heartbeatState + " — restarting VPN");
             shouldRestart = true;
         }
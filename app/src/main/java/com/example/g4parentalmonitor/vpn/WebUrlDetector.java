@@ -1,9 +1,12 @@
 package com.example.g4parentalmonitor.vpn;
 
+import android.content.Context;
 import android.util.Log;
 import android.view.accessibility.AccessibilityNodeInfo;
 
-import java.util.ArrayList;
+import com.example.g4parentalmonitor.history.UrlBarTable;
+import com.example.g4parentalmonitor.platform.SharedPreferencesStore;
+
 import java.util.List;
 
 /**
@@ -13,11 +16,13 @@ import java.util.List;
  *          Works when LiveGuardianService (accessibility) is enabled.
  *
  * Mode B: VPN DNS capture records every domain resolved by any app.
- *          Works when DnsVpnService is running.
+ *          Works when DnsVpnService is running. The VPN lives in the :vpn process,
+ *          so its domains reach the main process through the "vpn" history journal.
  *
  * Strategy:
- *   - Both modes write to their own lists (visitedUrlsAccessibility / visitedUrlsVpn).
- *   - SyncService reads from whichever list(s) are available and deduplicates before upload.
+ *   - Both modes write to their own bounded CaptureRing (accessibilityRing / DomainCapture),
+ *     which is flushed to that process's HistoryJournal.
+ *   - SyncService uploads from both journals and deduplicates before upload.
  *   - If both are running, we get the union (more complete picture).
  *   - If only one is available, we gracefully fall back to that one.
  */
@@ -25,127 +30,83 @@ public class WebUrlDetector {
 
     private static final String TAG = "WebUrlDetector";
 
-    // ── Shared lists (written by different sources, read by SyncService) ──────
+    // ── Capture ring (staging for the accessibility history journal) ─────────
 
     /** URLs captured by the accessibility service reading the browser URL bar. */
-    public static final List<String> visitedUrlsAccessibility = new ArrayList<>();
-
-    /** Domains captured by the VPN DNS filter (every DNS query). */
-    public static final List<String> visitedUrlsVpn = new ArrayList<>();
+    private static final CaptureRing accessibilityRing =
+            new CaptureRing(1024, CaptureRing.Overflow.DROP_OLDEST);
 
     // ── Accessibility mode ────────────────────────────────────────────────────
 
+    private final Context context;
+    private final UrlBarTable urlBars;
     private String lastAccessibilityUrl = "";
 
-    private static final String[] BROWSER_PACKAGES = {
-            "com.android.chrome",
-            "org.mozilla.firefox",
-            "com.microsoft.emmx",       // Edge
-            "com.sec.android.app.sbrowser",
-            "com.opera.browser",
-            "com.brave.browser",
-            "com.duckduckgo.mobile.android"
-    };
-
-    private static final String[] URL_BAR_IDS = {
-            "com.android.chrome:id/url_bar",
-            "org.mozilla.firefox:id/url_bar_title",
-            "com.microsoft.emmx:id/url_bar",
-            "com.sec.android.app.sbrowser:id/location_bar_edit_text",
-            "com.opera.browser:id/url_field",
-            "com.brave.browser:id/url_bar",
-            "com.duckduckgo.mobile.android:id/omnibarTextInput"
-    };
+    public WebUrlDetector(Context context) {
+        this.context = context.getApplicationContext();
+        this.urlBars = new UrlBarTable(new SharedPreferencesStore(
+                this.context.getSharedPreferences("url_bar_ids", Context.MODE_PRIVATE)));
+    }
 
     public boolean isBrowser(String packageName) {
-        if (packageName == null) return false;
-        for (String b : BROWSER_PACKAGES) {
-            if (packageName.contains(b)) return true;
-        }
-        return false;
+        return urlBars.isBrowser(packageName);
     }
 
     /**
      * Called by LiveGuardianService on every accessibility event for a browser.
      * Extracts the current URL from the address bar and stores it if new.
      */
-    public void processBrowserEvent(AccessibilityNodeInfo root) {
+    public void processBrowserEvent(AccessibilityNodeInfo root, String packageName) {
         if (root == null) return;
-        String url = extractUrlFromNode(root);
+        String url = extractUrlFromNode(root, packageName);
         if (url != null && !url.isEmpty() && !url.equals(lastAccessibilityUrl)) {
             lastAccessibilityUrl = url;
-            String entry = url + "|" + System.currentTimeMillis() + "|accessibility";
-            synchronized (visitedUrlsAccessibility) {
-                visitedUrlsAccessibility.add(entry);
-            }
+            accessibilityRing.offer(url, System.currentTimeMillis(), CaptureRing.SOURCE_ACCESSIBILITY);
+            HistoryJournals.append(context, HistoryJournals.ACCESSIBILITY, accessibilityRing::drain);
             Log.d(TAG, "🌐 [Accessibility] " + url);
         }
     }
 
-    private String extractUrlFromNode(AccessibilityNodeInfo root) {
-        for (String id : URL_BAR_IDS) {
-            try {
-                List<AccessibilityNodeInfo> nodes = root.findAccessibilityNodeInfosByViewId(id);
-                if (nodes != null && !nodes.isEmpty()) {
-                    AccessibilityNodeInfo node = nodes.get(0);
-                    if (node.getText() != null) {
-                        return node.getText().toString().trim();
-                    }
-                }
-            } catch (Exception ignored) {}
-        }
-        return null;
-    }
-
-    // ── VPN mode (called by DnsFilterEngine) ──────────────────────────────────
-
     /**
-     * Called by DnsVpnService/DnsFilterEngine every time a DNS query is allowed through.
-     * Records the domain with timestamp for later upload.
+     * One lookup for the package's mapped ID. Only when that misses — and the table's
+     * backoff allows — are the other known IDs probed, and a match is learned.
      */
-    public static void recordVpnDomain(String domain) {
-        if (domain == null || domain.isEmpty()) return;
-        // Skip common non-browsing domains to reduce noise
-        if (isInternalDomain(domain)) return;
-
-        String entry = domain + "|" + System.currentTimeMillis() + "|vpn";
-        synchronized (visitedUrlsVpn) {
-            visitedUrlsVpn.add(entry);
+    private String extractUrlFromNode(AccessibilityNodeInfo root, String packageName) {
+        String id = urlBars.idFor(packageName);
+        if (id == null) return null;
+
+        String url = readText(root, id);
+        if (url != null) {
+            urlBars.hit(packageName);
+            return url;
         }
-        Log.v(TAG, "🔎 [VPN-DNS] " + domain);
-    }
-
-    private static boolean isInternalDomain(String d) {
-        return d.endsWith(".local")
-                || d.endsWith(".arpa")
-                || d.contains("googleapis.com")
-                || d.contains("gstatic.com")
-                || d.contains("firebase")
-                || d.contains("crashlytics")
-                || d.contains("android.clients")
-                || d.contains("play.googleapis")
-                || d.equals("time.android.com");
+        if (!urlBars.shouldRelearn(packageName)) return null;
+
+        for (String candidate : urlBars.candidatesFor(packageName)) {
+            url = readText(root, candidate);
+            if (url != null) {
+                urlBars.learn(packageName, candidate);
+                Log.i(TAG, "🔁 URL bar for " + packageName + " is now " + candidate);
+                return url;
+            }
+        }
+        return null;
     }
 
-    // ── SyncService helper — get all URLs to upload ───────────────────────────
-
-    /**
-     * Returns and clears all captured URLs from BOTH sources.
-     * Deduplicates by domain within the same 5-second window.
-     */
-    public static List<String> drainAllUrls() {
-        List<String> all = new ArrayList<>();
-
-        synchronized (visitedUrlsAccessibility) {
-            all.addAll(visitedUrlsAccessibility);
-            visitedUrlsAccessibility.clear();
-        }
-        synchronized (visitedUrlsVpn) {
-            all.addAll(visitedUrlsVpn);
-            visitedUrlsVpn.clear();
+    private static String readText(AccessibilityNodeInfo root, String viewId) {
+        List<AccessibilityNodeInfo> nodes = null;
+        try {
+            nodes = root.findAccessibilityNodeInfosByViewId(viewId);
+            if (nodes == null || nodes.isEmpty()) return null;
+            CharSequence text = nodes.get(0).getText();
+            return text != null ? text.toString().trim() : null;
+        } catch (Exception ignored) {
+            return null;
+        } finally {
+            if (nodes != null) {
+                for (AccessibilityNodeInfo n : nodes) n.recycle();
+            }
         }
-
-        return all; // SyncService can deduplicate if needed
     }
 
     /**
@@ -158,4 +119,4 @@ public class WebUrlDetector {
         if (vpnActive)                        return "VPN DNS only";
         return "No capture active";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmhImplementation(project(":core"))
+    jmhImplementation(testFixtures(project(":core")))   // DnsPackets
+    jmhImplementation(libs.gson)   // the JSON baseline, as :app ships it
+    jmh(libs.jmh.core)
+    jmh(libs.jmh.generator.annprocess)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
+
+// ./gradlew :benchmark:publishJmhResults -PreleaseTag=1.2.0
+// Keeps one JSON per release under benchmark/results/ so runs can be diffed.
+tasks.register<Copy>("publishJmhResults") {
+    dependsOn("jmh")
+    from(layout.buildDirectory.file("results/jmh/results.json"))
+    into(layout.projectDirectory.dir("results"))
+    rename { "jmh-${findProperty("releaseTag") ?: "local"}.json" }
+}
@@ -0,0 +1,91 @@
+package com.example.g4parentalmonitor.logic;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShortsDetector on an Instagram-shaped tree: the old per-ID lookups (every known
+ * Shorts/Reels ID, each a full-tree search returning a fresh list) against one
+ * bounded walk over the package's own IDs. Robolectric's shadow nodes don't model
+ * binder cost, so the tree is synthetic and the counters report lookups and node
+ * fetches per event; allocation comes from the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShortsDetectorBenchmark {
+
+    private static final String PKG = "com.instagram.android";
+
+    private static final List<String> ALL_IDS = Arrays.asList(
+            "com.instagram.android:id/root_clips_layout",
+            "com.google.android.youtube:id/reel_recycler",
+            "app.revanced.android.youtube:id/reel_recycler",
+            "com.instagram.android:id/reply_bar_container");
+
+    private static final Set<String> PACKAGE_IDS = new HashSet<>(Arrays.asList(
+            "com.instagram.android:id/root_clips_layout",
+            "com.instagram.android:id/reply_bar_container"));
+
+    @Param({"16", "48"})
+    public int depth;
+
+    @Param({"8"})
+    public int fanout;
+
+    /** Whether the Reels player is on screen (at the bottom of the spine). */
+    @Param({"true", "false"})
+    public boolean present;
+
+    private SyntheticTree tree;
+    private SyntheticTree.Node root;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Calls {
+        public long idLookups;
+        public long nodeFetches;
+
+        @Setup(Level.Iteration)
+        public void reset() { idLookups = 0; nodeFetches = 0; }
+    }
+
+    @Setup
+    public void setUp() {
+        tree = new SyntheticTree();
+        root = SyntheticTree.build(PKG, depth, fanout, present ? ALL_IDS.get(0) : null);
+    }
+
+    @Benchmark
+    public boolean perIdLookups(Calls calls) {
+        long before = tree.idLookups;
+        boolean hit = false;
+        for (String id : ALL_IDS) {
+            if (!tree.findByViewId(root, id).isEmpty()) { hit = true; break; }
+        }
+        calls.idLookups += tree.idLookups - before;
+        return hit;
+    }
+
+    @Benchmark
+    public boolean singlePass(Calls calls) {
+        long before = tree.nodeFetches;
+        boolean hit = ViewTreeMatcher.findFirst(root, PACKAGE_IDS, 48, 3000, tree.nodes) != null;
+        calls.nodeFetches += tree.nodeFetches - before;
+        return hit;
+    }
+}
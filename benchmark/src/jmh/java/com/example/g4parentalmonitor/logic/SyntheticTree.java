@@ -0,0 +1,63 @@
+package com.example.g4parentalmonitor.logic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic window hierarchies shaped like a feed screen: a spine of nested layouts
+ * {@code depth} levels deep, each level carrying {@code fanout - 1} leaf items.
+ *
+ * Node fetches and by-ID lookups are counted, as stand-ins for the binder calls the
+ * accessibility service would make against a real app's tree.
+ */
+final class SyntheticTree {
+
+    static final class Node {
+        final String viewId;
+        final Node[] children;
+        Node(String viewId, Node[] children) { this.viewId = viewId; this.children = children; }
+    }
+
+    long nodeFetches;
+    long idLookups;
+
+    final ViewTreeMatcher.Nodes<Node> nodes = new ViewTreeMatcher.Nodes<Node>() {
+        @Override public String viewId(Node node)         { return node.viewId; }
+        @Override public int childCount(Node node)        { return node.children.length; }
+        @Override public Node child(Node node, int index) { nodeFetches++; return node.children[index]; }
+        @Override public void release(Node node)          { }
+    };
+
+    /**
+     * @param target view ID placed on the deepest spine node, or null for a tree
+     *               that contains none of the detector's IDs
+     */
+    static Node build(String pkg, int depth, int fanout, String target) {
+        Node spine = new Node(target, new Node[0]);
+        for (int d = depth - 1; d >= 0; d--) {
+            Node[] children = new Node[fanout];
+            for (int i = 0; i < fanout - 1; i++) {
+                children[i] = new Node(pkg + ":id/item_" + d + "_" + i, new Node[0]);
+            }
+            children[fanout - 1] = spine;
+            spine = new Node(pkg + ":id/layout_" + d, children);
+        }
+        return spine;
+    }
+
+    /**
+     * What findAccessibilityNodeInfosByViewId costs: one lookup that walks the whole
+     * tree and returns a new list holding a copy of every match.
+     */
+    List<Node> findByViewId(Node root, String viewId) {
+        idLookups++;
+        List<Node> out = new ArrayList<>();
+        collect(root, viewId, out);
+        return out;
+    }
+
+    private static void collect(Node node, String viewId, List<Node> out) {
+        if (viewId.equals(node.viewId)) out.add(new Node(node.viewId, node.children));
+        for (Node child : node.children) collect(child, viewId, out);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode cost of one /sync body: reflective Gson (what OutboxUploader sends by default)
+ * against CborWriter with its string table. The tree is a busy upload of {@code sessions}
+ * browsing sessions, 40 fixes and a full 40-app snapshot; bytes per body are reported by
+ * CborWriterTest, allocation by the gc profiler.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadEncodingBenchmark {
+
+    @Param({"50", "400"})
+    public int sessions;
+
+    private final Gson gson = new Gson();
+    private Map<String, Object> payload;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(5);
+        List<Object> locations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            locations.add(map("latitude", 52.5 + rnd.nextDouble() / 100, "longitude", 13.4 + rnd.nextDouble() / 100,
+                    "batteryLevel", 80 - i / 4, "timestamp", 1760860800000L + i * 45_000L));
+        }
+        List<Object> apps = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            long ms = rnd.nextInt(3_600_000);
+            apps.add(map("packageName", "com.vendor" + i + ".app" + i, "appName", "App " + i,
+                    "minutes", (ms + 30_000) / 60_000, "seconds", ms / 1000, "totalMs", ms));
+        }
+        List<Object> visits = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            long start = 1760860800000L + i * 9_000L;
+            visits.add(map("domain", "www.site" + (int) Math.abs(rnd.nextGaussian() * 15) % 60 + ".example.com",
+                    "start", start, "end", start + rnd.nextInt(60_000), "hits", 1 + rnd.nextInt(30),
+                    "sources", Arrays.asList("vpn")));
+        }
+        payload = map("deviceId", "6710f2c3a9b8e4d1c2f3a4b5", "location", locations,
+                "apps", map("day", 20261019, "version", 42L, "full", true, "apps", apps),
+                "browserHistory", map("sessions", visits));
+    }
+
+    @Benchmark
+    public byte[] gsonJson() {
+        return gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] cborStringRefs() {
+        return new CborWriter(true).value(payload).toByteArray();
+    }
+
+    private static Map<String, Object> map(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+}
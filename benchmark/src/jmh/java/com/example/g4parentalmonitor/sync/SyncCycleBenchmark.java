@@ -0,0 +1,180 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.data.AppRule;
+import com.example.g4parentalmonitor.data.RuleCodecs;
+import com.example.g4parentalmonitor.history.BrowsingSessionizer;
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * The JSON work of one sync tick: decoding the stored rules, and building the /sync body
+ * from outbox entries. "tree" is how PrefsManager and OutboxUploader did it (reflective
+ * Gson, every entry parsed into a JsonObject and the whole body serialized to a String),
+ * "streamed" is RuleCodecs and SyncBody writing into an okio Buffer as OkHttp would.
+ * The gzip pair puts HttpStack's request compression in the path: "buffered" is the
+ * interceptor that compressed into a Buffer and copied it to a ByteString, "streamed"
+ * the GzipSink over the connection sink. Read gc.alloc.rate.norm from the gc profiler for bytes per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SyncCycleBenchmark {
+
+    @Param({"40", "300"})
+    public int sessions;
+
+    private final Gson gson = new Gson();
+    private String rulesJson;
+    private SyncBody body;
+
+    @Setup
+    public void setUp() {
+        Random rnd = new Random(5);
+        List<AppRule> rules = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            AppRule r = new AppRule();
+            r.packageName = "com.vendor" + i + ".app";
+            r.dailyLimit = 30 + i;
+            AppRule.Schedule s = new AppRule.Schedule();
+            s.enabled = true;
+            s.startTime = "21:00";
+            s.endTime = "07:00";
+            s.days = Arrays.asList(0, 1, 2, 3, 4);
+            r.schedules = Arrays.asList(s);
+            rules.add(r);
+        }
+        rulesJson = gson.toJson(rules);
+
+        body = new SyncBody("6710f2c3a9b8e4d1c2f3a4b5");
+        for (int i = 0; i < 40; i++) {
+            body.locations.add(gson.toJson(map("latitude", 52.5 + rnd.nextDouble() / 100,
+                    "longitude", 13.4 + rnd.nextDouble() / 100, "batteryLevel", 80 - i / 4,
+                    "timestamp", 1760860800000L + i * 45_000L)));
+        }
+        List<Object> apps = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            long ms = rnd.nextInt(3_600_000);
+            apps.add(map("packageName", "com.vendor" + i + ".app" + i, "appName", "App " + i,
+                    "minutes", (ms + 30_000) / 60_000, "seconds", ms / 1000, "totalMs", ms));
+        }
+        body.apps = gson.toJson(map("day", 20261019, "version", 42L, "full", true, "apps", apps));
+        BrowsingSessionizer sessionizer = new BrowsingSessionizer();
+        for (int i = 0; i < sessions * 4; i++) {   // four hits per visit, one visit per site
+            sessionizer.accept("www.site" + i / 4 + ".com", 1760860800000L + i * 9_000L, CaptureRing.SOURCE_VPN);
+        }
+        body.sessions = sessionizer.finish();
+        body.fcmToken = "tok:APA91b";
+    }
+
+    @Benchmark
+    public Object rulesReflective() {
+        return gson.fromJson(rulesJson, new TypeToken<List<AppRule>>() {}.getType());
+    }
+
+    @Benchmark
+    public Object rulesCodec() {
+        return RuleCodecs.decode(RuleCodecs.APP_RULES, rulesJson);
+    }
+
+    @Benchmark
+    public long bodyTree() {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("deviceId", body.deviceId);
+        JsonArray locations = new JsonArray();
+        for (String e : body.locations) locations.add(JsonParser.parseString(e));
+        payload.add("location", locations);
+        payload.add("apps", JsonParser.parseString(body.apps));
+        List<Map<String, Object>> visits = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (BrowsingSessionizer.Session s : body.sessions) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("domain", s.domain);
+            m.put("start", s.firstSeenMs);
+            m.put("end", s.lastSeenMs);
+            m.put("hits", s.hits);
+            m.put("sources", Arrays.asList(CaptureRing.sourceName(CaptureRing.SOURCE_VPN)));
+            visits.add(m);
+            urls.add(SyncBody.legacyEntry(s));
+        }
+        JsonObject history = new JsonObject();
+        history.add("history", gson.toJsonTree(urls));
+        history.add("sessions", gson.toJsonTree(visits));
+        payload.add("browserHistory", history);
+        payload.addProperty("fcmToken", body.fcmToken);
+        Buffer sink = new Buffer();
+        sink.write(gson.toJson(payload).getBytes(StandardCharsets.UTF_8));
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long bodyStreamed() throws IOException {
+        Buffer sink = new Buffer();
+        body.requestBody(false).writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long gzipBuffered() throws IOException {
+        Buffer compressed = new Buffer();
+        try (BufferedSink gz = Okio.buffer(new GzipSink(compressed))) {
+            body.requestBody(true).writeTo(gz);
+        }
+        Buffer sink = new Buffer();
+        RequestBody.create(compressed.readByteString(), SyncBody.CBOR).writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public long gzipStreamed() throws IOException {
+        Buffer sink = new Buffer();
+        BufferedSink gz = Okio.buffer(new GzipSink(sink));
+        body.requestBody(true).writeTo(gz);
+        gz.close();
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    private static Map<String, Object> map(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.g4parentalmonitor.vpn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-packet cost of DnsPacketParser. Packets are read into a 32 KB buffer the same way
+ * DnsPipeline reads the tun fd, so parse() pays for the buffer as it does on device.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DnsPacketParserBenchmark {
+
+    private static final int PACKETS = 1024; // power of two, indexed with a mask
+
+    private final byte[] tunBuffer = new byte[32767];
+    private byte[][] packets;
+    private DnsPacketParser.DnsQuery[] queries;
+    private byte[][] answers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] domains = Traffic.zipfDomains(PACKETS, 29);
+        packets = new byte[PACKETS][];
+        queries = new DnsPacketParser.DnsQuery[PACKETS];
+        answers = new byte[PACKETS][];
+        for (int i = 0; i < PACKETS; i++) {
+            packets[i] = DnsPackets.buildQuery(i, 40000 + i, domains[i], i % 4 == 0 ? 28 : 1);
+            queries[i] = DnsPacketParser.parse(packets[i], packets[i].length);
+            answers[i] = DnsPackets.upstreamAnswer(packets[i]);
+        }
+    }
+
+    @Benchmark
+    public DnsPacketParser.DnsQuery parse() {
+        byte[] p = packets[next++ & (PACKETS - 1)];
+        System.arraycopy(p, 0, tunBuffer, 0, p.length);
+        return DnsPacketParser.parse(tunBuffer, p.length);
+    }
+
+    @Benchmark
+    public byte[] buildNxDomainResponse() {
+        return DnsPacketParser.buildNxDomainResponse(queries[next++ & (PACKETS - 1)]);
+    }
+
+    @Benchmark
+    public byte[] buildARecordResponse() {
+        return DnsPacketParser.buildARecordResponse(queries[next++ & (PACKETS - 1)], "216.239.38.120");
+    }
+
+    @Benchmark
+    public byte[] wrapUpstreamResponse() {
+        int i = next++ & (PACKETS - 1);
+        return DnsPacketParser.wrapUpstreamResponse(queries[i], answers[i]);
+    }
+}
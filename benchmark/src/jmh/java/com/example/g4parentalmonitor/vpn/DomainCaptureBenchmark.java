@@ -0,0 +1,52 @@
+package com.example.g4parentalmonitor.vpn;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DomainCapture.record(), which DnsPipeline calls on every allowed query. The
+ * capture ring is drained after each iteration, as the spool thread does every few
+ * seconds on device; once it fills, the numbers include drop-oldest eviction.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DomainCaptureBenchmark {
+
+    private static final int QUERIES = 4096; // power of two, indexed with a mask
+
+    private String[] domains;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        domains = Traffic.zipfDomains(QUERIES, 31);
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        DomainCapture.drain(null);
+    }
+
+    @Benchmark
+    public void recordVpnDomain() {
+        DomainCapture.record(domains[next++ & (QUERIES - 1)]);
+    }
+
+    /** Several DNS threads hitting the ring at once. */
+    @Benchmark
+    @Threads(4)
+    public void recordVpnDomainContended() {
+        DomainCapture.record(domains[next++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.g4parentalmonitor.vpn;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic DNS traffic for the benchmarks. Domain popularity is Zipfian (s = 1), which
+ * is what real resolver logs look like: a handful of CDNs and search engines dominate,
+ * followed by a long tail of one-off hosts.
+ */
+final class Traffic {
+
+    /** Head of the distribution; rank 1 is by far the most common. */
+    static final String[] TOP_DOMAINS = {
+            "www.google.com", "i.ytimg.com", "fonts.gstatic.com", "www.youtube.com",
+            "cdn.jsdelivr.net", "www.wikipedia.org", "en.m.wikipedia.org", "static.xx.fbcdn.net",
+            "www.instagram.com", "graph.instagram.com", "www.bing.com", "www.reddit.com",
+            "i.redd.it", "pornhub.com", "www.xvideos.com", "api.github.com",
+            "news.ycombinator.com", "www.bbc.co.uk", "cdn.cnn.com", "ssl.gstatic.com"
+    };
+
+    /** Ranks past TOP_DOMAINS are filled with generated long-tail hosts. */
+    static final int VOCABULARY = 50_000;
+
+    private Traffic() {}
+
+    static String domainAtRank(int rank) {
+        return rank < TOP_DOMAINS.length ? TOP_DOMAINS[rank] : "host" + rank + ".tail-cdn.net";
+    }
+
+    /** Domains the parent blocked; disjoint from the browsing vocabulary. */
+    static String blockedDomain(int i) {
+        return "blocked" + i + ".example.org";
+    }
+
+    /** {@code count} domains drawn Zipf-distributed from the vocabulary. */
+    static String[] zipfDomains(int count, long seed) {
+        Random random = new Random(seed);
+        double[] cumulative = new double[VOCABULARY];
+        double sum = 0;
+        for (int i = 0; i < VOCABULARY; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) {
+            int idx = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            if (idx < 0) idx = -idx - 1;
+            out[i] = domainAtRank(Math.min(idx, VOCABULARY - 1));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,21 @@
+plugins {
+    `java-library`
+    `java-test-fixtures`
+}
+
+// Android-free code shared by :app and :benchmark. Nothing here may import android.*;
+// platform services come in through the interfaces in com.example.g4parentalmonitor.core.
+// OkHttp and Gson are plain JVM and the versions :app ships, so sync and codec code lives
+// here; they are api because CommandChannel, SyncBody and RuleCodecs expose their types.
+// src/testFixtures holds helpers the tests and :benchmark share (DNS packet builders).
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    api(libs.okhttp)
+    api(libs.gson)
+    testImplementation(libs.junit)
+    testImplementation(libs.okhttp.mockwebserver)
+}
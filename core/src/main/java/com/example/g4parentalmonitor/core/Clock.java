@@ -0,0 +1,9 @@
+package com.example.g4parentalmonitor.core;
+
+/** Wall-clock source; tests substitute a controllable one. */
+public interface Clock {
+
+    long currentTimeMillis();
+
+    Clock SYSTEM = System::currentTimeMillis;
+}
@@ -0,0 +1,58 @@
+package com.example.g4parentalmonitor.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** HashMap-backed KeyValueStore for JVM tests and benchmarks. */
+public class InMemoryKeyValueStore implements KeyValueStore {
+
+    private final Map<String, Object> values = new HashMap<>();
+
+    @Override public synchronized String getString(String key, String defValue) {
+        Object v = values.get(key);
+        return v instanceof String ? (String) v : defValue;
+    }
+
+    @Override public synchronized long getLong(String key, long defValue) {
+        Object v = values.get(key);
+        return v instanceof Long ? (Long) v : defValue;
+    }
+
+    @Override public synchronized int getInt(String key, int defValue) {
+        Object v = values.get(key);
+        return v instanceof Integer ? (Integer) v : defValue;
+    }
+
+    @Override public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object v = values.get(key);
+        return v instanceof Boolean ? (Boolean) v : defValue;
+    }
+
+    @Override public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override public Editor edit() {
+        return new Editor() {
+            // null value = remove; applied in call order like SharedPreferences
+            private final List<Object[]> ops = new ArrayList<>();
+
+            @Override public Editor putString(String key, String value) { ops.add(new Object[]{key, value}); return this; }
+            @Override public Editor putLong(String key, long value)     { ops.add(new Object[]{key, value}); return this; }
+            @Override public Editor putInt(String key, int value)       { ops.add(new Object[]{key, value}); return this; }
+            @Override public Editor putBoolean(String key, boolean value) { ops.add(new Object[]{key, value}); return this; }
+            @Override public Editor remove(String key)                  { ops.add(new Object[]{key, null}); return this; }
+
+            @Override public void apply() {
+                synchronized (InMemoryKeyValueStore.this) {
+                    for (Object[] op : ops) {
+                        if (op[1] == null) values.remove((String) op[0]);
+                        else values.put((String) op[0], op[1]);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.g4parentalmonitor.core;
+
+import java.util.Map;
+
+/**
+ * KeyValueStore — the slice of SharedPreferences that core code needs.
+ *
+ * The app backs it with SharedPreferences; JVM tests and benchmarks use
+ * {@link InMemoryKeyValueStore}.
+ */
+public interface KeyValueStore {
+
+    String  getString(String key, String defValue);
+    long    getLong(String key, long defValue);
+    int     getInt(String key, int defValue);
+    boolean getBoolean(String key, boolean defValue);
+
+    /** Snapshot of every entry; values are String, Long, Integer or Boolean. */
+    Map<String, ?> getAll();
+
+    Editor edit();
+
+    /** Batched writes, applied together by {@link #apply()}. */
+    interface Editor {
+        Editor putString(String key, String value);
+        Editor putLong(String key, long value);
+        Editor putInt(String key, int value);
+        Editor putBoolean(String key, boolean value);
+        Editor remove(String key);
+        void apply();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.g4parentalmonitor.core;
+
+/**
+ * Log — android.util.Log for :core.
+ *
+ * Same call shape as the Android class so core code reads the same as the rest of
+ * the app; every call goes to whichever {@link Logger} was installed at startup.
+ */
+public final class Log {
+
+    private static volatile Logger logger = Logger.NONE;
+
+    private Log() {}
+
+    public static void install(Logger l) {
+        logger = l != null ? l : Logger.NONE;
+    }
+
+    public static void v(String tag, String msg) { logger.log(Logger.VERBOSE, tag, msg, null); }
+    public static void d(String tag, String msg) { logger.log(Logger.DEBUG, tag, msg, null); }
+    public static void i(String tag, String msg) { logger.log(Logger.INFO, tag, msg, null); }
+    public static void w(String tag, String msg) { logger.log(Logger.WARN, tag, msg, null); }
+    public static void e(String tag, String msg) { logger.log(Logger.ERROR, tag, msg, null); }
+
+    public static void e(String tag, String msg, Throwable tr) {
+        logger.log(Logger.ERROR, tag, msg, tr);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.g4parentalmonitor.core;
+
+/**
+ * Logging sink behind {@link Log}. The app installs one that writes to logcat;
+ * JVM tests and benchmarks keep the silent default.
+ */
+public interface Logger {
+
+    // Same values as android.util.Log, so adapters can pass them straight through
+    int VERBOSE = 2;
+    int DEBUG   = 3;
+    int INFO    = 4;
+    int WARN    = 5;
+    int ERROR   = 6;
+
+    void log(int priority, String tag, String msg, Throwable tr);
+
+    Logger NONE = (priority, tag, msg, tr) -> { };
+}
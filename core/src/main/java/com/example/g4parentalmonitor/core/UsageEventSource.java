@@ -0,0 +1,29 @@
+package com.example.g4parentalmonitor.core;
+
+/**
+ * UsageEventSource — foreground/screen events in time order, as UsageStatsManager
+ * reports them. The app adapts UsageEvents; tests feed a scripted list.
+ */
+public interface UsageEventSource {
+
+    int FOREGROUND = 1;
+    int BACKGROUND = 2;
+    int SCREEN_ON  = 3; // interactive or keyguard hidden
+    int SCREEN_OFF = 4; // non-interactive or keyguard shown
+    int OTHER      = 0;
+
+    /** Reused across {@link Cursor#next} calls, like UsageEvents.Event. */
+    final class Event {
+        public long   timeStamp;
+        public int    type;
+        public String packageName;
+    }
+
+    interface Cursor {
+        /** Fills {@code out} with the next event; false when exhausted. */
+        boolean next(Event out);
+    }
+
+    /** Events in [begin, end). Never null — empty when the source is unavailable. */
+    Cursor query(long begin, long end);
+}
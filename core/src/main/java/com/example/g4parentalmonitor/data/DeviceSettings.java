@@ -0,0 +1,15 @@
+package com.example.g4parentalmonitor.data;
+
+/**
+ * Body of GET /settings/{deviceId}. Every field is optional; a missing one leaves the
+ * device's current value alone.
+ */
+public class DeviceSettings {
+    public Boolean liveTracking;
+    public Boolean uninstallProtection;
+    public Boolean blockShorts;
+    public Boolean liveChannel;     // keep a WebSocket open for commands (opt-in)
+    public Long locationInterval;   // ms
+    public Long appSyncInterval;    // ms
+    public Long lastModified;       // server time of the last parent-side change
+}
@@ -0,0 +1,13 @@
+package com.example.g4parentalmonitor.data;
+
+import java.util.List;
+
+/**
+ * A set of domains that DnsVpnService blocks only while one of its schedules is active,
+ * e.g. "no social media after 21:00".
+ */
+public class DnsSchedulePolicy {
+    public String name;
+    public List<String> domains;              // "instagram.com", "tiktok.com", …
+    public List<AppRule.Schedule> schedules;
+}
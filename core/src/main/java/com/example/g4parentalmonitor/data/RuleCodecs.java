@@ -0,0 +1,223 @@
+package com.example.g4parentalmonitor.data;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RuleCodecs — hand-written streaming Gson adapters for the rule types PrefsManager stores.
+ *
+ * They read and write the same JSON as reflective Gson did (field names, declaration
+ * order, nulls left out, unknown fields skipped, a null for a primitive keeps its
+ * default), so stored values and server bodies stay compatible, but without reflection,
+ * TypeToken lookups or the intermediate objects Gson's reflective path creates.
+ */
+public final class RuleCodecs {
+
+    private RuleCodecs() {}
+
+    public static final TypeAdapter<String> STRING = new TypeAdapter<String>() {
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextString();
+        }
+    };
+
+    public static final TypeAdapter<Integer> INTEGER = new TypeAdapter<Integer>() {
+        @Override
+        public void write(JsonWriter out, Integer value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public Integer read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return in.nextInt();
+        }
+    };
+
+    public static final TypeAdapter<List<String>> STRING_LIST = listOf(STRING);
+
+    public static final TypeAdapter<AppRule.Schedule> SCHEDULE = new TypeAdapter<AppRule.Schedule>() {
+        @Override
+        public void write(JsonWriter out, AppRule.Schedule s) throws IOException {
+            if (s == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("enabled").value(s.enabled);
+            if (s.startTime != null) out.name("startTime").value(s.startTime);
+            if (s.endTime != null) out.name("endTime").value(s.endTime);
+            if (s.days != null) INT_LIST.write(out.name("days"), s.days);
+            out.endObject();
+        }
+
+        @Override
+        public AppRule.Schedule read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            AppRule.Schedule s = new AppRule.Schedule();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in)) continue;
+                switch (name) {
+                    case "enabled":   s.enabled = in.nextBoolean(); break;
+                    case "startTime": s.startTime = in.nextString(); break;
+                    case "endTime":   s.endTime = in.nextString(); break;
+                    case "days":      s.days = INT_LIST.read(in); break;
+                    default:          in.skipValue();
+                }
+            }
+            in.endObject();
+            return s;
+        }
+    };
+
+    public static final TypeAdapter<AppRule> APP_RULE = new TypeAdapter<AppRule>() {
+        @Override
+        public void write(JsonWriter out, AppRule r) throws IOException {
+            if (r == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (r.packageName != null) out.name("packageName").value(r.packageName);
+            out.name("isLocked").value(r.isLocked);
+            out.name("dailyLimit").value(r.dailyLimit);
+            if (r.schedules != null) SCHEDULES.write(out.name("schedules"), r.schedules);
+            out.endObject();
+        }
+
+        @Override
+        public AppRule read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            AppRule r = new AppRule();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in)) continue;
+                switch (name) {
+                    case "packageName": r.packageName = in.nextString(); break;
+                    case "isLocked":    r.isLocked = in.nextBoolean(); break;
+                    case "dailyLimit":  r.dailyLimit = in.nextInt(); break;
+                    case "schedules":   r.schedules = SCHEDULES.read(in); break;
+                    default:            in.skipValue();
+                }
+            }
+            in.endObject();
+            return r;
+        }
+    };
+
+    public static final TypeAdapter<DnsSchedulePolicy> DNS_POLICY = new TypeAdapter<DnsSchedulePolicy>() {
+        @Override
+        public void write(JsonWriter out, DnsSchedulePolicy p) throws IOException {
+            if (p == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            if (p.name != null) out.name("name").value(p.name);
+            if (p.domains != null) STRING_LIST.write(out.name("domains"), p.domains);
+            if (p.schedules != null) SCHEDULES.write(out.name("schedules"), p.schedules);
+            out.endObject();
+        }
+
+        @Override
+        public DnsSchedulePolicy read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            DnsSchedulePolicy p = new DnsSchedulePolicy();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (skipNull(in)) continue;
+                switch (name) {
+                    case "name":      p.name = in.nextString(); break;
+                    case "domains":   p.domains = STRING_LIST.read(in); break;
+                    case "schedules": p.schedules = SCHEDULES.read(in); break;
+                    default:          in.skipValue();
+                }
+            }
+            in.endObject();
+            return p;
+        }
+    };
+
+    private static final TypeAdapter<List<Integer>> INT_LIST = listOf(INTEGER);
+    private static final TypeAdapter<List<AppRule.Schedule>> SCHEDULES = listOf(SCHEDULE);
+
+    public static final TypeAdapter<List<AppRule>> APP_RULES = listOf(APP_RULE);
+    public static final TypeAdapter<List<DnsSchedulePolicy>> DNS_POLICIES = listOf(DNS_POLICY);
+
+    /** A JSON array as an ArrayList, null for JSON null, as Gson's collection adapter does. */
+    public static <T> TypeAdapter<List<T>> listOf(TypeAdapter<T> element) {
+        return new TypeAdapter<List<T>>() {
+            @Override
+            public void write(JsonWriter out, List<T> list) throws IOException {
+                if (list == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginArray();
+                for (T t : list) element.write(out, t);
+                out.endArray();
+            }
+
+            @Override
+            public List<T> read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                List<T> list = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) list.add(element.read(in));
+                in.endArray();
+                return list;
+            }
+        };
+    }
+
+    /** Parses {@code json}; malformed input throws JsonParseException, as Gson.fromJson does. */
+    public static <T> T decode(TypeAdapter<T> adapter, String json) {
+        try {
+            return adapter.fromJson(json);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonParseException(e);
+        }
+    }
+
+    private static boolean skipNull(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.NULL) return false;
+        in.nextNull();
+        return true;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.g4parentalmonitor.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Detection signatures as served by GET /api/signatures. View IDs may be bare
+ * resource names ("reel_recycler"); they are qualified with the package on compile.
+ */
+public class SignaturePack {
+    public int format;                                // Signatures.FORMAT
+    public long version;                              // monotonically increasing
+    public List<String> shortsPackages;               // blocked outright (TikTok)
+    public Map<String, List<String>> shortsViews;     // package → Shorts/Reels player IDs
+    public Map<String, List<String>> urlBars;         // package → URL bar IDs, preferred first
+}
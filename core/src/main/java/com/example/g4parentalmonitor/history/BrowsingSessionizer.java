@@ -0,0 +1,119 @@
+package com.example.g4parentalmonitor.history;
+
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BrowsingSessionizer — collapses raw capture hits into per-site visits.
+ *
+ * One page load produces dozens of DNS hits (CDNs, fonts, analytics) plus, with the
+ * accessibility service on, the URL-bar text. Every hit is keyed by its
+ * {@link RegistrableDomain}; hits on the same site less than {@code idleGapMs} apart
+ * belong to one session of (domain, first seen, last seen, hit count, sources).
+ *
+ * Feed it straight from a drain ({@link #accept} is a CaptureRing.Visitor). Hits may
+ * arrive out of order — e.g. one journal after the other — and still merge into the
+ * right session. {@link #finish} returns the sessions ordered by start time.
+ */
+public final class BrowsingSessionizer implements CaptureRing.Visitor {
+
+    public static final long DEFAULT_IDLE_GAP_MS = 2 * 60_000L;
+
+    public static final class Session {
+        public final String domain;
+        /** Last URL-bar text seen for this visit, null if only DNS saw it. */
+        public String url;
+        public long   firstSeenMs;
+        public long   lastSeenMs;
+        public int    hits;
+        /** Bit (1 << CaptureRing.SOURCE_*) for every source that saw this visit. */
+        public int    sources;
+
+        Session(String domain, long ts) {
+            this.domain      = domain;
+            this.firstSeenMs = ts;
+            this.lastSeenMs  = ts;
+        }
+
+        public boolean seenBy(int source) {
+            return (sources & (1 << source)) != 0;
+        }
+    }
+
+    private final long idleGapMs;
+    // Per site: sessions sorted by firstSeenMs, always more than idleGapMs apart
+    private final Map<String, List<Session>> bySite = new HashMap<>();
+    private int hits;
+
+    public BrowsingSessionizer() {
+        this(DEFAULT_IDLE_GAP_MS);
+    }
+
+    public BrowsingSessionizer(long idleGapMs) {
+        this.idleGapMs = idleGapMs;
+    }
+
+    @Override
+    public void accept(String hostOrUrl, long ts, int source) {
+        String site = RegistrableDomain.of(hostOrUrl);
+        if (site.isEmpty()) return;
+        hits++;
+
+        List<Session> sessions = bySite.get(site);
+        if (sessions == null) {
+            sessions = new ArrayList<>(2);
+            bySite.put(site, sessions);
+        }
+
+        int i = 0;
+        while (i < sessions.size() && sessions.get(i).lastSeenMs + idleGapMs < ts) i++;
+
+        Session s;
+        if (i < sessions.size() && sessions.get(i).firstSeenMs - idleGapMs <= ts) {
+            s = sessions.get(i);
+            s.firstSeenMs = Math.min(s.firstSeenMs, ts);
+            s.lastSeenMs  = Math.max(s.lastSeenMs, ts);
+            // The extended session may now reach the next one
+            if (i + 1 < sessions.size() && sessions.get(i + 1).firstSeenMs - idleGapMs <= s.lastSeenMs) {
+                absorb(s, sessions.remove(i + 1));
+            }
+        } else {
+            s = new Session(site, ts);
+            sessions.add(i, s);
+        }
+
+        s.hits++;
+        s.sources |= 1 << source;
+        if (source == CaptureRing.SOURCE_ACCESSIBILITY && (s.url == null || ts >= s.lastSeenMs)) {
+            s.url = hostOrUrl;
+        }
+    }
+
+    /** Raw hits accepted so far (sessions collapse these). */
+    public int hits() {
+        return hits;
+    }
+
+    /** All sessions ordered by start time; resets the sessionizer. */
+    public List<Session> finish() {
+        List<Session> out = new ArrayList<>();
+        for (List<Session> sessions : bySite.values()) out.addAll(sessions);
+        Collections.sort(out, (a, b) -> Long.compare(a.firstSeenMs, b.firstSeenMs));
+        bySite.clear();
+        hits = 0;
+        return out;
+    }
+
+    private static void absorb(Session into, Session other) {
+        into.firstSeenMs = Math.min(into.firstSeenMs, other.firstSeenMs);
+        into.lastSeenMs  = Math.max(into.lastSeenMs, other.lastSeenMs);
+        into.hits       += other.hits;
+        into.sources    |= other.sources;
+        if (into.url == null) into.url = other.url;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.g4parentalmonitor.history;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RegistrableDomain — the site a host or URL belongs to ("eTLD+1").
+ *
+ *   "https://m.youtube.com/watch?v=x" → "youtube.com"
+ *   "news.bbc.co.uk"                  → "bbc.co.uk"
+ *   "i.ytimg.com"                     → "youtube.com"   (first-party CDN alias)
+ *
+ * Uses a short list of common two-level public suffixes instead of the full Public
+ * Suffix List; anything unknown falls back to the last two labels.
+ */
+public final class RegistrableDomain {
+
+    /** Second-level labels that act as public suffixes under a two-letter country TLD. */
+    private static final Set<String> CC_SECOND_LEVEL = new HashSet<>(Arrays.asList(
+            "co", "com", "org", "net", "ac", "gov", "edu", "or", "ne", "go", "gob", "nic"
+    ));
+
+    /** First-party CDN / asset domains folded into the site they serve. */
+    private static final Map<String, String> ALIASES = new HashMap<>();
+    static {
+        ALIASES.put("ytimg.com",        "youtube.com");
+        ALIASES.put("googlevideo.com",  "youtube.com");
+        ALIASES.put("youtu.be",         "youtube.com");
+        ALIASES.put("ggpht.com",        "youtube.com");
+        ALIASES.put("fbcdn.net",        "facebook.com");
+        ALIASES.put("fb.com",           "facebook.com");
+        ALIASES.put("cdninstagram.com", "instagram.com");
+        ALIASES.put("twimg.com",        "x.com");
+        ALIASES.put("twitter.com",      "x.com");
+        ALIASES.put("redd.it",          "reddit.com");
+        ALIASES.put("redditmedia.com",  "reddit.com");
+        ALIASES.put("redditstatic.com", "reddit.com");
+        ALIASES.put("tiktokcdn.com",    "tiktok.com");
+        ALIASES.put("tiktokv.com",      "tiktok.com");
+        ALIASES.put("byteoversea.com",  "tiktok.com");
+        ALIASES.put("sndcdn.com",       "soundcloud.com");
+        ALIASES.put("wikimedia.org",    "wikipedia.org");
+        ALIASES.put("pinimg.com",       "pinterest.com");
+        ALIASES.put("scdn.co",          "spotify.com");
+    }
+
+    private RegistrableDomain() {}
+
+    /** Returns the registrable domain, or "" if {@code hostOrUrl} has no usable host. */
+    public static String of(String hostOrUrl) {
+        String host = hostOf(hostOrUrl);
+        if (host.isEmpty() || isIpLiteral(host)) return host;
+
+        int last = host.lastIndexOf('.');
+        if (last <= 0) return host;
+        int second = host.lastIndexOf('.', last - 1);
+        if (second < 0) return alias(host);
+
+        // "bbc.co.uk": two-letter TLD with a public second level → keep three labels
+        String tld = host.substring(last + 1);
+        String sld = host.substring(second + 1, last);
+        int cut = second;
+        if (tld.length() == 2 && CC_SECOND_LEVEL.contains(sld)) {
+            cut = host.lastIndexOf('.', second - 1);
+            if (cut < 0) return host;
+        }
+        return alias(host.substring(cut + 1));
+    }
+
+    /** Lower-cased host of a URL or bare host: no scheme, credentials, port, path or trailing dot. */
+    static String hostOf(String s) {
+        if (s == null) return "";
+        int start = s.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = s.length();
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '/' || c == '?' || c == '#' || c == ' ') { end = i; break; }
+        }
+        int at = s.lastIndexOf('@', end - 1);
+        if (at >= start) start = at + 1;
+        int colon = s.indexOf(':', start);
+        if (colon >= 0 && colon < end) end = colon;
+        if (end > start && s.charAt(end - 1) == '.') end--;
+        return end > start ? s.substring(start, end).toLowerCase() : "";
+    }
+
+    private static String alias(String domain) {
+        String a = ALIASES.get(domain);
+        return a != null ? a : domain;
+    }
+
+    private static boolean isIpLiteral(String host) {
+        for (int i = 0; i < host.length(); i++) {
+            char c = host.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.g4parentalmonitor.history;
+
+import com.example.g4parentalmonitor.core.Clock;
+import com.example.g4parentalmonitor.core.KeyValueStore;
+import com.example.g4parentalmonitor.logic.Signatures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UrlBarTable — which view ID holds the address bar in each browser.
+ *
+ * WebUrlDetector asks for exactly one ID per browser event instead of probing every
+ * known ID. The IDs come from the live {@link Signatures} pack. When the mapped ID
+ * stops matching (browsers rename their toolbar views between releases) the detector
+ * probes {@link #candidatesFor} — rate-limited per package by {@link #shouldRelearn} —
+ * and records the winner with {@link #learn}. Learned IDs are persisted, so a renamed
+ * browser costs one probe burst per install, not per event. A newer signature pack is
+ * authoritative for the browsers it lists and clears what was learned for them.
+ *
+ * Package names are matched exactly; channel builds that extend a known package
+ * ("com.brave.browser.beta") are resolved once and memoized.
+ */
+public final class UrlBarTable {
+
+    private static final String KEY_PREFIX = "urlbar.";
+    private static final String KEY_PACK_VERSION = "urlbarPackVersion";
+
+    /** First relearn backoff after a miss; doubles per fruitless probe, up to MAX. */
+    static final long RELEARN_BACKOFF_MS     = 60_000L;
+    static final long RELEARN_BACKOFF_MAX_MS = 30 * 60_000L;
+
+    /** Resource names browsers have used for the address bar; probed on a miss. */
+    private static final String[] KNOWN_NAMES = {
+            "url_bar",
+            "mozac_browser_toolbar_url_view",
+            "url_bar_title",
+            "location_bar_edit_text",
+            "url_field",
+            "omnibarTextInput",
+            "search_box_text",
+            "address_bar_edit_text",
+    };
+
+    private static final String NOT_A_BROWSER = "";
+
+    private final KeyValueStore store;
+    private final Clock clock;
+
+    /** The pack {@link #ids} and {@link #variants} were built from. */
+    private volatile Signatures seen;
+    /** package → learned URL bar ID, overriding the pack. */
+    private final Map<String, String> learned = new ConcurrentHashMap<>();
+    /** package → current URL bar ID, resolved lazily from learned + pack. */
+    private final Map<String, String> ids = new ConcurrentHashMap<>();
+    /** package → known browser it extends, or NOT_A_BROWSER. */
+    private final Map<String, String> variants = new ConcurrentHashMap<>();
+    /** package → {next allowed relearn time, current backoff}. */
+    private final Map<String, long[]> relearn = new ConcurrentHashMap<>();
+
+    public UrlBarTable(KeyValueStore store) {
+        this(store, Clock.SYSTEM);
+    }
+
+    public UrlBarTable(KeyValueStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+        for (Map.Entry<String, ?> e : store.getAll().entrySet()) {
+            if (e.getKey().startsWith(KEY_PREFIX) && e.getValue() instanceof String) {
+                learned.put(e.getKey().substring(KEY_PREFIX.length()), (String) e.getValue());
+            }
+        }
+    }
+
+    public boolean isBrowser(String packageName) {
+        if (packageName == null) return false;
+        Signatures sig = signatures();
+        return sig.urlBarIds(packageName) != null || learned.containsKey(packageName)
+                || !baseOf(sig, packageName).isEmpty();
+    }
+
+    /** The single view ID to look up for {@code packageName}, or null if it isn't a browser. */
+    public String idFor(String packageName) {
+        if (packageName == null) return null;
+        Signatures sig = signatures();
+        String id = ids.get(packageName);
+        if (id != null) return id;
+
+        id = learned.get(packageName);
+        if (id == null) {
+            List<String> packed = namesFor(sig, packageName);
+            if (packed == null) return null;
+            id = packed.get(0);
+        }
+        ids.put(packageName, id);
+        return id;
+    }
+
+    /**
+     * True at most once per backoff window per package — callers probe
+     * {@link #candidatesFor} only when this says so.
+     */
+    public boolean shouldRelearn(String packageName) {
+        long now = clock.currentTimeMillis();
+        long[] state = relearn.get(packageName);
+        if (state == null) {
+            relearn.put(packageName, new long[] { now + RELEARN_BACKOFF_MS, RELEARN_BACKOFF_MS });
+            return true;
+        }
+        if (now < state[0]) return false;
+        state[1] = Math.min(state[1] * 2, RELEARN_BACKOFF_MAX_MS);
+        state[0] = now + state[1];
+        return true;
+    }
+
+    /**
+     * Fallback IDs to probe for {@code packageName} — the pack's alternates first, then
+     * every known resource name — excluding the one that just missed.
+     */
+    public List<String> candidatesFor(String packageName) {
+        String current = idFor(packageName);
+        if (current == null) return Collections.emptyList();
+        Set<String> out = new LinkedHashSet<>();
+        List<String> packed = namesFor(signatures(), packageName);
+        if (packed != null) out.addAll(packed);
+        for (String name : KNOWN_NAMES) out.add(packageName + ":id/" + name);
+        out.remove(current);
+        return new ArrayList<>(out);
+    }
+
+    /** Records that {@code viewId} held the URL; later events look it up first. */
+    public void learn(String packageName, String viewId) {
+        relearn.remove(packageName);
+        ids.put(packageName, viewId);
+        if (viewId.equals(learned.put(packageName, viewId))) return;
+        store.edit().putString(KEY_PREFIX + packageName, viewId).apply();
+    }
+
+    /** The mapped ID matched again — reset the backoff so the next rename is caught quickly. */
+    public void hit(String packageName) {
+        if (!relearn.isEmpty()) relearn.remove(packageName);
+    }
+
+    /** The live pack, rebuilding the lookup caches first if it was swapped since last call. */
+    private Signatures signatures() {
+        Signatures sig = Signatures.current();
+        if (sig != seen) {
+            synchronized (this) {
+                if (sig != seen) rebase(sig);
+            }
+        }
+        return sig;
+    }
+
+    private void rebase(Signatures sig) {
+        if (store.getLong(KEY_PACK_VERSION, -1) != sig.version) {
+            KeyValueStore.Editor e = store.edit();
+            for (String pkg : sig.browserPackages()) {
+                if (learned.remove(pkg) != null) e.remove(KEY_PREFIX + pkg);
+            }
+            e.putLong(KEY_PACK_VERSION, sig.version).apply();
+        }
+        ids.clear();
+        variants.clear();
+        relearn.clear();
+        seen = sig;
+    }
+
+    /** The pack's IDs for {@code packageName}, or its parent browser's names under this package. */
+    private List<String> namesFor(Signatures sig, String packageName) {
+        List<String> packed = sig.urlBarIds(packageName);
+        if (packed != null) return packed;
+
+        String base = baseOf(sig, packageName);
+        if (base.isEmpty()) return null;
+        // A channel build keeps its parent's resource names under its own package.
+        List<String> out = new ArrayList<>();
+        for (String id : sig.urlBarIds(base)) out.add(packageName + ":id/" + nameOf(id));
+        return out;
+    }
+
+    private String baseOf(Signatures sig, String packageName) {
+        String base = variants.get(packageName);
+        if (base != null) return base;
+        base = NOT_A_BROWSER;
+        for (String known : sig.browserPackages()) {
+            if (packageName.startsWith(known + ".")) { base = known; break; }
+        }
+        variants.put(packageName, base);
+        return base;
+    }
+
+    private static String nameOf(String viewId) {
+        return viewId.substring(viewId.indexOf(":id/") + 4);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.g4parentalmonitor.journal;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk layout shared by JournalWriter and JournalReader.
+ *
+ *   <dir>/seg-<16-digit seq>.log   append-only segments, rotated at SEGMENT_BYTES
+ *   <dir>/cursor                   reader position: long segment, long offset
+ *
+ * Record: int payloadLength | int crc32(payload) | long ts | byte source | short n | n bytes UTF-8
+ * A record that doesn't fit, has a bad length or a bad CRC marks the end of valid data in
+ * that segment (torn write from a killed process).
+ */
+final class JournalFormat {
+
+    static final int  HEADER_BYTES   = 8;
+    static final int  FIXED_PAYLOAD  = 8 + 1 + 2;
+    static final int  MAX_DOMAIN     = 2048;
+    static final long SEGMENT_BYTES  = 256 * 1024;
+
+    static final String CURSOR_FILE = "cursor";
+    private static final String PREFIX = "seg-";
+    private static final String SUFFIX = ".log";
+
+    private JournalFormat() {}
+
+    static File segmentFile(File dir, long seq) {
+        return new File(dir, String.format("%s%016d%s", PREFIX, seq, SUFFIX));
+    }
+
+    /** Segment sequence numbers present in {@code dir}, ascending. */
+    static long[] listSegments(File dir) {
+        String[] names = dir.list();
+        if (names == null) return new long[0];
+        long[] seqs = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) continue;
+            try {
+                seqs[n++] = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ignored) {}
+        }
+        seqs = Arrays.copyOf(seqs, n);
+        Arrays.sort(seqs);
+        return seqs;
+    }
+
+    /** Appends one record to {@code buf}, which must have room for {@link #recordSize}. */
+    static void encode(ByteBuffer buf, byte[] domain, long ts, int source) {
+        int start = buf.position();
+        buf.position(start + HEADER_BYTES);
+        buf.putLong(ts).put((byte) source).putShort((short) domain.length).put(domain);
+        int payloadLen = buf.position() - start - HEADER_BYTES;
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), buf.arrayOffset() + start + HEADER_BYTES, payloadLen);
+        buf.putInt(start, payloadLen);
+        buf.putInt(start + 4, (int) crc.getValue());
+    }
+
+    static int recordSize(byte[] domain) {
+        return HEADER_BYTES + FIXED_PAYLOAD + domain.length;
+    }
+
+    static byte[] domainBytes(String domain) {
+        byte[] b = domain.getBytes(StandardCharsets.UTF_8);
+        return b.length <= MAX_DOMAIN ? b : Arrays.copyOf(b, MAX_DOMAIN);
+    }
+
+    /**
+     * Length of the valid record starting at {@code buf.position()}, or -1 if the data
+     * there is incomplete or corrupt. Does not move the position.
+     */
+    static int validRecordLength(ByteBuffer buf) {
+        int p = buf.position();
+        if (buf.limit() - p < HEADER_BYTES + FIXED_PAYLOAD) return -1;
+        int payloadLen = buf.getInt(p);
+        if (payloadLen < FIXED_PAYLOAD || payloadLen > FIXED_PAYLOAD + MAX_DOMAIN) return -1;
+        if (buf.limit() - p - HEADER_BYTES < payloadLen) return -1;
+        int domainLen = buf.getShort(p + HEADER_BYTES + 9) & 0xFFFF;
+        if (FIXED_PAYLOAD + domainLen != payloadLen) return -1;
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), buf.arrayOffset() + p + HEADER_BYTES, payloadLen);
+        if ((int) crc.getValue() != buf.getInt(p + 4)) return -1;
+        return HEADER_BYTES + payloadLen;
+    }
+}
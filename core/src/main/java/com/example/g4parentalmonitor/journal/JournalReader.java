@@ -0,0 +1,174 @@
+package com.example.g4parentalmonitor.journal;
+
+import com.example.g4parentalmonitor.core.Log;
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JournalReader — upload side of the browsing-history journal (see JournalFormat).
+ *
+ * {@link #read} delivers records from the persisted cursor without moving it. Once the
+ * server has confirmed the batch, {@link #acknowledge} persists the new cursor and deletes
+ * every segment wholly before it. A failed upload simply reads the same records again.
+ *
+ * May run in a different process from the writer: it never touches the newest segment
+ * beyond reading it, and stops at the first incomplete record there.
+ */
+public final class JournalReader {
+
+    private static final String TAG = "JournalReader";
+
+    /** Where a read stopped; pass back to {@link #acknowledge}. */
+    public static final class Position {
+        public final long segment;
+        public final long offset;
+        public final int  records;
+
+        Position(long segment, long offset, int records) {
+            this.segment = segment;
+            this.offset  = offset;
+            this.records = records;
+        }
+    }
+
+    private final File dir;
+    private long cursorSegment = -1;
+    private long cursorOffset;
+
+    public JournalReader(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Hands up to {@code maxRecords} records after the cursor to {@code visitor}.
+     * Returns where the read stopped, or null if there was nothing to deliver.
+     */
+    public synchronized Position read(int maxRecords, CaptureRing.Visitor visitor) throws IOException {
+        loadCursor();
+        long[] segs = JournalFormat.listSegments(dir);
+        long seg = cursorSegment, offset = cursorOffset;
+        int n = 0;
+
+        for (int i = 0; i < segs.length && n < maxRecords; i++) {
+            if (segs[i] < cursorSegment) continue;
+            long start = segs[i] == cursorSegment ? cursorOffset : 0;
+            ByteBuffer buf = readFrom(segs[i], start);
+            if (buf == null) continue;
+
+            seg = segs[i];
+            offset = start;
+            int len;
+            while (n < maxRecords && (len = JournalFormat.validRecordLength(buf)) > 0) {
+                int p = buf.position();
+                long ts     = buf.getLong(p + JournalFormat.HEADER_BYTES);
+                int  source = buf.get(p + JournalFormat.HEADER_BYTES + 8);
+                int  dLen   = len - JournalFormat.HEADER_BYTES - JournalFormat.FIXED_PAYLOAD;
+                String domain = new String(buf.array(), p + JournalFormat.HEADER_BYTES + JournalFormat.FIXED_PAYLOAD,
+                        dLen, StandardCharsets.UTF_8);
+                visitor.accept(domain, ts, source);
+                buf.position(p + len);
+                offset += len;
+                n++;
+            }
+            boolean isNewest = i == segs.length - 1;
+            if (n < maxRecords && buf.hasRemaining() && !isNewest) {
+                // Corrupt data inside a sealed segment — nothing after it is readable
+                Log.w(TAG, "Skipping " + buf.remaining() + " unreadable bytes in segment " + segs[i]);
+            }
+        }
+        return n == 0 ? null : new Position(seg, offset, n);
+    }
+
+    /** Persists {@code end} as the new cursor and deletes the segments it has passed. */
+    public synchronized void acknowledge(Position end) throws IOException {
+        if (end == null) return;
+        File tmp = new File(dir, JournalFormat.CURSOR_FILE + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fos)) {
+            out.writeLong(end.segment);
+            out.writeLong(end.offset);
+            out.flush();
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(dir, JournalFormat.CURSOR_FILE))) throw new IOException("cursor rename failed");
+        cursorSegment = end.segment;
+        cursorOffset  = end.offset;
+
+        for (long seq : JournalFormat.listSegments(dir)) {
+            if (seq < end.segment && !JournalFormat.segmentFile(dir, seq).delete()) {
+                Log.w(TAG, "Could not delete acknowledged segment " + seq);
+            }
+        }
+    }
+
+    /**
+     * Gives up the oldest sealed segment, read or not — for when storage is over budget.
+     * Never touches the newest segment, which a writer may still hold open.
+     * Returns the bytes freed, 0 if there was nothing to drop.
+     */
+    public synchronized long discardOldest() throws IOException {
+        loadCursor();
+        long[] segs = JournalFormat.listSegments(dir);
+        if (segs.length < 2) return 0;
+        long freed = JournalFormat.segmentFile(dir, segs[0]).length();
+        if (segs[0] >= cursorSegment) {
+            acknowledge(new Position(segs[1], 0, 0));
+        } else if (!JournalFormat.segmentFile(dir, segs[0]).delete()) {
+            return 0;
+        }
+        return freed;
+    }
+
+    /** Bytes written but not yet acknowledged (approximate; for diagnostics). */
+    public synchronized long pendingBytes() throws IOException {
+        loadCursor();
+        long total = 0;
+        for (long seq : JournalFormat.listSegments(dir)) {
+            if (seq < cursorSegment) continue;
+            long len = JournalFormat.segmentFile(dir, seq).length();
+            total += seq == cursorSegment ? Math.max(0, len - cursorOffset) : len;
+        }
+        return total;
+    }
+
+    // ── Internal ──────────────────────────────────────────────────────────────
+
+    private void loadCursor() throws IOException {
+        if (cursorSegment >= 0) return;
+        File f = new File(dir, JournalFormat.CURSOR_FILE);
+        cursorSegment = 0;
+        cursorOffset  = 0;
+        if (!f.exists()) return;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+            cursorSegment = in.readLong();
+            cursorOffset  = in.readLong();
+        }
+    }
+
+    private ByteBuffer readFrom(long seq, long start) throws IOException {
+        File f = JournalFormat.segmentFile(dir, seq);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "r");
+             FileChannel ch = raf.getChannel()) {
+            long size = ch.size();
+            if (size <= start) return null;
+            ByteBuffer buf = ByteBuffer.allocate((int) (size - start));
+            ch.position(start);
+            while (buf.hasRemaining() && ch.read(buf) > 0) { /* fill */ }
+            buf.flip();
+            return buf;
+        } catch (FileNotFoundException e) {
+            return null; // deleted between list and open
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.g4parentalmonitor.journal;
+
+import com.example.g4parentalmonitor.core.Clock;
+import com.example.g4parentalmonitor.core.Log;
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * JournalWriter — append side of the browsing-history journal (see JournalFormat).
+ *
+ * One writer per directory, owned by the process that captures into it. Batches are
+ * written with a single write() each, so a killed process loses nothing that reached
+ * the page cache. fsync is group-committed: at most one force() per COMMIT_INTERVAL_MS
+ * no matter how many batches arrive, plus one on rotation and {@link #sync()}.
+ *
+ * On open, a torn record at the end of the newest segment is truncated away.
+ */
+public final class JournalWriter implements Closeable {
+
+    private static final String TAG = "JournalWriter";
+
+    static final long COMMIT_INTERVAL_MS = 1_000;
+
+    /** Anything that can batch-drain records, e.g. {@code ring::drain}. */
+    public interface Source {
+        int drain(CaptureRing.Visitor visitor);
+    }
+
+    private final File  dir;
+    private final Clock clock;
+
+    private FileChannel active;
+    private long        activeSeq;
+    private ByteBuffer  batch = ByteBuffer.allocate(16 * 1024);
+    private boolean     dirty;
+    private long        lastForceMs;
+
+    public JournalWriter(File dir) throws IOException {
+        this(dir, Clock.SYSTEM);
+    }
+
+    public JournalWriter(File dir, Clock clock) throws IOException {
+        this.dir   = dir;
+        this.clock = clock;
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        recover();
+    }
+
+    /** Drains {@code source} into the journal as one batch; returns the record count. */
+    public synchronized int appendAll(Source source) throws IOException {
+        batch.clear();
+        int n = source.drain(this::encode);
+        if (n == 0) return 0;
+
+        batch.flip();
+        if (active.size() >= JournalFormat.SEGMENT_BYTES) rotate();
+        while (batch.hasRemaining()) active.write(batch);
+        dirty = true;
+
+        long now = clock.currentTimeMillis();
+        if (now - lastForceMs >= COMMIT_INTERVAL_MS) force(now);
+        return n;
+    }
+
+    /** Forces anything written since the last commit to disk. */
+    public synchronized void sync() throws IOException {
+        if (dirty) force(clock.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        active.close();
+    }
+
+    // ── Internal ──────────────────────────────────────────────────────────────
+
+    private void encode(String domain, long ts, int source) {
+        byte[] d = JournalFormat.domainBytes(domain);
+        int size = JournalFormat.recordSize(d);
+        if (batch.remaining() < size) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(batch.capacity() * 2, batch.position() + size));
+            batch.flip();
+            bigger.put(batch);
+            batch = bigger;
+        }
+        JournalFormat.encode(batch, d, ts, source);
+    }
+
+    private void force(long now) throws IOException {
+        active.force(false);
+        dirty = false;
+        lastForceMs = now;
+    }
+
+    private void rotate() throws IOException {
+        active.force(false);
+        active.close();
+        open(activeSeq + 1);
+    }
+
+    private void open(long seq) throws IOException {
+        active = new RandomAccessFile(JournalFormat.segmentFile(dir, seq), "rw").getChannel();
+        active.position(active.size());
+        activeSeq = seq;
+    }
+
+    private void recover() throws IOException {
+        long[] segs = JournalFormat.listSegments(dir);
+        if (segs.length == 0) { open(1); return; }
+
+        open(segs[segs.length - 1]);
+        long size = active.size();
+        ByteBuffer buf = ByteBuffer.allocate((int) size);
+        active.position(0);
+        while (buf.hasRemaining() && active.read(buf) > 0) { /* fill */ }
+        buf.flip();
+
+        int len;
+        while ((len = JournalFormat.validRecordLength(buf)) > 0) buf.position(buf.position() + len);
+        if (buf.position() < size) {
+            Log.w(TAG, "Truncating torn tail of segment " + activeSeq + ": " + (size - buf.position()) + " bytes");
+            active.truncate(buf.position());
+            active.force(false);
+        }
+        active.position(buf.position());
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.g4parentalmonitor.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * EventCoalescer — decides which accessibility events are worth a tree inspection.
+ *
+ * Scrolling a feed or typing in a URL bar fires hundreds of content/text events a
+ * second; inspecting the window for each one is wasted work, since only the latest
+ * tree matters. The coalescer turns that stream into at most one inspection per
+ * package per debounce window, and at most one inspection overall per frame budget.
+ *
+ *   onEvent(pkg, urgent, now) → token, or ABSORBED when a pending run already covers it
+ *   admit(pkg, token, now)    → RUN, SKIP (stale), or how many ms to wait
+ *
+ * Urgent events (window changes) are due immediately and supersede any pending run
+ * for the same package. Every token carries a generation; a run whose generation has
+ * been overtaken — by a newer run for its package, or by a window change to another
+ * package — is skipped instead of inspecting a tree it no longer describes.
+ *
+ * Single-threaded: call from the accessibility service's main thread only.
+ */
+public final class EventCoalescer {
+
+    // Tokens and waits are positive; the three sentinels differ from them and from each other
+    public static final long RUN      = 0;
+    public static final long SKIP     = -1;
+    public static final long ABSORBED = -2;
+
+    /** Debounce window per package, asked once the first time a package is seen. */
+    public interface WindowPolicy {
+        long windowMs(String packageName);
+    }
+
+    private static final class State {
+        final long windowMs;
+        long token;        // generation of the pending run, 0 if none
+        long dueAt;
+        State(long windowMs) { this.windowMs = windowMs; }
+    }
+
+    private final long frameBudgetMs;
+    private final WindowPolicy policy;
+    private final Map<String, State> states = new HashMap<>();
+
+    private long generation;
+    private long lastSwitchGen;
+    private String lastSwitchPackage;
+    private long lastInspectionAt = Long.MIN_VALUE / 2;
+
+    // ── Counters ──────────────────────────────────────────────────────────────
+    private long eventsIn, absorbed, stale, deferred, processed;
+    private long lastReportAt;
+
+    public EventCoalescer(long frameBudgetMs, WindowPolicy policy) {
+        this.frameBudgetMs = frameBudgetMs;
+        this.policy = policy;
+    }
+
+    /** Returns a token to pass to {@link #admit}, or {@link #ABSORBED}. */
+    public long onEvent(String packageName, boolean urgent, long now) {
+        eventsIn++;
+        State s = states.get(packageName);
+        if (s == null) {
+            s = new State(policy.windowMs(packageName));
+            states.put(packageName, s);
+        }
+
+        if (!urgent && s.token != 0) {
+            absorbed++;
+            return ABSORBED;
+        }
+
+        s.token = ++generation;
+        s.dueAt = urgent ? now : now + s.windowMs;
+        if (urgent) {
+            lastSwitchGen = s.token;
+            lastSwitchPackage = packageName;
+        }
+        return s.token;
+    }
+
+    /**
+     * Called when the run for {@code token} comes up. {@link #RUN} means inspect now
+     * (and counts as this frame's inspection); a positive value means re-post after
+     * that many ms.
+     */
+    public long admit(String packageName, long token, long now) {
+        if (token <= 0) throw new IllegalArgumentException("not a token from onEvent: " + token);
+        State s = states.get(packageName);
+        boolean overtaken = token < lastSwitchGen && !packageName.equals(lastSwitchPackage);
+        if (s == null || s.token != token || overtaken) {
+            if (s != null && s.token == token) s.token = 0;
+            stale++;
+            return SKIP;
+        }
+
+        long wait = Math.max(s.dueAt, lastInspectionAt + frameBudgetMs) - now;
+        if (wait > 0) {
+            deferred++;
+            return wait;
+        }
+
+        s.token = 0;
+        lastInspectionAt = now;
+        processed++;
+        return RUN;
+    }
+
+    public long eventsIn()  { return eventsIn; }
+    public long processed() { return processed; }
+
+    /** One summary line at most every {@code intervalMs}; null in between. */
+    public String report(long now, long intervalMs) {
+        if (now - lastReportAt < intervalMs) return null;
+        lastReportAt = now;
+        long pct = eventsIn == 0 ? 0 : processed * 100 / eventsIn;
+        return "events in=" + eventsIn + " processed=" + processed + " (" + pct + "%)"
+                + " absorbed=" + absorbed + " stale=" + stale + " deferred=" + deferred;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.g4parentalmonitor.logic;
+
+import com.example.g4parentalmonitor.data.SignaturePack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Signatures — a compiled SignaturePack: per-package view ID sets for ShortsDetector
+ * and URL bar IDs for WebUrlDetector, indexed by package name.
+ *
+ * Immutable once compiled. The live instance is swapped with {@link #install}; the
+ * detectors read {@link #current()} once per event, so a new pack costs nothing on the
+ * event path and is picked up by the very next event.
+ */
+public final class Signatures {
+
+    public static final int FORMAT = 1;
+
+    public final long version;
+    private final Set<String> shortsPackages;
+    private final Map<String, Set<String>> shortsViewIds;
+    private final Map<String, List<String>> urlBarIds;
+
+    private static volatile Signatures current = compile(builtIn());
+
+    private Signatures(long version, Set<String> shortsPackages,
+                       Map<String, Set<String>> shortsViewIds, Map<String, List<String>> urlBarIds) {
+        this.version = version;
+        this.shortsPackages = shortsPackages;
+        this.shortsViewIds = shortsViewIds;
+        this.urlBarIds = urlBarIds;
+    }
+
+    public static Signatures current() {
+        return current;
+    }
+
+    public static void install(Signatures signatures) {
+        current = signatures;
+    }
+
+    public boolean isShortsPackage(String packageName) {
+        return shortsPackages.contains(packageName);
+    }
+
+    /** Shorts/Reels view IDs to look for in {@code packageName}, or null if none. */
+    public Set<String> shortsViewIds(String packageName) {
+        return shortsViewIds.get(packageName);
+    }
+
+    /** URL bar IDs for {@code packageName}, preferred first, or null if it isn't a known browser. */
+    public List<String> urlBarIds(String packageName) {
+        return urlBarIds.get(packageName);
+    }
+
+    public Set<String> browserPackages() {
+        return urlBarIds.keySet();
+    }
+
+    /**
+     * Validates and indexes {@code pack}.
+     *
+     * @throws IllegalArgumentException if the format is unknown or an entry is malformed
+     */
+    public static Signatures compile(SignaturePack pack) {
+        if (pack == null) throw new IllegalArgumentException("no pack");
+        if (pack.format != FORMAT) throw new IllegalArgumentException("unsupported format " + pack.format);
+
+        Set<String> packages = new HashSet<>();
+        if (pack.shortsPackages != null) {
+            for (String p : pack.shortsPackages) packages.add(checkPackage(p));
+        }
+
+        Map<String, Set<String>> views = new HashMap<>();
+        if (pack.shortsViews != null) {
+            for (Map.Entry<String, List<String>> e : pack.shortsViews.entrySet()) {
+                String pkg = checkPackage(e.getKey());
+                Set<String> ids = new HashSet<>(qualify(pkg, e.getValue()));
+                if (!ids.isEmpty()) views.put(pkg, Collections.unmodifiableSet(ids));
+            }
+        }
+
+        Map<String, List<String>> bars = new HashMap<>();
+        if (pack.urlBars != null) {
+            for (Map.Entry<String, List<String>> e : pack.urlBars.entrySet()) {
+                String pkg = checkPackage(e.getKey());
+                List<String> ids = qualify(pkg, e.getValue());
+                if (!ids.isEmpty()) bars.put(pkg, Collections.unmodifiableList(ids));
+            }
+        }
+
+        return new Signatures(pack.version, Collections.unmodifiableSet(packages),
+                Collections.unmodifiableMap(views), Collections.unmodifiableMap(bars));
+    }
+
+    private static String checkPackage(String pkg) {
+        if (pkg == null || pkg.isEmpty() || pkg.indexOf(':') >= 0 || pkg.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("bad package " + pkg);
+        }
+        return pkg;
+    }
+
+    private static List<String> qualify(String pkg, List<String> ids) {
+        if (ids == null) return Collections.emptyList();
+        Set<String> out = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (id == null || id.isEmpty()) throw new IllegalArgumentException("empty view ID for " + pkg);
+            out.add(id.indexOf(":id/") > 0 ? id : pkg + ":id/" + id);
+        }
+        return new ArrayList<>(out);
+    }
+
+    /** The signatures shipped in the APK; version 0, so any served pack replaces them. */
+    static SignaturePack builtIn() {
+        SignaturePack p = new SignaturePack();
+        p.format = FORMAT;
+        p.version = 0;
+        p.shortsPackages = Arrays.asList(
+                "com.ss.android.ugc.trill",
+                "com.zhiliaoapp.musically",
+                "com.ss.android.ugc.aweme");
+
+        p.shortsViews = new HashMap<>();
+        p.shortsViews.put("com.instagram.android", Arrays.asList(
+                "root_clips_layout",         // Instagram Reels
+                "reply_bar_container"));     // Instagram Inbox Reels
+        p.shortsViews.put("com.google.android.youtube", Arrays.asList("reel_recycler"));   // YouTube Shorts
+        p.shortsViews.put("app.revanced.android.youtube", Arrays.asList("reel_recycler")); // ReVanced Shorts
+
+        p.urlBars = new HashMap<>();
+        p.urlBars.put("com.android.chrome",            Arrays.asList("url_bar"));
+        p.urlBars.put("org.mozilla.firefox",           Arrays.asList("url_bar_title", "mozac_browser_toolbar_url_view"));
+        p.urlBars.put("com.microsoft.emmx",            Arrays.asList("url_bar"));      // Edge
+        p.urlBars.put("com.sec.android.app.sbrowser",  Arrays.asList("location_bar_edit_text"));
+        p.urlBars.put("com.opera.browser",             Arrays.asList("url_field"));
+        p.urlBars.put("com.brave.browser",             Arrays.asList("url_bar"));
+        p.urlBars.put("com.duckduckgo.mobile.android", Arrays.asList("omnibarTextInput"));
+        return p;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.g4parentalmonitor.logic;
+
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * ViewTreeMatcher — one bounded walk of a view tree looking for any of a set of view IDs.
+ *
+ * Replaces one {@code findAccessibilityNodeInfosByViewId} call per candidate ID: each
+ * of those walks the whole remote tree and returns a fresh list of node copies. This
+ * walks the tree once, checks every node against a hash set, stops at the first hit
+ * and releases every node it obtained — including the ones still on the stack when
+ * it stops early.
+ *
+ * The node type is abstract so the same walk runs over AccessibilityNodeInfo on the
+ * device and over synthetic trees in tests and benchmarks.
+ */
+public final class ViewTreeMatcher {
+
+    /** Access to a tree of nodes. Children returned by {@link #child} are owned by the caller. */
+    public interface Nodes<N> {
+        String viewId(N node);
+        int childCount(N node);
+        N child(N node, int index);
+        void release(N node);
+    }
+
+    /** How many nodes are visited between checks of the cancellation flag. */
+    private static final int CANCEL_CHECK_INTERVAL = 32;
+
+    private static final BooleanSupplier NEVER = () -> false;
+
+    private ViewTreeMatcher() {}
+
+    public static <N> String findFirst(N root, Set<String> viewIds, int maxDepth, int maxNodes,
+                                       Nodes<N> nodes) {
+        return findFirst(root, viewIds, maxDepth, maxNodes, nodes, NEVER);
+    }
+
+    /**
+     * Depth-first search from {@code root} (not released — the caller owns it).
+     * Nodes deeper than {@code maxDepth} below the root are not visited, and the
+     * walk gives up after {@code maxNodes} nodes, or as soon as {@code cancelled}
+     * turns true (polled every few dozen nodes).
+     *
+     * @return the first matching view ID, or null
+     */
+    public static <N> String findFirst(N root, Set<String> viewIds, int maxDepth, int maxNodes,
+                                       Nodes<N> nodes, BooleanSupplier cancelled) {
+        if (root == null || viewIds.isEmpty()) return null;
+
+        String id = nodes.viewId(root);
+        if (id != null && viewIds.contains(id)) return id;
+
+        // path[d] is the node at depth d (path[0] = root), next[d] the next child index to try
+        @SuppressWarnings("unchecked")
+        N[] path = (N[]) new Object[maxDepth + 1];
+        int[] next = new int[maxDepth + 1];
+        path[0] = root;
+        int depth = 0;
+        int visited = 1;
+
+        try {
+            while (depth >= 0) {
+                N parent = path[depth];
+                if (depth == maxDepth || next[depth] >= nodes.childCount(parent)) {
+                    if (depth > 0) nodes.release(parent);
+                    path[depth] = null;
+                    depth--;
+                    continue;
+                }
+
+                N child = nodes.child(parent, next[depth]++);
+                if (child == null) continue;
+                if (++visited > maxNodes
+                        || (visited % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean())) {
+                    nodes.release(child);
+                    return null;
+                }
+
+                id = nodes.viewId(child);
+                if (id != null && viewIds.contains(id)) {
+                    nodes.release(child);
+                    return id;
+                }
+
+                depth++;
+                path[depth] = child;
+                next[depth] = 0;
+            }
+            return null;
+        } finally {
+            for (int d = depth; d > 0; d--) {
+                if (path[d] != null) nodes.release(path[d]);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.g4parentalmonitor.state;
+
+/**
+ * DefaultNetworkTracker — whether the default network has internet, from the
+ * callbacks of ConnectivityManager.registerDefaultNetworkCallback.
+ *
+ * When the default moves (Wi-Fi → mobile) the new network's capabilities can arrive
+ * before the old network's onLost; only a loss of the network we currently consider
+ * the default counts as going offline.
+ *
+ * Each method returns the new availability, or null when the event changes nothing.
+ */
+public final class DefaultNetworkTracker<N> {
+
+    private N current;
+    private boolean internet;
+
+    /** Initial reading, before any callback: the active network (or null) and its capability. */
+    public synchronized boolean seed(N network, boolean hasInternet) {
+        current = network;
+        internet = network != null && hasInternet;
+        return internet;
+    }
+
+    public synchronized Boolean onCapabilitiesChanged(N network, boolean hasInternet) {
+        boolean changed = !network.equals(current) || internet != hasInternet;
+        current = network;
+        internet = hasInternet;
+        return changed ? internet : null;
+    }
+
+    public synchronized Boolean onLost(N network) {
+        if (!network.equals(current)) return null;
+        current = null;
+        internet = false;
+        return false;
+    }
+}
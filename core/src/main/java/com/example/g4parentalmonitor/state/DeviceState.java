@@ -0,0 +1,48 @@
+package com.example.g4parentalmonitor.state;
+
+/**
+ * DeviceState — the device conditions the guardian enforces. The device is locked
+ * (restricted mode) while either internet or location is off.
+ */
+public final class DeviceState {
+
+    /** Before the first reading nothing is known to be off, so nothing is locked. */
+    public static final DeviceState UNKNOWN = new DeviceState(true, true);
+
+    public final boolean networkAvailable;
+    public final boolean locationEnabled;
+
+    public DeviceState(boolean networkAvailable, boolean locationEnabled) {
+        this.networkAvailable = networkAvailable;
+        this.locationEnabled = locationEnabled;
+    }
+
+    public boolean isRestricted() {
+        return !networkAvailable || !locationEnabled;
+    }
+
+    public DeviceState withNetwork(boolean available) {
+        return new DeviceState(available, locationEnabled);
+    }
+
+    public DeviceState withLocation(boolean enabled) {
+        return new DeviceState(networkAvailable, enabled);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DeviceState)) return false;
+        DeviceState s = (DeviceState) o;
+        return networkAvailable == s.networkAvailable && locationEnabled == s.locationEnabled;
+    }
+
+    @Override
+    public int hashCode() {
+        return (networkAvailable ? 2 : 0) | (locationEnabled ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "Net=" + networkAvailable + " Loc=" + locationEnabled;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.g4parentalmonitor.state;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * DeviceStateTracker — maps the platform's connectivity and location callbacks onto a
+ * DeviceState bus. DeviceStateMonitor feeds it from the default-network callback and
+ * the PROVIDERS_CHANGED receiver; it holds no Android types so tests can drive it.
+ *
+ * Each method returns the lock transition its update caused, or null. The state
+ * before and after is read inside the bus update, so callbacks racing on different
+ * threads each report their own transition.
+ */
+public final class DeviceStateTracker<N> {
+
+    public enum Transition { LOCKED, UNLOCKED }
+
+    private final StateBus<DeviceState> bus;
+    private final Runnable onNetworkChanged;
+    private final DefaultNetworkTracker<N> network = new DefaultNetworkTracker<>();
+
+    /** {@code onNetworkChanged} runs whenever the default network's availability changes. */
+    public DeviceStateTracker(StateBus<DeviceState> bus, Runnable onNetworkChanged) {
+        this.bus = bus;
+        this.onNetworkChanged = onNetworkChanged;
+    }
+
+    /** First reading, before any callback is registered. */
+    public synchronized Transition seed(N activeNetwork, boolean hasInternet, boolean locationEnabled) {
+        boolean hasNet = network.seed(activeNetwork, hasInternet);
+        return publish(s -> new DeviceState(hasNet, locationEnabled));
+    }
+
+    public synchronized Transition onCapabilitiesChanged(N n, boolean hasInternet) {
+        return onNetwork(network.onCapabilitiesChanged(n, hasInternet));
+    }
+
+    public synchronized Transition onLost(N n) {
+        return onNetwork(network.onLost(n));
+    }
+
+    public Transition onLocationChanged(boolean enabled) {
+        return publish(s -> s.withLocation(enabled));
+    }
+
+    private Transition onNetwork(Boolean now) {
+        if (now == null) return null;
+        onNetworkChanged.run();
+        return publish(s -> s.withNetwork(now));
+    }
+
+    private Transition publish(UnaryOperator<DeviceState> change) {
+        DeviceState[] edge = new DeviceState[2];
+        boolean changed = bus.update(s -> {
+            edge[0] = s;
+            edge[1] = change.apply(s);
+            return edge[1];
+        });
+        if (!changed) return null;
+        boolean was = edge[0].isRestricted(), is = edge[1].isRestricted();
+        if (!was && is) return Transition.LOCKED;
+        if (was && !is) return Transition.UNLOCKED;
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.g4parentalmonitor.state;
+
+/** ProtectionState — what the guardian is currently doing about it. */
+public final class ProtectionState {
+
+    public static final ProtectionState INACTIVE = new ProtectionState(false, false);
+
+    /** LiveGuardianService (accessibility) is connected. */
+    public final boolean guardianActive;
+    /** The restricted-mode lock screen is showing. */
+    public final boolean locked;
+
+    public ProtectionState(boolean guardianActive, boolean locked) {
+        this.guardianActive = guardianActive;
+        this.locked = locked;
+    }
+
+    public ProtectionState withGuardian(boolean active) {
+        return new ProtectionState(active, locked);
+    }
+
+    public ProtectionState withLocked(boolean isLocked) {
+        return new ProtectionState(guardianActive, isLocked);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ProtectionState)) return false;
+        ProtectionState s = (ProtectionState) o;
+        return guardianActive == s.guardianActive && locked == s.locked;
+    }
+
+    @Override
+    public int hashCode() {
+        return (guardianActive ? 2 : 0) | (locked ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return "guardian=" + guardianActive + " locked=" + locked;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.g4parentalmonitor.state;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * StateBus — one observable, immutable state value.
+ *
+ * Writers {@link #update} it from whatever thread learns of a change; observers are
+ * called synchronously on that thread, in update order, and only when the value
+ * actually changed. Observers must be quick — post to a Handler for real work.
+ */
+public final class StateBus<T> {
+
+    public interface Observer<T> {
+        void onChanged(T state);
+    }
+
+    /** Returned by {@link #observe}; stops delivery. */
+    public interface Subscription {
+        void cancel();
+    }
+
+    private final CopyOnWriteArrayList<Observer<T>> observers = new CopyOnWriteArrayList<>();
+    private volatile T value;
+
+    public StateBus(T initial) {
+        this.value = initial;
+    }
+
+    public T get() {
+        return value;
+    }
+
+    /** Applies {@code change}; returns true (and notifies) if the value changed. */
+    public synchronized boolean update(UnaryOperator<T> change) {
+        T next = change.apply(value);
+        if (next.equals(value)) return false;
+        value = next;
+        for (Observer<T> o : observers) o.onChanged(next);
+        return true;
+    }
+
+    /** Delivers the current value right away, then every change until cancelled. */
+    public Subscription observe(Observer<T> observer) {
+        synchronized (this) {
+            observers.add(observer);
+            observer.onChanged(value);
+        }
+        return () -> observers.remove(observer);
+    }
+}
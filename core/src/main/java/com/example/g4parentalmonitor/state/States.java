@@ -0,0 +1,13 @@
+package com.example.g4parentalmonitor.state;
+
+/**
+ * States — the process-wide state buses. Replaces static flags that services polled
+ * (LiveGuardianService.isRestrictedMode): writers update a bus, readers observe it.
+ */
+public final class States {
+
+    public static final StateBus<DeviceState> DEVICE = new StateBus<>(DeviceState.UNKNOWN);
+    public static final StateBus<ProtectionState> PROTECTION = new StateBus<>(ProtectionState.INACTIVE);
+
+    private States() {}
+}
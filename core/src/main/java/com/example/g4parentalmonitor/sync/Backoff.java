@@ -0,0 +1,43 @@
+package com.example.g4parentalmonitor.sync;
+
+import java.util.Random;
+
+/**
+ * Backoff — exponential retry delay with jitter, so devices that failed together don't
+ * retry together. The n-th consecutive failure waits a random time in
+ * [d/2, d] where d = min(max, base · 2^(n-1)).
+ */
+public final class Backoff {
+
+    private final long baseMs;
+    private final long maxMs;
+    private final Random random;
+    private int failures;
+
+    public Backoff(long baseMs, long maxMs) {
+        this(baseMs, maxMs, new Random());
+    }
+
+    public Backoff(long baseMs, long maxMs, Random random) {
+        this.baseMs = baseMs;
+        this.maxMs = maxMs;
+        this.random = random;
+    }
+
+    /** Records a failure and returns how long to wait before the next attempt. */
+    public synchronized long failure() {
+        failures++;
+        long d = maxMs;
+        if (failures < 31) d = Math.min(maxMs, baseMs << (failures - 1));
+        long half = d / 2;
+        return half + (long) (random.nextDouble() * (d - half + 1));
+    }
+
+    public synchronized void success() {
+        failures = 0;
+    }
+
+    public synchronized int failures() {
+        return failures;
+    }
+}
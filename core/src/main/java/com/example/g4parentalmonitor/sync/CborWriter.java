@@ -0,0 +1,261 @@
+package com.example.g4parentalmonitor.sync;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CborWriter — RFC 8949 CBOR for upload bodies, with a shared string table.
+ *
+ * The table is the stringref extension (tag 256 opens it, tag 25 refers back to the
+ * n-th string), so any decoder with stringref support reads the output as the same
+ * tree the JSON body would have been. In an upload the same keys, package names and
+ * domains appear hundreds of times; after the first, each costs 2–3 bytes.
+ *
+ * A string joins the table only when a reference to it would be shorter than the
+ * string itself, using the extension's length thresholds; encoder and decoder must
+ * agree on them, so they are not tunable.
+ *
+ * Maps and arrays have a definite size unless opened with the no-argument start
+ * methods, for values transcoded on the fly. Numbers: integers as the smallest CBOR
+ * int, other doubles as float32 when that is exact, else float64. Not thread-safe;
+ * one writer per body.
+ *
+ * Given an OutputStream the writer passes the encoding on through an 8 KB buffer, so a
+ * body never exists whole; {@link #flush} after the last value. Without one it collects
+ * the encoding for {@link #toByteArray}.
+ */
+public final class CborWriter {
+
+    private static final int MAJOR_UINT   = 0;
+    private static final int MAJOR_NINT   = 1 << 5;
+    private static final int MAJOR_TEXT   = 3 << 5;
+    private static final int MAJOR_ARRAY  = 4 << 5;
+    private static final int MAJOR_MAP    = 5 << 5;
+    private static final int MAJOR_TAG    = 6 << 5;
+    private static final int SIMPLE_FALSE = 0xf4, SIMPLE_TRUE = 0xf5, SIMPLE_NULL = 0xf6;
+    private static final int FLOAT32      = 0xfa, FLOAT64 = 0xfb;
+    private static final int INDEFINITE   = 31, BREAK = 0xff;
+
+    private static final int TAG_STRINGREF = 25;
+    private static final int TAG_STRINGREF_NAMESPACE = 256;
+
+    private static final int STREAM_BUFFER = 8192;
+
+    private final OutputStream out;               // null: collect in buf
+    private byte[] buf;
+    private int len;
+    private long flushed;
+    private final Map<String, Integer> strings;   // null: no string table
+
+    public CborWriter(boolean stringRefs) {
+        this(stringRefs, null);
+    }
+
+    /**
+     * A writer that passes its encoding on to {@code out}. Value methods that fail to
+     * write throw {@link UncheckedIOException}, since the builder chain can't throw
+     * IOException; {@link #flush} throws the IOException itself.
+     */
+    public CborWriter(boolean stringRefs, OutputStream out) {
+        this.out = out;
+        this.buf = new byte[out != null ? STREAM_BUFFER : 1024];
+        strings = stringRefs ? new HashMap<>() : null;
+        if (stringRefs) head(MAJOR_TAG, TAG_STRINGREF_NAMESPACE);
+    }
+
+    public CborWriter startMap(int entries) {
+        head(MAJOR_MAP, entries);
+        return this;
+    }
+
+    public CborWriter startArray(int items) {
+        head(MAJOR_ARRAY, items);
+        return this;
+    }
+
+    /** A map whose size isn't known yet; close it with {@link #end}. */
+    public CborWriter startMap() {
+        ensure(1);
+        buf[len++] = (byte) (MAJOR_MAP | INDEFINITE);
+        return this;
+    }
+
+    /** An array whose size isn't known yet; close it with {@link #end}. */
+    public CborWriter startArray() {
+        ensure(1);
+        buf[len++] = (byte) (MAJOR_ARRAY | INDEFINITE);
+        return this;
+    }
+
+    /** Closes the innermost {@link #startMap()} or {@link #startArray()}. */
+    public CborWriter end() {
+        ensure(1);
+        buf[len++] = (byte) BREAK;
+        return this;
+    }
+
+    public CborWriter string(String s) {
+        if (s == null) return nul();
+        if (strings != null) {
+            Integer ref = strings.get(s);
+            if (ref != null) {
+                head(MAJOR_TAG, TAG_STRINGREF);
+                head(MAJOR_UINT, ref);
+                return this;
+            }
+        }
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        if (strings != null && utf8.length >= minRefLength(strings.size())) strings.put(s, strings.size());
+        head(MAJOR_TEXT, utf8.length);
+        write(utf8, utf8.length);
+        return this;
+    }
+
+    public CborWriter integer(long v) {
+        if (v >= 0) head(MAJOR_UINT, v);
+        else head(MAJOR_NINT, -1 - v);
+        return this;
+    }
+
+    public CborWriter decimal(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) return integer((long) v);
+        ensure(9);
+        if ((double) (float) v == v) {
+            buf[len++] = (byte) FLOAT32;
+            putBits(Float.floatToIntBits((float) v) & 0xffffffffL, 4);
+        } else {
+            buf[len++] = (byte) FLOAT64;
+            putBits(Double.doubleToLongBits(v), 8);
+        }
+        return this;
+    }
+
+    public CborWriter bool(boolean v) {
+        ensure(1);
+        buf[len++] = (byte) (v ? SIMPLE_TRUE : SIMPLE_FALSE);
+        return this;
+    }
+
+    public CborWriter nul() {
+        ensure(1);
+        buf[len++] = (byte) SIMPLE_NULL;
+        return this;
+    }
+
+    /** Writes a tree of Maps (String keys), Lists, Strings, Numbers, Booleans and nulls. */
+    public CborWriter value(Object v) {
+        if (v == null) return nul();
+        if (v instanceof String) return string((String) v);
+        if (v instanceof Boolean) return bool((Boolean) v);
+        if (v instanceof Double || v instanceof Float) return decimal(((Number) v).doubleValue());
+        if (v instanceof Number) return integer(((Number) v).longValue());
+        if (v instanceof Map) {
+            Map<?, ?> m = (Map<?, ?>) v;
+            startMap(m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                string(String.valueOf(e.getKey()));
+                value(e.getValue());
+            }
+            return this;
+        }
+        if (v instanceof List) {
+            List<?> l = (List<?>) v;
+            startArray(l.size());
+            for (Object o : l) value(o);
+            return this;
+        }
+        return string(v.toString());
+    }
+
+    /** Bytes encoded so far, passed on or not. */
+    public long size() {
+        return flushed + len;
+    }
+
+    public byte[] toByteArray() {
+        if (out != null) throw new IllegalStateException("streaming writer");
+        return Arrays.copyOf(buf, len);
+    }
+
+    /** Passes what is buffered on to the stream and flushes it. */
+    public void flush() throws IOException {
+        if (out == null) return;
+        drain();
+        out.flush();
+    }
+
+    // ── Encoding ──────────────────────────────────────────────────────────────
+
+    /** Shortest string worth a table slot once the table holds {@code n} strings. */
+    private static int minRefLength(int n) {
+        if (n < 24) return 3;
+        if (n < 256) return 4;
+        if (n < 65536) return 5;
+        return 7;   // 2^32 strings will not fit an upload
+    }
+
+    private void head(int major, long arg) {
+        ensure(9);
+        if (arg < 24) {
+            buf[len++] = (byte) (major | arg);
+        } else if (arg < 0x100) {
+            buf[len++] = (byte) (major | 24);
+            putBits(arg, 1);
+        } else if (arg < 0x10000) {
+            buf[len++] = (byte) (major | 25);
+            putBits(arg, 2);
+        } else if (arg < 0x100000000L) {
+            buf[len++] = (byte) (major | 26);
+            putBits(arg, 4);
+        } else {
+            buf[len++] = (byte) (major | 27);
+            putBits(arg, 8);
+        }
+    }
+
+    private void putBits(long bits, int bytes) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) buf[len++] = (byte) (bits >>> shift);
+    }
+
+    private void write(byte[] b, int n) {
+        if (out != null && n > buf.length) {
+            // A string longer than the buffer goes straight through
+            try {
+                drain();
+                out.write(b, 0, n);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            flushed += n;
+            return;
+        }
+        ensure(n);
+        System.arraycopy(b, 0, buf, len, n);
+        len += n;
+    }
+
+    private void ensure(int n) {
+        if (len + n <= buf.length) return;
+        if (out == null) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, len + n));
+            return;
+        }
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, len);
+        flushed += len;
+        len = 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.g4parentalmonitor.sync;
+
+/**
+ * ChannelPolicy — when the persistent command channel should reconnect, and when it
+ * should give up for a while and leave the work to batched polling.
+ *
+ * Every close or failed connect waits a {@link Backoff} delay before the next attempt.
+ * A session that stayed up for {@code stableMs} resets the backoff; one that didn't is a
+ * flap. After {@code maxFlaps} flaps in a row (a proxy killing idle sockets, a network
+ * that drops long-lived connections) the channel is parked for {@code fallbackMs}, and
+ * the sync loops run on their polling intervals as if it didn't exist.
+ *
+ * Times are monotonic milliseconds. Thread-safe via synchronized methods.
+ */
+public final class ChannelPolicy {
+
+    private final Backoff backoff;
+    private final long stableMs;
+    private final int maxFlaps;
+    private final long fallbackMs;
+
+    private boolean open;
+    private long openedAt;
+    private int flaps;
+    private boolean parked;
+    private long fallbackUntil;
+
+    public ChannelPolicy(Backoff backoff, long stableMs, int maxFlaps, long fallbackMs) {
+        this.backoff = backoff;
+        this.stableMs = stableMs;
+        this.maxFlaps = maxFlaps;
+        this.fallbackMs = fallbackMs;
+    }
+
+    public synchronized void onOpen(long now) {
+        open = true;
+        openedAt = now;
+    }
+
+    /**
+     * The channel closed, or a connect attempt failed. Returns the delay before the next
+     * attempt; when this close parks the channel, that is the whole fallback period.
+     */
+    public synchronized long onClosed(long now) {
+        boolean stable = open && now - openedAt >= stableMs;
+        open = false;
+        if (stable) {
+            flaps = 0;
+            backoff.success();
+        } else if (++flaps >= maxFlaps) {
+            flaps = 0;
+            backoff.success();
+            parked = true;
+            fallbackUntil = now + fallbackMs;
+            return fallbackMs;
+        }
+        return backoff.failure();
+    }
+
+    /** The channel was closed on purpose (paused, stopped): neither a flap nor a stable session. */
+    public synchronized void onStopped() {
+        open = false;
+    }
+
+    /** True while the channel is parked and polling carries everything. */
+    public synchronized boolean inFallback(long now) {
+        return parked && now - fallbackUntil < 0;
+    }
+
+    /** Consecutive short-lived sessions or failed connects so far. */
+    public synchronized int flaps() {
+        return flaps;
+    }
+}
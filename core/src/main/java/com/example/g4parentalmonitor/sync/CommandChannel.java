@@ -0,0 +1,231 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.core.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.Utf8;
+
+/**
+ * CommandChannel — an optional persistent WebSocket to the server.
+ *
+ * The server pushes commands down it the moment they happen, instead of the device
+ * finding out at its next poll; the device streams small best-effort telemetry frames
+ * up it. Durable data (the outbox, history) still goes up through POST /sync: a frame
+ * sent just before the socket dies is lost, an outbox entry is not.
+ *
+ * Frames are single text lines, space separated:
+ *
+ *   server → device   cmd SYNC_RULES
+ *   device → server   state net=1 loc=1
+ *                     loc 52.52 13.40 81 1760860800000
+ *
+ * Unknown frames and commands are ignored, so either side can grow the protocol.
+ *
+ * Reconnects follow {@link ChannelPolicy}: backoff between attempts, and a long pause
+ * after repeated short sessions. {@link #pause} closes the socket while it can't stay
+ * up anyway (Doze, no network) and {@link #resume} reconnects right away. OkHttp pings
+ * every {@code pingMs} so NATs keep the mapping and a dead peer is noticed.
+ *
+ * Listener calls arrive on OkHttp's reader thread; keep them short.
+ */
+public final class CommandChannel {
+
+    private static final String TAG = "CommandChannel";
+
+    public interface Listener {
+        void onCommand(PushCommand command);
+
+        /** The channel opened (true) or closed (false). */
+        void onStateChanged(boolean open);
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final ChannelPolicy policy;
+    private final Listener listener;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "g4-channel");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private WebSocket socket;        // current attempt or open socket; null when none
+    private boolean open;
+    private boolean running;
+    private String pausedFor;        // non-null while paused
+    private ScheduledFuture<?> reconnect;
+
+    private long connects, commands, framesOut, bytesOut;
+
+    /** {@code client} is shared; the channel derives one from it with a ping interval. */
+    public CommandChannel(OkHttpClient client, String url, ChannelPolicy policy, long pingMs, Listener listener) {
+        this.client = client.newBuilder().pingInterval(pingMs, TimeUnit.MILLISECONDS).build();
+        this.url = url;
+        this.policy = policy;
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        if (pausedFor == null) connect();
+    }
+
+    public void stop() {
+        synchronized (this) {
+            running = false;
+            if (!closeSocket(1000, "stopped")) return;
+        }
+        listener.onStateChanged(false);
+    }
+
+    /** Closes the socket and holds off reconnecting until {@link #resume}. */
+    public void pause(String reason) {
+        synchronized (this) {
+            if (pausedFor != null) return;
+            pausedFor = reason;
+            Log.d(TAG, "⏸️ Channel paused (" + reason + ")");
+            if (!closeSocket(1001, reason)) return;
+        }
+        listener.onStateChanged(false);
+    }
+
+    public synchronized void resume() {
+        if (pausedFor == null) return;
+        Log.d(TAG, "▶️ Channel resumed after " + pausedFor);
+        pausedFor = null;
+        if (running && socket == null && reconnect == null) connect();
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    /** Sends one telemetry frame if the channel is open. Best effort: false means dropped. */
+    public synchronized boolean send(String frame) {
+        if (!open || !socket.send(frame)) return false;
+        framesOut++;
+        bytesOut += Utf8.size(frame);
+        return true;
+    }
+
+    /** {@code type} and fields joined into one frame line. */
+    public static String frame(String type, Object... fields) {
+        StringBuilder sb = new StringBuilder(type);
+        for (Object f : fields) sb.append(' ').append(f);
+        return sb.toString();
+    }
+
+    /**
+     * Status, then counters. Status is open, paused, closed, or fallback while the channel
+     * is parked after flapping and polling carries everything.
+     */
+    public synchronized String report() {
+        return (open ? "open" : pausedFor != null ? "paused" : policy.inFallback(now()) ? "fallback" : "closed")
+                + " connects=" + connects + " commands=" + commands
+                + " framesOut=" + framesOut + " bytesOut=" + bytesOut;
+    }
+
+    /** Closes the socket for good; the channel can't be started again. */
+    public void shutdown() {
+        stop();
+        scheduler.shutdownNow();
+    }
+
+    // ── Connection ────────────────────────────────────────────────────────────
+
+    private void connect() {
+        reconnect = null;
+        connects++;
+        socket = client.newWebSocket(new Request.Builder().url(url).build(), new SocketListener());
+    }
+
+    /** Cancels any pending reconnect and closes the socket. Returns true if it was open. */
+    private boolean closeSocket(int code, String reason) {
+        if (reconnect != null) {
+            reconnect.cancel(false);
+            reconnect = null;
+        }
+        boolean wasOpen = open;
+        if (socket != null) {
+            WebSocket s = socket;
+            socket = null;       // its callbacks are stale from here on
+            open = false;
+            policy.onStopped();
+            s.close(code, reason);
+        }
+        return wasOpen;
+    }
+
+    private void onOpen(WebSocket ws) {
+        synchronized (this) {
+            if (ws != socket) return;
+            open = true;
+            policy.onOpen(now());
+        }
+        Log.d(TAG, "🔌 Channel open");
+        listener.onStateChanged(true);
+    }
+
+    private void onClosed(WebSocket ws, String why) {
+        boolean wasOpen;
+        synchronized (this) {
+            if (ws != socket) return;
+            socket = null;
+            wasOpen = open;
+            open = false;
+            long delay = policy.onClosed(now());
+            if (running && pausedFor == null) {
+                reconnect = scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+            }
+            if (policy.inFallback(now())) {
+                Log.w(TAG, "⚠️ Channel keeps dropping (" + why + "), polling for " + delay / 60_000 + " min");
+            } else {
+                Log.d(TAG, "🔌 Channel closed (" + why + "), retry in " + delay / 1000 + "s");
+            }
+        }
+        if (wasOpen) listener.onStateChanged(false);
+    }
+
+    private synchronized void reconnect() {
+        if (reconnect == null || !running || pausedFor != null || socket != null) return;
+        connect();
+    }
+
+    private void onText(WebSocket ws, String text) {
+        PushCommand command;
+        synchronized (this) {
+            if (ws != socket) return;
+            if (!text.startsWith("cmd ")) return;
+            command = PushCommand.parse(text.substring(4));
+            if (command == null) return;
+            commands++;
+        }
+        listener.onCommand(command);
+    }
+
+    private final class SocketListener extends WebSocketListener {
+        @Override public void onOpen(WebSocket ws, Response response) { CommandChannel.this.onOpen(ws); }
+        @Override public void onMessage(WebSocket ws, String text)    { onText(ws, text); }
+        @Override public void onClosing(WebSocket ws, int code, String reason) { ws.close(1000, null); }
+        @Override public void onClosed(WebSocket ws, int code, String reason)  { CommandChannel.this.onClosed(ws, "code " + code); }
+
+        @Override
+        public void onFailure(WebSocket ws, Throwable t, Response response) {
+            CommandChannel.this.onClosed(ws, response != null ? "HTTP " + response.code() : String.valueOf(t.getMessage()));
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.core.KeyValueStore;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * ContentFingerprints — remembers a hash of the last payload applied per poll endpoint.
+ *
+ * A 304 (or a body served from the HTTP cache) is the cheap case; this catches the rest:
+ * servers that send no validators and answer 200 with the same body every time. When
+ * the fingerprint matches, the caller skips parsing, prefs writes and any recompile
+ * downstream.
+ *
+ *   String fp = ContentFingerprints.of(body);
+ *   if (fingerprints.unchanged("rules", fp)) return;
+ *   apply(body);
+ *   fingerprints.remember("rules", fp);     // only once applied, so a failed apply retries
+ */
+public final class ContentFingerprints {
+
+    private static final String KEY_PREFIX = "fp_";
+
+    private final KeyValueStore store;
+
+    public ContentFingerprints(KeyValueStore store) {
+        this.store = store;
+    }
+
+    /** SHA-256 of the body, hex-encoded. */
+    public static String of(String body) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(d.length * 2);
+            for (byte b : d) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);   // SHA-256 is mandatory on every JVM and Android
+        }
+    }
+
+    public boolean unchanged(String endpoint, String fingerprint) {
+        return fingerprint.equals(store.getString(KEY_PREFIX + endpoint, null));
+    }
+
+    public void remember(String endpoint, String fingerprint) {
+        store.edit().putString(KEY_PREFIX + endpoint, fingerprint).apply();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.core.Clock;
+
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DnsCache — keeps resolved addresses per host for {@code ttlMs}.
+ *
+ * Android's resolver cache is short and per-network, and every sync tick resolves the
+ * same API host; a miss costs a DNS round trip on a radio that may have just woken up.
+ * When a refresh fails (flaky network, captive portal), an entry up to
+ * {@code staleMs} old is still served rather than failing the call.
+ *
+ * {@link #invalidate} drops everything; call it on default-network changes, since the
+ * addresses may differ on the new network.
+ */
+public final class DnsCache<A> {
+
+    public interface Resolver<A> {
+        List<A> resolve(String host) throws UnknownHostException;
+    }
+
+    private static final class Entry<A> {
+        final List<A> addresses;
+        final long resolvedAt;
+        Entry(List<A> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    private final Resolver<A> resolver;
+    private final long ttlMs;
+    private final long staleMs;
+    private final Clock clock;
+    private final Map<String, Entry<A>> entries = new HashMap<>();
+    private long hits, misses, staleServed;
+
+    public DnsCache(Resolver<A> resolver, long ttlMs, long staleMs, Clock clock) {
+        this.resolver = resolver;
+        this.ttlMs = ttlMs;
+        this.staleMs = staleMs;
+        this.clock = clock;
+    }
+
+    public List<A> lookup(String host) throws UnknownHostException {
+        long now = clock.currentTimeMillis();
+        Entry<A> e;
+        synchronized (this) {
+            e = entries.get(host);
+            if (e != null && now - e.resolvedAt < ttlMs) {
+                hits++;
+                return e.addresses;
+            }
+            misses++;
+        }
+
+        // Resolve outside the lock: a slow lookup for one host doesn't block the others
+        try {
+            List<A> addresses = resolver.resolve(host);
+            synchronized (this) {
+                entries.put(host, new Entry<>(addresses, now));
+            }
+            return addresses;
+        } catch (UnknownHostException failure) {
+            if (e != null && now - e.resolvedAt < staleMs) {
+                synchronized (this) { staleServed++; }
+                return e.addresses;
+            }
+            throw failure;
+        }
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + " misses=" + misses + " stale=" + staleServed;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.g4parentalmonitor.sync;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * EndpointExecutor — a small bounded pool for network calls, with at most one call in
+ * flight per endpoint.
+ *
+ * A task submitted while its endpoint is still busy is not queued behind it: it
+ * becomes the endpoint's single pending run, replacing any earlier pending one
+ * ("latest wins"), and starts as soon as the busy call finishes. A slow network
+ * therefore costs at most one running + one pending task per endpoint, never a pile
+ * of threads. Idle threads time out, so a quiet pool holds none.
+ */
+public final class EndpointExecutor {
+
+    /** Point-in-time counters; cumulative ones count since construction. */
+    public static final class Metrics {
+        public int threads;      // live pool threads
+        public int active;       // threads running a task
+        public int queued;       // tasks waiting for a thread
+        public int inFlight;     // endpoints with a running or queued call
+        public int pending;      // endpoints with a merged follow-up waiting
+        public long submitted, merged, rejected, completed, failed;
+
+        @Override
+        public String toString() {
+            return "threads=" + threads + " active=" + active + " queued=" + queued
+                    + " inFlight=" + inFlight + " pending=" + pending
+                    + " submitted=" + submitted + " merged=" + merged + " rejected=" + rejected
+                    + " completed=" + completed + " failed=" + failed;
+        }
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final Set<String> inFlight = new HashSet<>();
+    private final Map<String, Runnable> pending = new HashMap<>();
+
+    private long submitted, merged, rejected, completed, failed;
+    private long lastReportAt;
+
+    public EndpointExecutor(String name, int threads, int queueCapacity) {
+        AtomicInteger seq = new AtomicInteger();
+        pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, name + "-" + seq.incrementAndGet()));
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Runs {@code task} for {@code endpoint}, or merges it into the endpoint's pending
+     * run if a call is already in flight. Returns true if it was started or queued now.
+     */
+    public synchronized boolean submit(String endpoint, Runnable task) {
+        submitted++;
+        if (inFlight.contains(endpoint)) {
+            pending.put(endpoint, task);
+            merged++;
+            return false;
+        }
+        return start(endpoint, task);
+    }
+
+    private boolean start(String endpoint, Runnable task) {
+        try {
+            pool.execute(() -> run(endpoint, task));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(endpoint);
+            rejected++;
+            return false;
+        }
+        inFlight.add(endpoint);
+        return true;
+    }
+
+    private void run(String endpoint, Runnable task) {
+        boolean ok = false;
+        try {
+            task.run();
+            ok = true;
+        } finally {
+            synchronized (this) {
+                if (ok) completed++; else failed++;
+                inFlight.remove(endpoint);
+                Runnable next = pending.remove(endpoint);
+                if (next != null && !pool.isShutdown()) start(endpoint, next);
+            }
+        }
+    }
+
+    public synchronized Metrics metrics() {
+        Metrics m = new Metrics();
+        m.threads = pool.getPoolSize();
+        m.active = pool.getActiveCount();
+        m.queued = pool.getQueue().size();
+        m.inFlight = inFlight.size();
+        m.pending = pending.size();
+        m.submitted = submitted;
+        m.merged = merged;
+        m.rejected = rejected;
+        m.completed = completed;
+        m.failed = failed;
+        return m;
+    }
+
+    /** One metrics line at most every {@code intervalMs}; null in between. */
+    public String report(long now, long intervalMs) {
+        synchronized (this) {
+            if (now - lastReportAt < intervalMs) return null;
+            lastReportAt = now;
+        }
+        return metrics().toString();
+    }
+
+    /** Lets running calls finish; pending and queued ones are dropped. */
+    public synchronized void shutdown() {
+        pending.clear();
+        pool.shutdown();
+        pool.getQueue().clear();
+    }
+}
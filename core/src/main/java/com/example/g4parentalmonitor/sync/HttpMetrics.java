@@ -0,0 +1,55 @@
+package com.example.g4parentalmonitor.sync;
+
+/**
+ * HttpMetrics — counters for the shared HTTP client, fed by its event listener and
+ * interceptors.
+ *
+ * Connections and TLS handshakes are the expensive part on a phone: each new one
+ * wakes the radio for several round trips. {@link #report} gives them as a rate per
+ * hour over the last interval, so a regression back to one-client-per-call shows up
+ * in the log.
+ */
+public final class HttpMetrics {
+
+    private static final long HOUR_MS = 60 * 60_000L;
+
+    /** Cumulative since construction. */
+    private long calls, failures, retries, connections, tlsHandshakes, bytesSent, bytesReceived;
+
+    // Snapshot at the previous report, for per-interval rates
+    private boolean started;
+    private long lastReportAt, lastCalls, lastConnections, lastHandshakes;
+
+    public synchronized void onCall()                    { calls++; }
+    public synchronized void onFailure()                 { failures++; }
+    public synchronized void onRetry()                   { retries++; }
+    public synchronized void onConnect()                 { connections++; }
+    public synchronized void onTlsHandshake()            { tlsHandshakes++; }
+    public synchronized void onBytes(long sent, long received) {
+        if (sent > 0) bytesSent += sent;
+        if (received > 0) bytesReceived += received;
+    }
+
+    /** One summary line at most every {@code intervalMs}; null in between (and on the first call). */
+    public synchronized String report(long now, long intervalMs) {
+        if (!started) {
+            started = true;
+            lastReportAt = now;
+            return null;
+        }
+        long elapsed = now - lastReportAt;
+        if (elapsed < intervalMs) return null;
+
+        long c = calls - lastCalls, n = connections - lastConnections, h = tlsHandshakes - lastHandshakes;
+        String line = "calls=" + c + " connections=" + n + " tls=" + h
+                + " (" + h * HOUR_MS / Math.max(1, elapsed) + "/h)"
+                + " reuse=" + (c == 0 ? 0 : 100 - Math.min(100, n * 100 / c)) + "%"
+                + " | total calls=" + calls + " failures=" + failures + " retries=" + retries
+                + " sent=" + bytesSent / 1024 + "KB received=" + bytesReceived / 1024 + "KB";
+        lastReportAt = now;
+        lastCalls = calls;
+        lastConnections = connections;
+        lastHandshakes = tlsHandshakes;
+        return line;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.core.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbox — durable queue of everything waiting to be uploaded.
+ *
+ *   <dir>/<stream>/<16-digit seq>.json   one entry per file, written tmp → fsync → rename
+ *
+ * Producers {@link #append}; a single uploader {@link #peek}s a batch across every
+ * stream and {@link #acknowledge}s it once the server has accepted it, so nothing is
+ * lost to a failed request or a killed process.
+ *
+ * Latest-only streams (app usage snapshots, the FCM token) keep just their newest
+ * entry. When the outbox plus any registered external queue exceeds its byte budget,
+ * the oldest entries are shed in ascending {@code shedRank} order. The outbox's own size
+ * is a running total: the directories are scanned once, at construction. External sizes
+ * are only re-read by {@link #checkBudget}, which the uploader calls once per upload;
+ * appends count them as last read.
+ */
+public final class Outbox {
+
+    private static final String TAG = "Outbox";
+    private static final String SUFFIX = ".json";
+
+    public static final class Stream {
+        public final String name;
+        /** Lower ranks are shed first when over budget. */
+        public final int shedRank;
+        /** A new entry supersedes all older ones. */
+        public final boolean latestOnly;
+
+        public Stream(String name, int shedRank, boolean latestOnly) {
+            this.name = name;
+            this.shedRank = shedRank;
+            this.latestOnly = latestOnly;
+        }
+    }
+
+    /** Storage owned elsewhere (the history journals) that counts against the budget. */
+    public interface External {
+        /** May scan the disk; called from {@link #checkBudget} only. */
+        long bytes() throws IOException;
+        /** Drops the oldest data; returns the bytes freed, 0 if nothing could go. */
+        long shedOldest() throws IOException;
+    }
+
+    public static final class Entry {
+        public final Stream stream;
+        public final long seq;
+        public final String body;
+
+        Entry(Stream stream, long seq, String body) {
+            this.stream = stream;
+            this.seq = seq;
+            this.body = body;
+        }
+    }
+
+    /** Entries read for one upload, grouped by stream in registration order. */
+    public static final class Batch {
+        public final Map<Stream, List<Entry>> entries = new LinkedHashMap<>();
+
+        public boolean isEmpty() { return entries.isEmpty(); }
+
+        public List<Entry> of(Stream stream) {
+            List<Entry> list = entries.get(stream);
+            return list != null ? list : Collections.<Entry>emptyList();
+        }
+    }
+
+    private final File dir;
+    private final long budgetBytes;
+    private final List<Stream> streams;
+    private final Map<Stream, Long> nextSeq = new LinkedHashMap<>();
+    private final List<Sheddable> externals = new ArrayList<>();
+    private final Map<String, Long> shed = new LinkedHashMap<>();
+    private long bytes;
+
+    public Outbox(File dir, long budgetBytes, Stream... streams) {
+        this.dir = dir;
+        this.budgetBytes = budgetBytes;
+        this.streams = Arrays.asList(streams);
+        for (Stream s : streams) {
+            File sd = new File(dir, s.name);
+            sd.mkdirs();
+            File[] leftovers = sd.listFiles((d, name) -> name.endsWith(".tmp"));
+            if (leftovers != null) for (File f : leftovers) f.delete();   // killed mid-append
+            long[] seqs = list(sd);
+            nextSeq.put(s, seqs.length == 0 ? 1 : seqs[seqs.length - 1] + 1);
+            for (long seq : seqs) bytes += file(s, seq).length();
+        }
+    }
+
+    public synchronized void addExternal(String name, int shedRank, External external) {
+        externals.add(new Sheddable(name, shedRank, null, external));
+    }
+
+    public synchronized void append(Stream stream, String body) throws IOException {
+        File sd = new File(dir, stream.name);
+        long seq = nextSeq.get(stream);
+        File tmp = new File(sd, seq + ".tmp");
+        byte[] utf8 = body.getBytes(StandardCharsets.UTF_8);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(utf8);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file(stream, seq))) throw new IOException("outbox rename failed");
+        nextSeq.put(stream, seq + 1);
+        bytes += utf8.length;
+
+        if (stream.latestOnly) {
+            for (long old : list(sd)) {
+                if (old < seq) delete(file(stream, old));
+            }
+        }
+        enforceBudget();
+    }
+
+    /** Up to {@code maxPerStream} oldest entries of each stream; empty batch if nothing waits. */
+    public synchronized Batch peek(int maxPerStream) throws IOException {
+        Batch batch = new Batch();
+        for (Stream s : streams) {
+            long[] seqs = list(new File(dir, s.name));
+            List<Entry> list = new ArrayList<>();
+            for (int i = 0; i < seqs.length && list.size() < maxPerStream; i++) {
+                File f = file(s, seqs[i]);
+                list.add(new Entry(s, seqs[i], new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8)));
+            }
+            if (!list.isEmpty()) batch.entries.put(s, list);
+        }
+        return batch;
+    }
+
+    /** Deletes what the server accepted; entries appended since stay queued. */
+    public synchronized void acknowledge(Batch batch) {
+        for (List<Entry> list : batch.entries.values()) {
+            for (Entry e : list) delete(file(e.stream, e.seq));
+        }
+    }
+
+    /** Same, for one stream only (per-endpoint fallback uploads). */
+    public synchronized void acknowledge(Batch batch, Stream stream) {
+        for (Entry e : batch.of(stream)) delete(file(stream, e.seq));
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /** Re-reads every external queue's size, then sheds if the total is over budget. */
+    public synchronized void checkBudget() throws IOException {
+        for (Sheddable x : externals) x.bytes = x.external.bytes();
+        enforceBudget();
+    }
+
+    /** Entries shed per stream since construction. */
+    public synchronized Map<String, Long> shedCounts() {
+        return new LinkedHashMap<>(shed);
+    }
+
+    // ── Internal ──────────────────────────────────────────────────────────────
+
+    /** A queue that can give up data when over budget: one of ours or an External. */
+    private static final class Sheddable {
+        final String name;
+        final int rank;
+        final Stream stream;
+        final External external;
+        long bytes;   // externals only: size as last read, less what we shed since
+
+        Sheddable(String name, int rank, Stream stream, External external) {
+            this.name = name;
+            this.rank = rank;
+            this.stream = stream;
+            this.external = external;
+        }
+    }
+
+    private void enforceBudget() throws IOException {
+        long total = bytes;
+        for (Sheddable x : externals) total += x.bytes;
+        if (total <= budgetBytes) return;
+
+        // Every queue that can shed, lowest rank first
+        List<Sheddable> order = new ArrayList<>(externals);
+        for (Stream s : streams) order.add(new Sheddable(s.name, s.shedRank, s, null));
+        order.sort((a, b) -> Integer.compare(a.rank, b.rank));
+
+        for (Sheddable q : order) {
+            while (total > budgetBytes) {
+                long freed = q.stream != null ? shedOldest(q.stream) : q.external.shedOldest();
+                if (freed <= 0) break;
+                if (q.external != null) q.bytes = Math.max(0, q.bytes - freed);
+                total -= freed;
+                Long n = shed.get(q.name);
+                shed.put(q.name, n == null ? 1 : n + 1);
+            }
+            if (total <= budgetBytes) break;
+        }
+        Log.w(TAG, "Over budget, shed so far: " + shed);
+    }
+
+    private long shedOldest(Stream s) {
+        long[] seqs = list(new File(dir, s.name));
+        // Never shed a stream's newest entry: it is the current state
+        if (seqs.length < 2) return 0;
+        return delete(file(s, seqs[0]));
+    }
+
+    /** Deletes an entry file and takes it off the running total; returns the bytes freed. */
+    private long delete(File f) {
+        long len = f.length();
+        if (!f.delete()) return 0;
+        bytes -= len;
+        return len;
+    }
+
+    private File file(Stream s, long seq) {
+        return new File(new File(dir, s.name), String.format("%016d%s", seq, SUFFIX));
+    }
+
+    private static long[] list(File sd) {
+        String[] names = sd.list();
+        if (names == null) return new long[0];
+        long[] seqs = new long[names.length];
+        int n = 0;
+        for (String name : names) {
+            if (!name.endsWith(SUFFIX)) continue;
+            try {
+                seqs[n++] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+            } catch (NumberFormatException ignored) {}
+        }
+        seqs = Arrays.copyOf(seqs, n);
+        Arrays.sort(seqs);
+        return seqs;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.g4parentalmonitor.sync;
+
+/**
+ * Commands the server can push (FCM data message, {@code action} key).
+ *
+ * Every command is idempotent: FCM may deliver a message twice, and running a sync
+ * twice only costs a conditional GET.
+ */
+public enum PushCommand {
+    /** Settings changed on the parent side: fetch /settings now. */
+    SYNC_SETTINGS,
+    /** Blocked apps or DNS schedules changed: fetch /rules/blocked now. */
+    SYNC_RULES,
+    /** Take a location fix and upload it right away. */
+    LOCATE_NOW,
+    /** Upload queued history (and everything else in the outbox) now. */
+    FLUSH_HISTORY,
+    /** Upload a diagnostics snapshot with the next sync. */
+    DIAGNOSTICS,
+    /** Heartbeat: does nothing but prove push delivery works. */
+    PING;
+
+    /** The command for an FCM {@code action} value, or null if this build doesn't know it. */
+    public static PushCommand parse(String action) {
+        if (action == null) return null;
+        try {
+            return valueOf(action.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
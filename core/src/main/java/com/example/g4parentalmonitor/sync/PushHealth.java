@@ -0,0 +1,39 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.core.KeyValueStore;
+
+/**
+ * PushHealth — whether push delivery has been seen working recently, and so how often
+ * the polling loops still need to run.
+ *
+ * Push counts as healthy while the last push (any command, including the server's PING
+ * heartbeat) arrived within {@code windowMs}. While healthy, polls only run at their
+ * long safety interval, since changes arrive as commands. Once the window lapses
+ * (token revoked, FCM blocked, server quiet), polling returns to its fast interval.
+ *
+ * Wall-clock time, persisted, so a restart doesn't fall back to fast polling.
+ */
+public final class PushHealth {
+
+    private static final String KEY_LAST_PUSH = "last_push_at";
+
+    private final KeyValueStore store;
+    private final long windowMs;
+    private long lastPushAt;
+
+    public PushHealth(KeyValueStore store, long windowMs) {
+        this.store = store;
+        this.windowMs = windowMs;
+        this.lastPushAt = store.getLong(KEY_LAST_PUSH, 0);
+    }
+
+    public synchronized void onPush(long now) {
+        lastPushAt = now;
+        store.edit().putLong(KEY_LAST_PUSH, now).apply();
+    }
+
+    public synchronized boolean isHealthy(long now) {
+        // A clock set backwards past the last push doesn't count as recent
+        return lastPushAt > 0 && now >= lastPushAt && now - lastPushAt <= windowMs;
+    }
+}
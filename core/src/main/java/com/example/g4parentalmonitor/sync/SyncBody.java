@@ -0,0 +1,239 @@
+package com.example.g4parentalmonitor.sync;
+
+import com.example.g4parentalmonitor.history.BrowsingSessionizer;
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ForwardingSink;
+import okio.Okio;
+
+/**
+ * SyncBody — the sections of one POST /sync, written straight into the request sink.
+ *
+ *   { deviceId, location: [...], apps: {...}, browserHistory: {history, sessions}, fcmToken, diagnostics }
+ *
+ * Outbox entries are JSON already, so they are copied into the body as they are
+ * ({@link JsonWriter#jsonValue}) instead of being parsed into a tree and serialized
+ * again, and neither form ever exists whole: JSON goes through an 8 KB writer buffer,
+ * CBOR through CborWriter's, into the request sink, which HttpStack gzips as it is
+ * written. Sessions are written field by field from the sessionizer.
+ *
+ * The CBOR form carries the same tree, minus the legacy "url|ts|source" history list;
+ * entries are transcoded token by token into indefinite-length CBOR maps and arrays.
+ *
+ * Writing a request body only reads these fields, so OkHttp may write it again on a retry.
+ */
+public final class SyncBody {
+
+    public static final MediaType JSON = MediaType.get("application/json");
+    public static final MediaType CBOR = MediaType.get("application/cbor");
+
+    private static final String A11Y = CaptureRing.sourceName(CaptureRing.SOURCE_ACCESSIBILITY);
+    private static final String VPN  = CaptureRing.sourceName(CaptureRing.SOURCE_VPN);
+
+    public final String deviceId;
+    /** Raw outbox entries, oldest first. */
+    public final List<String> locations = new ArrayList<>();
+    /** Raw UsageDelta message; null: none queued. */
+    public String apps;
+    /** Browsing sessions; null: no history queued. */
+    public List<BrowsingSessionizer.Session> sessions;
+    public String fcmToken;
+    /** Raw diagnostics report; null: none queued. */
+    public String diagnostics;
+
+    private volatile long bytesWritten;
+    private volatile long writeNanos;
+
+    public SyncBody(String deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    /** The body for a request; {@code cbor} picks the format. */
+    public RequestBody requestBody(boolean cbor) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return cbor ? CBOR : JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                long start = System.nanoTime();
+                long[] count = new long[1];
+                BufferedSink counted = Okio.buffer(new ForwardingSink(sink) {
+                    @Override
+                    public void write(Buffer source, long byteCount) throws IOException {
+                        count[0] += byteCount;
+                        super.write(source, byteCount);
+                    }
+                });
+                if (cbor) {
+                    CborWriter w = new CborWriter(true, counted.outputStream());
+                    try {
+                        writeCbor(w);
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    w.flush();
+                } else {
+                    // JsonWriter writes a few chars at a time; unbuffered, the encoder wraps each write
+                    Writer out = new BufferedWriter(new OutputStreamWriter(counted.outputStream(), StandardCharsets.UTF_8), 8192);
+                    writeJson(out);
+                    out.flush();
+                }
+                counted.emit();
+                bytesWritten = count[0];
+                writeNanos = System.nanoTime() - start;
+            }
+        };
+    }
+
+    /** Uncompressed size of the last body written. */
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Time the last body took to encode and hand to the sink (gzip included). */
+    public long writeNanos() {
+        return writeNanos;
+    }
+
+    // ── JSON ──────────────────────────────────────────────────────────────────
+
+    public void writeJson(Writer out) throws IOException {
+        JsonWriter w = new JsonWriter(out);
+        w.beginObject();
+        w.name("deviceId").value(deviceId);
+        if (!locations.isEmpty()) {
+            w.name("location").beginArray();
+            for (String e : locations) w.jsonValue(e);
+            w.endArray();
+        }
+        if (apps != null) w.name("apps").jsonValue(apps);
+        if (sessions != null) {
+            w.name("browserHistory").beginObject();
+            w.name("history").beginArray();
+            for (BrowsingSessionizer.Session s : sessions) w.value(legacyEntry(s));
+            w.endArray();
+            w.name("sessions").beginArray();
+            for (BrowsingSessionizer.Session s : sessions) {
+                w.beginObject();
+                w.name("domain").value(s.domain);
+                if (s.url != null) w.name("url").value(s.url);
+                w.name("start").value(s.firstSeenMs);
+                w.name("end").value(s.lastSeenMs);
+                w.name("hits").value(s.hits);
+                w.name("sources").beginArray();
+                if (s.seenBy(CaptureRing.SOURCE_ACCESSIBILITY)) w.value(A11Y);
+                if (s.seenBy(CaptureRing.SOURCE_VPN)) w.value(VPN);
+                w.endArray();
+                w.endObject();
+            }
+            w.endArray();
+            w.endObject();
+        }
+        if (fcmToken != null) w.name("fcmToken").value(fcmToken);
+        if (diagnostics != null) w.name("diagnostics").jsonValue(diagnostics);
+        w.endObject();
+        w.flush();
+    }
+
+    // ── CBOR ──────────────────────────────────────────────────────────────────
+
+    public void writeCbor(CborWriter w) throws IOException {
+        int fields = 1 + (locations.isEmpty() ? 0 : 1) + (apps != null ? 1 : 0) + (sessions != null ? 1 : 0)
+                + (fcmToken != null ? 1 : 0) + (diagnostics != null ? 1 : 0);
+        w.startMap(fields);
+        w.string("deviceId").string(deviceId);
+        if (!locations.isEmpty()) {
+            w.string("location").startArray(locations.size());
+            for (String e : locations) transcode(e, w);
+        }
+        if (apps != null) transcode(apps, w.string("apps"));
+        if (sessions != null) {
+            w.string("browserHistory").startMap(1);
+            w.string("sessions").startArray(sessions.size());
+            for (BrowsingSessionizer.Session s : sessions) {
+                w.startMap(s.url != null ? 6 : 5);
+                w.string("domain").string(s.domain);
+                if (s.url != null) w.string("url").string(s.url);
+                w.string("start").integer(s.firstSeenMs);
+                w.string("end").integer(s.lastSeenMs);
+                w.string("hits").integer(s.hits);
+                boolean a11y = s.seenBy(CaptureRing.SOURCE_ACCESSIBILITY), vpn = s.seenBy(CaptureRing.SOURCE_VPN);
+                w.string("sources").startArray((a11y ? 1 : 0) + (vpn ? 1 : 0));
+                if (a11y) w.string(A11Y);
+                if (vpn) w.string(VPN);
+            }
+        }
+        if (fcmToken != null) w.string("fcmToken").string(fcmToken);
+        if (diagnostics != null) transcode(diagnostics, w.string("diagnostics"));
+    }
+
+    private static void transcode(String json, CborWriter w) throws IOException {
+        JsonReader r = new JsonReader(new StringReader(json));
+        transcode(r, w);
+    }
+
+    private static void transcode(JsonReader r, CborWriter w) throws IOException {
+        switch (r.peek()) {
+            case BEGIN_OBJECT:
+                r.beginObject();
+                w.startMap();
+                while (r.hasNext()) {
+                    w.string(r.nextName());
+                    transcode(r, w);
+                }
+                r.endObject();
+                w.end();
+                break;
+            case BEGIN_ARRAY:
+                r.beginArray();
+                w.startArray();
+                while (r.hasNext()) transcode(r, w);
+                r.endArray();
+                w.end();
+                break;
+            case NUMBER: {
+                String n = r.nextString();
+                if (n.indexOf('.') < 0 && n.indexOf('e') < 0 && n.indexOf('E') < 0) w.integer(Long.parseLong(n));
+                else w.decimal(Double.parseDouble(n));
+                break;
+            }
+            case BOOLEAN:
+                w.bool(r.nextBoolean());
+                break;
+            case NULL:
+                r.nextNull();
+                w.nul();
+                break;
+            default:
+                w.string(r.nextString());
+        }
+    }
+
+    // ── Sessions ──────────────────────────────────────────────────────────────
+
+    /** What /browser-history's "history" list has always held: "url|ts|source". */
+    public static String legacyEntry(BrowsingSessionizer.Session s) {
+        boolean viaA11y = s.seenBy(CaptureRing.SOURCE_ACCESSIBILITY);
+        return (s.url != null ? s.url : s.domain) + "|" + s.firstSeenMs + "|" + (viaA11y ? A11Y : VPN);
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.g4parentalmonitor.sync;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SyncScheduler — one timer for every periodic sync stream, and the policy that sets
+ * how often each one runs.
+ *
+ * Each stream has three cadences, picked from the device's {@link Conditions}:
+ *
+ *   ACTIVE  screen on: the child is using the device, usage and location move
+ *   IDLE    screen off: nobody is looking, but the device is awake
+ *   SAVER   Doze, or battery low and not charging: the device is trying to sleep
+ *
+ * On top of that the service sets a floor per stream while its data is pushed instead
+ * (commands over FCM or the live channel), where the poll is only a safety net.
+ *
+ * Streams share wake-ups. When the timer fires for the stream due first, every other
+ * stream within {@code flex} of its own interval of being due runs with it, a little
+ * early, instead of waking the device again seconds later: with flex 1/4 a 60 s stream
+ * may run after 45 s, a 10 s one only after 7.5 s. A change of conditions re-times
+ * waiting streams from their last run, so turning the screen on shortens them at once;
+ * a retry delay set with {@link #delay} still holds.
+ *
+ * Bulk uploads (browsing history) go on unmetered networks; on a metered one they
+ * wait at most {@code maxBulkDeferMs} since the last bulk upload.
+ *
+ * Times are monotonic ms (elapsedRealtime). Thread-safe; tasks run outside the lock,
+ * on the thread that calls {@link #runDue}.
+ */
+public final class SyncScheduler {
+
+    public enum Mode { ACTIVE, IDLE, SAVER }
+
+    /** What the policy looks at; immutable, like DeviceState. */
+    public static final class Conditions {
+
+        /** Before the first reading: assume someone is looking, so nothing starts slow. */
+        public static final Conditions DEFAULT = new Conditions(true, false, false, false, false);
+
+        public final boolean screenOn;
+        public final boolean charging;
+        public final boolean deviceIdle;
+        public final boolean batteryLow;
+        public final boolean metered;
+
+        public Conditions(boolean screenOn, boolean charging, boolean deviceIdle, boolean batteryLow, boolean metered) {
+            this.screenOn = screenOn;
+            this.charging = charging;
+            this.deviceIdle = deviceIdle;
+            this.batteryLow = batteryLow;
+            this.metered = metered;
+        }
+
+        public Mode mode() {
+            if (deviceIdle || (batteryLow && !charging)) return Mode.SAVER;
+            return screenOn ? Mode.ACTIVE : Mode.IDLE;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Conditions)) return false;
+            Conditions c = (Conditions) o;
+            return screenOn == c.screenOn && charging == c.charging && deviceIdle == c.deviceIdle
+                    && batteryLow == c.batteryLow && metered == c.metered;
+        }
+
+        @Override
+        public int hashCode() {
+            return (screenOn ? 16 : 0) | (charging ? 8 : 0) | (deviceIdle ? 4 : 0) | (batteryLow ? 2 : 0) | (metered ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return mode() + (screenOn ? " screen" : "") + (charging ? " charging" : "") + (deviceIdle ? " doze" : "")
+                    + (batteryLow ? " low" : "") + (metered ? " metered" : "");
+        }
+    }
+
+    public static final class Stream {
+        public final String name;
+        private final long activeMs, idleMs, saverMs;
+        private final Runnable task;
+
+        private long floorMs;
+        private boolean pending = true;   // run at the next wake: new, or asked for
+        private long lastRunAt;
+        private long dueAt;
+        private boolean held;             // retry delay: no run before dueAt unless asked for
+        private int runs, alignedRuns;
+
+        private Stream(String name, long activeMs, long idleMs, long saverMs, Runnable task) {
+            this.name = name;
+            this.activeMs = activeMs;
+            this.idleMs = idleMs;
+            this.saverMs = saverMs;
+            this.task = task;
+        }
+    }
+
+    private final double flex;
+    private final long maxBulkDeferMs;
+    private final List<Stream> streams = new ArrayList<>();
+    private Conditions conditions = Conditions.DEFAULT;
+    private long lastBulkAt;
+    private int wakes;
+    private long lastReportAt;
+
+    public SyncScheduler(double flex, long maxBulkDeferMs, long now) {
+        this.flex = flex;
+        this.maxBulkDeferMs = maxBulkDeferMs;
+        this.lastBulkAt = now;
+        this.lastReportAt = now;
+    }
+
+    /** A stream that runs {@code task} at the first wake, then at its cadence. */
+    public synchronized Stream add(String name, long activeMs, long idleMs, long saverMs, Runnable task) {
+        Stream s = new Stream(name, activeMs, idleMs, saverMs, task);
+        streams.add(s);
+        return s;
+    }
+
+    /** Returns true when the conditions changed. */
+    public synchronized boolean setConditions(Conditions c) {
+        if (c.equals(conditions)) return false;
+        conditions = c;
+        retime();
+        return true;
+    }
+
+    public synchronized Conditions conditions() {
+        return conditions;
+    }
+
+    /** Minimum interval for {@code s} whatever the conditions; 0 for none. */
+    public synchronized void setFloor(Stream s, long floorMs) {
+        if (s.floorMs == floorMs) return;
+        s.floorMs = floorMs;
+        retime();
+    }
+
+    /** Effective interval of {@code s} under the current conditions. */
+    public synchronized long interval(Stream s) {
+        long base;
+        switch (conditions.mode()) {
+            case ACTIVE: base = s.activeMs; break;
+            case IDLE:   base = s.idleMs; break;
+            default:     base = s.saverMs;
+        }
+        return Math.max(base, s.floorMs);
+    }
+
+    /** Runs {@code s} at the next wake. */
+    public synchronized void runNow(Stream s) {
+        s.pending = true;
+    }
+
+    /** Next run of {@code s} in {@code delayMs} instead of its interval (retry backoff). */
+    public synchronized void delay(Stream s, long delayMs, long now) {
+        s.pending = false;
+        s.held = true;
+        s.dueAt = now + delayMs;
+    }
+
+    /**
+     * Runs every stream that is due or within its flex of being due, and returns how
+     * many ran. Each run counts toward the stream's next due time from {@code now}.
+     */
+    public int runDue(long now) {
+        List<Runnable> tasks = new ArrayList<>();
+        synchronized (this) {
+            for (Stream s : streams) {
+                boolean due = s.pending || now - s.dueAt >= 0;
+                boolean aligned = !due && !s.held && now - (s.dueAt - (long) (interval(s) * flex)) >= 0;
+                if (!due && !aligned) continue;
+                s.pending = s.held = false;
+                s.lastRunAt = now;
+                s.dueAt = now + interval(s);
+                s.runs++;
+                if (aligned) s.alignedRuns++;
+                tasks.add(s.task);
+            }
+            if (!tasks.isEmpty()) wakes++;
+        }
+        for (Runnable t : tasks) t.run();
+        return tasks.size();
+    }
+
+    /** When the timer should fire next; {@code now} if something is pending. */
+    public synchronized long nextWakeAt(long now) {
+        long next = Long.MAX_VALUE;
+        for (Stream s : streams) {
+            if (s.pending) return now;
+            if (next == Long.MAX_VALUE || s.dueAt - next < 0) next = s.dueAt;
+        }
+        return next == Long.MAX_VALUE || next - now < 0 ? now : next;
+    }
+
+    // ── Bulk uploads ──────────────────────────────────────────────────────────
+
+    /** Whether bulk data may go up now: unmetered, or held back long enough. */
+    public synchronized boolean bulkAllowed(long now) {
+        return !conditions.metered || now - lastBulkAt >= maxBulkDeferMs;
+    }
+
+    /** Bulk data went up (or there was none to send). */
+    public synchronized void onBulkSent(long now) {
+        lastBulkAt = now;
+    }
+
+    // ── Reporting ─────────────────────────────────────────────────────────────
+
+    public synchronized int wakes() {
+        return wakes;
+    }
+
+    /** Mode, effective intervals and run counts per stream, and wake-ups, for diagnostics. */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("conditions", conditions.toString());
+        m.put("wakes", wakes);
+        Map<String, Object> byStream = new LinkedHashMap<>();
+        for (Stream s : streams) {
+            Map<String, Object> st = new LinkedHashMap<>();
+            st.put("intervalMs", interval(s));
+            st.put("runs", s.runs);
+            st.put("aligned", s.alignedRuns);
+            byStream.put(s.name, st);
+        }
+        m.put("streams", byStream);
+        return m;
+    }
+
+    /** One log line at most every {@code intervalMs}; null in between. */
+    public synchronized String report(long now, long intervalMs) {
+        if (now - lastReportAt < intervalMs) return null;
+        lastReportAt = now;
+        StringBuilder sb = new StringBuilder().append(conditions).append(" |");
+        int runs = 0;
+        for (Stream s : streams) {
+            sb.append(' ').append(s.name).append(' ').append(seconds(interval(s)));
+            runs += s.runs;
+        }
+        return sb.append(" | ").append(wakes).append(" wakes for ").append(runs).append(" runs").toString();
+    }
+
+    private static String seconds(long ms) {
+        return ms % 60_000 == 0 && ms >= 60_000 ? ms / 60_000 + "m" : ms / 1000 + "s";
+    }
+
+    private void retime() {
+        for (Stream s : streams) {
+            if (!s.pending && !s.held && s.runs > 0) s.dueAt = s.lastRunAt + interval(s);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.g4parentalmonitor.usage;
+
+import com.example.g4parentalmonitor.core.KeyValueStore;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UsageDelta — encodes each app-usage snapshot against the last one the server acknowledged.
+ *
+ *   full:  { day, version, full: true,  apps: [every app: packageName, appName, minutes, seconds, totalMs] }
+ *   delta: { day, version, base, full: false, apps: [changed apps: packageName, totalMs (+ appName if new)] }
+ *
+ * Delta values are absolute (today's total), not increments, and always relative to the
+ * last acknowledged snapshot rather than the last one sent. So a delta may replace an
+ * unsent older one, and a server already past {@code base} can apply it too, since
+ * daily totals only grow. A server that can't apply a delta asks for a resync, and the
+ * next message is full.
+ *
+ * A full snapshot also goes out at the start of each day, after {@code fullEvery}
+ * deltas as a safety net, and while the server is known not to read deltas. Whatever
+ * the reason, fulls keep going out until one is acknowledged: the latest message
+ * replaces an unsent one, so a delta must not replace a full the server never got.
+ *
+ * The acknowledged snapshot is persisted (acked_ms_<pkg>), so a restart keeps sending deltas.
+ * Thread-safe via synchronized methods.
+ */
+public final class UsageDelta {
+
+    private static final String KEY_DAY = "acked_day";
+    private static final String KEY_VERSION = "acked_version";
+    private static final String KEY_NEXT_VERSION = "next_version";
+    private static final String KEY_PREFIX = "acked_ms_";
+
+    /** Pending snapshots kept for acknowledgement; older ones can no longer be acked. */
+    private static final int MAX_PENDING = 8;
+
+    public static final class App {
+        public final String packageName;
+        public final String appName;
+        public final long totalMs;
+
+        public App(String packageName, String appName, long totalMs) {
+            this.packageName = packageName;
+            this.appName = appName;
+            this.totalMs = totalMs;
+        }
+    }
+
+    private final KeyValueStore store;
+    private final int fullEvery;
+
+    private int ackedDay;
+    private long ackedVersion;
+    private final Map<String, Long> acked = new HashMap<>();
+    private long nextVersion;
+
+    /** version → snapshot that message described, until acknowledged */
+    private final LinkedHashMap<Long, Pending> pending = new LinkedHashMap<>();
+    private int deltasSinceFull;
+    private boolean forceFull;
+    private long forceFullFrom;   // a full older than this version predates the request
+    private boolean deltasSupported = true;
+
+    private static final class Pending {
+        final int day;
+        final boolean full;
+        final Map<String, Long> totals;
+        Pending(int day, boolean full, Map<String, Long> totals) {
+            this.day = day;
+            this.full = full;
+            this.totals = totals;
+        }
+    }
+
+    public UsageDelta(KeyValueStore store, int fullEvery) {
+        this.store = store;
+        this.fullEvery = fullEvery;
+        ackedDay = store.getInt(KEY_DAY, 0);
+        ackedVersion = store.getLong(KEY_VERSION, 0);
+        nextVersion = Math.max(store.getLong(KEY_NEXT_VERSION, 1), ackedVersion + 1);
+        for (Map.Entry<String, ?> e : store.getAll().entrySet()) {
+            if (e.getKey().startsWith(KEY_PREFIX) && e.getValue() instanceof Long) {
+                acked.put(e.getKey().substring(KEY_PREFIX.length()), (Long) e.getValue());
+            }
+        }
+    }
+
+    /**
+     * The message for today's usage (day as YYYYMMDD), or null when nothing changed
+     * since the last acknowledged snapshot and no full snapshot is due.
+     */
+    public synchronized Map<String, Object> next(int day, List<App> current) {
+        boolean full = forceFull || !deltasSupported || ackedVersion == 0 || day != ackedDay
+                || deltasSinceFull >= fullEvery;
+
+        Map<String, Long> totals = new HashMap<>();
+        List<Map<String, Object>> apps = new ArrayList<>();
+        for (App app : current) {
+            totals.put(app.packageName, app.totalMs);
+            Long before = acked.get(app.packageName);
+            if (!full && before != null && before == app.totalMs) continue;
+
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("packageName", app.packageName);
+            if (full || before == null) m.put("appName", app.appName);
+            if (full) {
+                m.put("minutes", (app.totalMs + 30_000L) / 60_000L);
+                m.put("seconds", app.totalMs / 1_000);
+            }
+            m.put("totalMs", app.totalMs);
+            apps.add(m);
+        }
+        if (!full && apps.isEmpty()) return null;
+
+        long version = nextVersion++;
+        store.edit().putLong(KEY_NEXT_VERSION, nextVersion).apply();
+        pending.put(version, new Pending(day, full, totals));
+        while (pending.size() > MAX_PENDING) pending.remove(pending.keySet().iterator().next());
+        if (!full) deltasSinceFull++;
+
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("day", day);
+        msg.put("version", version);
+        if (!full) msg.put("base", ackedVersion);
+        msg.put("full", full);
+        msg.put("apps", apps);
+        return msg;
+    }
+
+    /** The server accepted {@code version}: it becomes the base for later deltas. */
+    public synchronized void acknowledge(long version) {
+        Pending p = pending.get(version);
+        if (p == null || version <= ackedVersion) return;
+        // Older pending snapshots are superseded by this one
+        pending.keySet().removeIf(v -> v <= version);
+
+        KeyValueStore.Editor edit = store.edit();
+        for (String pkg : acked.keySet()) {
+            if (!p.totals.containsKey(pkg)) edit.remove(KEY_PREFIX + pkg);
+        }
+        for (Map.Entry<String, Long> e : p.totals.entrySet()) {
+            Long before = acked.get(e.getKey());
+            if (before == null || before.longValue() != e.getValue()) edit.putLong(KEY_PREFIX + e.getKey(), e.getValue());
+        }
+        edit.putInt(KEY_DAY, p.day).putLong(KEY_VERSION, version).apply();
+
+        acked.clear();
+        acked.putAll(p.totals);
+        ackedDay = p.day;
+        ackedVersion = version;
+        if (p.full) {
+            deltasSinceFull = 0;
+            if (version >= forceFullFrom) forceFull = false;
+        }
+    }
+
+    /** The server lost track of our snapshot: the next message is full. */
+    public synchronized void requestFull() {
+        forceFull = true;
+        forceFullFrom = nextVersion;
+    }
+
+    /** False while uploads go to a server that only reads full snapshots. */
+    public synchronized void setDeltasSupported(boolean supported) {
+        deltasSupported = supported;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.g4parentalmonitor.usage;
+
+import com.example.g4parentalmonitor.core.Log;
+import com.example.g4parentalmonitor.core.UsageEventSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * UsageMerger — per-app daily totals from the two usage sources.
+ *
+ *   computeEventBased() replays UsageStats foreground/screen events since midnight.
+ *   merge()             combines that with the accessibility tracker's totals.
+ */
+public final class UsageMerger {
+
+    private static final String TAG = "UsageStatsHelper";
+
+    /**
+     * TRANSPARENT PACKAGES — system UI and launchers.
+     * Both tracker and event-based ignore these when they take foreground.
+     */
+    public static final Set<String> TRANSPARENT_PACKAGES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "com.android.systemui", "android",
+            "com.android.launcher", "com.android.launcher2", "com.android.launcher3",
+            "com.miui.home", "com.miui.systemui", "com.miui.securityinputmethod",
+            "com.google.android.launcher", "com.google.android.apps.nexuslauncher",
+            "com.sec.android.app.launcher", "com.oneplus.launcher",
+            "com.oppo.launcher", "com.bbk.launcher2",
+            "com.android.permissioncontroller", "com.google.android.permissioncontroller",
+            "com.android.packageinstaller"
+    )));
+
+    private static final long MIN_SESSION_MS    = 1_000;
+    private static final long INACTIVITY_CAP_MS = 30L * 60 * 1_000;
+    private static final long MAX_SESSION_MS    = 3L * 60 * 60 * 1_000;
+
+    private UsageMerger() {}
+
+    /**
+     * Strategy:
+     *   1. If the tracker (accessibility) has data → use it as PRIMARY source.
+     *      It tracks in real-time via TYPE_WINDOW_STATE_CHANGED, much more accurate.
+     *   2. Merge with event-based as FALLBACK for any apps the tracker may have missed
+     *      (e.g. apps used before accessibility service was enabled today).
+     *   3. For each app: take MAX(tracker, event-based).
+     *      The tracker is always more accurate when running, event-based covers gaps.
+     */
+    public static Map<String, Long> merge(Map<String, Long> trackerMap, boolean trackerHasData,
+                                          Map<String, Long> eventMap) {
+        if (!trackerHasData) {
+            // Accessibility service not yet enabled or no data yet — use event-based only
+            Log.d(TAG, "No tracker data — using event-based only");
+            return eventMap;
+        }
+
+        // Merge: for each app take MAX(tracker, event-based)
+        // The tracker is real-time accurate; event-based fills in anything before
+        // the accessibility service was started today.
+        Map<String, Long> merged = new HashMap<>(trackerMap);
+
+        for (Map.Entry<String, Long> entry : eventMap.entrySet()) {
+            String pkg = entry.getKey();
+            long eventMs = entry.getValue();
+
+            if (TRANSPARENT_PACKAGES.contains(pkg)) continue;
+
+            long trackerMs = merged.containsKey(pkg) ? merged.get(pkg) : 0L;
+
+            if (trackerMs == 0) {
+                // Tracker has no data for this app — use event-based (app used before service start)
+                merged.put(pkg, eventMs);
+            } else {
+                // Both have data: take max
+                // Tracker is more accurate in most cases, but if event-based is significantly
+                // higher it means the tracker missed some time (e.g. during a restart)
+                merged.put(pkg, Math.max(trackerMs, eventMs));
+            }
+        }
+
+        // Remove transparent packages from final result
+        for (String pkg : TRANSPARENT_PACKAGES) {
+            merged.remove(pkg);
+        }
+
+        Log.d(TAG, "Merged tracker (" + trackerMap.size() + " apps) + event-based ("
+                + eventMap.size() + " apps) → " + merged.size() + " apps");
+
+        return merged;
+    }
+
+    /**
+     * Pure event-based totals from midnight to now.
+     * MIUI-safe: "only one real app in foreground at a time" rule.
+     */
+    public static Map<String, Long> computeEventBased(UsageEventSource source, long midnight, long now) {
+        Map<String, Long> totalMap = new HashMap<>();
+        String fgPkg = null;
+        long fgStart = 0;
+        long lastEventTs = midnight;
+
+        UsageEventSource.Cursor events = source.query(midnight, now);
+        UsageEventSource.Event ev = new UsageEventSource.Event();
+
+        while (events.next(ev)) {
+            long ts   = ev.timeStamp;
+            int  type = ev.type;
+            String pkg = ev.packageName;
+
+            if (ts < midnight) continue;
+
+            if (type == UsageEventSource.SCREEN_OFF) {
+                if (fgPkg != null) {
+                    long dur = ts - fgStart;
+                    if (dur >= MIN_SESSION_MS && dur < MAX_SESSION_MS)
+                        addTime(totalMap, fgPkg, dur);
+                    fgPkg = null; fgStart = 0;
+                }
+                lastEventTs = ts;
+                continue;
+            }
+
+            if (type == UsageEventSource.SCREEN_ON) {
+                lastEventTs = ts;
+                continue;
+            }
+
+            if (type == UsageEventSource.FOREGROUND) {
+                if (TRANSPARENT_PACKAGES.contains(pkg)) continue;
+
+                if (fgPkg != null && !fgPkg.equals(pkg)) {
+                    long dur;
+                    long gap = ts - lastEventTs;
+                    if (gap > INACTIVITY_CAP_MS) {
+                        dur = Math.max(0, (lastEventTs + INACTIVITY_CAP_MS) - fgStart);
+                    } else {
+                        dur = ts - fgStart;
+                    }
+                    if (dur >= MIN_SESSION_MS && dur < MAX_SESSION_MS)
+                        addTime(totalMap, fgPkg, dur);
+                }
+
+                fgPkg = pkg;
+                fgStart = ts;
+                lastEventTs = ts;
+
+            } else if (type == UsageEventSource.BACKGROUND) {
+                if (TRANSPARENT_PACKAGES.contains(pkg)) continue;
+                if (pkg.equals(fgPkg)) {
+                    long dur = ts - fgStart;
+                    if (dur >= MIN_SESSION_MS && dur < MAX_SESSION_MS)
+                        addTime(totalMap, fgPkg, dur);
+                    fgPkg = null; fgStart = 0;
+                }
+                lastEventTs = ts;
+            }
+        }
+
+        // Live top-up
+        if (fgPkg != null) {
+            long timeSinceLast = now - lastEventTs;
+            long sessionDur = timeSinceLast > INACTIVITY_CAP_MS
+                    ? (lastEventTs + INACTIVITY_CAP_MS) - fgStart
+                    : now - fgStart;
+            if (sessionDur >= MIN_SESSION_MS && sessionDur < MAX_SESSION_MS)
+                addTime(totalMap, fgPkg, sessionDur);
+        }
+
+        return totalMap;
+    }
+
+    private static void addTime(Map<String, Long> map, String pkg, long ms) {
+        long cur = map.containsKey(pkg) ? map.get(pkg) : 0L;
+        map.put(pkg, cur + ms);
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.g4parentalmonitor.vpn;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * CaptureRing — fixed-capacity, lock-free ring of captured visits.
+ *
+ * Many producers (the DNS loop, the accessibility thread) call {@link #offer}; one
+ * consumer batch-drains with {@link #drain}. Each slot is a (domain, timestamp, source)
+ * record held in parallel primitive arrays, so nothing is allocated per visit and the
+ * heap cost is capped at {@code capacity} slots no matter how long the device is offline.
+ *
+ * Domains are held by reference, not as IDs from a domain table: the caller has already
+ * allocated the String, the ring bounds how many stay reachable, and an ID table would
+ * need its own eviction to stay bounded.
+ *
+ * Slots are claimed with per-slot sequence numbers (Vyukov's bounded queue). A full
+ * ring is handled by the {@link Overflow} policy instead of blocking or growing:
+ *   DROP_OLDEST — the producer evicts the oldest record and counts it in {@link #dropped()}.
+ *   SPILL       — the producer hands the whole ring to the installed {@link Spill}, which
+ *                 drains it to disk in one batch. Producers that arrive while a spill is
+ *                 in progress fall back to DROP_OLDEST.
+ */
+public final class CaptureRing {
+
+    public static final int SOURCE_ACCESSIBILITY = 1;
+    public static final int SOURCE_VPN           = 2;
+
+    public enum Overflow { DROP_OLDEST, SPILL }
+
+    /** Receives drained records in capture order. Must not retain the ring. */
+    public interface Visitor {
+        void accept(String domain, long timestampMs, int source);
+    }
+
+    /** Called on the producer thread when the ring is full; expected to drain it. */
+    public interface Spill {
+        void spill(CaptureRing ring);
+    }
+
+    private final int            mask;
+    private final AtomicLongArray sequence;
+    private final String[]       domains;
+    private final long[]         timestamps;
+    private final byte[]         sources;
+
+    private final AtomicLong tail = new AtomicLong(); // next slot to claim for offer()
+    private final AtomicLong head = new AtomicLong(); // next slot to consume
+
+    private final Overflow       overflow;
+    private volatile Spill       spill;
+    private final AtomicBoolean  spilling = new AtomicBoolean();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spills  = new AtomicLong();
+
+    /** @param capacity rounded up to a power of two */
+    public CaptureRing(int capacity, Overflow overflow) {
+        int cap = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask       = cap - 1;
+        this.sequence   = new AtomicLongArray(cap);
+        this.domains    = new String[cap];
+        this.timestamps = new long[cap];
+        this.sources    = new byte[cap];
+        this.overflow   = overflow;
+        for (int i = 0; i < cap; i++) sequence.set(i, i);
+    }
+
+    /** Installs the disk sink used by {@link Overflow#SPILL}. Until then SPILL drops oldest. */
+    public void setSpill(Spill spill) {
+        this.spill = spill;
+    }
+
+    // ── Producers ─────────────────────────────────────────────────────────────
+
+    public void offer(String domain, long timestampMs, int source) {
+        while (true) {
+            long pos = tail.get();
+            int  i   = (int) (pos & mask);
+            long dif = sequence.get(i) - pos;
+
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    domains[i]    = domain;
+                    timestamps[i] = timestampMs;
+                    sources[i]    = (byte) source;
+                    sequence.set(i, pos + 1); // publish
+                    return;
+                }
+            } else if (dif < 0) {
+                onFull();
+            }
+            // dif > 0: another producer claimed this slot first, reload tail
+        }
+    }
+
+    private void onFull() {
+        Spill s = spill;
+        if (overflow == Overflow.SPILL && s != null && spilling.compareAndSet(false, true)) {
+            try {
+                s.spill(this);
+                spills.incrementAndGet();
+            } catch (RuntimeException ignored) {
+                // Disk trouble must never stop capture; fall through to drop-oldest
+            } finally {
+                spilling.set(false);
+            }
+            if (size() < capacity()) return;
+        }
+        if (poll(null)) dropped.incrementAndGet();
+    }
+
+    // ── Consumer ──────────────────────────────────────────────────────────────
+
+    /**
+     * Hands every record present at the time of the call to {@code visitor}, straight out
+     * of the slots. A null visitor discards. Returns the number of records drained.
+     */
+    public int drain(Visitor visitor) {
+        long end = tail.get();
+        int n = 0;
+        while (head.get() < end && poll(visitor)) n++;
+        return n;
+    }
+
+    private boolean poll(Visitor visitor) {
+        while (true) {
+            long pos = head.get();
+            int  i   = (int) (pos & mask);
+            long dif = sequence.get(i) - (pos + 1);
+
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    // The slot stays ours until the sequence is advanced below
+                    String domain = domains[i];
+                    long   ts     = timestamps[i];
+                    int    source = sources[i];
+                    domains[i] = null;
+                    sequence.set(i, pos + mask + 1);
+                    if (visitor != null) visitor.accept(domain, ts, source);
+                    return true;
+                }
+            } else if (dif < 0) {
+                return false; // empty
+            }
+        }
+    }
+
+    // ── Stats ─────────────────────────────────────────────────────────────────
+
+    public int capacity() { return mask + 1; }
+
+    public int size() {
+        long n = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(n, capacity()));
+    }
+
+    /** Records evicted by DROP_OLDEST since creation. */
+    public long dropped() { return dropped.get(); }
+
+    /** Completed spills since creation. */
+    public long spills() { return spills.get(); }
+
+    public static String sourceName(int source) {
+        return source == SOURCE_ACCESSIBILITY ? "accessibility" : "vpn";
+    }
+}
@@ -1,16 +1,24 @@
 package com.example.g4parentalmonitor.vpn;
 
+import com.example.g4parentalmonitor.core.Clock;
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
+
 import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * DnsFilterEngine — decides what to do with each DNS query.
  *
  * Priority order:
- *   1. SafeSearch redirect  (Google, YouTube, Bing)
- *   2. Block (NXDOMAIN)     (porn / harmful domains)
- *   3. Allow                (forward to upstream 8.8.8.8)
+ *   1. Scheduled block      (parent time windows, e.g. no social media after 21:00)
+ *   2. SafeSearch redirect  (Google, YouTube, Bing)
+ *   3. Block (NXDOMAIN)     (porn / harmful domains)
+ *   4. Allow                (forward to upstream 8.8.8.8)
  */
 public class DnsFilterEngine {
 
@@ -76,6 +84,54 @@ public class DnsFilterEngine {
             "roblox.com" // commonly blocked by parents — remove if not needed
     ));
 
+    // ── Scheduled policies ─────────────────────────────────────────────────────
+    // The compiled week plus the currently active segment. Per query we only compare
+    // the clock against activeWindow.validUntilMs; the next segment's precompiled
+    // domain set is swapped in when it expires. Each window carries the timeline it
+    // came from, and every load installs a fresh expired one, so a query that resolved
+    // against the old timeline loses its compareAndSet to the reload.
+
+    /** Longest a segment is trusted before re-reading the clock (DST / time zone changes). */
+    private static final long MAX_WINDOW_MS = 60 * 60 * 1000L;
+
+    private static final class ActiveWindow {
+        final ScheduleTimeline timeline;   // null: no scheduled policies
+        final Set<String>      blocked;
+        final long             validUntilMs;
+
+        ActiveWindow(ScheduleTimeline timeline, Set<String> blocked, long validUntilMs) {
+            this.timeline     = timeline;
+            this.blocked      = blocked;
+            this.validUntilMs = validUntilMs;
+        }
+
+        /** Resolved at the first query; a new instance per load, never shared. */
+        static ActiveWindow expired(ScheduleTimeline timeline) {
+            return new ActiveWindow(timeline, Collections.<String>emptySet(), Long.MIN_VALUE);
+        }
+    }
+
+    private final AtomicReference<ActiveWindow> activeWindow = new AtomicReference<>(ActiveWindow.expired(null));
+
+    /**
+     * Replaces the schedule-bound policies. Safe to call from any thread while
+     * the DNS loop is running; the next query picks up the new timeline.
+     */
+    public void loadSchedulePolicies(List<DnsSchedulePolicy> policies) {
+        activeWindow.set(ActiveWindow.expired(ScheduleTimeline.compile(policies)));
+    }
+
+    private final Clock clock;
+
+    public DnsFilterEngine() {
+        this(Clock.SYSTEM);
+    }
+
+    /** @param clock drives the scheduled-policy windows */
+    public DnsFilterEngine(Clock clock) {
+        this.clock = clock;
+    }
+
     // ── Public API ────────────────────────────────────────────────────────────
 
     /**
@@ -89,17 +145,20 @@ public class DnsFilterEngine {
         // Strip trailing dot
         if (d.endsWith(".")) d = d.substring(0, d.length() - 1);
 
-        // 1. SafeSearch (only hijack A / AAAA queries)
+        // 1. Scheduled block
+        if (isScheduledBlocked(d)) return new Block();
+
+        // 2. SafeSearch (only hijack A / AAAA queries)
         if (queryType == 1 || queryType == 28) {
             if (googleSet.contains(d))  return new SafeSearch(GOOGLE_SAFESEARCH_IP);
             if (youtubeSet.contains(d)) return new SafeSearch(YOUTUBE_SAFESEARCH_IP);
             if (bingSet.contains(d))    return new SafeSearch(BING_SAFESEARCH_IP);
         }
 
-        // 2. Block list
+        // 3. Block list
         if (isBlocked(d)) return new Block();
 
-        // 3. Allow
+        // 4. Allow
         return new Allow();
     }
 
@@ -113,4 +172,41 @@ public class DnsFilterEngine {
         }
         return false;
     }
-}
\ No newline at end of file
+
+    private boolean isScheduledBlocked(String domain) {
+        ActiveWindow w = activeWindow.get();
+        if (w.timeline == null) return false;
+
+        long now = clock.currentTimeMillis();
+        if (now >= w.validUntilMs) {
+            ActiveWindow next = resolveWindow(w.timeline, now);
+            // Lost the race against loadSchedulePolicies() → use it for this query only
+            activeWindow.compareAndSet(w, next);
+            w = next;
+        }
+        if (w.blocked.isEmpty()) return false;
+
+        // "cdn.instagram.com" → "instagram.com" → "com"
+        String d = domain;
+        while (true) {
+            if (w.blocked.contains(d)) return true;
+            int dot = d.indexOf('.');
+            if (dot < 0) return false;
+            d = d.substring(dot + 1);
+        }
+    }
+
+    /** Locates the segment of {@code t} containing {@code now} and computes when it ends. */
+    private static ActiveWindow resolveWindow(ScheduleTimeline t, long now) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(now);
+        int minuteOfWeek = (cal.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY) * ScheduleTimeline.MINUTES_PER_DAY
+                + cal.get(Calendar.HOUR_OF_DAY) * 60
+                + cal.get(Calendar.MINUTE);
+        long minuteStart = now - cal.get(Calendar.SECOND) * 1000L - cal.get(Calendar.MILLISECOND);
+
+        int segment = t.segmentAt(minuteOfWeek);
+        long end = minuteStart + (t.segmentEnd(segment) - minuteOfWeek) * 60_000L;
+        return new ActiveWindow(t, t.domainsAt(segment), Math.min(end, now + MAX_WINDOW_MS));
+    }
+}
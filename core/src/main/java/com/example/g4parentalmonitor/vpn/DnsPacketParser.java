@@ -1,6 +1,6 @@
 package com.example.g4parentalmonitor.vpn;
 
-import android.util.Log;
+import com.example.g4parentalmonitor.core.Log;
 
 /**
  * DnsPacketParser
@@ -0,0 +1,130 @@
+package com.example.g4parentalmonitor.vpn;
+
+import com.example.g4parentalmonitor.core.Log;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.util.function.BooleanSupplier;
+
+/**
+ * DnsPipeline — the per-packet DNS path behind the VPN tunnel.
+ *
+ *   tun read → DnsPacketParser.parse → DnsFilterEngine.decide → synthesize / forward → tun write
+ *
+ * Holds no Android state: DnsVpnService hands it the tun streams and a socket protector,
+ * and JVM tests hand it in-memory streams and a local stand-in resolver instead.
+ */
+public class DnsPipeline {
+
+    private static final String TAG = "DnsPipeline";
+
+    // Query outcomes reported to Listener.onQuery()
+    public static final int QUERY_FORWARDED   = 0;
+    public static final int QUERY_BLOCKED     = 1;
+    public static final int QUERY_SAFE_SEARCH = 2;
+
+    /** VpnService.protect() — keeps the upstream socket out of the tunnel. */
+    public interface SocketProtector {
+        boolean protect(DatagramSocket socket);
+    }
+
+    /** Per-query outcome, used for VpnStatusPage stats. */
+    public interface Listener {
+        void onQuery(int kind, long latencyMicros);
+        void onUpstreamError();
+    }
+
+    private final DnsFilterEngine filterEngine;
+    private final InetAddress     upstream;
+    private final int             upstreamPort;
+    private final int             timeoutMs;
+    private final SocketProtector protector;
+    private final Listener        listener;
+
+    public DnsPipeline(DnsFilterEngine filterEngine, InetAddress upstream, int upstreamPort,
+                       int timeoutMs, SocketProtector protector, Listener listener) {
+        this.filterEngine = filterEngine;
+        this.upstream     = upstream;
+        this.upstreamPort = upstreamPort;
+        this.timeoutMs    = timeoutMs;
+        this.protector    = protector;
+        this.listener     = listener;
+    }
+
+    /**
+     * Reads packets until {@code running} turns false or the stream fails.
+     * Each read() must return exactly one IP packet, as a tun fd does.
+     */
+    public void run(InputStream in, OutputStream out, BooleanSupplier running) throws Exception {
+        byte[] buf = new byte[32767];
+        while (running.getAsBoolean()) {
+            int len = in.read(buf);
+            if (len < 0) break;
+            if (len == 0) continue;
+
+            byte[] response = process(buf, len);
+            if (response != null) { out.write(response); out.flush(); }
+        }
+    }
+
+    /** Handles one raw IP packet; returns the IP packet to write back, or null to ignore. */
+    public byte[] process(byte[] buf, int len) {
+        long startNs = System.nanoTime();
+
+        DnsPacketParser.DnsQuery query = DnsPacketParser.parse(buf, len);
+        if (query == null) return null;
+
+        DnsFilterEngine.FilterDecision decision = filterEngine.decide(query.domain, query.queryType);
+        byte[] response;
+        int kind;
+
+        if (decision instanceof DnsFilterEngine.Block) {
+            response = DnsPacketParser.buildNxDomainResponse(query);
+            kind = QUERY_BLOCKED;
+            Log.d(TAG, "🚫 " + query.domain);
+        } else if (decision instanceof DnsFilterEngine.SafeSearch) {
+            String ip = ((DnsFilterEngine.SafeSearch) decision).redirectIp;
+            response = DnsPacketParser.buildARecordResponse(query, ip);
+            kind = QUERY_SAFE_SEARCH;
+            Log.d(TAG, "🔍 SafeSearch " + query.domain + " → " + ip);
+        } else {
+            DomainCapture.record(query.domain);
+            response = forwardUpstream(query, buf, len);
+            kind = QUERY_FORWARDED;
+        }
+
+        if (listener != null) listener.onQuery(kind, (System.nanoTime() - startNs) / 1000);
+        return response;
+    }
+
+    private byte[] forwardUpstream(DnsPacketParser.DnsQuery query, byte[] rawBuf, int rawLen) {
+        DatagramSocket sock = null;
+        try {
+            sock = new DatagramSocket();
+            if (protector != null) protector.protect(sock);
+            sock.setSoTimeout(timeoutMs);
+
+            int payloadLen = rawLen - query.dnsPayloadOffset;
+            byte[] payload = new byte[payloadLen];
+            System.arraycopy(rawBuf, query.dnsPayloadOffset, payload, 0, payloadLen);
+
+            sock.send(new DatagramPacket(payload, payload.length, upstream, upstreamPort));
+
+            byte[] resp = new byte[4096];
+            DatagramPacket pkt = new DatagramPacket(resp, resp.length);
+            sock.receive(pkt);
+
+            byte[] dns = new byte[pkt.getLength()];
+            System.arraycopy(resp, 0, dns, 0, dns.length);
+            return DnsPacketParser.wrapUpstreamResponse(query, dns);
+        } catch (Exception e) {
+            if (listener != null) listener.onUpstreamError();
+            return DnsPacketParser.buildNxDomainResponse(query);
+        } finally {
+            if (sock != null) try { sock.close(); } catch (Exception ignored) {}
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.g4parentalmonitor.vpn;
+
+/**
+ * DomainCapture — domains resolved through the VPN, waiting to be uploaded.
+ *
+ * Written by DnsPipeline on every forwarded query, drained by DnsVpnService into the
+ * "vpn" history journal every second. Backed by a bounded CaptureRing, so the heap
+ * cost is capped at CAPACITY records; once DnsVpnService installs a spill, a full
+ * ring goes to disk instead of losing the oldest entries.
+ *
+ * {@link #record} runs on the DNS loop for every allowed query and builds nothing of
+ * its own: the ring keeps a reference to the domain String the parser already made.
+ */
+public final class DomainCapture {
+
+    static final int CAPACITY = 4096;
+
+    private static final CaptureRing ring = new CaptureRing(CAPACITY, CaptureRing.Overflow.SPILL);
+
+    private DomainCapture() {}
+
+    public static void record(String domain) {
+        if (domain == null || domain.isEmpty()) return;
+        // Skip common non-browsing domains to reduce noise
+        if (isInternalDomain(domain)) return;
+
+        ring.offer(domain, System.currentTimeMillis(), CaptureRing.SOURCE_VPN);
+    }
+
+    /** Hands everything captured so far to {@code visitor}; returns the count. */
+    public static int drain(CaptureRing.Visitor visitor) {
+        return ring.drain(visitor);
+    }
+
+    /** Where a full ring goes instead of dropping its oldest records. */
+    public static void spillTo(CaptureRing.Spill spill) {
+        ring.setSpill(spill);
+    }
+
+    public static long dropped() {
+        return ring.dropped();
+    }
+
+    private static boolean isInternalDomain(String d) {
+        return d.endsWith(".local")
+                || d.endsWith(".arpa")
+                || d.contains("googleapis.com")
+                || d.contains("gstatic.com")
+                || d.contains("firebase")
+                || d.contains("crashlytics")
+                || d.contains("android.clients")
+                || d.contains("play.googleapis")
+                || d.equals("time.android.com");
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.g4parentalmonitor.vpn;
+
+import com.example.g4parentalmonitor.data.AppRule;
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ScheduleTimeline — schedule-bound DNS policies compiled into one week.
+ *
+ * The week (Sunday 00:00 → Saturday 23:59, local time) is cut at every schedule
+ * start/end into segments. Each segment carries a precompiled set of the domains
+ * blocked while it is active, so DnsFilterEngine never evaluates a schedule per query:
+ * it only swaps in the next segment's set when the current one expires.
+ *
+ * Days follow the server convention: 0 = Sunday … 6 = Saturday.
+ * A window whose end is before its start ("21:00" → "07:00") runs past midnight.
+ */
+final class ScheduleTimeline {
+
+    static final int MINUTES_PER_DAY  = 24 * 60;
+    static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private static final Set<String> NONE = Collections.emptySet();
+
+    /** Segment start, in minutes since Sunday 00:00. Ascending; [0] is always 0. */
+    private final int[] segmentStart;
+    /** Domains blocked while the segment is active (shared between equal segments). */
+    private final List<Set<String>> segmentDomains;
+
+    private ScheduleTimeline(int[] segmentStart, List<Set<String>> segmentDomains) {
+        this.segmentStart   = segmentStart;
+        this.segmentDomains = segmentDomains;
+    }
+
+    /** @return the compiled timeline, or null if no policy has an enabled, valid schedule. */
+    static ScheduleTimeline compile(List<DnsSchedulePolicy> policies) {
+        if (policies == null || policies.isEmpty()) return null;
+
+        List<Set<String>> domainsByPolicy = new ArrayList<>();
+        List<int[]> windows = new ArrayList<>(); // { startMinute, endMinute, policyIndex }
+
+        for (DnsSchedulePolicy p : policies) {
+            if (p == null || p.domains == null || p.schedules == null) continue;
+            Set<String> domains = new HashSet<>();
+            for (String d : p.domains) {
+                String n = normalize(d);
+                if (!n.isEmpty()) domains.add(n);
+            }
+            if (domains.isEmpty()) continue;
+
+            int index = domainsByPolicy.size();
+            int before = windows.size();
+            for (AppRule.Schedule s : p.schedules) addWindows(s, index, windows);
+            if (windows.size() > before) domainsByPolicy.add(domains);
+        }
+        if (windows.isEmpty()) return null;
+
+        // Cut the week at every window edge
+        TreeSet<Integer> edges = new TreeSet<>();
+        edges.add(0);
+        for (int[] w : windows) {
+            edges.add(w[0]);
+            if (w[1] < MINUTES_PER_WEEK) edges.add(w[1]);
+        }
+
+        int[] starts = new int[edges.size()];
+        List<Set<String>> matchers = new ArrayList<>(edges.size());
+        Map<BitSet, Set<String>> compiled = new HashMap<>();
+
+        int i = 0;
+        for (int start : edges) {
+            BitSet active = new BitSet();
+            for (int[] w : windows) {
+                if (w[0] <= start && start < w[1]) active.set(w[2]);
+            }
+            Set<String> matcher = compiled.get(active);
+            if (matcher == null) {
+                if (active.isEmpty()) {
+                    matcher = NONE;
+                } else {
+                    Set<String> union = new HashSet<>();
+                    for (int p = active.nextSetBit(0); p >= 0; p = active.nextSetBit(p + 1)) {
+                        union.addAll(domainsByPolicy.get(p));
+                    }
+                    matcher = Collections.unmodifiableSet(union);
+                }
+                compiled.put(active, matcher);
+            }
+            starts[i++] = start;
+            matchers.add(matcher);
+        }
+        return new ScheduleTimeline(starts, matchers);
+    }
+
+    /** Index of the segment containing the given minute of the week. */
+    int segmentAt(int minuteOfWeek) {
+        int lo = 0, hi = segmentStart.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (segmentStart[mid] <= minuteOfWeek) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** First minute after the segment (the next transition), MINUTES_PER_WEEK for the last one. */
+    int segmentEnd(int segment) {
+        return segment + 1 < segmentStart.length ? segmentStart[segment + 1] : MINUTES_PER_WEEK;
+    }
+
+    Set<String> domainsAt(int segment) {
+        return segmentDomains.get(segment);
+    }
+
+    int segmentCount() {
+        return segmentStart.length;
+    }
+
+    // ── Helpers ───────────────────────────────────────────────────────────────
+
+    private static void addWindows(AppRule.Schedule s, int policy, List<int[]> out) {
+        if (s == null || !s.enabled || s.days == null) return;
+        int start = parseMinutes(s.startTime);
+        int end   = parseMinutes(s.endTime);
+        if (start < 0 || end < 0) return;
+
+        // Equal start/end means the whole day
+        int length = end > start ? end - start : end - start + MINUTES_PER_DAY;
+
+        for (Integer day : s.days) {
+            if (day == null || day < 0 || day > 6) continue;
+            int from = day * MINUTES_PER_DAY + start;
+            int to   = from + length;
+            if (to <= MINUTES_PER_WEEK) {
+                out.add(new int[]{ from, to, policy });
+            } else {
+                // Saturday night → Sunday morning wraps around the week
+                out.add(new int[]{ from, MINUTES_PER_WEEK, policy });
+                out.add(new int[]{ 0, to - MINUTES_PER_WEEK, policy });
+            }
+        }
+    }
+
+    /** "21:00" → 1260, or -1 if unparseable. */
+    private static int parseMinutes(String hhmm) {
+        if (hhmm == null) return -1;
+        int colon = hhmm.indexOf(':');
+        if (colon <= 0) return -1;
+        try {
+            int h = Integer.parseInt(hhmm.substring(0, colon).trim());
+            int m = Integer.parseInt(hhmm.substring(colon + 1).trim());
+            if (h < 0 || h > 23 || m < 0 || m > 59) return -1;
+            return h * 60 + m;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static String normalize(String domain) {
+        if (domain == null) return "";
+        String d = domain.toLowerCase().trim();
+        if (d.endsWith(".")) d = d.substring(0, d.length() - 1);
+        return d;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.g4parentalmonitor.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/** The adapters must read and write exactly what reflective Gson did for the same types. */
+public class RuleCodecsTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void appRules_writeWhatReflectiveGsonWrote() {
+        List<AppRule> rules = rules();
+        assertEquals(gson.toJson(rules), RuleCodecs.APP_RULES.toJson(rules));
+        assertEquals(gson.toJson(new ArrayList<AppRule>()), RuleCodecs.APP_RULES.toJson(new ArrayList<>()));
+    }
+
+    @Test
+    public void appRules_readWhatReflectiveGsonReads() {
+        String json = gson.toJson(rules());
+        List<AppRule> viaGson = gson.fromJson(json, new TypeToken<List<AppRule>>() {}.getType());
+        List<AppRule> viaCodec = RuleCodecs.decode(RuleCodecs.APP_RULES, json);
+        assertEquals(gson.toJson(viaGson), gson.toJson(viaCodec));
+    }
+
+    @Test
+    public void dnsPolicies_roundTripLikeGson() {
+        DnsSchedulePolicy p = new DnsSchedulePolicy();
+        p.name = "Bedtime";
+        p.domains = Arrays.asList("instagram.com", "tiktok.com");
+        p.schedules = Collections.singletonList(schedule(true, "21:00", "07:00", 0, 1, 2, 3, 4));
+        DnsSchedulePolicy empty = new DnsSchedulePolicy();
+        List<DnsSchedulePolicy> policies = Arrays.asList(p, empty);
+
+        String json = RuleCodecs.DNS_POLICIES.toJson(policies);
+        assertEquals(gson.toJson(policies), json);
+        assertEquals(json, gson.toJson(RuleCodecs.decode(RuleCodecs.DNS_POLICIES, json)));
+    }
+
+    /** What the server may add or null out: unknown fields are skipped, nulls keep defaults. */
+    @Test
+    public void unknownFieldsAndNulls_areHandledLikeGson() {
+        String json = "[{\"packageName\":\"com.game\",\"isLocked\":null,\"dailyLimit\":null,\"extra\":{\"a\":[1,2]},"
+                + "\"schedules\":[{\"enabled\":true,\"days\":null,\"color\":\"red\"}]},null]";
+        List<AppRule> viaGson = gson.fromJson(json, new TypeToken<List<AppRule>>() {}.getType());
+        List<AppRule> viaCodec = RuleCodecs.decode(RuleCodecs.APP_RULES, json);
+
+        assertEquals(gson.toJson(viaGson), gson.toJson(viaCodec));
+        AppRule r = viaCodec.get(0);
+        assertFalse(r.isLocked);
+        assertEquals(0, r.dailyLimit);
+        assertTrue(r.schedules.get(0).enabled);
+        assertNull(r.schedules.get(0).days);
+        assertNull(viaCodec.get(1));
+        assertNull(RuleCodecs.decode(RuleCodecs.APP_RULES, "null"));
+    }
+
+    @Test
+    public void stringLists_matchGson() {
+        List<String> blocked = Arrays.asList("com.a", "com.\"quoted\"", "ü");
+        String json = RuleCodecs.STRING_LIST.toJson(blocked);
+        assertEquals(gson.toJson(blocked), json);
+        assertEquals(blocked, RuleCodecs.decode(RuleCodecs.STRING_LIST, json));
+    }
+
+    @Test
+    public void malformedInput_throwsJsonParseException() {
+        for (String bad : new String[] {"[{\"dailyLimit\":\"soon\"}]", "{\"packageName\":1}", "[{"}) {
+            try {
+                RuleCodecs.decode(RuleCodecs.APP_RULES, bad);
+                fail("accepted " + bad);
+            } catch (JsonParseException expected) {
+                // what PrefsManager already catches around gson.fromJson
+            }
+        }
+    }
+
+    // ── Fixtures ──────────────────────────────────────────────────────────────
+
+    private static List<AppRule> rules() {
+        AppRule locked = new AppRule();
+        locked.packageName = "com.roblox.client";
+        locked.isLocked = true;
+        AppRule limited = new AppRule();
+        limited.packageName = "com.google.android.youtube";
+        limited.dailyLimit = 90;
+        limited.schedules = Arrays.asList(schedule(true, "21:00", "07:00", 0, 1, 2, 3, 4), schedule(false, null, null));
+        AppRule bare = new AppRule();
+        return Arrays.asList(locked, limited, bare);
+    }
+
+    private static AppRule.Schedule schedule(boolean enabled, String start, String end, Integer... days) {
+        AppRule.Schedule s = new AppRule.Schedule();
+        s.enabled = enabled;
+        s.startTime = start;
+        s.endTime = end;
+        s.days = days.length > 0 ? Arrays.asList(days) : null;
+        return s;
+    }
+}
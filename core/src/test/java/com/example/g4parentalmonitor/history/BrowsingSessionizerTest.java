@@ -0,0 +1,84 @@
+package com.example.g4parentalmonitor.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class BrowsingSessionizerTest {
+
+    private static final int VPN = CaptureRing.SOURCE_VPN;
+    private static final int A11Y = CaptureRing.SOURCE_ACCESSIBILITY;
+
+    @Test
+    public void registrableDomain_handlesUrlsSuffixesAndAliases() {
+        assertEquals("youtube.com", RegistrableDomain.of("https://m.youtube.com/watch?v=abc"));
+        assertEquals("youtube.com", RegistrableDomain.of("i.ytimg.com"));
+        assertEquals("bbc.co.uk",   RegistrableDomain.of("news.bbc.co.uk"));
+        assertEquals("example.com", RegistrableDomain.of("user@Example.COM:8080/path"));
+        assertEquals("wikipedia.org", RegistrableDomain.of("en.m.wikipedia.org."));
+        assertEquals("10.0.0.2",    RegistrableDomain.of("10.0.0.2"));
+        assertEquals("",            RegistrableDomain.of("https:///"));
+    }
+
+    @Test
+    public void pageLoad_collapsesIntoOneSessionAcrossSources() {
+        BrowsingSessionizer s = new BrowsingSessionizer();
+        // Journals are read one after the other, so the URL-bar hit comes first
+        s.accept("youtube.com/watch?v=1", 5_000, A11Y);
+        s.accept("www.youtube.com", 1_000, VPN);
+        s.accept("i.ytimg.com", 1_200, VPN);
+        s.accept("rr3---sn-4g5e6nsz.googlevideo.com", 2_000, VPN);
+        s.accept("fonts.gstatic.com", 2_100, VPN);
+        s.accept("www.youtube.com", 60_000, VPN);
+
+        List<BrowsingSessionizer.Session> out = s.finish();
+        BrowsingSessionizer.Session yt = out.get(0);
+        assertEquals("youtube.com", yt.domain);
+        assertEquals(1_000, yt.firstSeenMs);
+        assertEquals(60_000, yt.lastSeenMs);
+        assertEquals(5, yt.hits);
+        assertTrue(yt.seenBy(VPN) && yt.seenBy(A11Y));
+        assertEquals("youtube.com/watch?v=1", yt.url);
+        assertEquals(2, out.size()); // + gstatic.com
+    }
+
+    @Test
+    public void idleGap_splitsVisits_andLateHitsBridgeThem() {
+        BrowsingSessionizer s = new BrowsingSessionizer(10_000);
+        s.accept("reddit.com", 0, VPN);
+        s.accept("reddit.com", 30_000, VPN);
+        assertEquals(2, s.finish().size());
+
+        s.accept("reddit.com", 0, VPN);
+        s.accept("reddit.com", 18_000, VPN);
+        s.accept("i.redd.it", 9_000, VPN); // arrives late, within 10 s of both
+        List<BrowsingSessionizer.Session> out = s.finish();
+        assertEquals(1, out.size());
+        assertEquals(3, out.get(0).hits);
+    }
+
+    @Test
+    public void syntheticBrowsing_shrinksByAnOrderOfMagnitude() {
+        BrowsingSessionizer s = new BrowsingSessionizer();
+        String[] pageHosts = {"www.", "static.", "cdn.", "api.", "img.", "i.", "m.", "video."};
+        String[] sites = {"youtube.com", "reddit.com", "wikipedia.org", "bbc.co.uk", "github.com"};
+        long ts = 0;
+        for (int visit = 0; visit < 40; visit++) {
+            String site = sites[visit % sites.length];
+            for (int hit = 0; hit < 30; hit++) {
+                s.accept(pageHosts[hit % pageHosts.length] + site, ts, VPN);
+                ts += 2_000;
+            }
+            ts += 5 * 60_000; // idle before the next visit
+        }
+        int hits = s.hits();
+        int sessions = s.finish().size();
+        assertEquals(40, sessions);
+        assertTrue(hits >= 10 * sessions);
+    }
+}
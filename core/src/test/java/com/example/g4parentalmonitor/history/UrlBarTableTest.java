@@ -0,0 +1,117 @@
+package com.example.g4parentalmonitor.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.core.InMemoryKeyValueStore;
+import com.example.g4parentalmonitor.data.SignaturePack;
+import com.example.g4parentalmonitor.logic.Signatures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class UrlBarTableTest {
+
+    private long now = 1_000_000L;
+
+    private final Signatures original = Signatures.current();
+
+    @After
+    public void restoreSignatures() {
+        Signatures.install(original);
+    }
+
+    private static Signatures browsersPack() {
+        SignaturePack p = new SignaturePack();
+        p.format = Signatures.FORMAT;
+        p.urlBars = new HashMap<>();
+        p.urlBars.put("com.android.chrome", Arrays.asList("url_bar"));
+        p.urlBars.put("org.mozilla.firefox", Arrays.asList("url_bar_title", "mozac_browser_toolbar_url_view"));
+        p.urlBars.put("com.brave.browser", Arrays.asList("url_bar"));
+        return Signatures.compile(p);
+    }
+
+    @Test
+    public void knownBrowsers_mapToOneId() {
+        UrlBarTable t = new UrlBarTable(new InMemoryKeyValueStore(), () -> now);
+        assertTrue(t.isBrowser("com.android.chrome"));
+        assertEquals("com.android.chrome:id/url_bar", t.idFor("com.android.chrome"));
+        assertFalse(t.isBrowser("com.whatsapp"));
+        assertFalse(t.isBrowser(null));
+        assertNull(t.idFor("com.whatsapp"));
+    }
+
+    @Test
+    public void channelBuild_inheritsParentResourceName() {
+        UrlBarTable t = new UrlBarTable(new InMemoryKeyValueStore(), () -> now);
+        assertTrue(t.isBrowser("com.brave.browser.beta"));
+        assertEquals("com.brave.browser.beta:id/url_bar", t.idFor("com.brave.browser.beta"));
+        // Prefix without the dot boundary is someone else's app
+        assertFalse(t.isBrowser("com.android.chromecast"));
+    }
+
+    @Test
+    public void learnedId_isPersistedAndReloaded() {
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        UrlBarTable t = new UrlBarTable(store, () -> now);
+        String fenix = "org.mozilla.firefox:id/mozac_browser_toolbar_url_view";
+        assertTrue(t.candidatesFor("org.mozilla.firefox").contains(fenix));
+        assertFalse(t.candidatesFor("org.mozilla.firefox").contains("org.mozilla.firefox:id/url_bar_title"));
+
+        t.learn("org.mozilla.firefox", fenix);
+        assertEquals(fenix, t.idFor("org.mozilla.firefox"));
+        assertEquals(fenix, new UrlBarTable(store, () -> now).idFor("org.mozilla.firefox"));
+    }
+
+    @Test
+    public void relearn_isRateLimitedWithGrowingBackoff() {
+        UrlBarTable t = new UrlBarTable(new InMemoryKeyValueStore(), () -> now);
+        String pkg = "com.android.chrome";
+        assertTrue(t.shouldRelearn(pkg));
+        assertFalse(t.shouldRelearn(pkg));
+
+        now += UrlBarTable.RELEARN_BACKOFF_MS;
+        assertTrue(t.shouldRelearn(pkg));
+        now += UrlBarTable.RELEARN_BACKOFF_MS;
+        assertFalse("backoff doubled", t.shouldRelearn(pkg));
+        now += UrlBarTable.RELEARN_BACKOFF_MS;
+        assertTrue(t.shouldRelearn(pkg));
+
+        // A hit on the mapped ID resets the backoff
+        t.hit(pkg);
+        assertTrue(t.shouldRelearn(pkg));
+    }
+
+    @Test
+    public void newerPack_takesOverBrowsersItLists() {
+        Signatures.install(browsersPack());
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        UrlBarTable t = new UrlBarTable(store, () -> now);
+        t.learn("org.mozilla.firefox", "org.mozilla.firefox:id/search_box_text");
+        t.learn("com.android.chrome", "com.android.chrome:id/search_box_text");
+
+        SignaturePack p = new SignaturePack();
+        p.format = Signatures.FORMAT;
+        p.version = 3;
+        p.urlBars = new HashMap<>();
+        p.urlBars.put("org.mozilla.firefox", Arrays.asList("mozac_browser_toolbar_url_view"));
+        p.urlBars.put("com.kiwibrowser.browser", Arrays.asList("url_bar"));
+        Signatures.install(Signatures.compile(p));
+
+        // Listed by the pack: learned ID dropped. Not listed: learned ID survives.
+        assertEquals("org.mozilla.firefox:id/mozac_browser_toolbar_url_view", t.idFor("org.mozilla.firefox"));
+        assertEquals("com.android.chrome:id/search_box_text", t.idFor("com.android.chrome"));
+        assertTrue(t.isBrowser("com.kiwibrowser.browser"));
+        assertFalse(t.isBrowser("com.brave.browser"));
+
+        // Reconciled once: a restart on the same pack keeps what is learned after it
+        t.learn("org.mozilla.firefox", "org.mozilla.firefox:id/url_bar_title");
+        assertEquals("org.mozilla.firefox:id/url_bar_title",
+                new UrlBarTable(store, () -> now).idFor("org.mozilla.firefox"));
+    }
+}
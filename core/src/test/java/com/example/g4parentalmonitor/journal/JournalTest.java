@@ -0,0 +1,145 @@
+package com.example.g4parentalmonitor.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JournalTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static CaptureRing ringOf(int from, int to) {
+        CaptureRing ring = new CaptureRing(to - from + 1, CaptureRing.Overflow.DROP_OLDEST);
+        for (int i = from; i < to; i++) ring.offer("host" + i + ".example.com", i, CaptureRing.SOURCE_VPN);
+        return ring;
+    }
+
+    private static List<Long> readAll(JournalReader reader, int max, JournalReader.Position[] end) throws Exception {
+        List<Long> ts = new ArrayList<>();
+        end[0] = reader.read(max, (d, t, s) -> ts.add(t));
+        return ts;
+    }
+
+    @Test
+    public void unacknowledgedRecords_areReadAgain() throws Exception {
+        File dir = tmp.newFolder();
+        JournalWriter writer = new JournalWriter(dir);
+        writer.appendAll(ringOf(0, 10)::drain);
+
+        JournalReader reader = new JournalReader(dir);
+        JournalReader.Position[] end = new JournalReader.Position[1];
+        assertEquals(10, readAll(reader, 100, end).size());
+        // upload failed → no acknowledge
+        assertEquals(10, readAll(new JournalReader(dir), 100, end).size());
+
+        reader.acknowledge(end[0]);
+        assertTrue(readAll(new JournalReader(dir), 100, end).isEmpty());
+        assertNull(end[0]);
+        writer.close();
+    }
+
+    @Test
+    public void cursorSurvivesRestart_andBatchesResumeWhereTheyStopped() throws Exception {
+        File dir = tmp.newFolder();
+        try (JournalWriter writer = new JournalWriter(dir)) {
+            writer.appendAll(ringOf(0, 50)::drain);
+        }
+        JournalReader.Position[] end = new JournalReader.Position[1];
+        List<Long> first = readAll(new JournalReader(dir), 20, end);
+        new JournalReader(dir).acknowledge(end[0]);
+
+        List<Long> rest = readAll(new JournalReader(dir), 100, end);
+        assertEquals(20, first.size());
+        assertEquals(30, rest.size());
+        assertEquals(20L, (long) rest.get(0));
+    }
+
+    @Test
+    public void tornTail_isTruncatedOnRecovery() throws Exception {
+        File dir = tmp.newFolder();
+        try (JournalWriter writer = new JournalWriter(dir)) {
+            writer.appendAll(ringOf(0, 5)::drain);
+        }
+        File seg = JournalFormat.segmentFile(dir, 1);
+        long good = seg.length();
+        try (RandomAccessFile raf = new RandomAccessFile(seg, "rw")) {
+            raf.seek(good);
+            raf.write(new byte[]{0, 0, 0, 40, 1, 2, 3}); // killed mid-record
+        }
+
+        JournalReader.Position[] end = new JournalReader.Position[1];
+        assertEquals(5, readAll(new JournalReader(dir), 100, end).size());
+
+        try (JournalWriter writer = new JournalWriter(dir)) {
+            assertEquals(good, seg.length());
+            writer.appendAll(ringOf(5, 8)::drain);
+        }
+        assertEquals(8, readAll(new JournalReader(dir), 100, end).size());
+    }
+
+    @Test
+    public void segmentsRotate_andAreDeletedOnlyOnceAcknowledged() throws Exception {
+        File dir = tmp.newFolder();
+        int batches = 0;
+        try (JournalWriter writer = new JournalWriter(dir)) {
+            while (JournalFormat.listSegments(dir).length < 3) {
+                writer.appendAll(ringOf(batches * 1000, batches * 1000 + 1000)::drain);
+                batches++;
+            }
+        }
+        long[] before = JournalFormat.listSegments(dir);
+
+        JournalReader reader = new JournalReader(dir);
+        JournalReader.Position[] end = new JournalReader.Position[1];
+        List<Long> all = readAll(reader, Integer.MAX_VALUE, end);
+        assertEquals(batches * 1000, all.size());
+        assertEquals(before.length, JournalFormat.listSegments(dir).length);
+
+        reader.acknowledge(end[0]);
+        long[] after = JournalFormat.listSegments(dir);
+        assertEquals(1, after.length);
+        assertEquals(before[before.length - 1], after[0]);
+        assertNotNull(end[0]);
+    }
+
+    @Test
+    public void discardOldest_dropsSealedSegmentsButNeverTheActiveOne() throws Exception {
+        File dir = tmp.newFolder();
+        int batches = 0;
+        try (JournalWriter writer = new JournalWriter(dir)) {
+            while (JournalFormat.listSegments(dir).length < 3) {
+                writer.appendAll(ringOf(batches * 1000, batches * 1000 + 1000)::drain);
+                batches++;
+            }
+        }
+        long[] before = JournalFormat.listSegments(dir);
+        JournalReader reader = new JournalReader(dir);
+        long pending = reader.pendingBytes();
+
+        long freed = reader.discardOldest();
+        assertTrue(freed > 0);
+        assertEquals(pending - freed, reader.pendingBytes());
+        // The reader resumes at the next segment: what was discarded is never read
+        JournalReader.Position[] end = new JournalReader.Position[1];
+        List<Long> rest = readAll(new JournalReader(dir), Integer.MAX_VALUE, end);
+        assertTrue(rest.size() < batches * 1000);
+        assertTrue(rest.get(0) > 0);
+
+        while (reader.discardOldest() > 0) { }
+        long[] after = JournalFormat.listSegments(dir);
+        assertEquals(1, after.length);
+        assertEquals(before[before.length - 1], after[0]);
+    }
+}
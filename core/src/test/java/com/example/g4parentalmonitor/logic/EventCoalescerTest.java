@@ -0,0 +1,84 @@
+package com.example.g4parentalmonitor.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class EventCoalescerTest {
+
+    private static final String YT = "com.google.android.youtube";
+    private static final String CHROME = "com.android.chrome";
+
+    private final EventCoalescer c = new EventCoalescer(16, pkg -> pkg.equals(CHROME) ? 400 : 150);
+
+    @Test
+    public void scrollBurst_collapsesIntoOneInspection() {
+        long token = c.onEvent(YT, false, 1_000);
+        assertNotEquals(EventCoalescer.ABSORBED, token);
+        for (int t = 1_005; t < 1_150; t += 5) {
+            assertEquals(EventCoalescer.ABSORBED, c.onEvent(YT, false, t));
+        }
+        assertEquals(150, c.admit(YT, token, 1_000));
+        assertEquals(EventCoalescer.RUN, c.admit(YT, token, 1_150));
+
+        assertEquals(30, c.eventsIn());
+        assertEquals(1, c.processed());
+        // The next burst schedules a fresh run
+        assertNotEquals(EventCoalescer.ABSORBED, c.onEvent(YT, false, 1_200));
+    }
+
+    @Test
+    public void windowChange_runsImmediatelyAndSupersedesPendingRun() {
+        long debounced = c.onEvent(CHROME, false, 1_000);
+        long urgent = c.onEvent(CHROME, true, 1_010);
+        assertEquals(EventCoalescer.RUN, c.admit(CHROME, urgent, 1_010));
+        assertEquals(EventCoalescer.SKIP, c.admit(CHROME, debounced, 1_400));
+    }
+
+    @Test
+    public void switchToAnotherApp_makesPendingRunStale() {
+        long yt = c.onEvent(YT, false, 1_000);
+        long chrome = c.onEvent(CHROME, true, 1_050);
+        assertEquals(EventCoalescer.RUN, c.admit(CHROME, chrome, 1_050));
+        assertEquals(EventCoalescer.SKIP, c.admit(YT, yt, 1_150));
+        // ...and doesn't wedge the package: its next event schedules again
+        assertNotEquals(EventCoalescer.ABSORBED, c.onEvent(YT, false, 1_200));
+    }
+
+    @Test
+    public void inspections_areSpacedByFrameBudget() {
+        long a = c.onEvent(YT, true, 1_000);
+        long b = c.onEvent(CHROME, true, 1_004);
+        assertEquals(EventCoalescer.RUN, c.admit(CHROME, b, 1_004));
+        assertEquals(EventCoalescer.SKIP, c.admit(YT, a, 1_004));
+
+        long again = c.onEvent(CHROME, true, 1_010);
+        assertEquals(10, c.admit(CHROME, again, 1_010));
+        assertEquals(EventCoalescer.RUN, c.admit(CHROME, again, 1_020));
+    }
+
+    @Test
+    public void sentinels_areDistinct_andAbsorbedIsNoToken() {
+        assertNotEquals(EventCoalescer.ABSORBED, EventCoalescer.RUN);
+        assertNotEquals(EventCoalescer.ABSORBED, EventCoalescer.SKIP);
+        c.onEvent(YT, false, 1_000);
+        long absorbed = c.onEvent(YT, false, 1_010);
+        assertEquals(EventCoalescer.ABSORBED, absorbed);
+        try {
+            c.admit(YT, absorbed, 1_200);
+            fail("admitted an absorbed event");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void report_isRateLimited() {
+        c.onEvent(YT, false, 1_000);
+        String line = c.report(60_000, 60_000);
+        assertTrue(line, line.startsWith("events in=1 processed=0"));
+        assertEquals(null, c.report(61_000, 60_000));
+    }
+}
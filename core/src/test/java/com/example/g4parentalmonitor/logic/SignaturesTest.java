@@ -0,0 +1,61 @@
+package com.example.g4parentalmonitor.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.data.SignaturePack;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+public class SignaturesTest {
+
+    @Test
+    public void builtIn_coversShippedDetectors() {
+        Signatures s = Signatures.compile(Signatures.builtIn());
+        assertEquals(0, s.version);
+        assertTrue(s.isShortsPackage("com.zhiliaoapp.musically"));
+        assertTrue(s.shortsViewIds("com.google.android.youtube")
+                .contains("com.google.android.youtube:id/reel_recycler"));
+        assertNull(s.shortsViewIds("com.whatsapp"));
+        assertEquals("com.android.chrome:id/url_bar", s.urlBarIds("com.android.chrome").get(0));
+    }
+
+    @Test
+    public void compile_qualifiesBareNamesAndKeepsOrder() {
+        SignaturePack p = new SignaturePack();
+        p.format = Signatures.FORMAT;
+        p.version = 7;
+        p.shortsViews = new HashMap<>();
+        p.shortsViews.put("com.instagram.android", Arrays.asList("clips_viewer", "com.instagram.android:id/clips_tab"));
+        p.urlBars = new HashMap<>();
+        p.urlBars.put("org.mozilla.firefox", Arrays.asList("mozac_browser_toolbar_url_view", "url_bar_title"));
+
+        Signatures s = Signatures.compile(p);
+        assertEquals(7, s.version);
+        assertFalse(s.isShortsPackage("com.ss.android.ugc.trill"));
+        assertTrue(s.shortsViewIds("com.instagram.android").contains("com.instagram.android:id/clips_viewer"));
+        assertTrue(s.shortsViewIds("com.instagram.android").contains("com.instagram.android:id/clips_tab"));
+        assertEquals(Arrays.asList("org.mozilla.firefox:id/mozac_browser_toolbar_url_view",
+                "org.mozilla.firefox:id/url_bar_title"), s.urlBarIds("org.mozilla.firefox"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_rejectsUnknownFormat() {
+        SignaturePack p = Signatures.builtIn();
+        p.format = Signatures.FORMAT + 1;
+        Signatures.compile(p);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_rejectsMalformedPackage() {
+        SignaturePack p = Signatures.builtIn();
+        p.shortsViews.put("com.example:id/x", Collections.singletonList("y"));
+        Signatures.compile(p);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.g4parentalmonitor.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ViewTreeMatcherTest {
+
+    private static final class Node {
+        final String id;
+        final Node[] children;
+        Node(String id, Node... children) { this.id = id; this.children = children; }
+    }
+
+    /** Hands out nodes like AccessibilityNodeInfo.getChild and checks every one comes back. */
+    private static final class Counting implements ViewTreeMatcher.Nodes<Node> {
+        int fetched, released;
+        @Override public String viewId(Node n)         { return n.id; }
+        @Override public int childCount(Node n)        { return n.children.length; }
+        @Override public Node child(Node n, int i)     { fetched++; return n.children[i]; }
+        @Override public void release(Node n)          { released++; }
+    }
+
+    private static Node chain(int depth, String leafId) {
+        Node n = new Node(leafId);
+        for (int d = depth - 1; d >= 0; d--) n = new Node("layout_" + d, new Node("item_" + d), n);
+        return n;
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void findsDeepMatch_andReleasesEveryFetchedNode() {
+        Counting nodes = new Counting();
+        assertEquals("reel", ViewTreeMatcher.findFirst(chain(20, "reel"), ids("reel", "clips"), 64, 1000, nodes));
+        assertEquals(nodes.fetched, nodes.released);
+    }
+
+    @Test
+    public void stopsAtFirstMatch() {
+        Node root = new Node("root",
+                new Node("a", new Node("clips")),
+                new Node("b", new Node("reel"), new Node("c")));
+        Counting nodes = new Counting();
+        assertEquals("clips", ViewTreeMatcher.findFirst(root, ids("reel", "clips"), 64, 1000, nodes));
+        assertEquals(2, nodes.fetched);
+        assertEquals(2, nodes.released);
+    }
+
+    @Test
+    public void respectsDepthAndNodeBounds() {
+        Counting nodes = new Counting();
+        assertNull(ViewTreeMatcher.findFirst(chain(20, "reel"), ids("reel"), 10, 1000, nodes));
+        assertEquals(nodes.fetched, nodes.released);
+
+        nodes = new Counting();
+        assertNull(ViewTreeMatcher.findFirst(chain(20, "reel"), ids("reel"), 64, 15, nodes));
+        assertEquals(nodes.fetched, nodes.released);
+    }
+
+    @Test
+    public void rootMatch_andEmptySet_fetchNothing() {
+        Counting nodes = new Counting();
+        assertEquals("root", ViewTreeMatcher.findFirst(new Node("root", new Node("x")), ids("root"), 8, 8, nodes));
+        assertNull(ViewTreeMatcher.findFirst(chain(5, "reel"), Collections.<String>emptySet(), 8, 8, nodes));
+        assertEquals(0, nodes.fetched);
+    }
+
+    @Test
+    public void cancellation_stopsTheWalkAndReleasesTheStack() {
+        Counting nodes = new Counting();
+        assertNull(ViewTreeMatcher.findFirst(chain(200, "reel"), ids("reel"), 500, 5000, nodes,
+                () -> nodes.fetched >= 40));
+        assertTrue("stopped within one check interval", nodes.fetched < 40 + 32);
+        assertEquals(nodes.fetched, nodes.released);
+    }
+}
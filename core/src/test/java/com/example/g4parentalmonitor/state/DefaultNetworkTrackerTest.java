@@ -0,0 +1,33 @@
+package com.example.g4parentalmonitor.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DefaultNetworkTrackerTest {
+
+    @Test
+    public void handover_doesNotFlapOffline() {
+        DefaultNetworkTracker<String> t = new DefaultNetworkTracker<>();
+        assertTrue(t.seed("wifi", true));
+
+        // Default moves to mobile; Wi-Fi's onLost arrives afterwards
+        assertEquals(Boolean.TRUE, t.onCapabilitiesChanged("cell", true));
+        assertNull(t.onLost("wifi"));
+
+        assertNull("same network, same capability", t.onCapabilitiesChanged("cell", true));
+        assertEquals(Boolean.FALSE, t.onLost("cell"));
+        assertEquals("back online", Boolean.TRUE, t.onCapabilitiesChanged("cell", true));
+    }
+
+    @Test
+    public void seedWithoutNetwork_isOffline() {
+        DefaultNetworkTracker<String> t = new DefaultNetworkTracker<>();
+        assertFalse(t.seed(null, true));
+        assertEquals(Boolean.TRUE, t.onCapabilitiesChanged("wifi", true));
+        assertEquals(Boolean.FALSE, t.onCapabilitiesChanged("wifi", false));
+    }
+}
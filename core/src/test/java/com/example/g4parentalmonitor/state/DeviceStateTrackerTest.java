@@ -0,0 +1,125 @@
+package com.example.g4parentalmonitor.state;
+
+import static com.example.g4parentalmonitor.state.DeviceStateTracker.Transition.LOCKED;
+import static com.example.g4parentalmonitor.state.DeviceStateTracker.Transition.UNLOCKED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+public class DeviceStateTrackerTest {
+
+    @Test
+    public void callbacks_mapOntoTheBus() {
+        StateBus<DeviceState> bus = new StateBus<>(DeviceState.UNKNOWN);
+        AtomicInteger networkChanges = new AtomicInteger();
+        DeviceStateTracker<String> t = new DeviceStateTracker<>(bus, networkChanges::incrementAndGet);
+
+        assertNull(t.seed("wifi", true, true));
+        assertEquals(new DeviceState(true, true), bus.get());
+
+        // Handover: mobile arrives before Wi-Fi's onLost, which then changes nothing
+        assertNull(t.onCapabilitiesChanged("cell", true));
+        assertNull(t.onLost("wifi"));
+        assertEquals(1, networkChanges.get());
+
+        assertEquals(LOCKED, t.onLost("cell"));
+        assertEquals(new DeviceState(false, true), bus.get());
+        assertNull("still locked", t.onLocationChanged(false));
+        assertNull(t.onCapabilitiesChanged("wifi", true));
+        assertEquals(UNLOCKED, t.onLocationChanged(true));
+        assertEquals(3, networkChanges.get());
+    }
+
+    @Test
+    public void seedWithLocationOff_locks() {
+        StateBus<DeviceState> bus = new StateBus<>(DeviceState.UNKNOWN);
+        DeviceStateTracker<String> t = new DeviceStateTracker<>(bus, () -> {});
+        assertEquals(LOCKED, t.seed("wifi", true, false));
+        assertEquals(UNLOCKED, t.onLocationChanged(true));
+    }
+
+    /**
+     * The network callback and the location receiver run on different threads. Each
+     * reported transition must be the one its own update caused, so locks minus
+     * unlocks matches the final state.
+     */
+    @Test
+    public void racingCallbacks_reportEachTransitionOnce() throws Exception {
+        StateBus<DeviceState> bus = new StateBus<>(DeviceState.UNKNOWN);
+        DeviceStateTracker<String> t = new DeviceStateTracker<>(bus, () -> {});
+        t.seed("wifi", true, true);
+        AtomicInteger balance = new AtomicInteger();
+
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        CountDownLatch go = new CountDownLatch(1);
+        threads.execute(() -> {
+            await(go);
+            for (int i = 0; i < 20_000; i++) {
+                count(i % 2 == 0 ? t.onLost("wifi") : t.onCapabilitiesChanged("wifi", true), balance);
+            }
+        });
+        threads.execute(() -> {
+            await(go);
+            for (int i = 0; i < 20_000; i++) count(t.onLocationChanged(i % 2 == 1), balance);
+        });
+        go.countDown();
+        threads.shutdown();
+        threads.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(bus.get().isRestricted() ? 1 : 0, balance.get());
+    }
+
+    /**
+     * Connectivity callbacks arrive on their own thread; the lock is applied on a
+     * single "main" thread the observer posts to, as LiveGuardianService does. Every
+     * toggle locks and unlocks without waiting for a poll.
+     */
+    @Test
+    public void connectivityToggle_locksAndUnlocks() throws Exception {
+        StateBus<DeviceState> bus = new StateBus<>(DeviceState.UNKNOWN);
+        DeviceStateTracker<String> tracker = new DeviceStateTracker<>(bus, () -> {});
+        tracker.seed("wifi", true, true);
+
+        ExecutorService main = Executors.newSingleThreadExecutor();
+        AtomicBoolean locked = new AtomicBoolean();
+        bus.observe(s -> main.execute(() -> locked.set(bus.get().isRestricted())));
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(LOCKED, tracker.onLost("wifi"));
+            waitFor(locked::get);
+            assertEquals(UNLOCKED, tracker.onCapabilitiesChanged("wifi", true));
+            waitFor(() -> !locked.get());
+        }
+        main.shutdown();
+        main.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    private static void count(DeviceStateTracker.Transition tr, AtomicInteger balance) {
+        if (tr != null) balance.addAndGet(tr == LOCKED ? 1 : -1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("timed out");
+            Thread.sleep(0, 50_000);
+        }
+    }
+}
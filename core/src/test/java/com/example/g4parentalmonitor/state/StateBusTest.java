@@ -0,0 +1,53 @@
+package com.example.g4parentalmonitor.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StateBusTest {
+
+    @Test
+    public void observer_getsCurrentValueThenEachChange() {
+        StateBus<DeviceState> bus = new StateBus<>(DeviceState.UNKNOWN);
+        List<DeviceState> seen = new ArrayList<>();
+        StateBus.Subscription sub = bus.observe(seen::add);
+
+        assertTrue(bus.update(s -> s.withNetwork(false)));
+        assertFalse("no-op update is not delivered", bus.update(s -> s.withNetwork(false)));
+        assertTrue(bus.update(s -> s.withLocation(false)));
+
+        assertEquals(3, seen.size());
+        assertFalse(seen.get(0).isRestricted());
+        assertTrue(seen.get(1).isRestricted());
+        assertEquals(new DeviceState(false, false), seen.get(2));
+
+        sub.cancel();
+        bus.update(s -> DeviceState.UNKNOWN);
+        assertEquals(3, seen.size());
+        assertFalse(bus.get().isRestricted());
+    }
+
+    @Test
+    public void updates_fromManyThreadsArriveInOrder() throws Exception {
+        StateBus<Integer> bus = new StateBus<>(0);
+        List<Integer> seen = new ArrayList<>();
+        bus.observe(seen::add);
+
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) bus.update(v -> v + 1);
+            });
+            writers[t].start();
+        }
+        for (Thread w : writers) w.join();
+
+        assertEquals(4001, seen.size());
+        for (int i = 0; i < seen.size(); i++) assertEquals(i, (int) seen.get(i));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BackoffTest {
+
+    @Test
+    public void delays_doubleWithinJitterBand_upToMax() {
+        Backoff b = new Backoff(1_000, 16_000, new Random(42));
+        long[] ceilings = {1_000, 2_000, 4_000, 8_000, 16_000, 16_000, 16_000};
+        for (long d : ceilings) {
+            long delay = b.failure();
+            assertTrue(delay + " for " + d, delay >= d / 2 && delay <= d);
+        }
+        assertEquals(ceilings.length, b.failures());
+        for (int i = 0; i < 100; i++) assertTrue(b.failure() <= 16_000);   // no overflow
+    }
+
+    @Test
+    public void success_resets() {
+        Backoff b = new Backoff(1_000, 60_000, new Random(1));
+        b.failure();
+        b.failure();
+        b.failure();
+        b.success();
+        assertEquals(0, b.failures());
+        assertTrue(b.failure() <= 1_000);
+    }
+
+    @Test
+    public void jitter_spreadsDevicesThatFailedTogether() {
+        long min = Long.MAX_VALUE, max = 0;
+        for (int device = 0; device < 200; device++) {
+            Backoff b = new Backoff(1_000, 60_000, new Random(device));
+            for (int i = 0; i < 4; i++) b.failure();
+            long d = b.failure();
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+        }
+        assertTrue("spread " + min + ".." + max, max - min > 4_000);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough of a CBOR + stringref decoder to check what CborWriter produced:
+ * definite and indefinite maps and arrays, ints, floats, text, simple values.
+ * Maps come back as LinkedHashMaps, integers as Longs, floats as Doubles.
+ */
+final class CborDecoder {
+
+    private static final Object BREAK = new Object();
+
+    private final ByteBuffer in;
+    private List<String> table;
+
+    private CborDecoder(byte[] b) {
+        in = ByteBuffer.wrap(b);
+    }
+
+    static Object decode(byte[] b) {
+        CborDecoder d = new CborDecoder(b);
+        Object v = d.item();
+        assertEquals("trailing bytes", 0, d.in.remaining());
+        return v;
+    }
+
+    private long arg(int info) {
+        if (info < 24) return info;
+        if (info == 24) return in.get() & 0xff;
+        if (info == 25) return in.getShort() & 0xffff;
+        if (info == 26) return in.getInt() & 0xffffffffL;
+        if (info == 27) return in.getLong();
+        throw new AssertionError("bad additional info " + info);
+    }
+
+    private Object item() {
+        int b = in.get() & 0xff;
+        int major = b >>> 5, info = b & 31;
+        switch (major) {
+            case 0: return arg(info);
+            case 1: return -1 - arg(info);
+            case 3: {
+                byte[] s = new byte[(int) arg(info)];
+                in.get(s);
+                String str = new String(s, StandardCharsets.UTF_8);
+                if (table != null && s.length >= minRef(table.size())) table.add(str);
+                return str;
+            }
+            case 4: {
+                List<Object> l = new ArrayList<>();
+                if (info == 31) {
+                    for (Object o = item(); o != BREAK; o = item()) l.add(o);
+                } else {
+                    for (long n = arg(info); n > 0; n--) l.add(item());
+                }
+                return l;
+            }
+            case 5: {
+                Map<String, Object> m = new LinkedHashMap<>();
+                if (info == 31) {
+                    for (Object k = item(); k != BREAK; k = item()) m.put((String) k, item());
+                } else {
+                    for (long n = arg(info); n > 0; n--) m.put((String) item(), item());
+                }
+                return m;
+            }
+            case 6: {
+                long tag = arg(info);
+                if (tag == 256) {
+                    table = new ArrayList<>();
+                    return item();
+                }
+                assertEquals(25, tag);
+                return table.get((int) (long) (Long) item());
+            }
+            default:
+                if (b == 0xf4) return false;
+                if (b == 0xf5) return true;
+                if (b == 0xf6) return null;
+                if (b == 0xfa) return (double) in.getFloat();
+                if (b == 0xfb) return in.getDouble();
+                if (b == 0xff) return BREAK;
+                throw new AssertionError("unexpected 0x" + Integer.toHexString(b));
+        }
+    }
+
+    private static int minRef(int n) {
+        return n < 24 ? 3 : n < 256 ? 4 : n < 65536 ? 5 : 7;
+    }
+}
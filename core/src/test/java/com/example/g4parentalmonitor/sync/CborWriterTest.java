@@ -0,0 +1,179 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+public class CborWriterTest {
+
+    private static byte[] bytes(int... b) {
+        byte[] out = new byte[b.length];
+        for (int i = 0; i < b.length; i++) out[i] = (byte) b[i];
+        return out;
+    }
+
+    @Test
+    public void rfc8949Vectors() {
+        assertArrayEquals(bytes(0x17), new CborWriter(false).integer(23).toByteArray());
+        assertArrayEquals(bytes(0x19, 0x03, 0xe8), new CborWriter(false).integer(1000).toByteArray());
+        assertArrayEquals(bytes(0x1b, 0, 0, 0, 0xe8, 0xd4, 0xa5, 0x10, 0), new CborWriter(false).integer(1_000_000_000_000L).toByteArray());
+        assertArrayEquals(bytes(0x38, 0x63), new CborWriter(false).integer(-100).toByteArray());
+        assertArrayEquals(bytes(0xfa, 0x47, 0xc3, 0x50, 0x40), new CborWriter(false).decimal(100000.5).toByteArray());
+        assertArrayEquals(bytes(0xfb, 0x3f, 0xf1, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9a), new CborWriter(false).decimal(1.1).toByteArray());
+        assertArrayEquals(bytes(0x62, 0xc3, 0xbc), new CborWriter(false).string("ü").toByteArray());
+        assertArrayEquals(bytes(0xa2, 0x61, 0x61, 0x01, 0x61, 0x62, 0x82, 0x02, 0x03),
+                new CborWriter(false).value(map("a", 1, "b", Arrays.asList(2, 3))).toByteArray());
+        assertArrayEquals(bytes(0x83, 0xf5, 0xf4, 0xf6),
+                new CborWriter(false).value(Arrays.asList(true, false, null)).toByteArray());
+    }
+
+    @Test
+    public void indefiniteLengths_closeWithBreak() {
+        // RFC 8949 appendix A: {_ "a": 1, "b": [_ 2, 3]}
+        byte[] out = new CborWriter(false).startMap().string("a").integer(1)
+                .string("b").startArray().integer(2).integer(3).end().end().toByteArray();
+        assertArrayEquals(bytes(0xbf, 0x61, 0x61, 0x01, 0x61, 0x62, 0x9f, 0x02, 0x03, 0xff, 0xff), out);
+        assertEquals(map("a", 1, "b", Arrays.asList(2L, 3L)), CborDecoder.decode(out));
+    }
+
+    /** The example from the stringref spec: short strings stay inline, the table's thresholds grow. */
+    @Test
+    public void stringRefs_followTheExtensionThresholds() {
+        List<String> in = new ArrayList<>(Arrays.asList("1", "222", "333", "4", "555", "666", "777", "888", "999",
+                "aaa", "bbb", "ccc", "ddd", "eee", "fff", "ggg", "hhh", "iii", "jjj", "kkk", "lll", "mmm", "nnn",
+                "ooo", "ppp", "qqq", "rrr", "333", "ssss", "qqq", "rrr", "ssss"));
+        byte[] out = new CborWriter(true).value(in).toByteArray();
+
+        assertArrayEquals(bytes(0xd9, 0x01, 0x00, 0x98, 0x20, 0x61, '1'), Arrays.copyOf(out, 7));
+        assertArrayEquals(bytes(
+                0xd8, 0x19, 0x01,               // "333" → ref 1
+                0x64, 's', 's', 's', 's',       // table holds 24: needs 4 bytes now, becomes ref 24
+                0xd8, 0x19, 0x17,               // "qqq" → ref 23
+                0x63, 'r', 'r', 'r',            // "rrr" was too short for slot 24
+                0xd8, 0x19, 0x18, 0x18),        // "ssss" → ref 24
+                Arrays.copyOfRange(out, out.length - 19, out.length));
+        assertEquals(in, CborDecoder.decode(out));
+    }
+
+    @Test
+    public void uploadTree_roundTrips() {
+        Map<String, Object> payload = payload(new Random(5));
+        assertEquals(payload, CborDecoder.decode(new CborWriter(true).value(payload).toByteArray()));
+        assertEquals(payload, CborDecoder.decode(new CborWriter(false).value(payload).toByteArray()));
+    }
+
+    /** Writing through to a stream, past its buffer and with a string longer than it, gives the same bytes. */
+    @Test
+    public void streamed_matchesCollected() throws IOException {
+        Map<String, Object> payload = payload(new Random(5));
+        char[] note = new char[20_000];
+        Arrays.fill(note, 'n');
+        payload.put("note", new String(note));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CborWriter streamed = new CborWriter(true, out).value(payload);
+        streamed.flush();
+        byte[] collected = new CborWriter(true).value(payload).toByteArray();
+        assertArrayEquals(collected, out.toByteArray());
+        assertEquals(collected.length, streamed.size());
+    }
+
+    /**
+     * Bytes of one busy /sync body: 40 location fixes, a full snapshot of 40 apps, 400
+     * browsing sessions over 60 domains plus the legacy "url|ts|source" list.
+     */
+    @Test
+    public void payloadSize_againstJson() throws IOException {
+        Map<String, Object> payload = payload(new Random(5));
+        byte[] json = json(payload).getBytes(StandardCharsets.UTF_8);
+        byte[] cbor = new CborWriter(true).value(payload).toByteArray();
+        Map<?, ?> history = (Map<?, ?>) payload.get("browserHistory");
+        ((Map<?, ?>) history).remove("history");
+        byte[] cborNoLegacy = new CborWriter(true).value(payload).toByteArray();
+
+        // gzip already folds repeated strings, so on the wire the win is dropping the legacy list
+        assertTrue(cbor.length * 10 < json.length * 7);
+        assertTrue(gzip(cbor) <= gzip(json));
+        assertTrue(gzip(cborNoLegacy) * 10 < gzip(json) * 8);
+    }
+
+    // ── Fixtures ──────────────────────────────────────────────────────────────
+
+    private static Map<String, Object> payload(Random rnd) {
+        List<Object> locations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            locations.add(map("latitude", 52.5 + rnd.nextDouble() / 100, "longitude", 13.4 + rnd.nextDouble() / 100,
+                    "batteryLevel", (long) (80 - i / 4), "timestamp", 1760860800000L + i * 45_000L));
+        }
+        List<Object> apps = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            long ms = rnd.nextInt(3_600_000);
+            apps.add(map("packageName", "com.vendor" + i + ".app" + i, "appName", "App " + i,
+                    "minutes", (ms + 30_000) / 60_000, "seconds", ms / 1000, "totalMs", ms));
+        }
+        List<Object> sessions = new ArrayList<>();
+        List<Object> legacy = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String domain = "www.site" + (int) Math.abs(rnd.nextGaussian() * 15) % 60 + ".example.com";
+            long start = 1760860800000L + i * 9_000L;
+            sessions.add(map("domain", domain, "start", start, "end", start + rnd.nextInt(60_000),
+                    "hits", (long) (1 + rnd.nextInt(30)), "sources", Arrays.asList("vpn")));
+            legacy.add(domain + "|" + start + "|vpn");
+        }
+        return map("deviceId", "6710f2c3a9b8e4d1c2f3a4b5", "location", locations,
+                "apps", map("day", 20261019L, "version", 42L, "full", true, "apps", apps),
+                "browserHistory", map("history", legacy, "sessions", sessions));
+    }
+
+    private static Map<String, Object> map(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            Object v = kv[i + 1];
+            m.put((String) kv[i], v instanceof Integer ? Long.valueOf((Integer) v) : v);
+        }
+        return m;
+    }
+
+    private static int gzip(byte[] b) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(b);
+        }
+        return out.size();
+    }
+
+    /** Compact JSON, as Gson writes it. */
+    private static String json(Object v) {
+        if (v instanceof Map) {
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append('"').append(e.getKey()).append("\":").append(json(e.getValue()));
+            }
+            return sb.append('}').toString();
+        }
+        if (v instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            for (Object o : (List<?>) v) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(json(o));
+            }
+            return sb.append(']').toString();
+        }
+        if (v instanceof String) return "\"" + v + "\"";
+        return String.valueOf(v);
+    }
+}
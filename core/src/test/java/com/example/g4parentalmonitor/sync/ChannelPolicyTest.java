@@ -0,0 +1,71 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ChannelPolicyTest {
+
+    private static final long STABLE = 120_000;
+    private static final long FALLBACK = 30 * 60_000L;
+
+    private static ChannelPolicy policy() {
+        return new ChannelPolicy(new Backoff(1_000, 60_000, new Random(1)), STABLE, 3, FALLBACK);
+    }
+
+    @Test
+    public void failedConnects_backOff_thenPark() {
+        ChannelPolicy p = policy();
+        long first = p.onClosed(0);
+        long second = p.onClosed(first);
+        assertTrue(first <= 1_000 && second > 1_000 && second <= 2_000);
+        assertFalse(p.inFallback(first + second));
+
+        assertEquals("third flap parks the channel", FALLBACK, p.onClosed(10_000));
+        assertTrue(p.inFallback(10_000 + FALLBACK - 1));
+        assertFalse(p.inFallback(10_000 + FALLBACK));
+        assertTrue("backoff starts over after the fallback", p.onClosed(10_000 + FALLBACK) <= 1_000);
+    }
+
+    @Test
+    public void stableSession_resetsFlaps_shortOneDoesNot() {
+        ChannelPolicy p = policy();
+        p.onClosed(0);
+        p.onClosed(1_000);
+        assertEquals(2, p.flaps());
+
+        p.onOpen(5_000);
+        assertTrue(p.onClosed(5_000 + STABLE) <= 1_000);
+        assertEquals(0, p.flaps());
+
+        p.onOpen(200_000);
+        p.onClosed(200_000 + STABLE - 1);
+        assertEquals(1, p.flaps());
+    }
+
+    @Test
+    public void closingOnPurpose_isNotAFlap() {
+        ChannelPolicy p = policy();
+        for (int i = 0; i < 10; i++) {
+            p.onOpen(i * 1_000);
+            p.onStopped();
+        }
+        assertEquals(0, p.flaps());
+        assertFalse(p.inFallback(20_000));
+    }
+
+    @Test
+    public void negativeMonotonicTimes_work() {
+        ChannelPolicy p = policy();
+        long t = -5_000_000_000L;
+        assertFalse(p.inFallback(t));
+        p.onClosed(t);
+        p.onClosed(t);
+        p.onClosed(t);
+        assertTrue(p.inFallback(t + 1));
+    }
+}
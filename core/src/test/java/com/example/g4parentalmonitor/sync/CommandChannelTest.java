@@ -0,0 +1,375 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.SocketFactory;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommandChannelTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final StandInServer stand = new StandInServer();
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(stand);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    /** Records the device's side of things: commands, open/close transitions. */
+    private static final class Recorder implements CommandChannel.Listener {
+        final BlockingQueue<PushCommand> commands = new LinkedBlockingQueue<>();
+        final BlockingQueue<Boolean> states = new LinkedBlockingQueue<>();
+        @Override public void onCommand(PushCommand command)  { commands.add(command); }
+        @Override public void onStateChanged(boolean open)    { states.add(open); }
+    }
+
+    private CommandChannel channel(OkHttpClient client, Recorder r, long backoffMs) {
+        String url = server.url("/api/channel?deviceId=dev").toString();
+        ChannelPolicy policy = new ChannelPolicy(new Backoff(backoffMs, backoffMs * 4, new Random(3)), 60_000, 3, 60_000);
+        return new CommandChannel(client, url, policy, 60_000, r);
+    }
+
+    @Test
+    public void commandsArrive_framesGoUp_unknownOnesIgnored() throws Exception {
+        Recorder r = new Recorder();
+        CommandChannel ch = channel(new OkHttpClient(), r, 50);
+        ch.start();
+        assertEquals(Boolean.TRUE, r.states.poll(5, TimeUnit.SECONDS));
+
+        WebSocket peer = stand.peers.poll(5, TimeUnit.SECONDS);
+        peer.send("cmd EXPLODE");
+        peer.send("hello");
+        peer.send("cmd sync_rules");
+        assertEquals(PushCommand.SYNC_RULES, r.commands.poll(5, TimeUnit.SECONDS));
+        assertTrue(r.commands.isEmpty());
+
+        assertTrue(ch.send(CommandChannel.frame("loc", 52.52, 13.4, 81, 1760860800000L)));
+        assertEquals("loc 52.52 13.4 81 1760860800000", stand.frames.poll(5, TimeUnit.SECONDS));
+        assertTrue(ch.send("state ü"));
+        assertEquals("state ü", stand.frames.poll(5, TimeUnit.SECONDS));
+        assertTrue("UTF-8 bytes, not chars: " + ch.report(), ch.report().endsWith("framesOut=2 bytesOut=39"));
+        ch.shutdown();
+        assertEquals(Boolean.FALSE, r.states.poll(5, TimeUnit.SECONDS));
+        assertFalse(ch.send("state net=1"));
+    }
+
+    @Test
+    public void reconnects_afterServerDrop_andHoldsOffWhilePaused() throws Exception {
+        Recorder r = new Recorder();
+        CommandChannel ch = channel(new OkHttpClient(), r, 50);
+        ch.start();
+        assertEquals(Boolean.TRUE, r.states.poll(5, TimeUnit.SECONDS));
+
+        stand.peers.poll(5, TimeUnit.SECONDS).close(1001, "server restart");
+        assertEquals(Boolean.FALSE, r.states.poll(5, TimeUnit.SECONDS));
+        assertEquals("reconnected on its own", Boolean.TRUE, r.states.poll(5, TimeUnit.SECONDS));
+
+        ch.pause("doze");
+        assertEquals(Boolean.FALSE, r.states.poll(5, TimeUnit.SECONDS));
+        assertEquals(null, r.states.poll(300, TimeUnit.MILLISECONDS));
+        assertFalse(ch.isOpen());
+
+        ch.resume();
+        assertEquals(Boolean.TRUE, r.states.poll(5, TimeUnit.SECONDS));
+        assertTrue(ch.report(), ch.report().startsWith("open connects=3"));
+        ch.shutdown();
+    }
+
+    @Test
+    public void serverWithoutChannel_fallsBackToPolling() throws Exception {
+        stand.channelAvailable = false;
+        Recorder r = new Recorder();
+        CommandChannel ch = channel(new OkHttpClient(), r, 10);
+        ch.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!ch.report().startsWith("fallback") && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertTrue("parked after 3 failed upgrades: " + ch.report(), ch.report().startsWith("fallback"));
+        assertEquals(3, stand.upgradeAttempts.get());
+        assertTrue(r.states.isEmpty());
+        ch.shutdown();
+    }
+
+    /**
+     * One simulated hour against the stand-in server, counting every byte and socket the
+     * device opens. Same data both ways: 80 location fixes (one per 45 s), an app usage
+     * delta every 2 minutes, 6 parent-side settings changes, the 15-minute signature check.
+     *
+     *   polling   upload tick 30 s, settings poll 10 s, rules poll 60 s
+     *   channel   upload tick 5 min, settings/rules at the 30 min safety interval,
+     *             changes pushed as commands, location also streamed live as frames
+     *
+     * Pings (60 per hour at 60 s, 6 B out + 2 B pong each) can't run in real time here
+     * and are added to the channel's bytes. TLS and TCP overhead are not counted.
+     */
+    @Test
+    public void oneHour_channelVersusPolling() throws Exception {
+        Counting polling = new Counting();
+        Sim p = new Sim(client(polling, "poll"));
+        for (int t = 0; t < 3600; t += 10) {
+            if (t % 600 == 0) stand.settingsVersion.incrementAndGet();    // parent edits
+            tickData(p, t);
+            p.get("/api/settings/dev");
+            if (t % 60 == 0) p.get("/api/rules/blocked/dev");
+            if (t % 900 == 0) p.get("/api/signatures");
+            if (t % 30 == 0) p.upload();
+        }
+        long pollRequests = stand.requests.getAndSet(0);
+
+        Counting live = new Counting();
+        OkHttpClient liveClient = client(live, "live");
+        Sim c = new Sim(liveClient);
+        Recorder r = new Recorder();
+        CommandChannel ch = channel(liveClient, r, 50);
+        ch.start();
+        assertEquals(Boolean.TRUE, r.states.poll(5, TimeUnit.SECONDS));
+        WebSocket peer = stand.peers.poll(5, TimeUnit.SECONDS);
+        ch.send("state net=1 loc=1");
+        int frames = 1;
+        for (int t = 0; t < 3600; t += 10) {
+            if (t % 600 == 0) {
+                stand.settingsVersion.incrementAndGet();
+                peer.send("cmd SYNC_SETTINGS");
+                assertEquals(PushCommand.SYNC_SETTINGS, r.commands.poll(5, TimeUnit.SECONDS));
+                c.get("/api/settings/dev");
+            }
+            if (tickData(c, t)) {
+                ch.send(CommandChannel.frame("loc", 52.520008, 13.404954, 81, 1760860800000L + t * 1000L));
+                frames++;
+            }
+            if (t % 1800 == 0) {
+                c.get("/api/settings/dev");
+                c.get("/api/rules/blocked/dev");
+            }
+            if (t % 900 == 0) c.get("/api/signatures");
+            if (t % 300 == 0) c.upload();
+        }
+        c.upload();
+        for (int i = 0; i < frames; i++) assertNotNull(stand.frames.poll(5, TimeUnit.SECONDS));
+        ch.shutdown();
+        long liveRequests = stand.requests.get() - 1;   // the upgrade
+        long pings = 60 * (6 + 2);
+
+        long pollBytes = polling.total(), liveBytes = live.total() + pings;
+
+        assertTrue(liveRequests * 10 < pollRequests);
+        assertTrue(liveBytes * 3 < pollBytes);
+        assertEquals("one pooled HTTP connection + the channel", 2, live.sockets.get());
+    }
+
+    // ── Simulation ────────────────────────────────────────────────────────────
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final CacheControl REVALIDATE = new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build();
+
+    /** The device's HTTP side, as SyncService drives it: conditional GETs and an outbox. */
+    private final class Sim {
+        final OkHttpClient client;
+        final StringBuilder queued = new StringBuilder();
+
+        Sim(OkHttpClient client) { this.client = client; }
+
+        void get(String path) throws IOException {
+            Request req = new Request.Builder().url(server.url(path)).cacheControl(REVALIDATE).build();
+            try (Response res = client.newCall(req).execute()) {
+                assertTrue(res.isSuccessful());
+                res.body().string();
+            }
+        }
+
+        /** Like OutboxUploader.upload: nothing queued, no request. */
+        void upload() throws IOException {
+            if (queued.length() == 0) return;
+            String body = "{\"deviceId\":\"dev\",\"items\":[" + queued + "]}";
+            queued.setLength(0);
+            Request req = new Request.Builder().url(server.url("/api/sync")).post(RequestBody.create(body, JSON)).build();
+            try (Response res = client.newCall(req).execute()) {
+                assertTrue(res.isSuccessful());
+                res.body().string();
+            }
+        }
+
+        void queue(String json) {
+            if (queued.length() > 0) queued.append(',');
+            queued.append(json);
+        }
+    }
+
+    /** Queues the data produced at second {@code t}; returns true if it was a location fix. */
+    private static boolean tickData(Sim sim, int t) {
+        if (t % 120 == 0) sim.queue("{\"version\":" + t + ",\"base\":" + (t - 120)
+                + ",\"full\":false,\"apps\":[{\"packageName\":\"com.google.android.youtube\",\"totalMs\":" + t * 400 + "}]}");
+        if (t % 45 < 10) {
+            sim.queue("{\"latitude\":52.520008,\"longitude\":13.404954,\"batteryLevel\":81,\"timestamp\":"
+                    + (1760860800000L + t * 1000L) + "}");
+            return true;
+        }
+        return false;
+    }
+
+    private OkHttpClient client(Counting counting, String cacheName) throws IOException {
+        return new OkHttpClient.Builder()
+                .socketFactory(counting)
+                .cache(new Cache(tmp.newFolder(cacheName), 1024 * 1024))
+                .build();
+    }
+
+    // ── Stand-in server ───────────────────────────────────────────────────────
+
+    /** /sync, conditional GETs for settings/rules/signatures, and the WebSocket upgrade. */
+    private static final class StandInServer extends Dispatcher {
+        final AtomicInteger settingsVersion = new AtomicInteger(1);
+        final AtomicLong requests = new AtomicLong();
+        final AtomicInteger upgradeAttempts = new AtomicInteger();
+        final BlockingQueue<WebSocket> peers = new LinkedBlockingQueue<>();
+        final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        volatile boolean channelAvailable = true;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest req) {
+            requests.incrementAndGet();
+            String path = req.getPath();
+            if (path.startsWith("/api/channel")) {
+                upgradeAttempts.incrementAndGet();
+                if (!channelAvailable) return new MockResponse().setResponseCode(404);
+                return new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+                    @Override public void onOpen(WebSocket ws, Response response) { peers.add(ws); }
+                    @Override public void onMessage(WebSocket ws, String text)    { frames.add(text); }
+                    @Override public void onClosing(WebSocket ws, int code, String reason) { ws.close(1000, null); }
+                });
+            }
+            if (path.equals("/api/sync")) return new MockResponse().setBody("{}");
+            if (path.startsWith("/api/settings/")) {
+                int v = settingsVersion.get();
+                return conditional(req, "\"s" + v + "\"", "{\"liveTracking\":false,\"uninstallProtection\":true,"
+                        + "\"blockShorts\":true,\"locationInterval\":60000,\"appSyncInterval\":120000,\"lastModified\":" + v + "}");
+            }
+            if (path.startsWith("/api/rules/blocked/")) {
+                return conditional(req, "\"r1\"", "{\"blockedApps\":[\"com.zhiliaoapp.musically\",\"com.snapchat.android\"],"
+                        + "\"blockedUrls\":[\"example.org\"],\"dnsSchedules\":[]}");
+            }
+            if (path.equals("/api/signatures")) return conditional(req, "\"g1\"", "{\"version\":1,\"packs\":[]}");
+            return new MockResponse().setResponseCode(404);
+        }
+
+        private static MockResponse conditional(RecordedRequest req, String etag, String body) {
+            if (etag.equals(req.getHeader("If-None-Match"))) {
+                return new MockResponse().setResponseCode(304).setHeader("ETag", etag);
+            }
+            return new MockResponse().setHeader("ETag", etag).setBody(body);
+        }
+    }
+
+    // ── Byte counting ─────────────────────────────────────────────────────────
+
+    /** Hands out sockets that count what crosses them. */
+    private static final class Counting extends SocketFactory {
+        final AtomicInteger sockets = new AtomicInteger();
+        final AtomicLong bytesIn = new AtomicLong(), bytesOut = new AtomicLong();
+
+        long total() { return bytesIn.get() + bytesOut.get(); }
+
+        @Override
+        public Socket createSocket() {
+            sockets.incrementAndGet();
+            Socket s = new Socket() {
+                InputStream is;
+                OutputStream os;
+
+                @Override
+                public synchronized InputStream getInputStream() throws IOException {
+                    if (is == null) is = new FilterInputStream(super.getInputStream()) {
+                        @Override public int read() throws IOException {
+                            int b = super.read();
+                            if (b >= 0) bytesIn.incrementAndGet();
+                            return b;
+                        }
+                        @Override public int read(byte[] buf, int off, int len) throws IOException {
+                            int n = super.read(buf, off, len);
+                            if (n > 0) bytesIn.addAndGet(n);
+                            return n;
+                        }
+                    };
+                    return is;
+                }
+
+                @Override
+                public synchronized OutputStream getOutputStream() throws IOException {
+                    if (os == null) os = new FilterOutputStream(super.getOutputStream()) {
+                        @Override public void write(int b) throws IOException {
+                            bytesOut.incrementAndGet();
+                            out.write(b);
+                        }
+                        @Override public void write(byte[] buf, int off, int len) throws IOException {
+                            bytesOut.addAndGet(len);
+                            out.write(buf, off, len);   // not super: that writes byte by byte
+                        }
+                    };
+                    return os;
+                }
+            };
+            return s;
+        }
+
+        @Override public Socket createSocket(String host, int port) throws IOException {
+            Socket s = createSocket();
+            s.connect(new java.net.InetSocketAddress(host, port));
+            return s;
+        }
+        @Override public Socket createSocket(String host, int port, InetAddress local, int localPort) throws IOException {
+            return createSocket(host, port);
+        }
+        @Override public Socket createSocket(InetAddress host, int port) throws IOException {
+            Socket s = createSocket();
+            s.connect(new java.net.InetSocketAddress(host, port));
+            return s;
+        }
+        @Override public Socket createSocket(InetAddress host, int port, InetAddress local, int localPort) throws IOException {
+            return createSocket(host, port);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.core.InMemoryKeyValueStore;
+
+import org.junit.Test;
+
+public class ContentFingerprintsTest {
+
+    @Test
+    public void sameBody_isUnchangedOnlyAfterItWasRemembered() {
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        ContentFingerprints fp = new ContentFingerprints(store);
+        String body = "{\"blockedPackages\":[\"com.example.game\"]}";
+        String f = ContentFingerprints.of(body);
+        assertEquals(64, f.length());
+        assertEquals(f, ContentFingerprints.of(new String(body)));
+
+        assertFalse("never applied", fp.unchanged("rules/blocked", f));
+        fp.remember("rules/blocked", f);
+        assertTrue(fp.unchanged("rules/blocked", f));
+        assertTrue("persisted", new ContentFingerprints(store).unchanged("rules/blocked", f));
+        assertFalse("per endpoint", fp.unchanged("settings", f));
+
+        String edited = ContentFingerprints.of("{\"blockedPackages\":[]}");
+        assertNotEquals(f, edited);
+        assertFalse(fp.unchanged("rules/blocked", edited));
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DnsCacheTest {
+
+    private long now = 1_000_000L;
+    private int lookups;
+    private boolean offline;
+
+    private final DnsCache<String> cache = new DnsCache<>(host -> {
+        lookups++;
+        if (offline) throw new UnknownHostException(host);
+        return Arrays.asList("10.0.0." + lookups);
+    }, 60_000, 3_600_000, () -> now);
+
+    @Test
+    public void freshEntries_areServedWithoutResolving() throws Exception {
+        List<String> first = cache.lookup("api.example.com");
+        now += 59_000;
+        assertEquals(first, cache.lookup("api.example.com"));
+        assertEquals(1, lookups);
+
+        now += 2_000;
+        assertEquals(Arrays.asList("10.0.0.2"), cache.lookup("api.example.com"));
+        cache.invalidate();
+        cache.lookup("api.example.com");
+        assertEquals(3, lookups);
+    }
+
+    @Test
+    public void failedRefresh_servesStaleEntryWithinLimit() throws Exception {
+        List<String> first = cache.lookup("api.example.com");
+        offline = true;
+        now += 10 * 60_000;
+        assertEquals(first, cache.lookup("api.example.com"));
+
+        now += 3_600_000;
+        try {
+            cache.lookup("api.example.com");
+            fail("too stale to serve");
+        } catch (UnknownHostException expected) {
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EndpointExecutorTest {
+
+    @Test
+    public void slowEndpoint_keepsOneCallInFlightAndRunsOnlyTheLatestTick() throws Exception {
+        EndpointExecutor io = new EndpointExecutor("test", 3, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> ran = new CopyOnWriteArrayList<>();
+
+        assertTrue(io.submit("location", () -> {
+            await(release);
+            ran.add("tick0");
+            done.countDown();
+        }));
+        // Twenty ticks while the first call hangs on a slow network
+        for (int i = 1; i <= 20; i++) {
+            String name = "tick" + i;
+            assertFalse(io.submit("location", () -> { ran.add(name); done.countDown(); }));
+        }
+
+        EndpointExecutor.Metrics m = io.metrics();
+        assertEquals(1, m.threads);
+        assertEquals(1, m.inFlight);
+        assertEquals(1, m.pending);
+        assertEquals(20, m.merged);
+
+        release.countDown();
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        Thread.sleep(20);
+        assertEquals(2, ran.size());
+        assertEquals("tick20", ran.get(1));
+        assertEquals(0, io.metrics().inFlight);
+        io.shutdown();
+    }
+
+    @Test
+    public void differentEndpoints_runConcurrentlyUpToPoolSize() throws Exception {
+        EndpointExecutor io = new EndpointExecutor("test", 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable hang = () -> await(release);
+
+        assertTrue(io.submit("apps", hang));
+        assertTrue(io.submit("location", hang));
+        assertTrue(io.submit("settings", hang));     // queued
+        assertFalse(io.submit("signatures", hang));  // queue full
+
+        EndpointExecutor.Metrics m = io.metrics();
+        assertEquals(2, m.threads);
+        assertEquals(1, m.queued);
+        assertEquals(1, m.rejected);
+        assertEquals(3, m.inFlight);
+
+        release.countDown();
+        io.shutdown();
+    }
+
+    @Test
+    public void failingTask_freesItsEndpoint() throws Exception {
+        EndpointExecutor io = new EndpointExecutor("test", 1, 1);
+        io.submit("apps", () -> { throw new IllegalStateException("boom"); });
+        long deadline = System.currentTimeMillis() + 2000;
+        while (io.metrics().failed == 0 && System.currentTimeMillis() < deadline) Thread.sleep(5);
+        assertEquals(1, io.metrics().failed);
+        assertTrue(io.submit("apps", () -> {}));
+        io.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import org.junit.Test;
+
+public class HttpMetricsTest {
+
+    @Test
+    public void report_givesHandshakesPerHourOverTheInterval() {
+        HttpMetrics m = new HttpMetrics();
+        long hour = 60 * 60_000L;
+        assertNull("first call only starts the interval", m.report(0, hour));
+        for (int i = 0; i < 60; i++) m.onCall();
+        m.onConnect();
+        m.onTlsHandshake();
+
+        assertNull(m.report(hour / 2, hour));
+        String line = m.report(hour / 2, hour / 2);
+        assertTrue(line, line.startsWith("calls=60 connections=1 tls=1 (2/h) reuse=99%"));
+        // Next interval starts from zero
+        line = m.report(hour, hour / 2);
+        assertTrue(line, line.startsWith("calls=0 connections=0 tls=0 (0/h)"));
+    }
+
+    /**
+     * What HttpStack's single client buys: 30 calls where every tenth builds a fresh
+     * client (the old token and activity paths) against 30 calls on one client, counted
+     * through an event listener the way HttpStack feeds its metrics.
+     */
+    @Test
+    public void sharedClient_reusesOneConnection() throws Exception {
+        HttpMetrics m = new HttpMetrics();
+        EventListener listener = new EventListener() {
+            @Override public void callStart(Call call) { m.onCall(); }
+            @Override public void connectStart(Call call, InetSocketAddress address, Proxy proxy) { m.onConnect(); }
+        };
+        try (MockWebServer server = new MockWebServer()) {
+            for (int i = 0; i < 60; i++) server.enqueue(new MockResponse().setBody("{}"));
+            server.start();
+            m.report(0, 1);
+
+            List<OkHttpClient> clients = new ArrayList<>();
+            OkHttpClient shared = client(listener, clients);
+            for (int i = 0; i < 30; i++) call(i % 10 == 0 ? client(listener, clients) : shared, server);
+            String line = m.report(1, 1);
+            assertTrue("one per fresh client + the shared one: " + line, line.startsWith("calls=30 connections=4 "));
+
+            OkHttpClient one = client(listener, clients);
+            for (int i = 0; i < 30; i++) call(one, server);
+            line = m.report(2, 1);
+            assertTrue(line, line.startsWith("calls=30 connections=1 "));
+
+            for (OkHttpClient c : clients) c.connectionPool().evictAll();
+        }
+    }
+
+    private static OkHttpClient client(EventListener listener, List<OkHttpClient> made) {
+        OkHttpClient c = new OkHttpClient.Builder().eventListener(listener).build();
+        made.add(c);
+        return c;
+    }
+
+    private static void call(OkHttpClient client, MockWebServer server) throws Exception {
+        try (Response r = client.newCall(new Request.Builder().url(server.url("/sync")).build()).execute()) {
+            r.body().string();
+        }
+    }
+}
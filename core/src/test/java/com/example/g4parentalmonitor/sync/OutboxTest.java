@@ -0,0 +1,159 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OutboxTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final Outbox.Stream LOCATION = new Outbox.Stream("location", 0, false);
+    private static final Outbox.Stream APPS     = new Outbox.Stream("apps", 1, true);
+    private static final Outbox.Stream TOKEN    = new Outbox.Stream("token", 100, true);
+
+    /** Stands in for the history journals: a list of chunk sizes, oldest first. */
+    private static final class FakeJournal implements Outbox.External {
+        final List<Long> chunks = new ArrayList<>();
+        int scans;
+        @Override public long bytes() {
+            scans++;
+            long n = 0;
+            for (long c : chunks) n += c;
+            return n;
+        }
+        @Override public long shedOldest() {
+            return chunks.size() < 2 ? 0 : chunks.remove(0);
+        }
+    }
+
+    private static List<String> bodies(Outbox.Batch batch, Outbox.Stream stream) {
+        List<String> out = new ArrayList<>();
+        for (Outbox.Entry e : batch.of(stream)) out.add(e.body);
+        return out;
+    }
+
+    private static String fix(int i) {
+        return "{\"latitude\":" + i + ",\"longitude\":0}";   // 27-28 bytes
+    }
+
+    @Test
+    public void peek_returnsAllStreamsInOrder_andLatestOnlyKeepsNewest() throws Exception {
+        Outbox box = new Outbox(tmp.newFolder(), 1 << 20, LOCATION, APPS, TOKEN);
+        box.append(LOCATION, fix(1));
+        box.append(APPS, "{\"v\":1}");
+        box.append(LOCATION, fix(2));
+        box.append(APPS, "{\"v\":2}");
+
+        Outbox.Batch batch = box.peek(100);
+        assertEquals(2, batch.entries.size());
+        assertEquals(Arrays.asList(fix(1), fix(2)), bodies(batch, LOCATION));
+        assertEquals(Arrays.asList("{\"v\":2}"), bodies(batch, APPS));
+        assertTrue(batch.of(TOKEN).isEmpty());
+        assertEquals(1, box.peek(1).of(LOCATION).size());
+    }
+
+    @Test
+    public void acknowledge_removesOnlyWhatWasSent() throws Exception {
+        Outbox box = new Outbox(tmp.newFolder(), 1 << 20, LOCATION, APPS, TOKEN);
+        box.append(LOCATION, fix(1));
+        Outbox.Batch batch = box.peek(100);
+        box.append(LOCATION, fix(2));          // arrives while the upload is in flight
+
+        box.acknowledge(batch);
+        assertEquals(Arrays.asList(fix(2)), bodies(box.peek(100), LOCATION));
+
+        box.acknowledge(box.peek(100), APPS);  // other stream: nothing removed
+        assertFalse(box.peek(100).isEmpty());
+        box.acknowledge(box.peek(100), LOCATION);
+        assertTrue(box.peek(100).isEmpty());
+    }
+
+    @Test
+    public void entries_surviveReopen_andSequenceContinues() throws Exception {
+        File dir = tmp.newFolder();
+        Outbox box = new Outbox(dir, 1 << 20, LOCATION, APPS, TOKEN);
+        box.append(LOCATION, fix(1));
+        box.append(TOKEN, "{\"fcmToken\":\"a\"}");
+        assertTrue(new File(new File(dir, "location"), "99.tmp").createNewFile());  // killed mid-append
+
+        Outbox reopened = new Outbox(dir, 1 << 20, LOCATION, APPS, TOKEN);
+        assertFalse(new File(new File(dir, "location"), "99.tmp").exists());
+        reopened.append(LOCATION, fix(2));
+        Outbox.Batch batch = reopened.peek(100);
+        assertEquals(Arrays.asList(fix(1), fix(2)), bodies(batch, LOCATION));
+        assertTrue(batch.of(LOCATION).get(0).seq < batch.of(LOCATION).get(1).seq);
+        assertEquals(1, batch.of(TOKEN).size());
+    }
+
+    @Test
+    public void overBudget_shedsLowestRankFirst_andKeepsEachStreamsNewest() throws Exception {
+        FakeJournal history = new FakeJournal();
+        history.chunks.add(100L);
+        history.chunks.add(100L);
+
+        Outbox box = new Outbox(tmp.newFolder(), 600, LOCATION, APPS, TOKEN);
+        box.addExternal("history", 50, history);
+        box.checkBudget();
+        box.append(TOKEN, "{\"fcmToken\":\"abc\"}");
+        box.append(APPS, "{\"apps\":[]}");
+        for (int i = 0; i < 20; i++) box.append(LOCATION, fix(i));
+        assertEquals("appends use the size read by checkBudget", 1, history.scans);
+
+        assertTrue(box.bytes() + history.bytes() <= 600);
+        assertTrue(box.shedCounts().get("location") > 0);
+        assertNull("history kept while location could shed", box.shedCounts().get("history"));
+        assertEquals(fix(19), bodies(box.peek(100), LOCATION).get(bodies(box.peek(100), LOCATION).size() - 1));
+
+        // The journal grew behind the outbox's back: the next check sheds it, the token never
+        history.chunks.add(0, 500L);
+        box.append(LOCATION, fix(20));
+        assertNull("not re-read on append", box.shedCounts().get("history"));
+        box.checkBudget();
+        assertEquals(Long.valueOf(1), box.shedCounts().get("history"));
+        assertTrue(box.bytes() + history.bytes() <= 600);
+        assertEquals(1, box.peek(100).of(TOKEN).size());
+        assertEquals(1, box.peek(100).of(APPS).size());
+    }
+
+    /** The running total follows appends, latest-only replacement, acks and shedding, and is rebuilt on reopen. */
+    @Test
+    public void bytes_matchWhatIsOnDisk() throws Exception {
+        File dir = tmp.newFolder();
+        Outbox box = new Outbox(dir, 300, LOCATION, APPS, TOKEN);
+        box.append(APPS, "{\"v\":1}");
+        box.append(APPS, "{\"v\":22}");
+        for (int i = 0; i < 5; i++) box.append(LOCATION, fix(i));
+        assertEquals(onDisk(dir), box.bytes());
+
+        Outbox.Batch sent = box.peek(2);
+        box.acknowledge(sent, LOCATION);
+        box.acknowledge(sent);   // acked again: already gone, nothing counted twice
+        assertEquals(onDisk(dir), box.bytes());
+
+        for (int i = 5; i < 20; i++) box.append(LOCATION, fix(i));
+        assertTrue(box.shedCounts().get("location") > 0);
+        assertEquals(onDisk(dir), box.bytes());
+        assertTrue(box.bytes() <= 300);
+
+        assertEquals(box.bytes(), new Outbox(dir, 300, LOCATION, APPS, TOKEN).bytes());
+    }
+
+    private static long onDisk(File dir) {
+        long total = 0;
+        for (File sd : dir.listFiles()) {
+            for (File f : sd.listFiles()) total += f.length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.core.InMemoryKeyValueStore;
+
+import org.junit.Test;
+
+public class PushHealthTest {
+
+    private static final long HOUR = 60 * 60_000L;
+
+    @Test
+    public void healthyOnlyWhilePushIsRecent() {
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        PushHealth h = new PushHealth(store, 6 * HOUR);
+        long now = 1_700_000_000_000L;
+        assertFalse("never seen a push", h.isHealthy(now));
+
+        h.onPush(now);
+        assertTrue(h.isHealthy(now + HOUR));
+        assertTrue("persisted", new PushHealth(store, 6 * HOUR).isHealthy(now + HOUR));
+
+        assertFalse("window lapsed", h.isHealthy(now + 7 * HOUR));
+        assertFalse("clock went backwards", h.isHealthy(now - HOUR));
+    }
+
+    @Test
+    public void parse_acceptsKnownActionsOnly() {
+        assertEquals(PushCommand.SYNC_RULES, PushCommand.parse("SYNC_RULES"));
+        assertEquals(PushCommand.LOCATE_NOW, PushCommand.parse(" locate_now "));
+        assertNull(PushCommand.parse("REBOOT"));
+        assertNull(PushCommand.parse(null));
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.g4parentalmonitor.history.BrowsingSessionizer;
+import com.example.g4parentalmonitor.vpn.CaptureRing;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import okio.Buffer;
+
+import org.junit.Test;
+
+public class SyncBodyTest {
+
+    private static final Gson GSON = new Gson();
+
+    /** The streamed JSON body is the tree OutboxUploader used to build and serialize. */
+    @Test
+    public void json_matchesTreeBuiltBody() throws IOException {
+        SyncBody body = body(new Random(3));
+        StringWriter out = new StringWriter();
+        body.writeJson(out);
+        assertEquals(treeBuilt(body), JsonParser.parseString(out.toString()));
+    }
+
+    @Test
+    public void cbor_isTheSameTreeWithoutLegacyHistory() throws IOException {
+        SyncBody body = body(new Random(3));
+        JsonObject expected = treeBuilt(body);
+        expected.getAsJsonObject("browserHistory").remove("history");
+
+        CborWriter w = new CborWriter(true);
+        body.writeCbor(w);
+        assertEquals(plain(expected), CborDecoder.decode(w.toByteArray()));
+    }
+
+    /** Only the sections that are queued appear; a bare body is just the device id. */
+    @Test
+    public void emptySections_areLeftOut() throws IOException {
+        SyncBody body = new SyncBody("d1");
+        StringWriter out = new StringWriter();
+        body.writeJson(out);
+        assertEquals("{\"deviceId\":\"d1\"}", out.toString());
+
+        CborWriter w = new CborWriter(true);
+        body.writeCbor(w);
+        assertEquals(map("deviceId", "d1"), CborDecoder.decode(w.toByteArray()));
+    }
+
+    /** OkHttp may write a body again on a retry: both writes carry the same bytes. */
+    @Test
+    public void requestBody_canBeWrittenTwice() throws IOException {
+        SyncBody body = body(new Random(4));
+        for (boolean cbor : new boolean[] {false, true}) {
+            Buffer first = new Buffer(), second = new Buffer();
+            body.requestBody(cbor).writeTo(first);
+            long size = body.bytesWritten();
+            body.requestBody(cbor).writeTo(second);
+            assertEquals(first.size(), size);
+            assertEquals(first, second);
+        }
+        assertEquals("application/cbor", body.requestBody(true).contentType().toString());
+    }
+
+    @Test
+    public void legacyEntry_prefersUrlAndAccessibility() {
+        BrowsingSessionizer s = new BrowsingSessionizer();
+        s.accept("m.example.com", 1000, CaptureRing.SOURCE_VPN);
+        s.accept("https://m.example.com/a", 2000, CaptureRing.SOURCE_ACCESSIBILITY);
+        s.accept("other.org", 3000, CaptureRing.SOURCE_VPN);
+        List<BrowsingSessionizer.Session> sessions = s.finish();
+        assertEquals("https://m.example.com/a|1000|" + CaptureRing.sourceName(CaptureRing.SOURCE_ACCESSIBILITY),
+                SyncBody.legacyEntry(sessions.get(0)));
+        assertEquals("other.org|3000|" + CaptureRing.sourceName(CaptureRing.SOURCE_VPN),
+                SyncBody.legacyEntry(sessions.get(1)));
+        assertNull(sessions.get(1).url);
+    }
+
+    // ── Fixtures ──────────────────────────────────────────────────────────────
+
+    private static SyncBody body(Random rnd) {
+        SyncBody body = new SyncBody("6710f2c3a9b8e4d1c2f3a4b5");
+        for (int i = 0; i < 12; i++) {
+            Map<String, Object> fix = new LinkedHashMap<>();
+            fix.put("latitude", 52.5 + rnd.nextDouble() / 100);
+            fix.put("longitude", 13.4 + rnd.nextDouble() / 100);
+            fix.put("batteryLevel", 80 - i);
+            fix.put("timestamp", 1760860800000L + i * 45_000L);
+            body.locations.add(GSON.toJson(fix));
+        }
+        List<Object> apps = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            apps.add(map("packageName", "com.vendor" + i + ".app", "appName", "App \"" + i + "\" ü", "totalMs", rnd.nextInt(3_600_000)));
+        }
+        body.apps = GSON.toJson(map("day", 20261019, "version", 42L, "full", false, "apps", apps, "removed", new ArrayList<>()));
+
+        BrowsingSessionizer sessionizer = new BrowsingSessionizer();
+        for (int i = 0; i < 300; i++) {
+            String host = "www.site" + rnd.nextInt(20) + ".example.com";
+            boolean a11y = rnd.nextInt(4) == 0;
+            sessionizer.accept(a11y ? "https://" + host + "/p" + i : host, 1760860800000L + i * 20_000L,
+                    a11y ? CaptureRing.SOURCE_ACCESSIBILITY : CaptureRing.SOURCE_VPN);
+        }
+        body.sessions = sessionizer.finish();
+        body.fcmToken = "tok:APA91b";
+        body.diagnostics = GSON.toJson(map("uptimeMs", 123456L, "vpn", map("running", true, "rate", 0.25), "note", null));
+        return body;
+    }
+
+    /** How OutboxUploader built the body before it was streamed: parse every entry, Gson the tree. */
+    private static JsonObject treeBuilt(SyncBody body) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("deviceId", body.deviceId);
+        JsonArray locations = new JsonArray();
+        for (String e : body.locations) locations.add(JsonParser.parseString(e));
+        payload.add("location", locations);
+        payload.add("apps", JsonParser.parseString(body.apps));
+
+        List<Map<String, Object>> sessions = new ArrayList<>();
+        List<String> urls = new ArrayList<>();
+        for (BrowsingSessionizer.Session s : body.sessions) {
+            boolean viaA11y = s.seenBy(CaptureRing.SOURCE_ACCESSIBILITY);
+            List<String> sources = new ArrayList<>();
+            if (viaA11y) sources.add(CaptureRing.sourceName(CaptureRing.SOURCE_ACCESSIBILITY));
+            if (s.seenBy(CaptureRing.SOURCE_VPN)) sources.add(CaptureRing.sourceName(CaptureRing.SOURCE_VPN));
+            Map<String, Object> m = new HashMap<>();
+            m.put("domain", s.domain);
+            if (s.url != null) m.put("url", s.url);
+            m.put("start", s.firstSeenMs);
+            m.put("end", s.lastSeenMs);
+            m.put("hits", s.hits);
+            m.put("sources", sources);
+            sessions.add(m);
+            urls.add((s.url != null ? s.url : s.domain) + "|" + s.firstSeenMs + "|"
+                    + CaptureRing.sourceName(viaA11y ? CaptureRing.SOURCE_ACCESSIBILITY : CaptureRing.SOURCE_VPN));
+        }
+        JsonObject history = new JsonObject();
+        history.add("history", GSON.toJsonTree(urls));
+        history.add("sessions", GSON.toJsonTree(sessions));
+        payload.add("browserHistory", history);
+        payload.add("fcmToken", new JsonPrimitive(body.fcmToken));
+        payload.add("diagnostics", JsonParser.parseString(body.diagnostics));
+        return payload;
+    }
+
+    /** A JSON tree as the CborDecoder returns it: Longs for integral numbers, Doubles otherwise. */
+    private static Object plain(JsonElement e) {
+        if (e.isJsonNull()) return null;
+        if (e.isJsonObject()) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (Map.Entry<String, JsonElement> f : e.getAsJsonObject().entrySet()) m.put(f.getKey(), plain(f.getValue()));
+            return m;
+        }
+        if (e.isJsonArray()) {
+            List<Object> l = new ArrayList<>();
+            for (JsonElement item : e.getAsJsonArray()) l.add(plain(item));
+            return l;
+        }
+        JsonPrimitive p = e.getAsJsonPrimitive();
+        if (p.isBoolean()) return p.getAsBoolean();
+        if (p.isString()) return p.getAsString();
+        double d = p.getAsDouble();
+        return d == Math.rint(d) ? (Object) p.getAsLong() : (Object) d;
+    }
+
+    private static Map<String, Object> map(Object... kv) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        for (int i = 0; i < kv.length; i += 2) m.put((String) kv[i], kv[i + 1]);
+        return m;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.g4parentalmonitor.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class SyncSchedulerTest {
+
+    private static final long SEC = 1000, MIN = 60 * SEC, HOUR = 60 * MIN;
+
+    private static final SyncScheduler.Conditions SCREEN_ON = new SyncScheduler.Conditions(true, false, false, false, false);
+    private static final SyncScheduler.Conditions SCREEN_OFF = new SyncScheduler.Conditions(false, false, false, false, false);
+    private static final SyncScheduler.Conditions DOZE = new SyncScheduler.Conditions(false, false, true, false, false);
+
+    @Test
+    public void interval_followsScreenDozeAndBattery() {
+        SyncScheduler s = new SyncScheduler(0.25, HOUR, 0);
+        SyncScheduler.Stream location = s.add("location", 45 * SEC, 2 * MIN, 30 * MIN, () -> {});
+
+        assertEquals(45 * SEC, s.interval(location));
+        s.setConditions(SCREEN_OFF);
+        assertEquals(2 * MIN, s.interval(location));
+        s.setConditions(DOZE);
+        assertEquals(30 * MIN, s.interval(location));
+
+        s.setConditions(new SyncScheduler.Conditions(true, false, false, true, false));
+        assertEquals("battery low", SyncScheduler.Mode.SAVER, s.conditions().mode());
+        s.setConditions(new SyncScheduler.Conditions(true, true, false, true, false));
+        assertEquals("low but charging", 45 * SEC, s.interval(location));
+        assertFalse("no change", s.setConditions(new SyncScheduler.Conditions(true, true, false, true, false)));
+    }
+
+    @Test
+    public void floor_raisesIntervalWhileCommandsArePushed() {
+        SyncScheduler s = new SyncScheduler(0.25, HOUR, 0);
+        SyncScheduler.Stream config = s.add("config", 10 * SEC, MIN, 15 * MIN, () -> {});
+        s.setFloor(config, 30 * MIN);
+        assertEquals(30 * MIN, s.interval(config));
+        s.setConditions(DOZE);
+        assertEquals(30 * MIN, s.interval(config));
+        s.setFloor(config, 0);
+        assertEquals(15 * MIN, s.interval(config));
+    }
+
+    @Test
+    public void newStreams_runAtFirstWake_thenAtTheirCadence() {
+        SyncScheduler s = new SyncScheduler(0, HOUR, 0);
+        int[] runs = new int[1];
+        s.add("apps", MIN, 5 * MIN, 30 * MIN, () -> runs[0]++);
+
+        assertEquals(1000, s.nextWakeAt(1000));
+        assertEquals(1, s.runDue(1000));
+        assertEquals(1000 + MIN, s.nextWakeAt(2000));
+        assertEquals(0, s.runDue(1000 + MIN - 1));
+        assertEquals(1, s.runDue(1000 + MIN));
+        assertEquals(2, runs[0]);
+        assertEquals(2, s.wakes());
+    }
+
+    /** A stream within its flex of being due joins the wake instead of waking the device itself. */
+    @Test
+    public void streamsNearlyDue_joinTheWake() {
+        SyncScheduler s = new SyncScheduler(0.25, HOUR, 0);
+        List<String> ran = new ArrayList<>();
+        s.add("upload", 30 * SEC, 2 * MIN, 15 * MIN, () -> ran.add("upload"));
+        s.add("location", 45 * SEC, 2 * MIN, 30 * MIN, () -> ran.add("location"));
+        s.runDue(0);
+        ran.clear();
+
+        assertEquals(30 * SEC, s.nextWakeAt(0));
+        s.runDue(30 * SEC);
+        assertEquals("location is 15 s away, more than 45/4", 1, ran.size());
+        s.runDue(60 * SEC);
+        assertEquals("location due at 45 s ran late with upload", 3, ran.size());
+
+        s.add("apps", MIN, 5 * MIN, 30 * MIN, () -> ran.add("apps"));
+        s.runDue(61 * SEC);
+        ran.clear();
+        s.runDue(110 * SEC);   // upload and location due; apps due at 2:01, 11 s away with 15 s flex
+        assertEquals(3, ran.size());
+        assertTrue(ran.contains("apps"));
+        assertEquals(1, ((Map<?, ?>) ((Map<?, ?>) s.snapshot().get("streams")).get("apps")).get("aligned"));
+    }
+
+    @Test
+    public void conditionChange_retimesWaitingStreams() {
+        SyncScheduler s = new SyncScheduler(0, HOUR, 0);
+        s.add("location", 45 * SEC, 2 * MIN, 30 * MIN, () -> {});
+        s.setConditions(SCREEN_OFF);
+        s.runDue(0);
+        assertEquals(2 * MIN, s.nextWakeAt(10 * SEC));
+
+        s.setConditions(SCREEN_ON);   // the child picked the phone up
+        assertEquals(45 * SEC, s.nextWakeAt(10 * SEC));
+        s.setConditions(SCREEN_OFF);
+        s.setConditions(SCREEN_ON);
+        assertEquals("already overdue: wake now", 60 * SEC, s.nextWakeAt(60 * SEC));
+    }
+
+    @Test
+    public void retryDelay_survivesConditionChangesAndAlignment() {
+        SyncScheduler s = new SyncScheduler(0.25, HOUR, 0);
+        SyncScheduler.Stream upload = s.add("upload", 30 * SEC, 2 * MIN, 15 * MIN, () -> {});
+        int[] config = new int[1];
+        s.add("config", 10 * SEC, MIN, 15 * MIN, () -> config[0]++);
+        s.runDue(0);
+        s.delay(upload, 8 * MIN, 0);
+
+        s.setConditions(SCREEN_OFF);
+        s.setConditions(SCREEN_ON);
+        assertEquals("config only", 1, s.runDue(7 * MIN + 59 * SEC));
+        assertEquals("upload, config is not near due", 1, s.runDue(8 * MIN));
+        assertEquals(2, config[0]);
+
+        s.delay(upload, 8 * MIN, 8 * MIN);
+        s.runNow(upload);   // a flush command overrides the delay
+        assertEquals(8 * MIN + 1, s.nextWakeAt(8 * MIN + 1));
+    }
+
+    @Test
+    public void bulk_waitsForUnmeteredUpToTheLimit() {
+        SyncScheduler s = new SyncScheduler(0.25, 6 * HOUR, 0);
+        assertTrue(s.bulkAllowed(MIN));
+        s.setConditions(new SyncScheduler.Conditions(true, false, false, false, true));
+        assertFalse(s.bulkAllowed(MIN));
+        assertFalse(s.bulkAllowed(6 * HOUR - 1));
+        assertTrue("held long enough", s.bulkAllowed(6 * HOUR));
+        s.onBulkSent(6 * HOUR);
+        assertFalse(s.bulkAllowed(7 * HOUR));
+        s.setConditions(SCREEN_ON);
+        assertTrue("back on Wi-Fi", s.bulkAllowed(7 * HOUR));
+    }
+
+    @Test
+    public void report_isRateLimited() {
+        SyncScheduler s = new SyncScheduler(0.25, HOUR, 0);
+        s.add("config", 10 * SEC, MIN, 15 * MIN, () -> {});
+        s.runDue(0);
+        assertNull(s.report(MIN, 10 * MIN));
+        String line = s.report(10 * MIN, 10 * MIN);
+        assertEquals("ACTIVE screen | config 10s | 1 wakes for 1 runs", line);
+        assertNull(s.report(11 * MIN, 10 * MIN));
+    }
+
+    /**
+     * One afternoon hour: screen on for 5 minutes in every 20, off otherwise, with the
+     * cadences SyncService uses. Before: seven independent loops at fixed rates, counted
+     * as if their ticks always coincided, which flatters them.
+     */
+    @Test
+    public void afternoonHour_wakesLessThanFixedLoops() {
+        long fixed = 0;
+        long[] fixedRates = {5 * SEC, 10 * SEC, 60 * SEC, 30 * SEC, 45 * SEC, 60 * SEC, 15 * MIN};
+        for (long t = 0; t < HOUR; t += SEC) {
+            for (long r : fixedRates) {
+                if (t % r == 0) {
+                    fixed++;
+                    break;
+                }
+            }
+        }
+
+        int adaptive = simulate(0);
+        int aligned = simulate(0.25);
+        assertTrue(adaptive * 2 < fixed);
+        assertTrue(aligned * 10 < adaptive * 9);
+    }
+
+    private static int simulate(double flex) {
+        SyncScheduler s = new SyncScheduler(flex, 6 * HOUR, 0);
+        Runnable none = () -> {};
+        s.add("config", 10 * SEC, MIN, 15 * MIN, none);
+        s.add("rules", MIN, 5 * MIN, 15 * MIN, none);
+        s.add("upload", 30 * SEC, 2 * MIN, 15 * MIN, none);
+        s.add("location", 45 * SEC, 2 * MIN, 30 * MIN, none);
+        s.add("apps", MIN, 5 * MIN, 30 * MIN, none);
+        s.add("signatures", 15 * MIN, 15 * MIN, HOUR, none);
+        s.add("notification", 5 * SEC, 15 * MIN, 15 * MIN, none);
+        for (long t = 0; t < HOUR; ) {
+            s.setConditions(t % (20 * MIN) < 5 * MIN ? SCREEN_ON : SCREEN_OFF);
+            s.runDue(t);
+            long screenChange = t - t % (5 * MIN) + 5 * MIN;   // the receiver wakes the timer too
+            t = Math.min(Math.max(s.nextWakeAt(t), t + 1), screenChange);
+        }
+        return s.wakes();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.g4parentalmonitor.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.core.InMemoryKeyValueStore;
+
+import java.util.Calendar;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class ScreenTimeLedgerTest {
+
+    private static final long MIN = 60_000L;
+
+    private long now = todayAt(10, 0);
+
+    private static long todayAt(int hour, int minute) {
+        Calendar cal = Calendar.getInstance();
+        cal.set(2026, Calendar.MARCH, 2, hour, minute, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    @Test
+    public void sessions_accumulatePerPackage_includingTheLiveOne() {
+        ScreenTimeLedger ledger = new ScreenTimeLedger(new InMemoryKeyValueStore(), () -> now);
+        assertFalse(ledger.hasDataForToday());
+
+        ledger.onAppForegrounded("com.a");
+        now += 5 * MIN;
+        ledger.onAppForegrounded("com.b");
+        now += 2 * MIN;
+        ledger.onScreenOff();
+        now += 30 * MIN;
+        ledger.onScreenOn();
+        ledger.onAppForegrounded("com.a");
+        now += MIN;
+
+        Map<String, Long> usage = ledger.getTodayUsageMs();
+        assertTrue(ledger.hasDataForToday());
+        assertEquals(6 * MIN, (long) usage.get("com.a"));
+        assertEquals(2 * MIN, (long) usage.get("com.b"));
+    }
+
+    @Test
+    public void totals_surviveRestart_andResetAtMidnight() {
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        ScreenTimeLedger ledger = new ScreenTimeLedger(store, () -> now);
+        ledger.onAppForegrounded("com.a");
+        now += 10 * MIN;
+        ledger.onScreenOff();
+
+        ScreenTimeLedger restarted = new ScreenTimeLedger(store, () -> now);
+        assertEquals(10 * MIN, (long) restarted.getTodayUsageMs().get("com.a"));
+
+        now = todayAt(10, 0) + 24 * 60 * MIN;
+        assertFalse(restarted.hasDataForToday());
+    }
+}
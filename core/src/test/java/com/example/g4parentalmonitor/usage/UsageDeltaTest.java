@@ -0,0 +1,214 @@
+package com.example.g4parentalmonitor.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.core.InMemoryKeyValueStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class UsageDeltaTest {
+
+    private static final int DAY = 20261019;
+
+    private static UsageDelta.App app(String pkg, long ms) {
+        return new UsageDelta.App(pkg, pkg.substring(pkg.lastIndexOf('.') + 1), ms);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> apps(Map<String, Object> msg) {
+        return (List<Map<String, Object>>) msg.get("apps");
+    }
+
+    private static long version(Map<String, Object> msg) {
+        return (Long) msg.get("version");
+    }
+
+    @Test
+    public void firstMessageIsFull_thenOnlyChangedApps() {
+        UsageDelta d = new UsageDelta(new InMemoryKeyValueStore(), 30);
+        Map<String, Object> full = d.next(DAY, Arrays.asList(app("a.yt", 60_000), app("a.chat", 5_000)));
+        assertEquals(true, full.get("full"));
+        assertEquals(2, apps(full).size());
+        assertEquals(1L, apps(full).get(0).get("minutes"));
+        d.acknowledge(version(full));
+
+        assertNull("nothing changed", d.next(DAY, Arrays.asList(app("a.yt", 60_000), app("a.chat", 5_000))));
+
+        Map<String, Object> delta = d.next(DAY, Arrays.asList(app("a.yt", 120_000), app("a.chat", 5_000), app("a.maps", 1_000)));
+        assertEquals(false, delta.get("full"));
+        assertEquals(version(full), delta.get("base"));
+        assertEquals(2, apps(delta).size());
+        assertFalse("server already has the label", apps(delta).get(0).containsKey("appName"));
+        assertEquals(120_000L, apps(delta).get(0).get("totalMs"));
+        assertEquals("maps", apps(delta).get(1).get("appName"));
+    }
+
+    @Test
+    public void unackedDelta_isReplacedByOneAgainstTheSameBase() {
+        UsageDelta d = new UsageDelta(new InMemoryKeyValueStore(), 30);
+        d.acknowledge(version(d.next(DAY, Arrays.asList(app("a.yt", 1_000), app("a.chat", 1_000)))));
+
+        Map<String, Object> lost = d.next(DAY, Arrays.asList(app("a.yt", 2_000), app("a.chat", 1_000)));
+        Map<String, Object> next = d.next(DAY, Arrays.asList(app("a.yt", 2_000), app("a.chat", 3_000)));
+        assertEquals(lost.get("base"), next.get("base"));
+        assertEquals("still carries a.yt, which the server never got", 2, apps(next).size());
+
+        d.acknowledge(version(next));
+        d.acknowledge(version(lost));   // late ack of a superseded version: ignored
+        assertNull(d.next(DAY, Arrays.asList(app("a.yt", 2_000), app("a.chat", 3_000))));
+    }
+
+    @Test
+    public void fullSnapshot_onNewDay_everyN_resync_andLegacyServers() {
+        UsageDelta d = new UsageDelta(new InMemoryKeyValueStore(), 3);
+        long ms = 1_000;
+        d.acknowledge(version(d.next(DAY, Arrays.asList(app("a.yt", ms)))));
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> m = d.next(DAY, Arrays.asList(app("a.yt", ms += 1_000)));
+            assertEquals(false, m.get("full"));
+            d.acknowledge(version(m));
+        }
+        Map<String, Object> safetyNet = d.next(DAY, Arrays.asList(app("a.yt", ms += 1_000)));
+        assertEquals("safety net after 3 deltas", true, safetyNet.get("full"));
+        d.acknowledge(version(safetyNet));
+        assertEquals(false, d.next(DAY, Arrays.asList(app("a.yt", ms += 1_000))).get("full"));
+
+        assertEquals(true, d.next(DAY + 1, Arrays.asList(app("a.yt", 1_000))).get("full"));
+
+        d.requestFull();
+        assertEquals(true, d.next(DAY, Arrays.asList(app("a.yt", ms))).get("full"));
+
+        d.setDeltasSupported(false);
+        assertEquals(true, d.next(DAY, Arrays.asList(app("a.yt", ms))).get("full"));
+        assertEquals(true, d.next(DAY, Arrays.asList(app("a.yt", ms))).get("full"));
+    }
+
+    /** Upload skipped (offline, backoff): the next message replaces the full, so it must be full too. */
+    @Test
+    public void unackedFull_isSentAgainUntilAcknowledged() {
+        UsageDelta d = new UsageDelta(new InMemoryKeyValueStore(), 30);
+        d.acknowledge(version(d.next(DAY, Arrays.asList(app("a.yt", 1_000)))));
+
+        d.requestFull();
+        Map<String, Object> lost = d.next(DAY, Arrays.asList(app("a.yt", 2_000)));
+        assertEquals(true, lost.get("full"));
+        Map<String, Object> again = d.next(DAY, Arrays.asList(app("a.yt", 3_000)));
+        assertEquals(true, again.get("full"));
+
+        d.requestFull();   // asked again after 'again' went out: only a later full answers it
+        d.acknowledge(version(again));
+        Map<String, Object> answer = d.next(DAY, Arrays.asList(app("a.yt", 3_000)));
+        assertEquals(true, answer.get("full"));
+        d.acknowledge(version(answer));
+        assertEquals(false, d.next(DAY, Arrays.asList(app("a.yt", 4_000))).get("full"));
+    }
+
+    @Test
+    public void ackedSnapshot_survivesRestart() {
+        InMemoryKeyValueStore store = new InMemoryKeyValueStore();
+        UsageDelta d = new UsageDelta(store, 30);
+        Map<String, Object> full = d.next(DAY, Arrays.asList(app("a.yt", 1_000), app("a.chat", 2_000)));
+        d.acknowledge(version(full));
+
+        UsageDelta restarted = new UsageDelta(store, 30);
+        assertNull(restarted.next(DAY, Arrays.asList(app("a.yt", 1_000), app("a.chat", 2_000))));
+        Map<String, Object> delta = restarted.next(DAY, Arrays.asList(app("a.yt", 4_000), app("a.chat", 2_000)));
+        assertEquals(version(full), delta.get("base"));
+        assertTrue(version(delta) > version(full));
+    }
+
+    /**
+     * A simulated day: 40 apps, a sync tick every minute from 07:00 to 23:00, the screen
+     * on for about 40% of ticks with one foreground app at a time. Compares the bytes the
+     * old protocol sends (the whole list every tick) with delta messages, and checks a
+     * server applying the deltas ends up with the device's totals.
+     */
+    @Test
+    public void simulatedDay_payloadReduction() {
+        Random rnd = new Random(7);
+        List<String> pkgs = new ArrayList<>();
+        for (int i = 0; i < 40; i++) pkgs.add("com.vendor" + i + ".app" + i);
+
+        Map<String, Long> device = new LinkedHashMap<>();
+        Map<String, Long> server = new HashMap<>();
+        UsageDelta d = new UsageDelta(new InMemoryKeyValueStore(), 30);
+        long fullBytes = 0, deltaBytes = 0;
+        int ticks = 16 * 60, sent = 0;
+        String foreground = pkgs.get(0);
+
+        for (int t = 0; t < ticks; t++) {
+            if (rnd.nextDouble() < 0.4) {
+                if (rnd.nextDouble() < 0.3) foreground = pkgs.get((int) Math.abs(rnd.nextGaussian() * 10) % pkgs.size());
+                device.merge(foreground, 20_000L + rnd.nextInt(40_000), Long::sum);
+            }
+            List<UsageDelta.App> current = new ArrayList<>();
+            for (Map.Entry<String, Long> e : device.entrySet()) current.add(app(e.getKey(), e.getValue()));
+            if (current.isEmpty()) continue;
+
+            fullBytes += json(legacy(current)).length();
+            Map<String, Object> msg = d.next(DAY, current);
+            if (msg == null) continue;
+            deltaBytes += json(msg).length();
+            sent++;
+
+            if (Boolean.TRUE.equals(msg.get("full"))) server.clear();
+            for (Map<String, Object> a : apps(msg)) server.put((String) a.get("packageName"), (Long) a.get("totalMs"));
+            d.acknowledge(version(msg));
+            assertEquals(device, server);
+        }
+
+        long pct = 100 - deltaBytes * 100 / fullBytes;
+        assertTrue("reduction " + pct + "%", pct >= 80);
+        assertTrue("idle ticks send nothing", sent < ticks / 2);
+    }
+
+    /** What SyncService used to send every tick: every app with all five fields. */
+    private static Map<String, Object> legacy(List<UsageDelta.App> current) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (UsageDelta.App a : current) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("packageName", a.packageName);
+            m.put("appName", a.appName);
+            m.put("minutes", (a.totalMs + 30_000L) / 60_000L);
+            m.put("seconds", a.totalMs / 1_000);
+            m.put("totalMs", a.totalMs);
+            list.add(m);
+        }
+        Map<String, Object> msg = new LinkedHashMap<>();
+        msg.put("apps", list);
+        return msg;
+    }
+
+    /** Compact JSON, enough for maps, lists, strings, numbers and booleans. */
+    private static String json(Object v) {
+        if (v instanceof Map) {
+            StringBuilder sb = new StringBuilder("{");
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) v).entrySet()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append('"').append(e.getKey()).append("\":").append(json(e.getValue()));
+            }
+            return sb.append('}').toString();
+        }
+        if (v instanceof List) {
+            StringBuilder sb = new StringBuilder("[");
+            for (Object o : (List<?>) v) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(json(o));
+            }
+            return sb.append(']').toString();
+        }
+        if (v instanceof String) return "\"" + v + "\"";
+        return String.valueOf(v);
+    }
+}
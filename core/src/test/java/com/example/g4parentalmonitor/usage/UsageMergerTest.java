@@ -0,0 +1,101 @@
+package com.example.g4parentalmonitor.usage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import com.example.g4parentalmonitor.core.UsageEventSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class UsageMergerTest {
+
+    private static final long MIDNIGHT = 1_700_000_000_000L;
+    private static final long MIN = 60_000L;
+
+    /** Scripted events, replayed in the order added. */
+    private static final class Script implements UsageEventSource {
+        private final List<Event> events = new ArrayList<>();
+
+        Script at(long offsetMs, int type, String pkg) {
+            Event e = new Event();
+            e.timeStamp   = MIDNIGHT + offsetMs;
+            e.type        = type;
+            e.packageName = pkg;
+            events.add(e);
+            return this;
+        }
+
+        @Override
+        public Cursor query(long begin, long end) {
+            Iterator<Event> it = events.iterator();
+            return out -> {
+                if (!it.hasNext()) return false;
+                Event e = it.next();
+                out.timeStamp   = e.timeStamp;
+                out.type        = e.type;
+                out.packageName = e.packageName;
+                return true;
+            };
+        }
+    }
+
+    @Test
+    public void foregroundSwitches_closeThePreviousSession() {
+        Script s = new Script()
+                .at(0,       UsageEventSource.FOREGROUND, "com.a")
+                .at(5 * MIN, UsageEventSource.FOREGROUND, "com.b")
+                .at(8 * MIN, UsageEventSource.BACKGROUND, "com.b");
+
+        Map<String, Long> totals = UsageMerger.computeEventBased(s, MIDNIGHT, MIDNIGHT + 60 * MIN);
+
+        assertEquals(5 * MIN, (long) totals.get("com.a"));
+        assertEquals(3 * MIN, (long) totals.get("com.b"));
+    }
+
+    @Test
+    public void screenOff_endsTheSession_andLaunchersAreIgnored() {
+        Script s = new Script()
+                .at(0,        UsageEventSource.FOREGROUND, "com.a")
+                .at(2 * MIN,  UsageEventSource.FOREGROUND, "com.android.launcher3")
+                .at(4 * MIN,  UsageEventSource.SCREEN_OFF, null)
+                .at(50 * MIN, UsageEventSource.SCREEN_ON,  null);
+
+        Map<String, Long> totals = UsageMerger.computeEventBased(s, MIDNIGHT, MIDNIGHT + 60 * MIN);
+
+        assertEquals(4 * MIN, (long) totals.get("com.a"));
+        assertFalse(totals.containsKey("com.android.launcher3"));
+    }
+
+    @Test
+    public void liveSession_isCappedAfterInactivity() {
+        Script s = new Script().at(0, UsageEventSource.FOREGROUND, "com.a");
+
+        Map<String, Long> totals = UsageMerger.computeEventBased(s, MIDNIGHT, MIDNIGHT + 90 * MIN);
+
+        assertEquals(30 * MIN, (long) totals.get("com.a"));
+    }
+
+    @Test
+    public void merge_takesTheLargerOfTheTwoSources() {
+        Map<String, Long> tracker = new HashMap<>();
+        tracker.put("com.a", 10 * MIN);
+        tracker.put("com.android.systemui", MIN);
+        Map<String, Long> events = new HashMap<>();
+        events.put("com.a", 7 * MIN);
+        events.put("com.b", 4 * MIN);
+
+        Map<String, Long> merged = UsageMerger.merge(tracker, true, events);
+
+        assertEquals(10 * MIN, (long) merged.get("com.a"));
+        assertEquals(4 * MIN, (long) merged.get("com.b"));
+        assertFalse(merged.containsKey("com.android.systemui"));
+        assertSame(events, UsageMerger.merge(tracker, false, events));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.g4parentalmonitor.vpn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class CaptureRingTest {
+
+    @Test
+    public void drain_returnsRecordsInOrder_withoutCopying() {
+        CaptureRing ring = new CaptureRing(8, CaptureRing.Overflow.DROP_OLDEST);
+        String domain = "www.example.com";
+        ring.offer(domain, 1L, CaptureRing.SOURCE_VPN);
+        ring.offer("a.example.com", 2L, CaptureRing.SOURCE_ACCESSIBILITY);
+
+        List<Object[]> out = new ArrayList<>();
+        assertEquals(2, ring.drain((d, ts, src) -> out.add(new Object[]{d, ts, src})));
+
+        assertTrue(out.get(0)[0] == domain);
+        assertEquals(1L, out.get(0)[1]);
+        assertEquals(CaptureRing.SOURCE_ACCESSIBILITY, out.get(1)[2]);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void full_dropOldest_keepsTheNewestCapacityRecords() {
+        CaptureRing ring = new CaptureRing(4, CaptureRing.Overflow.DROP_OLDEST);
+        for (int i = 0; i < 10; i++) ring.offer("d" + i, i, CaptureRing.SOURCE_VPN);
+
+        List<Long> ts = new ArrayList<>();
+        ring.drain((d, t, src) -> ts.add(t));
+
+        assertEquals(6, ring.dropped());
+        assertEquals(List.of(6L, 7L, 8L, 9L), ts);
+    }
+
+    @Test
+    public void full_spill_handsTheRingToTheSinkInsteadOfDropping() {
+        CaptureRing ring = new CaptureRing(4, CaptureRing.Overflow.SPILL);
+        List<Long> disk = new ArrayList<>();
+        ring.setSpill(r -> r.drain((d, t, src) -> disk.add(t)));
+
+        for (int i = 0; i < 10; i++) ring.offer("d" + i, i, CaptureRing.SOURCE_VPN);
+        ring.drain((d, t, src) -> disk.add(t));
+
+        assertEquals(0, ring.dropped());
+        assertEquals(2, ring.spills());
+        assertEquals(10, disk.size());
+        for (int i = 0; i < 10; i++) assertEquals(i, (long) disk.get(i));
+    }
+
+    @Test
+    public void concurrentProducers_neverLoseOrDuplicateRecords() throws Exception {
+        final int producers = 4, perProducer = 50_000;
+        CaptureRing ring = new CaptureRing(256, CaptureRing.Overflow.DROP_OLDEST);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done  = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            new Thread(() -> {
+                try { start.await(); } catch (InterruptedException ignored) {}
+                for (int i = 0; i < perProducer; i++) ring.offer("p" + id, i, CaptureRing.SOURCE_VPN);
+                done.countDown();
+            }).start();
+        }
+
+        long[] lastSeen = {-1, -1, -1, -1};
+        long[] drained = {0};
+        start.countDown();
+        while (done.getCount() > 0 || ring.size() > 0) {
+            ring.drain((d, ts, src) -> {
+                int id = d.charAt(1) - '0';
+                assertTrue("per-producer order", ts > lastSeen[id]);
+                lastSeen[id] = ts;
+                drained[0]++;
+            });
+        }
+
+        assertEquals(producers * perProducer, drained[0] + ring.dropped());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.g4parentalmonitor.vpn;
+
+import static com.example.g4parentalmonitor.vpn.ScheduleTimelineTest.policy;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/** The scheduled-policy path of DnsFilterEngine, driven by a fake clock in local time. */
+public class DnsFilterEngineTest {
+
+    private static final int SUN = 0, MON = 1, SAT = 6;
+
+    /** Local time in the week of Sunday 7 June 2026, clear of any DST change. */
+    private static long at(int day, int hour, int minute) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(2026, Calendar.JUNE, 7 + day, hour, minute);
+        return cal.getTimeInMillis();
+    }
+
+    private static boolean blocks(DnsFilterEngine engine, String domain) {
+        return engine.decide(domain, 1) instanceof DnsFilterEngine.Block;
+    }
+
+    @Test
+    public void scheduledBlock_followsTheClockAcrossMidnight() {
+        long[] now = { at(MON, 20, 59) };
+        DnsFilterEngine engine = new DnsFilterEngine(() -> now[0]);
+        engine.loadSchedulePolicies(Arrays.asList(policy("instagram.com", "21:00", "07:00", MON)));
+
+        assertFalse(blocks(engine, "cdn.instagram.com"));
+        now[0] = at(MON, 21, 0);
+        assertTrue("cached window expires at the edge", blocks(engine, "cdn.instagram.com"));
+        now[0] = at(MON + 1, 6, 59);
+        assertTrue(blocks(engine, "instagram.com."));
+        now[0] = at(MON + 1, 7, 0);
+        assertFalse(blocks(engine, "cdn.instagram.com"));
+    }
+
+    @Test
+    public void scheduledBlock_wrapsFromSaturdayIntoSunday() {
+        long[] now = { at(SAT, 23, 30) };
+        DnsFilterEngine engine = new DnsFilterEngine(() -> now[0]);
+        engine.loadSchedulePolicies(Arrays.asList(policy("tiktok.com", "22:00", "02:00", SAT)));
+
+        assertTrue(blocks(engine, "tiktok.com"));
+        now[0] = at(SAT + 1, 1, 59);   // Sunday 14 June, minute 119 of the next week
+        assertTrue(blocks(engine, "tiktok.com"));
+        now[0] = at(SAT + 1, 2, 0);
+        assertFalse(blocks(engine, "tiktok.com"));
+        now[0] = at(SUN, 1, 0);         // the Sunday before falls in the same window
+        DnsFilterEngine earlier = new DnsFilterEngine(() -> now[0]);
+        earlier.loadSchedulePolicies(Arrays.asList(policy("tiktok.com", "22:00", "02:00", SAT)));
+        assertTrue(blocks(earlier, "tiktok.com"));
+    }
+
+    @Test
+    public void overlappingPolicies_bothApply() {
+        long[] now = { at(MON, 11, 30) };
+        DnsFilterEngine engine = new DnsFilterEngine(() -> now[0]);
+        engine.loadSchedulePolicies(Arrays.asList(
+                policy("a.com", "09:00", "12:00", MON),
+                policy("b.com", "11:00", "14:00", MON)));
+
+        assertTrue(blocks(engine, "a.com"));
+        assertTrue(blocks(engine, "b.com"));
+        now[0] = at(MON, 12, 0);
+        assertFalse(blocks(engine, "a.com"));
+        assertTrue(blocks(engine, "b.com"));
+    }
+
+    @Test
+    public void emptyOrDisabledPolicies_blockNothingScheduled() {
+        long now = at(MON, 22, 0);
+        DnsFilterEngine engine = new DnsFilterEngine(() -> now);
+        engine.loadSchedulePolicies(Arrays.asList(policy("a.com", "21:00", "07:00", MON)));
+        assertTrue(blocks(engine, "a.com"));
+
+        engine.loadSchedulePolicies(Collections.<DnsSchedulePolicy>emptyList());
+        assertFalse(blocks(engine, "a.com"));
+
+        DnsSchedulePolicy disabled = policy("a.com", "21:00", "07:00", MON);
+        disabled.schedules.get(0).enabled = false;
+        engine.loadSchedulePolicies(Arrays.asList(disabled));
+        assertFalse(blocks(engine, "a.com"));
+
+        engine.loadSchedulePolicies(null);
+        assertFalse(blocks(engine, "a.com"));
+        assertTrue("static block list still applies", blocks(engine, "pornhub.com"));
+    }
+
+    /**
+     * A reload lands in the middle of a query: the clock read inside decide() loads new
+     * policies. That query may still answer from the policy it started with; the next
+     * one must see the new policy, whether the old window had expired or not.
+     */
+    @Test
+    public void reloadDuringDecide_takesEffectByTheNextQuery() {
+        List<DnsSchedulePolicy> first = Arrays.asList(policy("first.com", "00:00", "00:00", SUN, MON));
+        List<DnsSchedulePolicy> second = Arrays.asList(policy("second.com", "00:00", "00:00", SUN, MON));
+        long now = at(MON, 12, 0);
+        DnsFilterEngine[] engine = new DnsFilterEngine[1];
+        List<List<DnsSchedulePolicy>> reloads = new ArrayList<>();
+        engine[0] = new DnsFilterEngine(() -> {
+            if (!reloads.isEmpty()) engine[0].loadSchedulePolicies(reloads.remove(0));
+            return now;
+        });
+
+        engine[0].loadSchedulePolicies(first);
+        reloads.add(second);
+        blocks(engine[0], "x.com");   // window expired: resolving it races the reload
+        assertTrue(blocks(engine[0], "second.com"));
+        assertFalse(blocks(engine[0], "first.com"));
+
+        reloads.add(first);
+        blocks(engine[0], "x.com");   // window still valid: the reload replaces it
+        assertTrue(blocks(engine[0], "first.com"));
+        assertFalse(blocks(engine[0], "second.com"));
+    }
+}
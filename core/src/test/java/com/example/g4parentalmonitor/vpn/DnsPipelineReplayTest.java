@@ -0,0 +1,85 @@
+package com.example.g4parentalmonitor.vpn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Runs DnsPipeline end-to-end on the JVM via TunReplayHarness. The tests assert on
+ * answers and timeouts; each Report also carries qps, allocations/query and latency
+ * percentiles (see its toString) for comparing runs when touching the DNS loop.
+ */
+public class DnsPipelineReplayTest {
+
+    private static final int QUERIES = 2_000;
+
+    @Test
+    public void syntheticTraffic_allQueriesAnswered() throws Exception {
+        try (StandInResolver resolver = new StandInResolver(0, 0)) {
+            DnsPipeline pipeline = new DnsPipeline(new DnsFilterEngine(),
+                    resolver.address(), resolver.port(), 1_000, null, null);
+
+            TunReplayHarness.Report report =
+                    TunReplayHarness.replay(TunReplayHarness.syntheticQueries(QUERIES, 1), pipeline);
+
+            assertEquals(QUERIES, report.answered);
+        }
+    }
+
+    @Test
+    public void lossyUpstream_timesOutIntoNxDomain() throws Exception {
+        try (StandInResolver resolver = new StandInResolver(2, 0.05)) {
+            DnsPipeline pipeline = new DnsPipeline(new DnsFilterEngine(),
+                    resolver.address(), resolver.port(), 50, null, null);
+
+            TunReplayHarness.Report report =
+                    TunReplayHarness.replay(TunReplayHarness.syntheticQueries(500, 2), pipeline);
+
+            assertEquals(500, report.answered);
+            assertTrue("lost queries should wait out the timeout", report.maxMicros >= 50_000);
+        }
+    }
+
+    @Test
+    public void blockedAndSafeSearchDomains_neverReachUpstream() throws Exception {
+        try (StandInResolver resolver = new StandInResolver(0, 0)) {
+            DnsPipeline pipeline = new DnsPipeline(new DnsFilterEngine(),
+                    resolver.address(), resolver.port(), 1_000, null, null);
+
+            byte[] blocked = DnsPackets.buildQuery(7, 40000, "www.pornhub.com", 1);
+            byte[] nx = pipeline.process(blocked, blocked.length);
+            assertNotNull(nx);
+            assertEquals(0x03, nx[28 + 3] & 0x0F); // RCODE NXDOMAIN
+
+            byte[] google = DnsPackets.buildQuery(8, 40001, "www.google.com", 1);
+            byte[] redirected = pipeline.process(google, google.length);
+            assertNotNull(redirected);
+            assertEquals(1, ((redirected[28 + 6] & 0xFF) << 8) | (redirected[28 + 7] & 0xFF)); // ANCOUNT
+
+            assertEquals(0, resolver.received.get());
+        }
+    }
+
+    @Test
+    public void pcapCapture_replaysLikeSyntheticTraffic() throws Exception {
+        List<byte[]> packets = TunReplayHarness.syntheticQueries(300, 3);
+        ByteArrayOutputStream pcap = new ByteArrayOutputStream();
+        PcapReader.writeRaw(packets, pcap);
+
+        List<byte[]> replayed = PcapReader.readDnsQueries(new ByteArrayInputStream(pcap.toByteArray()));
+        assertEquals(packets.size(), replayed.size());
+
+        try (StandInResolver resolver = new StandInResolver(0, 0)) {
+            DnsPipeline pipeline = new DnsPipeline(new DnsFilterEngine(),
+                    resolver.address(), resolver.port(), 1_000, null, null);
+            TunReplayHarness.Report report = TunReplayHarness.replay(replayed, pipeline);
+            assertEquals(300, report.answered);
+        }
+    }
+}
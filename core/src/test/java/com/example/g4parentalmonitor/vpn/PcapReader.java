@@ -0,0 +1,104 @@
+package com.example.g4parentalmonitor.vpn;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal reader for classic libpcap captures (not pcapng). Returns the IPv4 packets
+ * addressed to UDP port 53, with the link-layer header stripped, ready to be fed to
+ * DnsPipeline as if read from the tun fd.
+ *
+ * Supported link types: RAW (101), Ethernet (1), Linux cooked (113).
+ */
+final class PcapReader {
+
+    private static final int MAGIC_MICROS = 0xa1b2c3d4;
+    private static final int MAGIC_NANOS  = 0xa1b23c4d;
+
+    static final int LINKTYPE_ETHERNET = 1;
+    static final int LINKTYPE_RAW      = 101;
+    static final int LINKTYPE_LINUX_SLL = 113;
+
+    private PcapReader() {}
+
+    static List<byte[]> readDnsQueries(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        byte[] header = new byte[24];
+        in.readFully(header);
+
+        ByteBuffer hb = ByteBuffer.wrap(header).order(ByteOrder.BIG_ENDIAN);
+        int magic = hb.getInt(0);
+        if (magic != MAGIC_MICROS && magic != MAGIC_NANOS) {
+            hb.order(ByteOrder.LITTLE_ENDIAN);
+            magic = hb.getInt(0);
+            if (magic != MAGIC_MICROS && magic != MAGIC_NANOS) throw new IOException("Not a pcap file");
+        }
+        ByteOrder order = hb.order();
+        int linkType = hb.getInt(20);
+        int linkHeader;
+        switch (linkType) {
+            case LINKTYPE_RAW:       linkHeader = 0;  break;
+            case LINKTYPE_ETHERNET:  linkHeader = 14; break;
+            case LINKTYPE_LINUX_SLL: linkHeader = 16; break;
+            default: throw new IOException("Unsupported link type " + linkType);
+        }
+
+        List<byte[]> out = new ArrayList<>();
+        byte[] recHeader = new byte[16];
+        while (true) {
+            try {
+                in.readFully(recHeader);
+            } catch (EOFException e) {
+                break;
+            }
+            int inclLen = ByteBuffer.wrap(recHeader).order(order).getInt(8);
+            byte[] frame = new byte[inclLen];
+            in.readFully(frame);
+
+            int ipLen = inclLen - linkHeader;
+            if (ipLen < 28) continue;
+            byte[] ip = new byte[ipLen];
+            System.arraycopy(frame, linkHeader, ip, 0, ipLen);
+            if (isIpv4UdpToPort53(ip)) out.add(ip);
+        }
+        return out;
+    }
+
+    /** Writes packets as a RAW-linktype capture; used to round-trip synthetic traffic. */
+    static void writeRaw(List<byte[]> packets, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC_MICROS);
+        out.writeShort(2);   // version major
+        out.writeShort(4);   // version minor
+        out.writeInt(0);     // thiszone
+        out.writeInt(0);     // sigfigs
+        out.writeInt(65535); // snaplen
+        out.writeInt(LINKTYPE_RAW);
+        int ts = 0;
+        for (byte[] p : packets) {
+            out.writeInt(ts++);
+            out.writeInt(0);
+            out.writeInt(p.length);
+            out.writeInt(p.length);
+            out.write(p);
+        }
+        out.flush();
+    }
+
+    private static boolean isIpv4UdpToPort53(byte[] ip) {
+        if (((ip[0] >> 4) & 0xF) != 4) return false;
+        if ((ip[9] & 0xFF) != 17) return false;
+        int ihl = (ip[0] & 0xF) * 4;
+        if (ihl != 20) return false; // DnsPacketParser assumes no IP options
+        int dstPort = ((ip[22] & 0xFF) << 8) | (ip[23] & 0xFF);
+        return dstPort == 53;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.g4parentalmonitor.vpn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.g4parentalmonitor.data.AppRule;
+import com.example.g4parentalmonitor.data.DnsSchedulePolicy;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ScheduleTimelineTest {
+
+    private static final int SUN = 0, MON = 1, TUE = 2, SAT = 6;
+
+    static DnsSchedulePolicy policy(String domain, String start, String end, Integer... days) {
+        AppRule.Schedule s = new AppRule.Schedule();
+        s.enabled = true;
+        s.startTime = start;
+        s.endTime = end;
+        s.days = Arrays.asList(days);
+        DnsSchedulePolicy p = new DnsSchedulePolicy();
+        p.name = domain;
+        p.domains = Arrays.asList(domain);
+        p.schedules = Arrays.asList(s);
+        return p;
+    }
+
+    private static int minute(int day, int hour, int minute) {
+        return day * ScheduleTimeline.MINUTES_PER_DAY + hour * 60 + minute;
+    }
+
+    private static Set<String> at(ScheduleTimeline t, int minuteOfWeek) {
+        return t.domainsAt(t.segmentAt(minuteOfWeek));
+    }
+
+    @Test
+    public void overnightWindow_runsPastMidnight() {
+        ScheduleTimeline t = ScheduleTimeline.compile(Arrays.asList(policy("instagram.com", "21:00", "07:00", MON)));
+
+        assertTrue(at(t, minute(MON, 20, 59)).isEmpty());
+        assertEquals(Collections.singleton("instagram.com"), at(t, minute(MON, 21, 0)));
+        assertEquals(Collections.singleton("instagram.com"), at(t, minute(TUE, 6, 59)));
+        assertTrue(at(t, minute(TUE, 7, 0)).isEmpty());
+        assertEquals(minute(TUE, 7, 0), t.segmentEnd(t.segmentAt(minute(MON, 23, 0))));
+    }
+
+    @Test
+    public void windows_wrapAroundTheWeek() {
+        ScheduleTimeline t = ScheduleTimeline.compile(Arrays.asList(
+                policy("saturday.com", "22:00", "02:00", SAT),
+                policy("sunday.com", "21:00", "07:00", SUN)));
+
+        // Saturday night → Sunday morning crosses the end of the week
+        assertEquals(Collections.singleton("saturday.com"), at(t, minute(SAT, 23, 59)));
+        assertEquals(ScheduleTimeline.MINUTES_PER_WEEK, t.segmentEnd(t.segmentAt(minute(SAT, 23, 59))));
+        assertEquals(Collections.singleton("saturday.com"), at(t, minute(SUN, 0, 0)));
+        assertEquals(Collections.singleton("saturday.com"), at(t, minute(SUN, 1, 59)));
+        assertTrue(at(t, minute(SUN, 2, 0)).isEmpty());
+
+        // Sunday night → Monday morning
+        assertEquals(Collections.singleton("sunday.com"), at(t, minute(SUN, 21, 0)));
+        assertEquals(Collections.singleton("sunday.com"), at(t, minute(MON, 6, 59)));
+        assertTrue(at(t, minute(MON, 7, 0)).isEmpty());
+    }
+
+    @Test
+    public void overlappingPolicies_blockTheUnion() {
+        ScheduleTimeline t = ScheduleTimeline.compile(Arrays.asList(
+                policy("a.com", "09:00", "12:00", MON),
+                policy("b.com", "11:00", "14:00", MON)));
+
+        assertEquals(Collections.singleton("a.com"), at(t, minute(MON, 10, 0)));
+        assertEquals(new HashSet<>(Arrays.asList("a.com", "b.com")), at(t, minute(MON, 11, 30)));
+        assertEquals(Collections.singleton("b.com"), at(t, minute(MON, 12, 0)));
+        assertTrue(at(t, minute(MON, 14, 0)).isEmpty());
+        assertEquals("0, 09:00, 11:00, 12:00, 14:00", 5, t.segmentCount());
+        assertSame("equal segments share one set", at(t, 0), at(t, minute(MON, 14, 0)));
+    }
+
+    @Test
+    public void wholeDay_whenStartEqualsEnd() {
+        ScheduleTimeline t = ScheduleTimeline.compile(Arrays.asList(policy("a.com", "00:00", "00:00", TUE)));
+        assertEquals(Collections.singleton("a.com"), at(t, minute(TUE, 0, 0)));
+        assertEquals(Collections.singleton("a.com"), at(t, minute(TUE, 23, 59)));
+        assertTrue(at(t, minute(TUE + 1, 0, 0)).isEmpty());
+    }
+
+    @Test
+    public void nothingToEnforce_compilesToNull() {
+        assertNull(ScheduleTimeline.compile(null));
+        assertNull(ScheduleTimeline.compile(Collections.<DnsSchedulePolicy>emptyList()));
+
+        DnsSchedulePolicy disabled = policy("a.com", "21:00", "07:00", MON);
+        disabled.schedules.get(0).enabled = false;
+        DnsSchedulePolicy noDomains = policy(" ", "21:00", "07:00", MON);
+        DnsSchedulePolicy badTime = policy("a.com", "25:00", "07:00", MON);
+        DnsSchedulePolicy badDay = policy("a.com", "21:00", "07:00", 7);
+        assertNull(ScheduleTimeline.compile(Arrays.asList(disabled, noDomains, badTime, badDay, null)));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.g4parentalmonitor.vpn;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local UDP resolver standing in for 8.8.8.8. Answers every query with an empty
+ * NOERROR response after {@code latencyMs}, and silently drops a {@code lossRate}
+ * fraction of them so the pipeline's upstream timeout path is exercised.
+ */
+final class StandInResolver implements AutoCloseable {
+
+    private final DatagramSocket socket;
+    private final ScheduledExecutorService replies = Executors.newSingleThreadScheduledExecutor();
+    private final Thread receiver;
+    private final long latencyMs;
+    private final double lossRate;
+    private final Random random = new Random(42);
+
+    final AtomicLong received = new AtomicLong();
+    final AtomicLong dropped  = new AtomicLong();
+
+    StandInResolver(long latencyMs, double lossRate) throws Exception {
+        this.latencyMs = latencyMs;
+        this.lossRate  = lossRate;
+        this.socket    = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.receiver  = new Thread(this::serve, "stand-in-resolver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    InetAddress address() { return socket.getLocalAddress(); }
+    int port()            { return socket.getLocalPort(); }
+
+    private void serve() {
+        byte[] buf = new byte[4096];
+        while (!socket.isClosed()) {
+            try {
+                DatagramPacket in = new DatagramPacket(buf, buf.length);
+                socket.receive(in);
+                received.incrementAndGet();
+
+                byte[] reply = new byte[in.getLength()];
+                System.arraycopy(buf, 0, reply, 0, reply.length);
+                reply[2] = (byte) 0x81; // QR=1, RD=1
+                reply[3] = (byte) 0x80; // RA=1, NOERROR
+                DatagramPacket out = new DatagramPacket(reply, reply.length, in.getSocketAddress());
+
+                if (random.nextDouble() < lossRate) { dropped.incrementAndGet(); continue; }
+                if (latencyMs <= 0) {
+                    socket.send(out);
+                } else {
+                    replies.schedule(() -> {
+                        try { socket.send(out); } catch (Exception ignored) {}
+                    }, latencyMs, TimeUnit.MILLISECONDS);
+                }
+            } catch (Exception e) {
+                if (socket.isClosed()) return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        replies.shutdownNow();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.g4parentalmonitor.vpn;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays DNS traffic through DnsPipeline on a plain JVM.
+ *
+ * In place of the tun fd the pipeline reads from {@link TunInput}, which hands out one
+ * recorded (pcap) or synthetic packet per read() like a tun device does, and writes to
+ * {@link TunOutput}, which timestamps each response. Upstream forwarding goes to a
+ * {@link StandInResolver} on localhost.
+ */
+final class TunReplayHarness {
+
+    static final class Report {
+        int    queries;
+        int    answered;
+        double queriesPerSecond;
+        double allocatedBytesPerQuery;
+        long   p50Micros, p90Micros, p99Micros, maxMicros;
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "queries=%d answered=%d qps=%.0f alloc/query=%.0fB p50=%dus p90=%dus p99=%dus max=%dus",
+                    queries, answered, queriesPerSecond, allocatedBytesPerQuery,
+                    p50Micros, p90Micros, p99Micros, maxMicros);
+        }
+    }
+
+    // ── Traffic sources ───────────────────────────────────────────────────────
+
+    /** Skewed mix of browsing, SafeSearch and blocked domains (rank 1 is by far the most common). */
+    static final String[] DOMAINS = {
+            "www.google.com", "i.ytimg.com", "fonts.gstatic.com", "www.youtube.com",
+            "cdn.jsdelivr.net", "www.wikipedia.org", "en.m.wikipedia.org", "static.xx.fbcdn.net",
+            "www.instagram.com", "graph.instagram.com", "www.bing.com", "www.reddit.com",
+            "i.redd.it", "pornhub.com", "www.xvideos.com", "api.github.com",
+            "news.ycombinator.com", "www.bbc.co.uk", "cdn.cnn.com", "ssl.gstatic.com"
+    };
+
+    static List<byte[]> syntheticQueries(int count, long seed) {
+        Random random = new Random(seed);
+        double[] cumulative = new double[DOMAINS.length];
+        double sum = 0;
+        for (int i = 0; i < DOMAINS.length; i++) {
+            sum += 1.0 / (i + 1); // Zipf, s = 1
+            cumulative[i] = sum;
+        }
+        List<byte[]> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble() * sum;
+            int idx = Arrays.binarySearch(cumulative, r);
+            if (idx < 0) idx = -idx - 1;
+            int qtype = random.nextInt(4) == 0 ? 28 : 1;
+            out.add(DnsPackets.buildQuery(i & 0xFFFF, 40000 + (i % 20000), DOMAINS[Math.min(idx, DOMAINS.length - 1)], qtype));
+        }
+        return out;
+    }
+
+    // ── Replay ────────────────────────────────────────────────────────────────
+
+    static Report replay(List<byte[]> packets, DnsPipeline pipeline) throws Exception {
+        TunInput  in  = new TunInput(packets);
+        TunOutput out = new TunOutput(in, packets.size());
+
+        com.sun.management.ThreadMXBean mx =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long allocBefore = mx.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        pipeline.run(in, out, () -> true);
+        long elapsedNs = System.nanoTime() - start;
+        long allocated = mx.getThreadAllocatedBytes(tid) - allocBefore;
+
+        Report r = new Report();
+        r.queries  = packets.size();
+        r.answered = out.count;
+        r.queriesPerSecond       = packets.size() / (elapsedNs / 1e9);
+        r.allocatedBytesPerQuery = (double) allocated / Math.max(1, packets.size());
+
+        long[] lat = Arrays.copyOf(out.latencyMicros, out.count);
+        Arrays.sort(lat);
+        if (lat.length > 0) {
+            r.p50Micros = lat[(int) Math.min(lat.length - 1, Math.ceil(lat.length * 0.50) - 1)];
+            r.p90Micros = lat[(int) Math.min(lat.length - 1, Math.ceil(lat.length * 0.90) - 1)];
+            r.p99Micros = lat[(int) Math.min(lat.length - 1, Math.ceil(lat.length * 0.99) - 1)];
+            r.maxMicros = lat[lat.length - 1];
+        }
+        return r;
+    }
+
+    /** One packet per read(), -1 when the capture is exhausted. */
+    static final class TunInput extends InputStream {
+        private final List<byte[]> packets;
+        private int next;
+        long lastReadNs;
+
+        TunInput(List<byte[]> packets) { this.packets = packets; }
+
+        @Override public int read() { throw new UnsupportedOperationException("packet device"); }
+
+        @Override
+        public int read(byte[] b) {
+            if (next >= packets.size()) return -1;
+            byte[] p = packets.get(next++);
+            System.arraycopy(p, 0, b, 0, p.length);
+            lastReadNs = System.nanoTime();
+            return p.length;
+        }
+    }
+
+    /** Records the latency of each response relative to the read() of its query. */
+    static final class TunOutput extends OutputStream {
+        private final TunInput in;
+        final long[] latencyMicros;
+        int count;
+
+        TunOutput(TunInput in, int capacity) {
+            this.in = in;
+            this.latencyMicros = new long[capacity];
+        }
+
+        @Override public void write(int b) { throw new UnsupportedOperationException("packet device"); }
+
+        @Override
+        public void write(byte[] b) {
+            if (count < latencyMicros.length) latencyMicros[count] = (System.nanoTime() - in.lastReadNs) / 1000;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.g4parentalmonitor.vpn;
+
+/**
+ * Raw DNS packets as they cross the tun device, for the replay tests and the benchmarks.
+ * Test fixture: not part of the app.
+ */
+public final class DnsPackets {
+
+    private DnsPackets() {}
+
+    /** IPv4 + UDP + DNS query from 10.0.0.1 to the VPN's DNS address 10.0.0.2:53. */
+    public static byte[] buildQuery(int txId, int srcPort, String domain, int qtype) {
+        String[] labels = domain.split("\\.");
+        int qnameLen = 1;
+        for (String l : labels) qnameLen += 1 + l.length();
+        int dnsLen = 12 + qnameLen + 4;
+        byte[] p = new byte[28 + dnsLen];
+
+        p[0] = 0x45;
+        p[2] = (byte) (p.length >> 8); p[3] = (byte) p.length;
+        p[8] = 64;
+        p[9] = 17;
+        p[12] = 10; p[13] = 0; p[14] = 0; p[15] = 1;
+        p[16] = 10; p[17] = 0; p[18] = 0; p[19] = 2;
+
+        p[20] = (byte) (srcPort >> 8); p[21] = (byte) srcPort;
+        p[22] = 0; p[23] = 53;
+        p[24] = (byte) ((8 + dnsLen) >> 8); p[25] = (byte) (8 + dnsLen);
+
+        p[28] = (byte) (txId >> 8); p[29] = (byte) txId;
+        p[30] = 0x01;                 // RD
+        p[33] = 1;                    // QDCOUNT
+        int o = 40;
+        for (String l : labels) {
+            p[o++] = (byte) l.length();
+            for (int i = 0; i < l.length(); i++) p[o++] = (byte) l.charAt(i);
+        }
+        p[o++] = 0;
+        p[o++] = (byte) (qtype >> 8); p[o++] = (byte) qtype;
+        p[o++] = 0; p[o] = 1;         // QCLASS IN
+        return p;
+    }
+
+    /** Upstream answer for {@code query}: the question echoed back with one A record. */
+    public static byte[] upstreamAnswer(byte[] query) {
+        int dnsLen = query.length - 28;
+        byte[] dns = new byte[dnsLen + 16];
+        System.arraycopy(query, 28, dns, 0, dnsLen);
+        dns[2] = (byte) 0x81; dns[3] = (byte) 0x80; // QR RD RA, NOERROR
+        dns[7] = 1;                                   // ANCOUNT
+        int o = dnsLen;
+        dns[o++] = (byte) 0xC0; dns[o++] = 0x0C;      // name → question
+        dns[o++] = 0; dns[o++] = 1;                   // TYPE A
+        dns[o++] = 0; dns[o++] = 1;                   // CLASS IN
+        dns[o++] = 0; dns[o++] = 0; dns[o++] = 0x0E; dns[o++] = 0x10; // TTL 3600
+        dns[o++] = 0; dns[o++] = 4;
+        dns[o++] = 93; dns[o++] = (byte) 184; dns[o++] = (byte) 216; dns[o] = 34;
+        return dns;
+    }
+}
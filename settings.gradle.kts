@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "G4ParentalMonitor"
 include(":app")
+include(":core")
+include(":benchmark")